@@ -44,6 +44,11 @@ public class XooBlameCommand extends BlameCommand {
     }
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @VisibleForTesting
   protected void processFile(InputFile inputFile, BlameOutput result) {
     File ioFile = inputFile.file();
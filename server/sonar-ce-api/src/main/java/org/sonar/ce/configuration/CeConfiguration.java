@@ -42,4 +42,16 @@ public interface CeConfiguration {
    */
   long getCleanCeTasksDelay();
 
+  /**
+   * The maximum number of independent {@link org.sonar.server.computation.task.step.ComputationStep} of a single task
+   * which can be executed concurrently. {@code 1} means steps are executed sequentially.
+   */
+  int getComputationStepsParallelism();
+
+  /**
+   * The maximum number of threads used to track the issues of the files of a single task.
+   * {@code 1} means issues are tracked sequentially.
+   */
+  int getIssueTrackingParallelism();
+
 }
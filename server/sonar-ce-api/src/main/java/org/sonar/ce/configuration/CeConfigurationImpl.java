@@ -31,13 +31,20 @@ import static java.lang.String.format;
  * Immutable implementation of {@link CeConfiguration} which takes value returned by
  * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY} and
  * always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when {@link CeConfiguration#getQueuePollingDelay()} is called.
+ * Value returned by {@link CeConfiguration#getComputationStepsParallelism()} is taken from property
+ * {@link CeConfigurationImpl#CE_STEPS_PARALLELISM_PROPERTY} and value returned by
+ * {@link CeConfiguration#getIssueTrackingParallelism()} from property {@link CeConfigurationImpl#CE_ISSUE_TRACKING_PARALLELISM_PROPERTY}.
  */
 public class CeConfigurationImpl implements CeConfiguration, Startable {
   private static final String CE_WORKERS_COUNT_PROPERTY = "sonar.ce.workerCount";
+  private static final String CE_STEPS_PARALLELISM_PROPERTY = "sonar.ce.stepsParallelism";
+  private static final String CE_ISSUE_TRACKING_PARALLELISM_PROPERTY = "sonar.ce.issueTrackingParallelism";
 
   private static final Logger LOG = Loggers.get(CeConfigurationImpl.class);
 
   private static final int DEFAULT_WORKER_COUNT = 1;
+  private static final int DEFAULT_STEPS_PARALLELISM = 1;
+  private static final int DEFAULT_ISSUE_TRACKING_PARALLELISM = 1;
   // 2 seconds
   private static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
   // 1 minute
@@ -46,33 +53,40 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   private static final long CANCEL_WORN_OUTS_DELAY = 10;
 
   private final int workerCount;
+  private final int stepsParallelism;
+  private final int issueTrackingParallelism;
 
   public CeConfigurationImpl(Settings settings) {
-    String workerCountAsStr = settings.getString(CE_WORKERS_COUNT_PROPERTY);
-    if (workerCountAsStr == null || workerCountAsStr.isEmpty()) {
-      this.workerCount = DEFAULT_WORKER_COUNT;
-    } else {
-      this.workerCount = parseStringValue(workerCountAsStr);
+    this.workerCount = readPositiveInt(settings, CE_WORKERS_COUNT_PROPERTY, DEFAULT_WORKER_COUNT);
+    this.stepsParallelism = readPositiveInt(settings, CE_STEPS_PARALLELISM_PROPERTY, DEFAULT_STEPS_PARALLELISM);
+    this.issueTrackingParallelism = readPositiveInt(settings, CE_ISSUE_TRACKING_PARALLELISM_PROPERTY, DEFAULT_ISSUE_TRACKING_PARALLELISM);
+  }
+
+  private static int readPositiveInt(Settings settings, String propertyKey, int defaultValue) {
+    String valueAsStr = settings.getString(propertyKey);
+    if (valueAsStr == null || valueAsStr.isEmpty()) {
+      return defaultValue;
     }
+    return parseStringValue(propertyKey, valueAsStr);
   }
 
-  private static int parseStringValue(String workerCountAsStr) {
+  private static int parseStringValue(String propertyKey, String valueAsStr) {
     try {
-      int value = Integer.parseInt(workerCountAsStr);
+      int value = Integer.parseInt(valueAsStr);
       if (value < 1) {
-        throw parsingError(workerCountAsStr);
+        throw parsingError(propertyKey, valueAsStr);
       }
       return value;
     } catch (NumberFormatException e) {
-      throw parsingError(workerCountAsStr);
+      throw parsingError(propertyKey, valueAsStr);
     }
   }
 
-  private static MessageException parsingError(String workerCountAsStr) {
+  private static MessageException parsingError(String propertyKey, String valueAsStr) {
     return MessageException.of(format(
       "value '%s' of property %s is invalid. It must an integer strictly greater than 0.",
-      workerCountAsStr,
-      CE_WORKERS_COUNT_PROPERTY)
+      valueAsStr,
+      propertyKey)
       );
   }
 
@@ -81,6 +95,12 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     if (this.workerCount > 1) {
       LOG.info("Compute Engine will use {} concurrent workers to process tasks", this.workerCount);
     }
+    if (this.stepsParallelism > 1) {
+      LOG.info("Compute Engine will execute up to {} independent steps of a task concurrently", this.stepsParallelism);
+    }
+    if (this.issueTrackingParallelism > 1) {
+      LOG.info("Compute Engine will track issues of a task with up to {} threads", this.issueTrackingParallelism);
+    }
   }
 
   @Override
@@ -108,4 +128,14 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     return CANCEL_WORN_OUTS_DELAY;
   }
 
+  @Override
+  public int getComputationStepsParallelism() {
+    return stepsParallelism;
+  }
+
+  @Override
+  public int getIssueTrackingParallelism() {
+    return issueTrackingParallelism;
+  }
+
 }
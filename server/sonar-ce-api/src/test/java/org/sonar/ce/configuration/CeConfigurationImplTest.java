@@ -32,6 +32,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 public class CeConfigurationImplTest {
   private static final String CE_WORKERS_COUNT_PROPERTY = "sonar.ce.workerCount";
+  private static final String CE_STEPS_PARALLELISM_PROPERTY = "sonar.ce.stepsParallelism";
+  private static final String CE_ISSUE_TRACKING_PARALLELISM_PROPERTY = "sonar.ce.issueTrackingParallelism";
 
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
@@ -110,6 +112,52 @@ public class CeConfigurationImplTest {
       "It must an integer strictly greater than 0");
   }
 
+  @Test
+  public void getComputationStepsParallelism_returns_1_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getComputationStepsParallelism()).isEqualTo(1);
+  }
+
+  @Test
+  public void getComputationStepsParallelism_returns_value_when_property_is_integer_greater_than_1() {
+    settings.setProperty(CE_STEPS_PARALLELISM_PROPERTY, 4);
+
+    assertThat(new CeConfigurationImpl(settings).getComputationStepsParallelism()).isEqualTo(4);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_steps_parallelism_property_is_0() {
+    settings.setProperty(CE_STEPS_PARALLELISM_PROPERTY, "0");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value '0' of property " + CE_STEPS_PARALLELISM_PROPERTY + " is invalid. " +
+      "It must an integer strictly greater than 0");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void getIssueTrackingParallelism_returns_1_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getIssueTrackingParallelism()).isEqualTo(1);
+  }
+
+  @Test
+  public void getIssueTrackingParallelism_returns_value_when_property_is_integer_greater_than_1() {
+    settings.setProperty(CE_ISSUE_TRACKING_PARALLELISM_PROPERTY, 4);
+
+    assertThat(new CeConfigurationImpl(settings).getIssueTrackingParallelism()).isEqualTo(4);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_issue_tracking_parallelism_property_is_0() {
+    settings.setProperty(CE_ISSUE_TRACKING_PARALLELISM_PROPERTY, "0");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value '0' of property " + CE_ISSUE_TRACKING_PARALLELISM_PROPERTY + " is invalid. " +
+      "It must an integer strictly greater than 0");
+
+    new CeConfigurationImpl(settings);
+  }
+
   @Test
   public void getCleanCeTasksInitialDelay_returns_1() {
     assertThat(new CeConfigurationImpl(settings).getCleanCeTasksInitialDelay())
@@ -23,6 +23,7 @@ import org.sonar.ce.monitoring.CEQueueStatusImpl;
 import org.sonar.ce.monitoring.CeTasksMBeanImpl;
 import org.sonar.ce.queue.CeQueueInitializer;
 import org.sonar.ce.queue.InternalCeQueueImpl;
+import org.sonar.ce.queue.PendingTasksSignal;
 import org.sonar.core.platform.Module;
 
 public class CeQueueModule extends Module {
@@ -31,6 +32,7 @@ public class CeQueueModule extends Module {
     add(
       // queue state
       InternalCeQueueImpl.class,
+      PendingTasksSignal.class,
 
       // queue monitoring
       CEQueueStatusImpl.class,
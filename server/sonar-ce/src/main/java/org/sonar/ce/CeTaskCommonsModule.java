@@ -23,6 +23,8 @@ import org.sonar.core.platform.Module;
 import org.sonar.db.purge.period.DefaultPeriodCleaner;
 import org.sonar.server.computation.dbcleaner.IndexPurgeListener;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
+import org.sonar.server.computation.dbcleaner.PurgeTaskProcessor;
+import org.sonar.server.computation.dbcleaner.PurgeTaskSubmitter;
 
 /**
  * Globally available components in CE for tasks to use.
@@ -33,6 +35,8 @@ public class CeTaskCommonsModule extends Module {
     add(
       DefaultPeriodCleaner.class,
       ProjectCleaner.class,
-      IndexPurgeListener.class);
+      IndexPurgeListener.class,
+      PurgeTaskSubmitter.class,
+      PurgeTaskProcessor.class);
   }
 }
@@ -140,6 +140,7 @@ import org.sonar.server.startup.LogServerId;
 import org.sonar.server.test.index.TestIndexer;
 import org.sonar.server.user.DefaultUserFinder;
 import org.sonar.server.user.DeprecatedUserFinder;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.util.OkHttpClientProvider;
@@ -343,6 +344,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       PermissionUpdater.class,
       UserPermissionChanger.class,
       GroupPermissionChanger.class,
+      UserPermissionCache.class,
 
       // components
       ComponentFinder.class, // used in ComponentService
@@ -61,6 +61,19 @@ public interface CEQueueStatus {
    */
   long addError(long processingTime);
 
+  /**
+   * Adds the specified time to the waiting time counter, when a batch report starts being processed.
+   *
+   * @param waitingTime duration between the submission of the batch report and the start of its processing, in ms
+   *
+   * @return the new waiting time counter
+   *
+   * @see #getWaitingTime()
+   *
+   * @throws IllegalArgumentException if waitingTime is < 0
+   */
+  long addWaitingTime(long waitingTime);
+
   /**
    * Count of batch reports waiting for processing since startup, including reports received before instance startup.
    */
@@ -85,4 +98,9 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Time spent by batch reports waiting in queue before being processed since startup, in milliseconds.
+   */
+  long getWaitingTime();
 }
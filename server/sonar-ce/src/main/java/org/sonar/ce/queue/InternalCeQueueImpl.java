@@ -55,16 +55,23 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
+  private final PendingTasksSignal pendingTasksSignal;
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
-    DefaultOrganizationProvider defaultOrganizationProvider) {
+    DefaultOrganizationProvider defaultOrganizationProvider, PendingTasksSignal pendingTasksSignal) {
     super(dbClient, uuidFactory, defaultOrganizationProvider);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
+    this.pendingTasksSignal = pendingTasksSignal;
+  }
+
+  @Override
+  protected void onTasksSubmitted() {
+    pendingTasksSignal.signal();
   }
 
   @Override
@@ -85,11 +92,19 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
       if (dto.isPresent()) {
         task = loadTask(dbSession, dto.get());
         queueStatus.addInProgress();
+        addWaitingTime(dto.get());
       }
       return Optional.ofNullable(task);
     }
   }
 
+  private void addWaitingTime(CeQueueDto dto) {
+    Long startedAt = dto.getStartedAt();
+    if (startedAt != null) {
+      queueStatus.addWaitingTime(Math.max(startedAt - dto.getCreatedAt(), 0L));
+    }
+  }
+
   @Override
   public int clear() {
     return cancelAll(true);
@@ -186,6 +201,7 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   @Override
   public void resumePeek() {
     this.peekPaused.set(false);
+    pendingTasksSignal.signal();
   }
 
   @Override
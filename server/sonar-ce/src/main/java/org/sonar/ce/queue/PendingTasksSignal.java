@@ -0,0 +1,45 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.sonar.api.ce.ComputeEngineSide;
+
+/**
+ * Signals, within the Compute Engine, that tasks have been added to the queue so that they can be processed without
+ * waiting for the next poll of the queue.
+ * <p>
+ * Tasks submitted from the Web Server are signaled through the HTTP server of the Compute Engine
+ * (see {@link TasksSubmittedHttpAction}).
+ * </p>
+ */
+@ComputeEngineSide
+public class PendingTasksSignal {
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  public void signal() {
+    listeners.forEach(Runnable::run);
+  }
+}
@@ -23,6 +23,9 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
@@ -31,22 +34,44 @@ import org.picocontainer.Startable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.queue.PendingTasksSignal;
 
 import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Chains the executions of each {@link CeWorker}.
+ * <p>
+ * A worker which processed a task is executed again right away. Among the workers which found no task, only one, the
+ * poller, is executed again after {@link CeConfiguration#getQueuePollingDelay()}. The others are idle until they are
+ * woken up, which happens when:
+ * <ul>
+ *   <li>a worker processed a task, as there may be other pending tasks,</li>
+ *   <li>tasks are submitted to the queue, either by the Compute Engine or by the Web Server (see {@link PendingTasksSignal}).</li>
+ * </ul>
+ * </p>
+ */
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startable {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
 
   private final CeProcessingSchedulerExecutorService executorService;
+  private final PendingTasksSignal pendingTasksSignal;
 
   private final long delayBetweenTasks;
   private final TimeUnit timeUnit;
   private final ChainingCallback[] chainingCallbacks;
 
+  // state of idle workers, guarded by this
+  private final Deque<ChainingCallback> idleWorkers = new ArrayDeque<>();
+  @CheckForNull
+  private ChainingCallback poller;
+  // the poller is woken up while it is polling the queue, so it must poll again right away if it finds no task
+  private boolean pollerWakeUpRequested = false;
+
   public CeProcessingSchedulerImpl(CeConfiguration ceConfiguration,
-    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerFactory ceCeWorkerFactory) {
+    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerFactory ceCeWorkerFactory, PendingTasksSignal pendingTasksSignal) {
     this.executorService = processingExecutorService;
+    this.pendingTasksSignal = pendingTasksSignal;
 
     this.delayBetweenTasks = ceConfiguration.getQueuePollingDelay();
     this.timeUnit = MILLISECONDS;
@@ -70,6 +95,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
       ListenableScheduledFuture<Boolean> future = executorService.schedule(chainingCallback.worker, delayBetweenTasks, timeUnit);
       addCallback(future, chainingCallback, executorService);
     }
+    pendingTasksSignal.addListener(this::wakeUpWorker);
   }
 
   @Override
@@ -79,23 +105,91 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     }
   }
 
+  /**
+   * Executes an idle worker right away or, when there is none, brings forward the next execution of the poller.
+   */
+  private synchronized void wakeUpWorker() {
+    if (wakeUpIdleWorker() || poller == null) {
+      return;
+    }
+    // when cancelled, the execution is then chained without delay by ChainingCallback#onFailure
+    if (!poller.cancelDelayedExecution()) {
+      pollerWakeUpRequested = true;
+    }
+  }
+
+  private synchronized boolean wakeUpIdleWorker() {
+    ChainingCallback idleWorker = idleWorkers.poll();
+    if (idleWorker == null) {
+      return false;
+    }
+    idleWorker.chainWithoutDelay();
+    return true;
+  }
+
+  private synchronized void onTaskFound(ChainingCallback worker) {
+    if (poller == worker) {
+      poller = null;
+      pollerWakeUpRequested = false;
+    }
+    worker.chainWithoutDelay();
+    // other tasks may be pending
+    wakeUpIdleWorker();
+  }
+
+  private synchronized void onNoTaskFound(ChainingCallback worker) {
+    if (poller == null || poller == worker) {
+      poller = worker;
+      if (pollerWakeUpRequested) {
+        pollerWakeUpRequested = false;
+        worker.chainWithoutDelay();
+      } else {
+        worker.chainWithDelay();
+      }
+    } else {
+      idleWorkers.add(worker);
+    }
+  }
+
+  private synchronized void onStopped(ChainingCallback worker) {
+    if (poller == worker) {
+      poller = null;
+      pollerWakeUpRequested = false;
+      wakeUpIdleWorker();
+    }
+  }
+
+  /**
+   * Marks the start of a delayed execution of the worker. Returns {@code false} if the delayed execution has been
+   * cancelled in the meantime, in which case the worker must not be executed.
+   */
+  private synchronized boolean startDelayedExecution(ChainingCallback worker) {
+    boolean pending = worker.delayedExecutionPending;
+    worker.delayedExecutionPending = false;
+    return pending;
+  }
+
   private class ChainingCallback implements FutureCallback<Boolean> {
     private final AtomicBoolean keepRunning = new AtomicBoolean(true);
     private final CeWorker worker;
+    private final DelayedExecution delayedExecution;
+    // the worker waits for its delayed execution to start, guarded by CeProcessingSchedulerImpl.this
+    private boolean delayedExecutionPending = false;
 
     @CheckForNull
-    private ListenableFuture<Boolean> workerFuture;
+    private volatile ListenableFuture<Boolean> workerFuture;
 
     public ChainingCallback(CeWorker worker) {
       this.worker = worker;
+      this.delayedExecution = new DelayedExecution(this);
     }
 
     @Override
     public void onSuccess(@Nullable Boolean result) {
       if (result != null && result) {
-        chainWithoutDelay();
+        onTaskFound(this);
       } else {
-        chainWithDelay();
+        onNoTaskFound(this);
       }
     }
 
@@ -103,7 +197,9 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     public void onFailure(Throwable t) {
       if (t instanceof Error) {
         LOG.error("Compute Engine execution failed. Scheduled processing interrupted.", t);
+        onStopped(this);
       } else {
+        // also the case when the delayed execution of the poller is cancelled to wake it up
         chainWithoutDelay();
       }
     }
@@ -115,28 +211,76 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
       addCallback();
     }
 
+    /**
+     * Must be called while holding the lock of {@link CeProcessingSchedulerImpl}.
+     */
     private void chainWithDelay() {
       if (keepRunning()) {
-        workerFuture = executorService.schedule(worker, delayBetweenTasks, timeUnit);
+        delayedExecutionPending = true;
+        workerFuture = executorService.schedule(delayedExecution, delayBetweenTasks, timeUnit);
       }
       addCallback();
     }
 
     private void addCallback() {
-      if (workerFuture != null && keepRunning()) {
-        Futures.addCallback(workerFuture, this, executorService);
+      ListenableFuture<Boolean> future = workerFuture;
+      if (future != null && keepRunning()) {
+        Futures.addCallback(future, this, executorService);
       }
     }
 
+    /**
+     * Cancels the delayed execution if it has not started yet. An execution which is running is never cancelled, as
+     * its result would be lost.
+     * Must be called while holding the lock of {@link CeProcessingSchedulerImpl}.
+     *
+     * @return {@code true} if the delayed execution has been cancelled
+     */
+    private boolean cancelDelayedExecution() {
+      ListenableFuture<Boolean> future = workerFuture;
+      if (!delayedExecutionPending || future == null) {
+        return false;
+      }
+      delayedExecutionPending = false;
+      future.cancel(false);
+      return true;
+    }
+
     private boolean keepRunning() {
       return keepRunning.get();
     }
 
     public void stop() {
       this.keepRunning.set(false);
-      if (workerFuture != null) {
-        workerFuture.cancel(false);
+      ListenableFuture<Boolean> future = workerFuture;
+      if (future != null) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Delayed execution of a worker, which does not execute the worker if the execution has been cancelled
+   * while being started.
+   */
+  final class DelayedExecution implements Callable<Boolean> {
+    private final ChainingCallback chainingCallback;
+
+    private DelayedExecution(ChainingCallback chainingCallback) {
+      this.chainingCallback = chainingCallback;
+    }
+
+    CeWorker getWorker() {
+      return chainingCallback.worker;
+    }
+
+    @Override
+    public Boolean call() throws Exception {
+      if (!startDelayedExecution(chainingCallback)) {
+        // cancelled by wakeUpWorker(), the execution is chained without delay by ChainingCallback#onFailure
+        return false;
       }
+      return chainingCallback.worker.call();
     }
   }
 }
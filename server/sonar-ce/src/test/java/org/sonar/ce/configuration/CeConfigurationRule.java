@@ -31,6 +31,8 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
   private long queuePollingDelay = 2 * 1000L;
   private long cancelWornOutsInitialDelay = 1L;
   private long cancelWornOutsDelay = 10L;
+  private int computationStepsParallelism = 1;
+  private int issueTrackingParallelism = 1;
 
   @Override
   public int getWorkerCount() {
@@ -72,4 +74,26 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     checkArgument(cancelWornOutsDelay > 0, "cancel worn-outs polling delay must be >= 1");
     this.cancelWornOutsDelay = cancelWornOutsDelay;
   }
+
+  @Override
+  public int getComputationStepsParallelism() {
+    return computationStepsParallelism;
+  }
+
+  public CeConfigurationRule setComputationStepsParallelism(int computationStepsParallelism) {
+    checkArgument(computationStepsParallelism >= 1, "computation steps parallelism must be >= 1");
+    this.computationStepsParallelism = computationStepsParallelism;
+    return this;
+  }
+
+  @Override
+  public int getIssueTrackingParallelism() {
+    return issueTrackingParallelism;
+  }
+
+  public CeConfigurationRule setIssueTrackingParallelism(int issueTrackingParallelism) {
+    checkArgument(issueTrackingParallelism >= 1, "issue tracking parallelism must be >= 1");
+    this.issueTrackingParallelism = issueTrackingParallelism;
+    return this;
+  }
 }
@@ -113,11 +113,11 @@ public class ComputeEngineContainerImplTest {
     assertThat(picoContainer.getComponentAdapters())
       .hasSize(
         CONTAINER_ITSELF
-          + 73 // level 4
+          + 74 // level 4
           + 4 // content of CeConfigurationModule
-          + 4 // content of CeQueueModule
-          + 3 // content of CeHttpModule
-          + 3 // content of CeTaskCommonsModule
+          + 5 // content of CeQueueModule
+          + 4 // content of CeHttpModule
+          + 5 // content of CeTaskCommonsModule
           + 4 // content of ProjectAnalysisTaskModule
           + 4 // content of CeTaskProcessorModule
           + 3 // CeCleaningModule + its content
@@ -136,8 +136,8 @@ public class ComputeEngineContainerImplTest {
       COMPONENTS_IN_LEVEL_1_AT_CONSTRUCTION
         + 23 // level 1
         + 46 // content of DaoModule
-        + 3 // content of EsSearchModule
-        + 57 // content of CorePropertyDefinitions
+        + 4 // content of EsSearchModule
+        + 60 // content of CorePropertyDefinitions
     );
     assertThat(
       picoContainer.getComponentAdapters().stream()
@@ -50,6 +50,25 @@ public class CEQueueStatusImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(0);
     assertThat(underTest.getSuccessCount()).isEqualTo(0);
     assertThat(underTest.getProcessingTime()).isEqualTo(0);
+    assertThat(underTest.getWaitingTime()).isEqualTo(0);
+  }
+
+  @Test
+  public void addWaitingTime_throws_IAE_if_time_is_less_than_0() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Waiting time can not be < 0");
+
+    underTest.addWaitingTime(-1);
+  }
+
+  @Test
+  public void addWaitingTime_increases_WaitingTime_only() {
+    assertThat(underTest.addWaitingTime(SOME_PROCESSING_TIME)).isEqualTo(SOME_PROCESSING_TIME);
+    assertThat(underTest.addWaitingTime(SOME_PROCESSING_TIME)).isEqualTo(2 * SOME_PROCESSING_TIME);
+
+    assertThat(underTest.getWaitingTime()).isEqualTo(2 * SOME_PROCESSING_TIME);
+    assertThat(underTest.getInProgressCount()).isEqualTo(0);
+    assertThat(underTest.getProcessingTime()).isEqualTo(0);
   }
 
   @Test
@@ -36,6 +36,7 @@ public class CeTasksMBeanImplTest {
   private static final long ERROR_COUNT = 10;
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
+  private static final long WAITING_TIME = 1234;
   private static final int WORKER_COUNT = 56;
 
   private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
@@ -58,6 +59,7 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getWaitingTime()).isEqualTo(WAITING_TIME);
   }
 
   @Test
@@ -69,7 +71,7 @@ public class CeTasksMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(6);
+    assertThat(section.getAttributesCount()).isEqualTo(7);
   }
 
   /**
@@ -118,6 +120,16 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public long addWaitingTime(long waitingTime) {
+      return methodNotImplemented();
+    }
+
+    @Override
+    public long getWaitingTime() {
+      return WAITING_TIME;
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
@@ -144,6 +156,16 @@ public class CeTasksMBeanImplTest {
       throw new UnsupportedOperationException("getCleanCeTasksDelay is not implemented");
     }
 
+    @Override
+    public int getComputationStepsParallelism() {
+      throw new UnsupportedOperationException("getComputationStepsParallelism is not implemented");
+    }
+
+    @Override
+    public int getIssueTrackingParallelism() {
+      throw new UnsupportedOperationException("getIssueTrackingParallelism is not implemented");
+    }
+
   }
 
   @CheckForNull
@@ -22,9 +22,11 @@ package org.sonar.ce.queue;
 import com.google.common.collect.ImmutableSet;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -72,7 +74,9 @@ public class InternalCeQueueImplTest {
   private UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   private CEQueueStatus queueStatus = new CEQueueStatusImpl(dbTester.getDbClient());
   private DefaultOrganizationProvider defaultOrganizationProvider = mock(DefaultOrganizationProvider.class);
-  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider);
+  private PendingTasksSignal pendingTasksSignal = new PendingTasksSignal();
+  private AtomicInteger signalCount = new AtomicInteger();
+  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, pendingTasksSignal);
 
   @Before
   public void setUp() throws Exception {
@@ -84,6 +88,48 @@ public class InternalCeQueueImplTest {
       .setCreatedAt(defaultOrganization.getCreatedAt())
       .setUpdatedAt(defaultOrganization.getUpdatedAt())
       .build());
+    pendingTasksSignal.addListener(signalCount::incrementAndGet);
+  }
+
+  @Test
+  public void submit_signals_pending_tasks() {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    assertThat(signalCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void massSubmit_signals_pending_tasks_once() {
+    underTest.massSubmit(asList(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", null), createTaskSubmit("some type")));
+
+    assertThat(signalCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void massSubmit_does_not_signal_when_there_is_no_task() {
+    underTest.massSubmit(Collections.emptyList());
+
+    assertThat(signalCount.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void resumePeek_signals_pending_tasks() {
+    underTest.pausePeek();
+    underTest.resumePeek();
+
+    assertThat(signalCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void peek_adds_waiting_time_of_task_to_queue_status() {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    underTest.peek(WORKER_UUID_1);
+
+    CeQueueDto ceQueueDto = dbTester.getDbClient().ceQueueDao().selectByUuid(session, task.getUuid()).get();
+    assertThat(queueStatus.getWaitingTime())
+      .isPositive()
+      .isEqualTo(ceQueueDto.getStartedAt() - ceQueueDto.getCreatedAt());
   }
 
   @Test
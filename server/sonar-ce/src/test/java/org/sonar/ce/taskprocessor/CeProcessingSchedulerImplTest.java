@@ -23,11 +23,13 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Properties;
 import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
@@ -45,12 +47,20 @@ import javax.annotation.concurrent.Immutable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.DisableOnDebug;
+import org.junit.rules.TemporaryFolder;
 import org.junit.rules.TestRule;
 import org.junit.rules.Timeout;
+import org.sonar.api.config.MapSettings;
 import org.sonar.ce.configuration.CeConfigurationRule;
+import org.sonar.ce.http.CeHttpClient;
+import org.sonar.ce.httpd.CeHttpServer;
+import org.sonar.ce.queue.PendingTasksSignal;
+import org.sonar.ce.queue.TasksSubmittedHttpAction;
+import org.sonar.process.DefaultProcessCommands;
 
 import static com.google.common.collect.ImmutableList.copyOf;
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -60,6 +70,9 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.sonar.process.ProcessEntryPoint.PROPERTY_PROCESS_INDEX;
+import static org.sonar.process.ProcessEntryPoint.PROPERTY_SHARED_PATH;
+import static org.sonar.process.ProcessId.COMPUTE_ENGINE;
 
 public class CeProcessingSchedulerImplTest {
   private static final Error ERROR_TO_INTERRUPT_CHAINING = new Error("Error should stop scheduling");
@@ -69,6 +82,8 @@ public class CeProcessingSchedulerImplTest {
   public TestRule safeguardTimeout = new DisableOnDebug(Timeout.seconds(60));
   @Rule
   public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
   // Required to prevent an infinite loop
   private CeWorker ceWorker = mock(CeWorker.class);
   private CeWorkerFactory ceWorkerFactory = new TestCeWorkerFactory(ceWorker);
@@ -76,7 +91,9 @@ public class CeProcessingSchedulerImplTest {
   private SchedulerCall regularDelayedPoll = new SchedulerCall(ceWorker, 2000L, MILLISECONDS);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorker);
 
-  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory);
+  private PendingTasksSignal pendingTasksSignal = new PendingTasksSignal();
+
+  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, pendingTasksSignal);
 
   @Test
   public void polls_without_delay_when_CeWorkerCallable_returns_true() throws Exception {
@@ -207,7 +224,7 @@ public class CeProcessingSchedulerImplTest {
     when(processingExecutorService.schedule(any(CeWorker.class), any(Long.class),any(TimeUnit.class))).thenReturn(listenableScheduledFuture);
 
     CeWorkerFactory ceWorkerFactory = spy(new TestCeWorkerFactory(workers));
-    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, pendingTasksSignal);
     when(processingExecutorService.schedule(ceWorker, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
         .thenReturn(listenableScheduledFuture);
 
@@ -222,6 +239,191 @@ public class CeProcessingSchedulerImplTest {
     verify(ceWorkerFactory, times(workerCount)).create();
   }
 
+  @Test
+  public void only_one_of_the_workers_which_found_no_task_polls_with_regular_delay() throws Exception {
+    CeWorker worker1 = mock(CeWorker.class);
+    CeWorker worker2 = mock(CeWorker.class);
+    when(worker1.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    when(worker2.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    underTest = newSchedulerWithTwoWorkers(worker1, worker2);
+
+    startSchedulingAndRun();
+
+    // worker2 is idle until worker1 stops polling
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker2, 2000L, MILLISECONDS),
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker2));
+  }
+
+  @Test
+  public void idle_worker_is_woken_up_when_a_task_is_found() throws Exception {
+    CeWorker worker1 = mock(CeWorker.class);
+    CeWorker worker2 = mock(CeWorker.class);
+    when(worker1.call())
+      .thenReturn(false)
+      .thenReturn(true)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    when(worker2.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    underTest = newSchedulerWithTwoWorkers(worker1, worker2);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker2, 2000L, MILLISECONDS),
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker1),
+      new SchedulerCall(worker2));
+  }
+
+  @Test
+  public void signal_of_pending_tasks_wakes_up_idle_worker() throws Exception {
+    CeWorker worker1 = mock(CeWorker.class);
+    CeWorker worker2 = mock(CeWorker.class);
+    when(worker1.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    when(worker2.call())
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    underTest = newSchedulerWithTwoWorkers(worker1, worker2);
+
+    underTest.startScheduling();
+    // both workers find no task
+    processingExecutorService.runNextFuture();
+    processingExecutorService.runNextFuture();
+    pendingTasksSignal.signal();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker2, 2000L, MILLISECONDS),
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker2),
+      new SchedulerCall(worker2));
+  }
+
+  @Test
+  public void tasks_submitted_by_web_server_wake_up_idle_worker() throws Exception {
+    CeWorker worker1 = mock(CeWorker.class);
+    CeWorker worker2 = mock(CeWorker.class);
+    when(worker1.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    when(worker2.call())
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    underTest = newSchedulerWithTwoWorkers(worker1, worker2);
+    File sharedDir = temp.newFolder();
+    Properties processProps = new Properties();
+    processProps.setProperty(PROPERTY_PROCESS_INDEX, String.valueOf(COMPUTE_ENGINE.getIpcIndex()));
+    processProps.setProperty(PROPERTY_SHARED_PATH, sharedDir.getAbsolutePath());
+    CeHttpServer ceHttpServer = new CeHttpServer(processProps, singletonList(new TasksSubmittedHttpAction(pendingTasksSignal)));
+    ceHttpServer.start();
+    try (DefaultProcessCommands processCommands = DefaultProcessCommands.secondary(sharedDir, COMPUTE_ENGINE.getIpcIndex())) {
+      processCommands.setUp();
+    }
+    try {
+      underTest.startScheduling();
+      // both workers find no task
+      processingExecutorService.runNextFuture();
+      processingExecutorService.runNextFuture();
+
+      // as called by CeQueueImpl of Web Server
+      new CeHttpClient(new MapSettings().setProperty(PROPERTY_SHARED_PATH, sharedDir.getAbsolutePath())).signalSubmittedTasks();
+    } finally {
+      ceHttpServer.stop();
+    }
+
+    // idle worker is executed without waiting for the next poll of worker1
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker2, 2000L, MILLISECONDS),
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker2));
+  }
+
+  @Test
+  public void signal_of_pending_tasks_brings_forward_poll_when_no_worker_is_idle() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    processingExecutorService.runNextFuture();
+    pendingTasksSignal.signal();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      notDelayedPoll);
+  }
+
+  @Test
+  public void signal_of_pending_tasks_does_not_execute_again_the_poller_while_it_processes_a_task() throws Exception {
+    CeWorker worker1 = mock(CeWorker.class);
+    CeWorker worker2 = mock(CeWorker.class);
+    when(worker1.call())
+      .thenReturn(false)
+      .thenAnswer(invocation -> {
+        // a task is submitted from within the Compute Engine
+        pendingTasksSignal.signal();
+        return true;
+      })
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    when(worker2.call())
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    underTest = newSchedulerWithTwoWorkers(worker1, worker2);
+
+    underTest.startScheduling();
+    // worker1 finds no task and becomes the poller, worker2 stops
+    processingExecutorService.runNextFuture();
+    processingExecutorService.runNextFuture();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker2, 2000L, MILLISECONDS),
+      new SchedulerCall(worker1, 2000L, MILLISECONDS),
+      new SchedulerCall(worker1));
+    verify(worker1, times(3)).call();
+  }
+
+  @Test
+  public void poller_polls_again_without_delay_when_signaled_while_polling() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(false)
+      .thenAnswer(invocation -> {
+        // the task is submitted after the poller looked into the queue
+        pendingTasksSignal.signal();
+        return false;
+      })
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      notDelayedPoll);
+  }
+
+  private CeProcessingSchedulerImpl newSchedulerWithTwoWorkers(CeWorker worker1, CeWorker worker2) {
+    ceConfiguration.setWorkerCount(2);
+    return new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, new TestCeWorkerFactory(worker1, worker2), pendingTasksSignal);
+  }
+
   private void startSchedulingAndRun() throws ExecutionException, InterruptedException {
     underTest.startScheduling();
 
@@ -265,6 +467,13 @@ public class CeProcessingSchedulerImplTest {
       return schedulerCalls;
     }
 
+    public void runNextFuture() throws ExecutionException, InterruptedException {
+      Future<?> future = futures.poll();
+      if (!future.isCancelled()) {
+        future.get();
+      }
+    }
+
     public void runFutures() throws ExecutionException, InterruptedException {
       while (futures.peek() != null) {
         Future<?> future = futures.poll();
@@ -276,7 +485,8 @@ public class CeProcessingSchedulerImplTest {
 
     @Override
     public <V> ListenableScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
-      this.schedulerCalls.add(new SchedulerCall(callable, delay, unit));
+      Callable<?> scheduled = callable instanceof CeProcessingSchedulerImpl.DelayedExecution ? ((CeProcessingSchedulerImpl.DelayedExecution) callable).getWorker() : callable;
+      this.schedulerCalls.add(new SchedulerCall(scheduled, delay, unit));
       return delegate.schedule(callable, delay, unit);
     }
 
@@ -0,0 +1,105 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.purge;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Limits the work of a purge in time and in rate of deleted or updated rows.
+ * <p>
+ * Data is purged by chunks which are committed one after the other. When the budget is exhausted, the remaining
+ * chunks are skipped. As the rows to purge are selected again at each purge, the work is resumed by the next purge.
+ * </p>
+ */
+public class PurgeBudget {
+
+  private final long maxDurationMs;
+  private final int maxRowsPerSecond;
+  private final Clock clock;
+  private final long startTime;
+  private long rows = 0L;
+
+  /**
+   * @param maxDurationMs maximum duration in milliseconds, zero for no limit
+   * @param maxRowsPerSecond maximum number of deleted or updated rows per second, zero for no limit
+   */
+  public PurgeBudget(long maxDurationMs, int maxRowsPerSecond) {
+    this(maxDurationMs, maxRowsPerSecond, new Clock());
+  }
+
+  @VisibleForTesting
+  PurgeBudget(long maxDurationMs, int maxRowsPerSecond, Clock clock) {
+    checkArgument(maxDurationMs >= 0, "Max duration can't be negative: %s", maxDurationMs);
+    checkArgument(maxRowsPerSecond >= 0, "Max rows per second can't be negative: %s", maxRowsPerSecond);
+    this.maxDurationMs = maxDurationMs;
+    this.maxRowsPerSecond = maxRowsPerSecond;
+    this.clock = clock;
+    this.startTime = clock.now();
+  }
+
+  public static PurgeBudget unlimited() {
+    return new PurgeBudget(0L, 0);
+  }
+
+  public boolean isExhausted() {
+    return maxDurationMs > 0 && clock.now() - startTime >= maxDurationMs;
+  }
+
+  /**
+   * Number of rows deleted or updated since the beginning of the purge
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * Records rows deleted or updated by a chunk, then waits if rows are purged faster than allowed.
+   */
+  void consume(int chunkRows) {
+    rows += chunkRows;
+    if (maxRowsPerSecond == 0) {
+      return;
+    }
+    long elapsed = clock.now() - startTime;
+    long wait = rows * 1_000L / maxRowsPerSecond - elapsed;
+    if (maxDurationMs > 0) {
+      wait = Math.min(wait, maxDurationMs - elapsed);
+    }
+    if (wait > 0) {
+      clock.sleep(wait);
+    }
+  }
+
+  static class Clock {
+    long now() {
+      return System.currentTimeMillis();
+    }
+
+    void sleep(long ms) {
+      try {
+        Thread.sleep(ms);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -21,7 +21,9 @@ package org.sonar.db.purge;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
 import org.sonar.db.DbSession;
 
@@ -36,16 +38,26 @@ class PurgeCommands {
   private final DbSession session;
   private final PurgeMapper purgeMapper;
   private final PurgeProfiler profiler;
+  private final PurgeBudget budget;
 
-  PurgeCommands(DbSession session, PurgeMapper purgeMapper, PurgeProfiler profiler) {
+  PurgeCommands(DbSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, PurgeBudget budget) {
     this.session = session;
     this.purgeMapper = purgeMapper;
     this.profiler = profiler;
+    this.budget = budget;
+  }
+
+  PurgeCommands(DbSession session, PurgeProfiler profiler, PurgeBudget budget) {
+    this(session, session.getMapper(PurgeMapper.class), profiler, budget);
   }
 
   @VisibleForTesting
   PurgeCommands(DbSession session, PurgeProfiler profiler) {
-    this(session, session.getMapper(PurgeMapper.class), profiler);
+    this(session, profiler, PurgeBudget.unlimited());
+  }
+
+  boolean isBudgetExhausted() {
+    return budget.isExhausted();
   }
 
   List<String> selectSnapshotUuids(PurgeSnapshotQuery query) {
@@ -65,7 +77,7 @@ class PurgeCommands {
     List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(purgeMapper.selectAnalysisIdsAndUuids(new PurgeSnapshotQuery().setComponentUuid(rootUuid))),
         MAX_SNAPSHOTS_PER_QUERY);
 
-    deleteAnalysisDuplications(analysisUuidsPartitions);
+    analysisUuidsPartitions.forEach(this::deleteAnalysisDuplications);
 
     profiler.start("deleteAnalyses (project_measures)");
     analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
@@ -85,51 +97,71 @@ class PurgeCommands {
     deleteAnalyses(snapshotIds);
   }
 
+  /**
+   * Analyses are deleted by chunks, until the budget is exhausted.
+   */
   @VisibleForTesting
   void deleteAnalyses(List<IdUuidPair> analysisIdUuids) {
-    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisIdUuids), MAX_SNAPSHOTS_PER_QUERY);
-
-    deleteAnalysisDuplications(analysisUuidsPartitions);
-
-    profiler.start("deleteAnalyses (events)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisEvents);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalyses);
-    session.commit();
-    profiler.stop();
+    for (List<String> analysisUuids : Lists.partition(IdUuidPairs.uuids(analysisIdUuids), MAX_SNAPSHOTS_PER_QUERY)) {
+      if (budget.isExhausted()) {
+        return;
+      }
+      deleteAnalysisDuplications(analysisUuids);
+      execute("deleteAnalyses (events)", () -> purgeMapper.deleteAnalysisEvents(analysisUuids));
+      execute("deleteAnalyses (project_measures)", () -> purgeMapper.deleteAnalysisMeasures(analysisUuids));
+      execute("deleteAnalyses (snapshots)", () -> purgeMapper.deleteAnalyses(analysisUuids));
+    }
   }
 
+  /**
+   * Analyses are purged by chunks, until the budget is exhausted. The purge status of the analyses
+   * of a chunk is updated last, so that the analyses which are not completely purged are selected again
+   * by the next purge.
+   */
   void purgeAnalyses(List<IdUuidPair> analysisUuids) {
-    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisUuids), MAX_SNAPSHOTS_PER_QUERY);
-
-    deleteAnalysisDuplications(analysisUuidsPartitions);
-
-    profiler.start("deleteSnapshotWastedMeasures (project_measures)");
     List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
-    analysisUuidsPartitions
-        .forEach(analysisUuidsPartition -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
-    session.commit();
-    profiler.stop();
+    for (List<String> analysisUuidsPartition : Lists.partition(IdUuidPairs.uuids(analysisUuids), MAX_SNAPSHOTS_PER_QUERY)) {
+      if (budget.isExhausted()) {
+        return;
+      }
+      deleteAnalysisDuplications(analysisUuidsPartition);
+      execute("deleteSnapshotWastedMeasures (project_measures)",
+        () -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
+      execute("updatePurgeStatusToOne (snapshots)", () -> purgeMapper.updatePurgeStatusToOne(analysisUuidsPartition));
+    }
+  }
 
-    profiler.start("updatePurgeStatusToOne (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::updatePurgeStatusToOne);
-    session.commit();
-    profiler.stop();
+  /**
+   * Issues are deleted by chunks, until the budget is exhausted.
+   *
+   * @return the keys of the deleted issues
+   */
+  List<String> deleteIssuesByKeys(List<String> issueKeys) {
+    List<String> deletedKeys = new ArrayList<>(issueKeys.size());
+    for (List<String> keys : Lists.partition(issueKeys, MAX_RESOURCES_PER_QUERY)) {
+      if (budget.isExhausted()) {
+        break;
+      }
+      execute("deleteIssuesByKeys (issue_changes)", () -> purgeMapper.deleteIssueChangesFromIssueKeys(keys));
+      execute("deleteIssuesByKeys (issues)", () -> purgeMapper.deleteIssuesFromKeys(keys));
+      deletedKeys.addAll(keys);
+    }
+    return deletedKeys;
   }
 
-  private void deleteAnalysisDuplications(List<List<String>> snapshotUuidsPartitions) {
-    profiler.start("deleteAnalysisDuplications (duplications_index)");
-    snapshotUuidsPartitions.forEach(purgeMapper::deleteAnalysisDuplications);
+  private void deleteAnalysisDuplications(List<String> analysisUuids) {
+    execute("deleteAnalysisDuplications (duplications_index)", () -> purgeMapper.deleteAnalysisDuplications(analysisUuids));
+  }
+
+  /**
+   * Profiles and commits the execution of a statement of a chunk, then applies the throttling of the budget.
+   */
+  private void execute(String table, IntSupplier statement) {
+    profiler.start(table);
+    int rows = statement.getAsInt();
     session.commit();
-    profiler.stop();
+    profiler.stop(rows);
+    budget.consume(rows);
   }
 
   void deletePermissions(long rootId) {
@@ -236,14 +268,14 @@ class PurgeCommands {
     List<List<String>> analysisUuidsPartitions = Lists.partition(analysisUuids, MAX_SNAPSHOTS_PER_QUERY);
     List<List<String>> componentUuidsPartitions = Lists.partition(componentUuids, MAX_RESOURCES_PER_QUERY);
 
-    profiler.start("deleteComponentMeasures");
     for (List<String> analysisUuidsPartition : analysisUuidsPartitions) {
-      for (List<String> componentUuidsPartition : componentUuidsPartitions) {
-        purgeMapper.deleteComponentMeasures(analysisUuidsPartition, componentUuidsPartition);
+      if (budget.isExhausted()) {
+        return;
       }
+      execute("deleteComponentMeasures", () -> componentUuidsPartitions.stream()
+        .mapToInt(componentUuidsPartition -> purgeMapper.deleteComponentMeasures(analysisUuidsPartition, componentUuidsPartition))
+        .sum());
     }
-    session.commit();
-    profiler.stop();
   }
 
   void deleteFileSources(List<String> componentUuids) {
@@ -64,17 +64,33 @@ public class PurgeDao implements Dao {
   }
 
   public void purge(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
+    purgeHistory(session, conf, listener, profiler, PurgeBudget.unlimited());
+    purgeDisabledComponents(session, conf, listener);
+  }
+
+  /**
+   * Deletes the aborted analyses, the measures of the past analyses which are not kept in history and the old
+   * closed issues of a project. Data is deleted by chunks, until the budget is exhausted.
+   * Data of disabled components is not purged, see {@link #purgeDisabledComponents(DbSession, PurgeConfiguration, PurgeListener)}.
+   *
+   * @return {@code false} if the budget has been exhausted, so that the purge must be resumed later
+   * @since 6.5
+   */
+  public boolean purgeHistory(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler, PurgeBudget budget) {
     PurgeMapper mapper = session.getMapper(PurgeMapper.class);
-    PurgeCommands commands = new PurgeCommands(session, mapper, profiler);
+    PurgeCommands commands = new PurgeCommands(session, mapper, profiler, budget);
     String rootUuid = conf.rootProjectIdUuid().getUuid();
     deleteAbortedAnalyses(rootUuid, commands);
     deleteDataOfComponentsWithoutHistoricalData(session, rootUuid, conf.scopesWithoutHistoricalData(), commands);
     purgeAnalyses(commands, rootUuid);
-    purgeDisabledComponents(session, conf, listener);
-    deleteOldClosedIssues(conf, mapper, listener);
+    deleteOldClosedIssues(conf, mapper, commands, listener);
+    return !budget.isExhausted();
   }
 
   private static void purgeAnalyses(PurgeCommands commands, String rootUuid) {
+    if (commands.isBudgetExhausted()) {
+      return;
+    }
     List<IdUuidPair> analysisUuids = commands.selectSnapshotIdUuids(
       new PurgeSnapshotQuery()
         .setComponentUuid(rootUuid)
@@ -83,19 +99,14 @@ public class PurgeDao implements Dao {
     commands.purgeAnalyses(analysisUuids);
   }
 
-  private static void deleteOldClosedIssues(PurgeConfiguration conf, PurgeMapper mapper, PurgeListener listener) {
+  private static void deleteOldClosedIssues(PurgeConfiguration conf, PurgeMapper mapper, PurgeCommands commands, PurgeListener listener) {
+    if (commands.isBudgetExhausted()) {
+      return;
+    }
     Date toDate = conf.maxLiveDateOfClosedIssues();
     String rootUuid = conf.rootProjectIdUuid().getUuid();
     List<String> issueKeys = mapper.selectOldClosedIssueKeys(rootUuid, dateToLong(toDate));
-    executeLargeInputs(issueKeys, input -> {
-      mapper.deleteIssueChangesFromIssueKeys(input);
-      return emptyList();
-    });
-    executeLargeInputs(issueKeys, input -> {
-      mapper.deleteIssuesFromKeys(input);
-      return emptyList();
-    });
-    listener.onIssuesRemoval(rootUuid, issueKeys);
+    listener.onIssuesRemoval(rootUuid, commands.deleteIssuesByKeys(issueKeys));
   }
 
   private static void deleteAbortedAnalyses(String rootUuid, PurgeCommands commands) {
@@ -108,7 +119,7 @@ public class PurgeDao implements Dao {
   }
 
   private void deleteDataOfComponentsWithoutHistoricalData(DbSession dbSession, String rootUuid, String[] scopesWithoutHistoricalData, PurgeCommands purgeCommands) {
-    if (scopesWithoutHistoricalData.length == 0) {
+    if (scopesWithoutHistoricalData.length == 0 || purgeCommands.isBudgetExhausted()) {
       return;
     }
 
@@ -131,7 +142,10 @@ public class PurgeDao implements Dao {
     purgeCommands.deleteComponentMeasures(analysisUuids, componentWithoutHistoricalDataUuids);
   }
 
-  private void purgeDisabledComponents(DbSession session, PurgeConfiguration conf, PurgeListener listener) {
+  /**
+   * Deletes the sources and resolves the issues of the components disabled by the analysis.
+   */
+  public void purgeDisabledComponents(DbSession session, PurgeConfiguration conf, PurgeListener listener) {
     PurgeMapper mapper = mapper(session);
     executeLargeInputs(conf.getDisabledComponentUuids(),
       input -> {
@@ -230,7 +244,14 @@ public class PurgeDao implements Dao {
   }
 
   public void deleteAnalyses(DbSession session, PurgeProfiler profiler, List<IdUuidPair> analysisIdUuids) {
-    new PurgeCommands(session, profiler).deleteAnalyses(analysisIdUuids);
+    deleteAnalyses(session, profiler, PurgeBudget.unlimited(), analysisIdUuids);
+  }
+
+  /**
+   * Same as {@link #deleteAnalyses(DbSession, PurgeProfiler, List)}, stopping when the budget is exhausted.
+   */
+  public void deleteAnalyses(DbSession session, PurgeProfiler profiler, PurgeBudget budget, List<IdUuidPair> analysisIdUuids) {
+    new PurgeCommands(session, profiler, budget).deleteAnalyses(analysisIdUuids);
   }
 
   private static PurgeMapper mapper(DbSession session) {
@@ -32,23 +32,23 @@ public interface PurgeMapper {
    */
   List<IdUuidPair> selectRootAndModulesOrSubviewsByProjectUuid(@Param("rootUuid") String rootUuid);
 
-  void deleteAnalyses(@Param("analysisUuids") List<String> analysisUuids);
+  int deleteAnalyses(@Param("analysisUuids") List<String> analysisUuids);
 
-  void deleteAnalysisDuplications(@Param("analysisUuids") List<String> analysisUuids);
+  int deleteAnalysisDuplications(@Param("analysisUuids") List<String> analysisUuids);
 
-  void deleteAnalysisEvents(@Param("analysisUuids") List<String> analysisUuids);
+  int deleteAnalysisEvents(@Param("analysisUuids") List<String> analysisUuids);
 
-  void deleteAnalysisMeasures(@Param("analysisUuids") List<String> analysisUuids);
+  int deleteAnalysisMeasures(@Param("analysisUuids") List<String> analysisUuids);
 
   void fullDeleteComponentMeasures(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteComponentMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("componentUuids") List<String> componentUuids);
+  int deleteComponentMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("componentUuids") List<String> componentUuids);
 
   List<Long> selectMetricIdsWithoutHistoricalData();
 
-  void deleteAnalysisWastedMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("metricIds") List<Long> metricIds);
+  int deleteAnalysisWastedMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("metricIds") List<Long> metricIds);
 
-  void updatePurgeStatusToOne(@Param("analysisUuids") List<String> analysisUuid);
+  int updatePurgeStatusToOne(@Param("analysisUuids") List<String> analysisUuid);
 
   void resolveComponentIssuesNotAlreadyResolved(@Param("componentUuids") List<String> componentUuids, @Param("dateAsLong") Long dateAsLong);
 
@@ -82,9 +82,9 @@ public interface PurgeMapper {
 
   List<String> selectOldClosedIssueKeys(@Param("projectUuid") String projectUuid, @Nullable @Param("toDate") Long toDate);
 
-  void deleteIssuesFromKeys(@Param("keys") List<String> keys);
+  int deleteIssuesFromKeys(@Param("keys") List<String> keys);
 
-  void deleteIssueChangesFromIssueKeys(@Param("issueKeys") List<String> issueKeys);
+  int deleteIssueChangesFromIssueKeys(@Param("issueKeys") List<String> issueKeys);
 
   void deleteFileSourcesByProjectUuid(String rootProjectUuid);
 
@@ -32,6 +32,7 @@ import org.sonar.api.utils.log.Logger;
 public class PurgeProfiler {
 
   private Map<String, Long> durations = new HashMap<>();
+  private Map<String, Long> rows = new HashMap<>();
   private long startTime;
   private String currentTable;
   private final Clock clock;
@@ -47,6 +48,7 @@ public class PurgeProfiler {
 
   public void reset() {
     durations.clear();
+    rows.clear();
   }
 
   void start(String table) {
@@ -64,6 +66,14 @@ public class PurgeProfiler {
     durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
   }
 
+  /**
+   * Same as {@link #stop()}, also recording the number of rows deleted or updated in the table.
+   */
+  void stop(int deletedRows) {
+    stop();
+    rows.merge(currentTable, (long) deletedRows, Long::sum);
+  }
+
   public void dump(long totalTime, Logger logger) {
     List<Entry<String, Long>> data = new ArrayList<>(durations.entrySet());
     Collections.sort(data, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
@@ -72,6 +82,10 @@ public class PurgeProfiler {
       StringBuilder sb = new StringBuilder();
       sb.append("   o ").append(entry.getKey()).append(": ").append(TimeUtils.formatDuration(entry.getValue()))
         .append(" (").append((int) (entry.getValue() / percent)).append("%)");
+      Long tableRows = rows.get(entry.getKey());
+      if (tableRows != null) {
+        sb.append(", ").append(tableRows).append(" rows (").append(tableRows * 1_000L / Math.max(1L, entry.getValue())).append("/s)");
+      }
       logger.info(sb.toString());
     }
   }
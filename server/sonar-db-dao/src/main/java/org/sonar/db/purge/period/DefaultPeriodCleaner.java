@@ -30,6 +30,7 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeProfiler;
 import org.sonar.db.purge.PurgeableAnalysisDto;
@@ -48,19 +49,29 @@ public class DefaultPeriodCleaner {
   }
 
   public void clean(DbSession session, String rootUuid, Settings settings) {
-    doClean(rootUuid, new Filters(settings).all(), session);
+    clean(session, rootUuid, settings, PurgeBudget.unlimited());
+  }
+
+  /**
+   * Same as {@link #clean(DbSession, String, Settings)}, stopping when the budget is exhausted.
+   */
+  public void clean(DbSession session, String rootUuid, Settings settings, PurgeBudget budget) {
+    doClean(rootUuid, new Filters(settings).all(), session, budget);
   }
 
   @VisibleForTesting
-  void doClean(String rootUuid, List<Filter> filters, DbSession session) {
+  void doClean(String rootUuid, List<Filter> filters, DbSession session, PurgeBudget budget) {
     List<PurgeableAnalysisDto> history = new ArrayList<>(selectAnalysesOfComponent(rootUuid, session));
     for (Filter filter : filters) {
+      if (budget.isExhausted()) {
+        return;
+      }
       filter.log();
-      history.removeAll(delete(rootUuid, filter.filter(history), session));
+      history.removeAll(delete(rootUuid, filter.filter(history), session, budget));
     }
   }
 
-  private List<PurgeableAnalysisDto> delete(String rootUuid, List<PurgeableAnalysisDto> snapshots, DbSession session) {
+  private List<PurgeableAnalysisDto> delete(String rootUuid, List<PurgeableAnalysisDto> snapshots, DbSession session, PurgeBudget budget) {
     if (LOG.isDebugEnabled()) {
       LOG.debug("<- Delete analyses of component {}: {}",
         rootUuid,
@@ -70,7 +81,7 @@ public class DefaultPeriodCleaner {
             .collect(MoreCollectors.toArrayList(snapshots.size()))));
     }
     purgeDao.deleteAnalyses(
-      session, profiler,
+      session, profiler, budget,
       snapshots.stream().map(DefaultPeriodCleaner::toIdUuidPair).collect(MoreCollectors.toList(snapshots.size())));
     return snapshots;
   }
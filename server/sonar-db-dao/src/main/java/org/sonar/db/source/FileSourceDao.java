@@ -25,16 +25,20 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
+
 public class FileSourceDao implements Dao {
 
   private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
@@ -98,6 +102,14 @@ public class FileSourceDao implements Dao {
     }
   }
 
+  /**
+   * Each row returns a {@link FileSourceDto} of type {@link Type#SOURCE} in which only the file uuid, the source hash
+   * and the line hashes are loaded. Files without source are ignored.
+   */
+  public void scrollLineHashesByFileUuids(DbSession dbSession, Collection<String> fileUuids, ResultHandler handler) {
+    executeLargeInputsWithoutOutput(fileUuids, partition -> mapper(dbSession).scrollLineHashesByFileUuids(partition, Type.SOURCE, handler));
+  }
+
   public void insert(DbSession session, FileSourceDto dto) {
     mapper(session).insert(dto);
   }
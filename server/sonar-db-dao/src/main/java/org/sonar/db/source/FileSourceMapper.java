@@ -22,6 +22,7 @@ package org.sonar.db.source;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface FileSourceMapper {
 
@@ -30,6 +31,8 @@ public interface FileSourceMapper {
   @CheckForNull
   FileSourceDto select(@Param("fileUuid") String fileUuid, @Param("dataType") String dataType);
 
+  void scrollLineHashesByFileUuids(@Param("fileUuids") List<String> fileUuids, @Param("dataType") String dataType, ResultHandler handler);
+
   void insert(FileSourceDto dto);
 
   void update(FileSourceDto dto);
@@ -0,0 +1,130 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.purge;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PurgeBudgetTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private MockedClock clock = new MockedClock();
+
+  @Test
+  public void unlimited_budget_is_never_exhausted() {
+    PurgeBudget underTest = PurgeBudget.unlimited();
+
+    underTest.consume(1_000_000);
+
+    assertThat(underTest.isExhausted()).isFalse();
+    assertThat(underTest.getRows()).isEqualTo(1_000_000L);
+  }
+
+  @Test
+  public void budget_is_exhausted_when_max_duration_is_reached() {
+    PurgeBudget underTest = new PurgeBudget(100L, 0, clock);
+
+    clock.now += 99;
+    assertThat(underTest.isExhausted()).isFalse();
+
+    clock.now += 1;
+    assertThat(underTest.isExhausted()).isTrue();
+  }
+
+  @Test
+  public void consume_does_not_wait_when_rate_is_not_limited() {
+    PurgeBudget underTest = new PurgeBudget(100L, 0, clock);
+
+    underTest.consume(1_000);
+
+    assertThat(clock.slept).isZero();
+    assertThat(underTest.getRows()).isEqualTo(1_000L);
+  }
+
+  @Test
+  public void consume_waits_when_rows_are_purged_faster_than_allowed() {
+    PurgeBudget underTest = new PurgeBudget(0L, 100, clock);
+
+    clock.now += 200;
+    underTest.consume(50);
+    assertThat(clock.slept).isEqualTo(300L);
+
+    underTest.consume(10);
+    assertThat(clock.slept).isEqualTo(400L);
+  }
+
+  @Test
+  public void consume_does_not_wait_when_rows_are_purged_slower_than_allowed() {
+    PurgeBudget underTest = new PurgeBudget(0L, 100, clock);
+
+    clock.now += 1_000;
+    underTest.consume(50);
+
+    assertThat(clock.slept).isZero();
+  }
+
+  @Test
+  public void consume_does_not_wait_longer_than_the_remaining_duration() {
+    PurgeBudget underTest = new PurgeBudget(1_000L, 10, clock);
+
+    clock.now += 100;
+    underTest.consume(1_000);
+
+    assertThat(clock.slept).isEqualTo(900L);
+    assertThat(underTest.isExhausted()).isTrue();
+  }
+
+  @Test
+  public void fail_if_max_duration_is_negative() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Max duration can't be negative: -1");
+
+    new PurgeBudget(-1L, 0);
+  }
+
+  @Test
+  public void fail_if_max_rows_per_second_is_negative() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Max rows per second can't be negative: -1");
+
+    new PurgeBudget(0L, -1);
+  }
+
+  private static class MockedClock extends PurgeBudget.Clock {
+    private long now = 0L;
+    private long slept = 0L;
+
+    @Override
+    long now() {
+      return now;
+    }
+
+    @Override
+    void sleep(long ms) {
+      slept += ms;
+      now += ms;
+    }
+  }
+}
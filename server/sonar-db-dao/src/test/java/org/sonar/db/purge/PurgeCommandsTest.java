@@ -33,6 +33,8 @@ import org.sonar.db.user.UserDto;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 
 public class PurgeCommandsTest {
@@ -72,6 +74,27 @@ public class PurgeCommandsTest {
     dbTester.assertDbUnit(getClass(), "shouldDeleteWastedMeasuresWhenPurgingAnalysis-result.xml", "project_measures");
   }
 
+  @Test
+  public void purgeAnalyses_does_nothing_when_budget_is_exhausted() {
+    dbTester.prepareDbUnit(getClass(), "shouldPurgeAnalysis.xml");
+    PurgeBudget budget = mock(PurgeBudget.class);
+    when(budget.isExhausted()).thenReturn(true);
+
+    new PurgeCommands(dbTester.getSession(), profiler, budget).purgeAnalyses(singletonList(new IdUuidPair(1, "u1")));
+
+    dbTester.assertDbUnit(getClass(), "shouldPurgeAnalysis.xml", "snapshots", "project_measures", "duplications_index", "events");
+  }
+
+  @Test
+  public void purgeAnalyses_consumes_budget_with_purged_rows() {
+    dbTester.prepareDbUnit(getClass(), "shouldPurgeAnalysis.xml");
+    PurgeBudget budget = PurgeBudget.unlimited();
+
+    new PurgeCommands(dbTester.getSession(), profiler, budget).purgeAnalyses(singletonList(new IdUuidPair(1, "u1")));
+
+    assertThat(budget.getRows()).isGreaterThan(0);
+  }
+
   /**
    * Test that SQL queries execution do not fail with a huge number of parameter
    */
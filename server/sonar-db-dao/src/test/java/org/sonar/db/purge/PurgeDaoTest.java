@@ -123,6 +123,33 @@ public class PurgeDaoTest {
       "projects", "snapshots", "issues");
   }
 
+  @Test
+  public void purgeHistory_purges_nothing_when_budget_is_exhausted() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteAbortedBuilds.xml");
+    PurgeBudget budget = mock(PurgeBudget.class);
+    when(budget.isExhausted()).thenReturn(true);
+
+    boolean completed = underTest.purgeHistory(dbSession, newConfigurationWith30Days(), PurgeListener.EMPTY, new PurgeProfiler(), budget);
+    dbSession.commit();
+
+    assertThat(completed).isFalse();
+    dbTester.assertDbUnit(getClass(), "shouldDeleteAbortedBuilds.xml", "snapshots");
+  }
+
+  @Test
+  public void purgeHistory_does_not_purge_disabled_components() {
+    dbTester.prepareDbUnit(getClass(), "close_issues_clean_index_and_files_sources_of_specified_components.xml");
+    when(system2.now()).thenReturn(1450000000000L);
+
+    boolean completed = underTest.purgeHistory(dbSession, newConfigurationWith30Days(system2, "P1", "EFGH", "GHIJ"), PurgeListener.EMPTY, new PurgeProfiler(),
+      PurgeBudget.unlimited());
+    dbSession.commit();
+
+    assertThat(completed).isTrue();
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(4);
+    assertThat(dbTester.countSql("select count(*) from issues where status = 'CLOSED'")).isEqualTo(1);
+  }
+
   @Test
   public void shouldDeleteAnalyses() {
     dbTester.prepareDbUnit(getClass(), "shouldDeleteAnalyses.xml");
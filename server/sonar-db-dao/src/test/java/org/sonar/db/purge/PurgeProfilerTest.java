@@ -80,6 +80,25 @@ public class PurgeProfilerTest {
     verify(logger).info(contains("bar: 5ms"));
   }
 
+  @Test
+  public void shouldProfileDeletedRows() {
+    profiler.start("foo");
+    clock.sleep(10);
+    profiler.stop(20);
+
+    profiler.start("foo");
+    clock.sleep(10);
+    profiler.stop(30);
+
+    profiler.start("bar");
+    clock.sleep(5);
+    profiler.stop();
+
+    profiler.dump(50, logger);
+    verify(logger).info(contains("foo: 20ms (40%), 50 rows (2500/s)"));
+    verify(logger).info(contains("bar: 5ms (10%)"));
+  }
+
   private class MockedClock extends PurgeProfiler.Clock {
     private long now = 0;
 
@@ -29,14 +29,19 @@ import org.mockito.Mockito;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeProfiler;
 import org.sonar.db.purge.PurgeableAnalysisDto;
 
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyListOf;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class DefaultPeriodCleanerTest {
@@ -53,17 +58,34 @@ public class DefaultPeriodCleanerTest {
     Filter filter2 = newFirstSnapshotInListFilter();
 
     PurgeProfiler profiler = new PurgeProfiler();
+    PurgeBudget budget = PurgeBudget.unlimited();
     DefaultPeriodCleaner cleaner = new DefaultPeriodCleaner(dao, profiler);
-    cleaner.doClean("uuid_123", Arrays.asList(filter1, filter2), session);
+    cleaner.doClean("uuid_123", Arrays.asList(filter1, filter2), session, budget);
 
     InOrder inOrder = Mockito.inOrder(dao, filter1, filter2);
     inOrder.verify(filter1).log();
-    inOrder.verify(dao, times(1)).deleteAnalyses(eq(session), eq(profiler), eq(ImmutableList.of(new IdUuidPair(999, "u999"))));
+    inOrder.verify(dao, times(1)).deleteAnalyses(eq(session), eq(profiler), eq(budget), eq(ImmutableList.of(new IdUuidPair(999, "u999"))));
     inOrder.verify(filter2).log();
-    inOrder.verify(dao, times(1)).deleteAnalyses(eq(session), eq(profiler), eq(ImmutableList.of(new IdUuidPair(456, "u456"))));
+    inOrder.verify(dao, times(1)).deleteAnalyses(eq(session), eq(profiler), eq(budget), eq(ImmutableList.of(new IdUuidPair(456, "u456"))));
     inOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void doClean_stops_when_budget_is_exhausted() {
+    PurgeDao dao = mock(PurgeDao.class);
+    DbSession session = mock(DbSession.class);
+    when(dao.selectPurgeableAnalyses("uuid_123", session)).thenReturn(Arrays.asList(
+        new PurgeableAnalysisDto().setAnalysisId(999).setAnalysisUuid("u999").setDate(System2.INSTANCE.now())));
+    Filter filter = newFirstSnapshotInListFilter();
+    PurgeBudget budget = mock(PurgeBudget.class);
+    when(budget.isExhausted()).thenReturn(true);
+
+    new DefaultPeriodCleaner(dao, new PurgeProfiler()).doClean("uuid_123", Arrays.asList(filter), session, budget);
+
+    verify(dao, never()).deleteAnalyses(any(DbSession.class), any(PurgeProfiler.class), any(PurgeBudget.class), anyListOf(IdUuidPair.class));
+    verifyZeroInteractions(filter);
+  }
+
   private Filter newFirstSnapshotInListFilter() {
     Filter filter1 = mock(Filter.class);
     when(filter1.filter(anyListOf(PurgeableAnalysisDto.class))).thenAnswer(invocation -> Collections.singletonList(((List) invocation.getArguments()[0]).iterator().next()));
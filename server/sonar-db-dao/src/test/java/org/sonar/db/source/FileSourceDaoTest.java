@@ -21,6 +21,8 @@ package org.sonar.db.source;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
@@ -31,8 +33,10 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class FileSourceDaoTest {
 
@@ -57,6 +61,7 @@ public class FileSourceDaoTest {
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(1500000000000L);
     assertThat(fileSourceDto.getDataType()).isEqualTo(Type.SOURCE);
     assertThat(fileSourceDto.getRevision()).isEqualTo("123456789");
+    assertThat(fileSourceDto.getInputHash()).isEqualTo("INPUT_HASH");
   }
 
   @Test
@@ -89,6 +94,37 @@ public class FileSourceDaoTest {
     assertThat(fn.result).isNull();
   }
 
+  @Test
+  public void scroll_line_hashes_by_file_uuids() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    underTest.insert(session, new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setBinaryData("FILE2_BINARY_DATA".getBytes())
+      .setDataHash("FILE2_DATA_HASH")
+      .setLineHashes("LINE1_HASH\nLINE2_HASH")
+      .setSrcHash("FILE2_HASH")
+      .setDataType(Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L));
+    underTest.insert(session, new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setBinaryData("FILE2_TEST_DATA".getBytes())
+      .setDataHash("FILE2_TEST_DATA_HASH")
+      .setDataType(Type.TEST)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L));
+    session.commit();
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.scrollLineHashesByFileUuids(session, asList("FILE1_UUID", "FILE2_UUID", "unknown"), context -> dtos.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(dtos).extracting(FileSourceDto::getFileUuid, FileSourceDto::getSrcHash, FileSourceDto::getLineHashes).containsOnly(
+      tuple("FILE1_UUID", "FILE_HASH", "ABC\\nDEF\\nGHI"),
+      tuple("FILE2_UUID", "FILE2_HASH", "LINE1_HASH\nLINE2_HASH"));
+  }
+
   @Test
   public void insert() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -103,11 +139,12 @@ public class FileSourceDaoTest {
       .setDataType(Type.SOURCE)
       .setCreatedAt(1500000000000L)
       .setUpdatedAt(1500000000001L)
-      .setRevision("123456789"));
+      .setRevision("123456789")
+      .setInputHash("FILE2_INPUT_HASH"));
     session.commit();
 
     dbTester.assertDbUnitTable(getClass(), "insert-result.xml", "file_sources",
-      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
+      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision", "input_hash");
   }
 
   @Test
@@ -172,11 +209,12 @@ public class FileSourceDaoTest {
       .setLineHashes("NEW_LINE_HASHES")
       .setDataType(Type.SOURCE)
       .setUpdatedAt(1500000000002L)
-      .setRevision("987654321"));
+      .setRevision("987654321")
+      .setInputHash("NEW_INPUT_HASH"));
     session.commit();
 
     dbTester.assertDbUnitTable(getClass(), "update-result.xml", "file_sources",
-      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
+      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision", "input_hash");
   }
 
   private static class ReaderToStringFunction implements Function<Reader, String> {
@@ -60,6 +60,7 @@ public class DbVersion65 implements DbVersion {
       .add(1730, "Add USERS.ONBOARDED", AddUsersOnboarded.class)
       .add(1731, "Populate USERS.ONBOARDED", PopulateUsersOnboarded.class)
       .add(1732, "Make USERS.ONBOARDED not nullable", MakeUsersOnboardedNotNullable.class)
+      .add(1733, "Add FILE_SOURCES.INPUT_HASH", AddFileSourcesInputHash.class)
     ;
   }
 }
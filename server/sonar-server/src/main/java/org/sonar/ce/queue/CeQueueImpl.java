@@ -28,9 +28,13 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.http.CeHttpClient;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -47,18 +51,32 @@ import static java.util.Objects.requireNonNull;
 
 @ComputeEngineSide
 public class CeQueueImpl implements CeQueue {
+  private static final Logger LOG = Loggers.get(CeQueueImpl.class);
 
   private final DbClient dbClient;
   private final UuidFactory uuidFactory;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  @CheckForNull
+  private final CeHttpClient ceHttpClient;
 
   // state
   private AtomicBoolean submitPaused = new AtomicBoolean(false);
 
+  /**
+   * Used by the Compute Engine, which is notified of submitted tasks by {@link #onTasksSubmitted()}.
+   */
   public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory, DefaultOrganizationProvider defaultOrganizationProvider) {
+    this(dbClient, uuidFactory, defaultOrganizationProvider, null);
+  }
+
+  /**
+   * Used by the Web Server, which notifies the Compute Engine of submitted tasks through its HTTP server.
+   */
+  public CeQueueImpl(DbClient dbClient, UuidFactory uuidFactory, DefaultOrganizationProvider defaultOrganizationProvider, @Nullable CeHttpClient ceHttpClient) {
     this.dbClient = dbClient;
     this.uuidFactory = uuidFactory;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.ceHttpClient = ceHttpClient;
   }
 
   @Override
@@ -74,6 +92,7 @@ public class CeQueueImpl implements CeQueue {
       CeQueueDto dto = new CeTaskSubmitToInsertedCeQueueDto(dbSession, dbClient).apply(submission);
       CeTask task = loadTask(dbSession, dto);
       dbSession.commit();
+      onTasksSubmitted();
       return task;
     }
   }
@@ -91,10 +110,26 @@ public class CeQueueImpl implements CeQueue {
         .toList();
       List<CeTask> tasks = loadTasks(dbSession, ceQueueDtos);
       dbSession.commit();
+      onTasksSubmitted();
       return tasks;
     }
   }
 
+  /**
+   * Called when submitted tasks are committed, so that the Compute Engine processes them without waiting for
+   * the next poll of the queue. Failures are ignored, as tasks are anyway found by polling.
+   */
+  protected void onTasksSubmitted() {
+    if (ceHttpClient == null) {
+      return;
+    }
+    try {
+      ceHttpClient.signalSubmittedTasks();
+    } catch (IllegalStateException e) {
+      LOG.debug("Fail to signal submitted tasks to Compute Engine", e);
+    }
+  }
+
   protected CeTask loadTask(DbSession dbSession, CeQueueDto dto) {
     if (dto.getComponentUuid() == null) {
       return new CeQueueDtoToCeTask(defaultOrganizationProvider.get().getUuid()).apply(dto);
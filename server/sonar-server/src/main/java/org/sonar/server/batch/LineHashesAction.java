@@ -0,0 +1,108 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.scanner.protocol.input.ScannerInput;
+import org.sonar.server.user.UserSession;
+import org.sonarqube.ws.MediaTypes;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonar.api.web.UserRole.USER;
+import static org.sonar.core.util.Protobuf.setNullable;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
+import static org.sonar.server.ws.KeyExamples.KEY_FILE_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_FILE_EXAMPLE_002;
+
+/**
+ * Bulk version of api/sources/hash, used by the scanner in issues mode to load the line hashes of all the changed files
+ * with a few requests.
+ */
+public class LineHashesAction implements BatchWsAction {
+
+  static final int MAX_KEYS = 500;
+  private static final String PARAM_KEYS = "keys";
+
+  private final DbClient dbClient;
+  private final UserSession userSession;
+
+  public LineHashesAction(DbClient dbClient, UserSession userSession) {
+    this.dbClient = dbClient;
+    this.userSession = userSession;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("line_hashes")
+      .setDescription("Return the line hashes of the given files, as a stream of delimited protobuf messages. " +
+        "Files which don't exist, have no source or belong to a project without 'Browse' permission are ignored.")
+      .setSince("6.5")
+      .setInternal(true)
+      .setPost(true)
+      .setHandler(this);
+
+    action
+      .createParam(PARAM_KEYS)
+      .setDescription("File keys. To load several files, the parameter must be called once for each key, up to " + MAX_KEYS + " times.")
+      .setExampleValue(PARAM_KEYS + "=" + KEY_FILE_EXAMPLE_001 + "&" + PARAM_KEYS + "=" + KEY_FILE_EXAMPLE_002);
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    List<String> keys = request.multiParam(PARAM_KEYS);
+    checkArgument(!keys.isEmpty(), "The '%s' parameter is missing", PARAM_KEYS);
+    checkArgument(keys.size() <= MAX_KEYS, "'%s' can contain only %s values, got %s", PARAM_KEYS, MAX_KEYS, keys.size());
+
+    response.stream().setMediaType(MediaTypes.PROTOBUF);
+    try (DbSession session = dbClient.openSession(false)) {
+      List<ComponentDto> files = userSession.keepAuthorizedComponents(USER, dbClient.componentDao().selectByKeys(session, keys));
+      Map<String, ComponentDto> filesByUuid = files.stream().collect(uniqueIndex(ComponentDto::uuid));
+
+      OutputStream output = response.stream().output();
+      ScannerInput.FileLineHashes.Builder builder = ScannerInput.FileLineHashes.newBuilder();
+      dbClient.fileSourceDao().scrollLineHashesByFileUuids(session, filesByUuid.keySet(), context -> {
+        FileSourceDto dto = (FileSourceDto) context.getResultObject();
+        builder.setKey(filesByUuid.get(dto.getFileUuid()).getKey());
+        setNullable(dto.getSrcHash(), builder::setSrcHash);
+        builder.setLineHashes(dto.getLineHashes() == null ? "" : dto.getLineHashes());
+        write(builder.build(), output);
+        builder.clear();
+      });
+    }
+  }
+
+  private static void write(ScannerInput.FileLineHashes fileLineHashes, OutputStream output) {
+    try {
+      fileLineHashes.writeDelimitedTo(output);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to serialize line hashes", e);
+    }
+  }
+}
@@ -29,12 +29,14 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
 import org.sonar.db.purge.PurgeConfiguration;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeListener;
 import org.sonar.db.purge.PurgeProfiler;
 import org.sonar.db.purge.period.DefaultPeriodCleaner;
 
+import static java.util.Collections.emptyList;
 import static org.sonar.db.purge.PurgeConfiguration.newDefaultPurgeConfiguration;
 
 @ServerSide
@@ -68,6 +70,49 @@ public class ProjectCleaner {
     return this;
   }
 
+  /**
+   * Purges only the data of the components which are disabled by the analysis. The history of the project is expected
+   * to be purged later by {@link #purgeWithinBudget(DbSession, IdUuidPair, Settings, PurgeBudget)}.
+   */
+  public ProjectCleaner purgeDisabledComponents(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, Collection<String> disabledComponentUuids) {
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, disabledComponentUuids);
+    try {
+      purgeDao.purgeDisabledComponents(session, configuration, purgeListener);
+    } catch (Exception e) {
+      // purge errors must no fail the report analysis
+      LOG.error("Fail to purge disabled components [id=" + idUuidPair.getId() + "]", e);
+    }
+    session.commit();
+    return this;
+  }
+
+  /**
+   * Purges the history of the project until the budget is exhausted.
+   *
+   * @return {@code false} if the budget has been exhausted before the end of the purge, which must then be resumed
+   */
+  public boolean purgeWithinBudget(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, PurgeBudget budget) {
+    long start = System.currentTimeMillis();
+    profiler.reset();
+
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, emptyList());
+    boolean completed = true;
+    try {
+      periodCleaner.clean(session, idUuidPair.getUuid(), projectSettings, budget);
+      completed = purgeDao.purgeHistory(session, configuration, purgeListener, profiler, budget);
+    } catch (Exception e) {
+      // do not resume a purge which fails
+      LOG.error("Fail to purge data [id=" + idUuidPair.getId() + "]", e);
+    }
+    session.commit();
+
+    long duration = System.currentTimeMillis() - start;
+    LOG.info("Purged {} rows in {} ({}/s){}", budget.getRows(), TimeUtils.formatDuration(duration),
+      budget.getRows() * 1_000L / Math.max(1L, duration), completed ? "" : ", to be resumed");
+    logProfiling(start, projectSettings);
+    return completed;
+  }
+
   private void logProfiling(long start, Settings settings) {
     if (settings.getBoolean(CoreProperties.PROFILING_LOG_PROPERTY)) {
       long duration = System.currentTimeMillis() - start;
@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import com.google.common.base.Optional;
+import java.util.Collections;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskResult;
+import org.sonar.ce.settings.ProjectSettingsFactory;
+import org.sonar.ce.taskprocessor.CeTaskProcessor;
+import org.sonar.core.config.PurgeConstants;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
+
+/**
+ * Purges the history of a project or view within the budget defined by {@link PurgeConstants#BACKGROUND_PURGE_MAX_SECONDS}
+ * and {@link PurgeConstants#BACKGROUND_PURGE_MAX_ROWS_PER_SECOND}. When the budget is exhausted, a new task is
+ * submitted to resume the purge.
+ */
+public class PurgeTaskProcessor implements CeTaskProcessor {
+
+  private static final Logger LOG = Loggers.get(PurgeTaskProcessor.class);
+  private static final Set<String> HANDLED_TYPES = Collections.singleton(CeTaskTypes.PROJECT_PURGE);
+
+  private final DbClient dbClient;
+  private final ProjectCleaner projectCleaner;
+  private final ProjectSettingsFactory projectSettingsFactory;
+  private final PurgeTaskSubmitter purgeTaskSubmitter;
+
+  public PurgeTaskProcessor(DbClient dbClient, ProjectCleaner projectCleaner, ProjectSettingsFactory projectSettingsFactory,
+    PurgeTaskSubmitter purgeTaskSubmitter) {
+    this.dbClient = dbClient;
+    this.projectCleaner = projectCleaner;
+    this.projectSettingsFactory = projectSettingsFactory;
+    this.purgeTaskSubmitter = purgeTaskSubmitter;
+  }
+
+  @Override
+  public Set<String> getHandledCeTaskTypes() {
+    return HANDLED_TYPES;
+  }
+
+  @Override
+  @CheckForNull
+  public CeTaskResult process(CeTask task) {
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      Optional<ComponentDto> component = dbClient.componentDao().selectByUuid(dbSession, task.getComponentUuid());
+      if (!component.isPresent()) {
+        LOG.info("Component {} does not exist anymore, nothing to purge", task.getComponentUuid());
+        return null;
+      }
+      ComponentDto root = component.get();
+      Settings settings = projectSettingsFactory.newProjectSettings(root.getKey());
+      PurgeBudget budget = new PurgeBudget(
+        settings.getLong(PurgeConstants.BACKGROUND_PURGE_MAX_SECONDS) * 1_000L,
+        settings.getInt(PurgeConstants.BACKGROUND_PURGE_MAX_ROWS_PER_SECOND));
+
+      boolean completed = projectCleaner.purgeWithinBudget(dbSession, new IdUuidPair(root.getId(), root.uuid()), settings, budget);
+      if (!completed) {
+        purgeTaskSubmitter.submit(root.uuid());
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import java.util.Optional;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.ce.queue.CeQueue;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.queue.CeTaskSubmit;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+
+/**
+ * Submits to the queue the tasks purging the history of projects and views.
+ */
+@ComputeEngineSide
+public class PurgeTaskSubmitter {
+
+  private final CeQueue queue;
+  private final DbClient dbClient;
+
+  public PurgeTaskSubmitter(CeQueue queue, DbClient dbClient) {
+    this.queue = queue;
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * Submits a {@link CeTaskTypes#PROJECT_PURGE} task for the specified project or view, unless such a task is
+   * already pending.
+   */
+  public Optional<CeTask> submit(String componentUuid) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      boolean alreadyPending = dbClient.ceQueueDao().selectByComponentUuid(dbSession, componentUuid).stream()
+        .anyMatch(dto -> CeTaskTypes.PROJECT_PURGE.equals(dto.getTaskType()) && dto.getStatus() == CeQueueDto.Status.PENDING);
+      if (alreadyPending) {
+        return Optional.empty();
+      }
+    }
+
+    CeTaskSubmit.Builder submit = queue.prepareSubmit();
+    submit.setType(CeTaskTypes.PROJECT_PURGE);
+    submit.setComponentUuid(componentUuid);
+    return Optional.of(queue.submit(submit.build()));
+  }
+}
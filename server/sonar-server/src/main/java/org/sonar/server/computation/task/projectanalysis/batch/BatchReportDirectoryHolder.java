@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
+import javax.annotation.CheckForNull;
 import org.sonar.ce.queue.CeTask;
 
 public interface BatchReportDirectoryHolder {
@@ -30,4 +31,11 @@ public interface BatchReportDirectoryHolder {
    */
   File getDirectory();
 
+  /**
+   * The zip file of the Batch report for the current {@link CeTask}, when the report is read without being extracted.
+   * In this case, there is no directory.
+   */
+  @CheckForNull
+  File getZipFile();
+
 }
@@ -21,14 +21,23 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
 import java.util.Objects;
+import javax.annotation.CheckForNull;
 
 public class BatchReportDirectoryHolderImpl implements MutableBatchReportDirectoryHolder {
 
   private File directory;
+  private File zipFile;
 
   @Override
   public void setDirectory(File newDirectory) {
     this.directory = Objects.requireNonNull(newDirectory);
+    this.zipFile = null;
+  }
+
+  @Override
+  public void setZipFile(File zipFile) {
+    this.zipFile = Objects.requireNonNull(zipFile);
+    this.directory = null;
   }
 
   @Override
@@ -38,4 +47,10 @@ public class BatchReportDirectoryHolderImpl implements MutableBatchReportDirecto
     }
     return this.directory;
   }
+
+  @Override
+  @CheckForNull
+  public File getZipFile() {
+    return this.zipFile;
+  }
 }
@@ -24,20 +24,20 @@ import com.google.common.base.Throwables;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Parser;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.NoSuchElementException;
 import javax.annotation.CheckForNull;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.picocontainer.Startable;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
-public class BatchReportReaderImpl implements BatchReportReader {
+public class BatchReportReaderImpl implements BatchReportReader, Startable {
 
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
   private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
@@ -48,9 +48,31 @@ public class BatchReportReaderImpl implements BatchReportReader {
     this.batchReportDirectoryHolder = batchReportDirectoryHolder;
   }
 
-  private void ensureInitialized() {
+  /**
+   * Synchronized because the report may be read concurrently by the steps. The delegate can not be created
+   * by {@link #start()} as the report is extracted later, by a step.
+   */
+  private synchronized void ensureInitialized() {
     if (this.delegate == null) {
-      this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
+      File zipFile = batchReportDirectoryHolder.getZipFile();
+      if (zipFile == null) {
+        this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
+      } else {
+        this.delegate = org.sonar.scanner.protocol.output.ScannerReportReader.fromZip(zipFile);
+      }
+    }
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (delegate != null) {
+      IOUtils.closeQuietly(delegate);
+      delegate = null;
     }
   }
 
@@ -66,16 +88,11 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<String> readScannerLogs() {
     ensureInitialized();
-    File file = delegate.getFileStructure().analysisLog();
-    if (!file.exists()) {
+    InputStream input = delegate.openAnalysisLog();
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
-    try {
-      InputStreamReader reader = new InputStreamReader(FileUtils.openInputStream(file), StandardCharsets.UTF_8);
-      return new LineReaderIterator(reader);
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to open file " + file, e);
-    }
+    return new LineReaderIterator(new InputStreamReader(input, StandardCharsets.UTF_8));
   }
 
   @Override
@@ -142,15 +159,16 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
     ensureInitialized();
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
+    InputStream input = delegate.openFileSource(fileRef);
+    if (input == null) {
       return Optional.absent();
     }
 
     try {
-      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), StandardCharsets.UTF_8)));
+      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(input, StandardCharsets.UTF_8)));
     } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
+      IOUtils.closeQuietly(input);
+      throw new IllegalStateException("Fail to traverse source of file #" + fileRef, e);
     }
   }
 
@@ -186,35 +204,21 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<ScannerReport.Test> readTests(int testFileRef) {
     ensureInitialized();
-    File file = delegate.readTests(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.Test.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
+    InputStream input = delegate.openTests(testFileRef);
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(ScannerReport.Test.parser(), input);
   }
 
   @Override
   public CloseableIterator<ScannerReport.CoverageDetail> readCoverageDetails(int testFileRef) {
     ensureInitialized();
-    File file = delegate.readCoverageDetails(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
+    InputStream input = delegate.openCoverageDetails(testFileRef);
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), input);
   }
 
   @Override
@@ -225,17 +229,17 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
   private static class ParserCloseableIterator<T> extends CloseableIterator<T> {
     private final Parser<T> parser;
-    private final FileInputStream fileInputStream;
+    private final InputStream inputStream;
 
-    public ParserCloseableIterator(Parser<T> parser, FileInputStream fileInputStream) {
+    public ParserCloseableIterator(Parser<T> parser, InputStream inputStream) {
       this.parser = parser;
-      this.fileInputStream = fileInputStream;
+      this.inputStream = inputStream;
     }
 
     @Override
     protected T doNext() {
       try {
-        return parser.parseDelimitedFrom(fileInputStream);
+        return parser.parseDelimitedFrom(inputStream);
       } catch (InvalidProtocolBufferException e) {
         Throwables.propagate(e);
         // actually never reached
@@ -245,7 +249,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
     @Override
     protected void doClose() throws Exception {
-      fileInputStream.close();
+      inputStream.close();
     }
   }
 }
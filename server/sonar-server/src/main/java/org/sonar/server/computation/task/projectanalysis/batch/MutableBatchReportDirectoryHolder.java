@@ -31,4 +31,11 @@ public interface MutableBatchReportDirectoryHolder extends BatchReportDirectoryH
    * @throws NullPointerException if {@code newDirectory} is {@code null}
    */
   void setDirectory(File newDirectory);
+
+  /**
+   * Sets the zip file of the report, which is read without being extracted. Replaces the directory, if any.
+   *
+   * @throws NullPointerException if {@code zipFile} is {@code null}
+   */
+  void setZipFile(File zipFile);
 }
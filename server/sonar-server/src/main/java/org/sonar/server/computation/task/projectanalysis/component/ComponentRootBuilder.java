@@ -194,7 +194,9 @@ public class ComponentRootBuilder {
     return new FileAttributes(
       component.getIsTest(),
       trimToNull(component.getLanguage()),
-      component.getLines());
+      component.getLines(),
+      trimToNull(component.getHash()),
+      trimToNull(component.getInputHash()));
   }
 
   @VisibleForTesting
@@ -34,12 +34,22 @@ public class FileAttributes {
   @CheckForNull
   private final String languageKey;
   private final int lines;
+  @CheckForNull
+  private final String hash;
+  @CheckForNull
+  private final String inputHash;
 
   public FileAttributes(boolean unitTest, @Nullable String languageKey, int lines) {
+    this(unitTest, languageKey, lines, null, null);
+  }
+
+  public FileAttributes(boolean unitTest, @Nullable String languageKey, int lines, @Nullable String hash, @Nullable String inputHash) {
     this.unitTest = unitTest;
     this.languageKey = languageKey;
     checkArgument(lines > 0, "Number of lines must be greater than zero");
     this.lines = lines;
+    this.hash = hash;
+    this.inputHash = inputHash;
   }
 
   public boolean isUnitTest() {
@@ -58,6 +68,23 @@ public class FileAttributes {
     return lines;
   }
 
+  /**
+   * MD5 of the source of the file, as computed by the scanner. Null if the report has been generated by an older scanner.
+   */
+  @CheckForNull
+  public String getHash() {
+    return hash;
+  }
+
+  /**
+   * MD5 of the data of the report that sources of the file are computed from, other than the source itself, as computed
+   * by the scanner. Null if the report has been generated by an older scanner.
+   */
+  @CheckForNull
+  public String getInputHash() {
+    return inputHash;
+  }
+
   @Override
   public String toString() {
     return "FileAttributes{" +
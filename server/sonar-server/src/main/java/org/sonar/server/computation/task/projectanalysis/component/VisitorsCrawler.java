@@ -19,49 +19,122 @@
  */
 package org.sonar.server.computation.task.projectanalysis.component;
 
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 
-import static com.google.common.collect.FluentIterable.from;
-import static com.google.common.collect.Iterables.concat;
-import static java.util.Objects.requireNonNull;
-
 /**
  * This crawler make any number of {@link TypeAwareVisitor} or {@link PathAwareVisitor} defined in a list visit a component tree, component per component, in the order of the list
+ * <p>
+ * The visitors to be executed for each {@link Component.Type} are computed once, when the crawler is created, so
+ * that the traversal of the tree does not create any object.
+ * </p>
+ * <p>
+ * When the computation of durations is enabled, the CPU time and the memory allocated by each visitor are also
+ * computed if the JVM supports it.
+ * </p>
  */
 public class VisitorsCrawler implements ComponentCrawler {
 
   private final boolean computeDuration;
-  private final Map<ComponentVisitor, VisitorDuration> visitorCumulativeDurations;
-  private final List<VisitorWrapper> preOrderVisitorWrappers;
-  private final List<VisitorWrapper> postOrderVisitorWrappers;
+  private final List<Visitor> visitors;
+  private final Visitor[] allVisitors;
+  private final Visitor[][] preOrderVisitorsByType;
+  private final Visitor[][] postOrderVisitorsByType;
+  private final Visitor[][] executedVisitorsByType;
+  @CheckForNull
+  private final ThreadMXBean cpuTimeBean;
+  @CheckForNull
+  private final com.sun.management.ThreadMXBean allocatedMemoryBean;
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors) {
     this(visitors, false);
   }
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration) {
-    List<VisitorWrapper> visitorWrappers = from(visitors).transform(ToVisitorWrapper.INSTANCE).toList();
-    this.preOrderVisitorWrappers = from(visitorWrappers).filter(MathPreOrderVisitor.INSTANCE).toList();
-    this.postOrderVisitorWrappers = from(visitorWrappers).filter(MatchPostOrderVisitor.INSTANCE).toList();
     this.computeDuration = computeDuration;
-    this.visitorCumulativeDurations = computeDuration ? from(visitors).toMap(VisitorWrapperToInitialDuration.INSTANCE) : Collections.emptyMap();
+    this.visitors = new ArrayList<>();
+    for (ComponentVisitor visitor : visitors) {
+      this.visitors.add(new Visitor(toVisitorWrapper(visitor)));
+    }
+    this.allVisitors = concat(visitorsOfOrder(ComponentVisitor.Order.PRE_ORDER), visitorsOfOrder(ComponentVisitor.Order.POST_ORDER));
+    int typeCount = Component.Type.values().length;
+    this.preOrderVisitorsByType = new Visitor[typeCount][];
+    this.postOrderVisitorsByType = new Visitor[typeCount][];
+    this.executedVisitorsByType = new Visitor[typeCount][];
+    for (Component.Type type : Component.Type.values()) {
+      Visitor[] preOrderVisitors = visitorsToExecute(type, ComponentVisitor.Order.PRE_ORDER);
+      Visitor[] postOrderVisitors = visitorsToExecute(type, ComponentVisitor.Order.POST_ORDER);
+      preOrderVisitorsByType[type.ordinal()] = preOrderVisitors;
+      postOrderVisitorsByType[type.ordinal()] = postOrderVisitors;
+      executedVisitorsByType[type.ordinal()] = concat(preOrderVisitors, postOrderVisitors);
+    }
+    this.cpuTimeBean = computeDuration ? cpuTimeBean() : null;
+    this.allocatedMemoryBean = computeDuration ? allocatedMemoryBean() : null;
+  }
+
+  private Visitor[] visitorsOfOrder(ComponentVisitor.Order order) {
+    return visitors.stream()
+      .filter(visitor -> visitor.order == order)
+      .toArray(Visitor[]::new);
+  }
+
+  private Visitor[] visitorsToExecute(Component.Type type, ComponentVisitor.Order order) {
+    return Arrays.stream(visitorsOfOrder(order))
+      .filter(visitor -> visitor.maxDepth.isSameAs(type) || visitor.maxDepth.isDeeperThan(type))
+      .toArray(Visitor[]::new);
+  }
+
+  private static Visitor[] concat(Visitor[] first, Visitor[] second) {
+    Visitor[] res = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, res, first.length, second.length);
+    return res;
   }
 
   public Map<ComponentVisitor, Long> getCumulativeDurations() {
+    return cumulativeValues(visitor -> TimeUnit.NANOSECONDS.toMillis(visitor.duration));
+  }
+
+  /**
+   * CPU time, in milliseconds, spent by each visitor. Empty if durations are not computed or if the JVM does not
+   * support measurement of CPU time.
+   */
+  public Map<ComponentVisitor, Long> getCumulativeCpuTimes() {
+    if (cpuTimeBean == null) {
+      return Collections.emptyMap();
+    }
+    return cumulativeValues(visitor -> TimeUnit.NANOSECONDS.toMillis(visitor.cpuTime));
+  }
+
+  /**
+   * Number of bytes allocated by each visitor. Empty if durations are not computed or if the JVM does not
+   * support measurement of allocated memory.
+   */
+  public Map<ComponentVisitor, Long> getCumulativeAllocatedBytes() {
+    if (allocatedMemoryBean == null) {
+      return Collections.emptyMap();
+    }
+    return cumulativeValues(visitor -> visitor.allocatedBytes);
+  }
+
+  private Map<ComponentVisitor, Long> cumulativeValues(ToLongFunction<Visitor> valueFunction) {
     if (computeDuration) {
-      return ImmutableMap.copyOf(
-          Maps.transformValues(this.visitorCumulativeDurations, VisitorDurationToDuration.INSTANCE)
-      );
+      ImmutableMap.Builder<ComponentVisitor, Long> builder = ImmutableMap.builder();
+      for (Visitor visitor : visitors) {
+        builder.put(visitor.wrapper.getWrappedVisitor(), valueFunction.applyAsLong(visitor));
+      }
+      return builder.build();
     }
     return Collections.emptyMap();
   }
@@ -79,41 +152,62 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private void visitImpl(Component component) {
-    MatchVisitorMaxDepth visitorMaxDepth = MatchVisitorMaxDepth.forComponent(component);
-    List<VisitorWrapper> preOrderVisitorWrappersToExecute = from(preOrderVisitorWrappers).filter(visitorMaxDepth).toList();
-    List<VisitorWrapper> postOrderVisitorWrappersToExecute = from(postOrderVisitorWrappers).filter(visitorMaxDepth).toList();
-    if (preOrderVisitorWrappersToExecute.isEmpty() && postOrderVisitorWrappersToExecute.isEmpty()) {
+    int typeOrdinal = component.getType().ordinal();
+    Visitor[] preOrderVisitorsToExecute = preOrderVisitorsByType[typeOrdinal];
+    Visitor[] postOrderVisitorsToExecute = postOrderVisitorsByType[typeOrdinal];
+    if (preOrderVisitorsToExecute.length == 0 && postOrderVisitorsToExecute.length == 0) {
       return;
     }
 
-    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappers, postOrderVisitorWrappers)) {
-      visitorWrapper.beforeComponent(component);
+    for (Visitor visitor : allVisitors) {
+      visitor.wrapper.beforeComponent(component);
     }
 
-    for (VisitorWrapper visitorWrapper : preOrderVisitorWrappersToExecute) {
-      visitNode(component, visitorWrapper);
+    for (Visitor visitor : preOrderVisitorsToExecute) {
+      visitNode(component, visitor);
     }
 
     visitChildren(component);
 
-    for (VisitorWrapper visitorWrapper : postOrderVisitorWrappersToExecute) {
-      visitNode(component, visitorWrapper);
+    for (Visitor visitor : postOrderVisitorsToExecute) {
+      visitNode(component, visitor);
     }
 
-    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappersToExecute, postOrderVisitorWrappersToExecute)) {
-      visitorWrapper.afterComponent(component);
+    for (Visitor visitor : executedVisitorsByType[typeOrdinal]) {
+      visitor.wrapper.afterComponent(component);
     }
   }
 
   private void visitChildren(Component component) {
-    for (Component child : component.getChildren()) {
-      visit(child);
+    List<Component> children = component.getChildren();
+    // avoid the creation of an iterator
+    for (int i = 0; i < children.size(); i++) {
+      visit(children.get(i));
     }
   }
 
-  private void visitNode(Component component, VisitorWrapper visitor) {
-    Profiler profiler = Profiler.create(Loggers.get(visitor.getWrappedVisitor().getClass()))
-      .startTrace("Visiting component {}", component.getKey());
+  private void visitNode(Component component, Visitor visitor) {
+    Profiler profiler = null;
+    if (visitor.logger.isTraceEnabled()) {
+      profiler = Profiler.create(visitor.logger).startTrace("Visiting component {}", component.getKey());
+    }
+    if (computeDuration) {
+      long start = System.nanoTime();
+      long cpuTimeStart = currentThreadCpuTime();
+      long allocatedBytesStart = currentThreadAllocatedBytes();
+      visitNode(component, visitor.wrapper);
+      visitor.cpuTime += currentThreadCpuTime() - cpuTimeStart;
+      visitor.allocatedBytes += currentThreadAllocatedBytes() - allocatedBytesStart;
+      visitor.duration += System.nanoTime() - start;
+    } else {
+      visitNode(component, visitor.wrapper);
+    }
+    if (profiler != null) {
+      profiler.stopTrace();
+    }
+  }
+
+  private static void visitNode(Component component, VisitorWrapper visitor) {
     visitor.visitAny(component);
     switch (component.getType()) {
       case PROJECT:
@@ -140,105 +234,61 @@ public class VisitorsCrawler implements ComponentCrawler {
       default:
         throw new IllegalStateException(String.format("Unknown type %s", component.getType().name()));
     }
-    long duration = profiler.stopTrace();
-    incrementDuration(visitor, duration);
   }
 
-  private void incrementDuration(VisitorWrapper visitorWrapper, long duration) {
-    if (computeDuration) {
-      visitorCumulativeDurations.get(visitorWrapper.getWrappedVisitor()).increment(duration);
-    }
+  private long currentThreadCpuTime() {
+    return cpuTimeBean == null ? 0L : cpuTimeBean.getCurrentThreadCpuTime();
   }
 
-  private enum ToVisitorWrapper implements Function<ComponentVisitor, VisitorWrapper> {
-    INSTANCE;
-
-    @Override
-    public VisitorWrapper apply(@Nonnull ComponentVisitor componentVisitor) {
-      if (componentVisitor instanceof TypeAwareVisitor) {
-        return new TypeAwareVisitorWrapper((TypeAwareVisitor) componentVisitor);
-      } else if (componentVisitor instanceof PathAwareVisitor) {
-        return new PathAwareVisitorWrapper((PathAwareVisitor) componentVisitor);
-      } else {
-        throw new IllegalArgumentException("Only TypeAwareVisitor and PathAwareVisitor can be used");
-      }
-    }
-  }
-
-  private static class MatchVisitorMaxDepth implements Predicate<VisitorWrapper> {
-    private static final Map<Component.Type, MatchVisitorMaxDepth> INSTANCES = buildInstances();
-    private final Component.Type type;
-
-    private MatchVisitorMaxDepth(Component.Type type) {
-      this.type = requireNonNull(type);
-    }
-
-    private static Map<Component.Type, MatchVisitorMaxDepth> buildInstances() {
-      ImmutableMap.Builder<Component.Type, MatchVisitorMaxDepth> builder = ImmutableMap.builder();
-      for (Component.Type type : Component.Type.values()) {
-        builder.put(type, new MatchVisitorMaxDepth(type));
-      }
-      return builder.build();
-    }
-
-    public static MatchVisitorMaxDepth forComponent(Component component) {
-      return INSTANCES.get(component.getType());
-    }
-
-    @Override
-    public boolean apply(@Nonnull VisitorWrapper visitorWrapper) {
-      CrawlerDepthLimit maxDepth = visitorWrapper.getMaxDepth();
-      return maxDepth.isSameAs(type) || maxDepth.isDeeperThan(type);
-    }
+  private long currentThreadAllocatedBytes() {
+    return allocatedMemoryBean == null ? 0L : allocatedMemoryBean.getThreadAllocatedBytes(Thread.currentThread().getId());
   }
 
-  private enum MathPreOrderVisitor implements Predicate<VisitorWrapper> {
-    INSTANCE;
-
-    @Override
-    public boolean apply(@Nonnull VisitorWrapper visitorWrapper) {
-      return visitorWrapper.getOrder() == ComponentVisitor.Order.PRE_ORDER;
-    }
-  }
-
-  private enum MatchPostOrderVisitor implements Predicate<VisitorWrapper> {
-    INSTANCE;
-
-    @Override
-    public boolean apply(@Nonnull VisitorWrapper visitorWrapper) {
-      return visitorWrapper.getOrder() == ComponentVisitor.Order.POST_ORDER;
+  @CheckForNull
+  private static ThreadMXBean cpuTimeBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean.isCurrentThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled()) {
+      return bean;
     }
+    return null;
   }
 
-  private static final class VisitorDuration {
-    private long duration = 0;
-
-    public void increment(long duration) {
-      this.duration += duration;
-    }
-
-    public long getDuration() {
-      return duration;
+  @CheckForNull
+  private static com.sun.management.ThreadMXBean allocatedMemoryBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+      if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+        return sunBean;
+      }
     }
+    return null;
   }
 
-  private enum VisitorWrapperToInitialDuration implements Function<ComponentVisitor, VisitorDuration> {
-    INSTANCE;
-
-    @Override
-    @Nonnull
-    public VisitorDuration apply(@Nonnull ComponentVisitor visitorWrapper) {
-      return new VisitorDuration();
+  private static VisitorWrapper toVisitorWrapper(ComponentVisitor componentVisitor) {
+    if (componentVisitor instanceof TypeAwareVisitor) {
+      return new TypeAwareVisitorWrapper((TypeAwareVisitor) componentVisitor);
+    } else if (componentVisitor instanceof PathAwareVisitor) {
+      return new PathAwareVisitorWrapper((PathAwareVisitor) componentVisitor);
+    } else {
+      throw new IllegalArgumentException("Only TypeAwareVisitor and PathAwareVisitor can be used");
     }
   }
 
-  private enum VisitorDurationToDuration implements Function<VisitorDuration, Long> {
-    INSTANCE;
-
-    @Nullable
-    @Override
-    public Long apply(VisitorDuration input) {
-      return input.getDuration();
+  private static final class Visitor {
+    private final VisitorWrapper wrapper;
+    private final ComponentVisitor.Order order;
+    private final CrawlerDepthLimit maxDepth;
+    private final Logger logger;
+    private long duration = 0L;
+    private long cpuTime = 0L;
+    private long allocatedBytes = 0L;
+
+    private Visitor(VisitorWrapper wrapper) {
+      this.wrapper = wrapper;
+      this.order = wrapper.getOrder();
+      this.maxDepth = wrapper.getMaxDepth();
+      this.logger = Loggers.get(wrapper.getWrappedVisitor().getClass());
     }
   }
 }
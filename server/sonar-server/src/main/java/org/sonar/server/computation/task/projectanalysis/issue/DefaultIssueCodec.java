@@ -0,0 +1,458 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.BinaryDiskCache;
+import org.sonar.server.util.cache.ObjectCodec;
+
+/**
+ * Binary format of the issues stored in {@link IssueCache}. All the fields of {@link DefaultIssue} are encoded,
+ * including the ones which are available only during analysis (changes, flags, ...). Values which are
+ * repeated in many issues (component, rule, status, ...) are written as shared strings.
+ */
+class DefaultIssueCodec implements ObjectCodec<DefaultIssue> {
+
+  private static final int MANUAL_SEVERITY = 1;
+  private static final int NEW = 1 << 1;
+  private static final int BEING_CLOSED = 1 << 2;
+  private static final int ON_DISABLED_RULE = 1 << 3;
+  private static final int CHANGED = 1 << 4;
+  private static final int SEND_NOTIFICATIONS = 1 << 5;
+
+  private static final int NULL = 0;
+  private static final int INLINE = 1;
+
+  private static final int LOCATIONS_PROTOBUF = 1;
+  private static final int LOCATIONS_SERIALIZED = 2;
+
+  private static final int VALUE_STRING = 1;
+  private static final int VALUE_LONG = 2;
+  private static final int VALUE_INTEGER = 3;
+  private static final int VALUE_DOUBLE = 4;
+  private static final int VALUE_BOOLEAN = 5;
+  private static final int VALUE_DATE = 6;
+  private static final int VALUE_SERIALIZED = 7;
+
+  @Override
+  public void encode(DefaultIssue issue, BinaryDiskCache.Output output) throws IOException {
+    output.writeString(issue.key());
+    output.writeSharedString(issue.type() == null ? null : issue.type().name());
+    output.writeSharedString(issue.componentUuid());
+    output.writeSharedString(issue.componentKey());
+    output.writeSharedString(issue.moduleUuid());
+    output.writeSharedString(issue.moduleUuidPath());
+    output.writeSharedString(issue.projectUuid());
+    output.writeSharedString(issue.projectKey());
+    output.writeSharedString(issue.ruleKey() == null ? null : issue.ruleKey().toString());
+    output.writeSharedString(issue.language());
+    output.writeSharedString(issue.severity());
+    output.writeString(issue.message());
+    writeNullableInt(output, issue.line());
+    writeNullableDouble(output, issue.gap());
+    writeNullableLong(output, issue.effortInMinutes());
+    output.writeSharedString(issue.status());
+    output.writeSharedString(issue.resolution());
+    output.writeSharedString(issue.assignee());
+    output.writeString(issue.checksum());
+    output.writeSharedString(issue.authorLogin());
+    writeDate(output, issue.creationDate());
+    writeDate(output, issue.updateDate());
+    writeDate(output, issue.closeDate());
+    writeNullableLong(output, issue.selectedAt());
+    output.writeByte(flags(issue));
+    writeAttributes(output, issue.attributes());
+    writeTags(output, issue.tags());
+    writeComments(output, issue.comments());
+    writeLocations(output, issue.getLocations());
+    writeChanges(output, issue.changes(), issue.currentChange());
+  }
+
+  @Override
+  public DefaultIssue decode(BinaryDiskCache.Input input) throws IOException {
+    DefaultIssue issue = new DefaultIssue();
+    issue.setKey(input.readString());
+    String type = input.readSharedString();
+    issue.setType(type == null ? null : RuleType.valueOf(type));
+    issue.setComponentUuid(input.readSharedString());
+    issue.setComponentKey(input.readSharedString());
+    issue.setModuleUuid(input.readSharedString());
+    issue.setModuleUuidPath(input.readSharedString());
+    issue.setProjectUuid(input.readSharedString());
+    issue.setProjectKey(input.readSharedString());
+    String ruleKey = input.readSharedString();
+    issue.setRuleKey(ruleKey == null ? null : RuleKey.parse(ruleKey));
+    issue.setLanguage(input.readSharedString());
+    issue.setSeverity(input.readSharedString());
+    issue.setMessage(input.readString());
+    issue.setLine(readNullableInt(input));
+    issue.setGap(readNullableDouble(input));
+    Long effort = readNullableLong(input);
+    issue.setEffort(effort == null ? null : Duration.create(effort));
+    String status = input.readSharedString();
+    if (status != null) {
+      issue.setStatus(status);
+    }
+    issue.setResolution(input.readSharedString());
+    issue.setAssignee(input.readSharedString());
+    issue.setChecksum(input.readString());
+    issue.setAuthorLogin(input.readSharedString());
+    issue.setCreationDate(readDate(input));
+    issue.setUpdateDate(readDate(input));
+    issue.setCloseDate(readDate(input));
+    issue.setSelectedAt(readNullableLong(input));
+    int flags = input.readUnsignedByte();
+    issue.setManualSeverity((flags & MANUAL_SEVERITY) != 0);
+    issue.setNew((flags & NEW) != 0);
+    issue.setBeingClosed((flags & BEING_CLOSED) != 0);
+    issue.setOnDisabledRule((flags & ON_DISABLED_RULE) != 0);
+    issue.setChanged((flags & CHANGED) != 0);
+    issue.setSendNotifications((flags & SEND_NOTIFICATIONS) != 0);
+    readAttributes(input, issue);
+    readTags(input, issue);
+    readComments(input, issue);
+    issue.setLocations(readLocations(input));
+    readChanges(input, issue);
+    return issue;
+  }
+
+  private static int flags(DefaultIssue issue) {
+    int flags = 0;
+    flags |= issue.manualSeverity() ? MANUAL_SEVERITY : 0;
+    flags |= issue.isNew() ? NEW : 0;
+    flags |= issue.isBeingClosed() ? BEING_CLOSED : 0;
+    flags |= issue.isOnDisabledRule() ? ON_DISABLED_RULE : 0;
+    flags |= issue.isChanged() ? CHANGED : 0;
+    flags |= issue.mustSendNotifications() ? SEND_NOTIFICATIONS : 0;
+    return flags;
+  }
+
+  private static void writeAttributes(BinaryDiskCache.Output output, Map<String, String> attributes) throws IOException {
+    output.writeVarInt(attributes.size());
+    for (Map.Entry<String, String> entry : attributes.entrySet()) {
+      output.writeSharedString(entry.getKey());
+      output.writeString(entry.getValue());
+    }
+  }
+
+  private static void readAttributes(BinaryDiskCache.Input input, DefaultIssue issue) throws IOException {
+    int size = input.readVarInt();
+    if (size > 0) {
+      Map<String, String> attributes = new HashMap<>(size);
+      for (int i = 0; i < size; i++) {
+        attributes.put(input.readSharedString(), input.readString());
+      }
+      issue.setAttributes(attributes);
+    }
+  }
+
+  private static void writeTags(BinaryDiskCache.Output output, Set<String> tags) throws IOException {
+    output.writeVarInt(tags.size());
+    for (String tag : tags) {
+      output.writeSharedString(tag);
+    }
+  }
+
+  private static void readTags(BinaryDiskCache.Input input, DefaultIssue issue) throws IOException {
+    int size = input.readVarInt();
+    if (size > 0) {
+      Set<String> tags = new LinkedHashSet<>(size);
+      for (int i = 0; i < size; i++) {
+        tags.add(input.readSharedString());
+      }
+      issue.setTags(tags);
+    }
+  }
+
+  private static void writeComments(BinaryDiskCache.Output output, List<IssueComment> comments) throws IOException {
+    output.writeVarInt(comments.size());
+    for (IssueComment comment : comments) {
+      output.writeString(comment.issueKey());
+      output.writeString(comment.key());
+      output.writeSharedString(comment.userLogin());
+      output.writeString(comment.markdownText());
+      writeDate(output, comment.createdAt());
+      writeDate(output, comment.updatedAt());
+      output.writeBoolean(((DefaultIssueComment) comment).isNew());
+    }
+  }
+
+  private static void readComments(BinaryDiskCache.Input input, DefaultIssue issue) throws IOException {
+    int size = input.readVarInt();
+    for (int i = 0; i < size; i++) {
+      DefaultIssueComment comment = new DefaultIssueComment()
+        .setIssueKey(input.readString())
+        .setKey(input.readString())
+        .setUserLogin(input.readSharedString())
+        .setMarkdownText(input.readString())
+        .setCreatedAt(readDate(input))
+        .setUpdatedAt(readDate(input))
+        .setNew(input.readBoolean());
+      issue.addComment(comment);
+    }
+  }
+
+  private static void writeLocations(BinaryDiskCache.Output output, @Nullable Object locations) throws IOException {
+    if (locations == null) {
+      output.writeByte(NULL);
+    } else if (locations instanceof DbIssues.Locations) {
+      output.writeByte(LOCATIONS_PROTOBUF);
+      writeBytes(output, ((DbIssues.Locations) locations).toByteArray());
+    } else {
+      output.writeByte(LOCATIONS_SERIALIZED);
+      writeBytes(output, serialize(locations));
+    }
+  }
+
+  @CheckForNull
+  private static Object readLocations(BinaryDiskCache.Input input) throws IOException {
+    int code = input.readUnsignedByte();
+    switch (code) {
+      case NULL:
+        return null;
+      case LOCATIONS_PROTOBUF:
+        return DbIssues.Locations.parseFrom(readBytes(input));
+      case LOCATIONS_SERIALIZED:
+        return deserialize(readBytes(input));
+      default:
+        throw new IOException("Unsupported locations format: " + code);
+    }
+  }
+
+  /**
+   * {@link DefaultIssue#setFieldChange} may add the current change several times to the list of changes, so
+   * the instances of {@link FieldDiffs} are written only once and then referenced by their index.
+   */
+  private static void writeChanges(BinaryDiskCache.Output output, List<FieldDiffs> changes, @Nullable FieldDiffs currentChange) throws IOException {
+    Map<FieldDiffs, Integer> ids = new IdentityHashMap<>();
+    writeChange(output, currentChange, ids);
+    output.writeVarInt(changes.size());
+    for (FieldDiffs change : changes) {
+      writeChange(output, change, ids);
+    }
+  }
+
+  private static void writeChange(BinaryDiskCache.Output output, @Nullable FieldDiffs change, Map<FieldDiffs, Integer> ids) throws IOException {
+    if (change == null) {
+      output.writeVarInt(NULL);
+      return;
+    }
+    Integer id = ids.get(change);
+    if (id != null) {
+      output.writeVarInt(id + 2);
+      return;
+    }
+    ids.put(change, ids.size());
+    output.writeVarInt(INLINE);
+    output.writeString(change.issueKey());
+    output.writeSharedString(change.userLogin());
+    writeDate(output, change.creationDate());
+    output.writeVarInt(change.diffs().size());
+    for (Map.Entry<String, FieldDiffs.Diff> entry : change.diffs().entrySet()) {
+      output.writeSharedString(entry.getKey());
+      writeValue(output, entry.getValue().oldValue());
+      writeValue(output, entry.getValue().newValue());
+    }
+  }
+
+  private static void readChanges(BinaryDiskCache.Input input, DefaultIssue issue) throws IOException {
+    List<FieldDiffs> instances = new ArrayList<>();
+    FieldDiffs currentChange = readChange(input, instances);
+    if (currentChange != null) {
+      issue.setCurrentChange(currentChange);
+    }
+    int size = input.readVarInt();
+    List<FieldDiffs> changes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      changes.add(readChange(input, instances));
+    }
+    // replaces the change added by setCurrentChange()
+    issue.setChanges(changes);
+  }
+
+  @CheckForNull
+  private static FieldDiffs readChange(BinaryDiskCache.Input input, List<FieldDiffs> instances) throws IOException {
+    int code = input.readVarInt();
+    if (code == NULL) {
+      return null;
+    }
+    if (code != INLINE) {
+      return instances.get(code - 2);
+    }
+    FieldDiffs change = new FieldDiffs();
+    instances.add(change);
+    change.setIssueKey(input.readString());
+    change.setUserLogin(input.readSharedString());
+    change.setCreationDate(readDate(input));
+    int size = input.readVarInt();
+    for (int i = 0; i < size; i++) {
+      change.setDiff(input.readSharedString(), readValue(input), readValue(input));
+    }
+    return change;
+  }
+
+  private static void writeValue(BinaryDiskCache.Output output, @Nullable Object value) throws IOException {
+    if (value == null) {
+      output.writeByte(NULL);
+    } else if (value instanceof String) {
+      output.writeByte(VALUE_STRING);
+      output.writeString((String) value);
+    } else if (value instanceof Long) {
+      output.writeByte(VALUE_LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Integer) {
+      output.writeByte(VALUE_INTEGER);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Double) {
+      output.writeByte(VALUE_DOUBLE);
+      output.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      output.writeByte(VALUE_BOOLEAN);
+      output.writeBoolean((Boolean) value);
+    } else if (value.getClass() == Date.class) {
+      output.writeByte(VALUE_DATE);
+      output.writeLong(((Date) value).getTime());
+    } else {
+      output.writeByte(VALUE_SERIALIZED);
+      writeBytes(output, serialize(value));
+    }
+  }
+
+  @CheckForNull
+  private static Serializable readValue(BinaryDiskCache.Input input) throws IOException {
+    int code = input.readUnsignedByte();
+    switch (code) {
+      case NULL:
+        return null;
+      case VALUE_STRING:
+        return input.readString();
+      case VALUE_LONG:
+        return input.readLong();
+      case VALUE_INTEGER:
+        return input.readInt();
+      case VALUE_DOUBLE:
+        return input.readDouble();
+      case VALUE_BOOLEAN:
+        return input.readBoolean();
+      case VALUE_DATE:
+        return new Date(input.readLong());
+      case VALUE_SERIALIZED:
+        return (Serializable) deserialize(readBytes(input));
+      default:
+        throw new IOException("Unsupported value format: " + code);
+    }
+  }
+
+  private static void writeNullableInt(BinaryDiskCache.Output output, @Nullable Integer i) throws IOException {
+    output.writeBoolean(i != null);
+    if (i != null) {
+      output.writeInt(i);
+    }
+  }
+
+  @CheckForNull
+  private static Integer readNullableInt(BinaryDiskCache.Input input) throws IOException {
+    return input.readBoolean() ? input.readInt() : null;
+  }
+
+  private static void writeNullableLong(BinaryDiskCache.Output output, @Nullable Long l) throws IOException {
+    output.writeBoolean(l != null);
+    if (l != null) {
+      output.writeLong(l);
+    }
+  }
+
+  @CheckForNull
+  private static Long readNullableLong(BinaryDiskCache.Input input) throws IOException {
+    return input.readBoolean() ? input.readLong() : null;
+  }
+
+  private static void writeNullableDouble(BinaryDiskCache.Output output, @Nullable Double d) throws IOException {
+    output.writeBoolean(d != null);
+    if (d != null) {
+      output.writeDouble(d);
+    }
+  }
+
+  @CheckForNull
+  private static Double readNullableDouble(BinaryDiskCache.Input input) throws IOException {
+    return input.readBoolean() ? input.readDouble() : null;
+  }
+
+  private static void writeDate(BinaryDiskCache.Output output, @Nullable Date date) throws IOException {
+    writeNullableLong(output, date == null ? null : date.getTime());
+  }
+
+  @CheckForNull
+  private static Date readDate(BinaryDiskCache.Input input) throws IOException {
+    Long time = readNullableLong(input);
+    return time == null ? null : new Date(time);
+  }
+
+  private static void writeBytes(BinaryDiskCache.Output output, byte[] bytes) throws IOException {
+    output.writeVarInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static byte[] readBytes(BinaryDiskCache.Input input) throws IOException {
+    byte[] bytes = new byte[input.readVarInt()];
+    input.readFully(bytes);
+    return bytes;
+  }
+
+  private static byte[] serialize(Object o) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(o);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) throws IOException {
+    try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return input.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Fail to deserialize object", e);
+    }
+  }
+}
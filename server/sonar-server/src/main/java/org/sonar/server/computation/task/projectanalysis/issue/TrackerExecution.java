@@ -19,25 +19,154 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.ce.configuration.CeConfiguration;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracker;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 
-public class TrackerExecution {
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+
+/**
+ * Tracks the issues of a component.
+ * <p>
+ * When {@link CeConfiguration#getIssueTrackingParallelism()} is greater than 1, the files following the requested one
+ * in the component tree are tracked in advance on a pool of threads. Raw and base issues are loaded by the calling
+ * thread, as the repositories they are read from are not thread-safe, and the matching of issues is executed by the
+ * pool. Trackings are still returned in the order they are requested, so the result of the analysis does not depend
+ * on the parallelism.
+ * </p>
+ */
+public class TrackerExecution implements Startable {
+
+  // number of files which can be tracked in advance, per thread
+  private static final int PENDING_FILES_PER_THREAD = 4;
 
   private final TrackerBaseInputFactory baseInputFactory;
   private final TrackerRawInputFactory rawInputFactory;
   private final Tracker<DefaultIssue, DefaultIssue> tracker;
+  @CheckForNull
+  private final TreeRootHolder treeRootHolder;
+  private final int parallelism;
 
+  private final Map<String, Future<Tracking<DefaultIssue, DefaultIssue>>> pendingTrackingsByUuid = new HashMap<>();
+  private Iterator<Component> filesToTrack;
+  private ExecutorService executorService;
+
+  /**
+   * Used when no {@link CeConfiguration} is available in pico container. Issues are tracked sequentially.
+   */
   public TrackerExecution(TrackerBaseInputFactory baseInputFactory, TrackerRawInputFactory rawInputFactory,
     Tracker<DefaultIssue, DefaultIssue> tracker) {
     this.baseInputFactory = baseInputFactory;
     this.rawInputFactory = rawInputFactory;
     this.tracker = tracker;
+    this.treeRootHolder = null;
+    this.parallelism = 1;
+  }
+
+  public TrackerExecution(TrackerBaseInputFactory baseInputFactory, TrackerRawInputFactory rawInputFactory,
+    Tracker<DefaultIssue, DefaultIssue> tracker, TreeRootHolder treeRootHolder, CeConfiguration ceConfiguration) {
+    this.baseInputFactory = baseInputFactory;
+    this.rawInputFactory = rawInputFactory;
+    this.tracker = tracker;
+    this.treeRootHolder = treeRootHolder;
+    this.parallelism = ceConfiguration.getIssueTrackingParallelism();
+  }
+
+  @Override
+  public void start() {
+    // executor is created on the first tracking of a file
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
   }
 
   public Tracking<DefaultIssue, DefaultIssue> track(Component component) {
-    return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
+    if (parallelism <= 1 || treeRootHolder == null || component.getType() != Component.Type.FILE) {
+      return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
+    }
+    submitUntil(component);
+    Future<Tracking<DefaultIssue, DefaultIssue>> pendingTracking = pendingTrackingsByUuid.remove(component.getUuid());
+    if (pendingTracking == null) {
+      // component does not belong to the tree
+      return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
+    }
+    submitNextFiles();
+    return waitFor(pendingTracking);
+  }
+
+  private void submitUntil(Component component) {
+    if (filesToTrack == null) {
+      filesToTrack = listFiles(treeRootHolder.getRoot()).iterator();
+      executorService = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("CE_IssueTracking-%d")
+        .setDaemon(true)
+        .build());
+    }
+    while (!pendingTrackingsByUuid.containsKey(component.getUuid()) && filesToTrack.hasNext()) {
+      submit(filesToTrack.next());
+    }
+  }
+
+  private void submitNextFiles() {
+    while (pendingTrackingsByUuid.size() < parallelism * PENDING_FILES_PER_THREAD && filesToTrack.hasNext()) {
+      submit(filesToTrack.next());
+    }
+  }
+
+  private void submit(Component file) {
+    Input<DefaultIssue> rawInput = rawInputFactory.create(file);
+    Input<DefaultIssue> baseInput = baseInputFactory.create(file);
+    // issues and raw sources are loaded from repositories which are not thread-safe
+    if (!rawInput.getIssues().isEmpty()) {
+      rawInput.getLineHashSequence();
+    }
+    baseInput.getIssues();
+    pendingTrackingsByUuid.put(file.getUuid(), executorService.submit(() -> tracker.track(rawInput, baseInput)));
+  }
+
+  private static Tracking<DefaultIssue, DefaultIssue> waitFor(Future<Tracking<DefaultIssue, DefaultIssue>> pendingTracking) {
+    try {
+      return pendingTracking.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while tracking issues", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private static List<Component> listFiles(Component root) {
+    List<Component> files = new ArrayList<>();
+    new DepthTraversalTypeAwareCrawler(new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, PRE_ORDER) {
+      @Override
+      public void visitFile(Component file) {
+        files.add(file);
+      }
+    }).visit(root);
+    return files;
   }
 }
@@ -0,0 +1,329 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Implementation of MeasureRepository which supports only raw measures of components of the report, indexed by
+ * the ref of the component and by the id of the metric.
+ * <p>
+ * Unlike {@link MapBasedRawMeasureRepository}, there is no map nor key object: the measures of a component are
+ * stored in arrays sorted by metric id, and the components are stored in an array indexed by their ref. Looking up a
+ * measure does not create any object. Measures associated to a developer, which are rare, are stored in a separate
+ * map.
+ * </p>
+ *
+ * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ */
+public final class ArrayBasedRawMeasureRepository implements MeasureRepository {
+  private static final int INITIAL_COMPONENT_CAPACITY = 256;
+  private static final int INITIAL_MEASURE_CAPACITY = 4;
+  // estimations, assuming compressed references on a 64-bit JVM
+  private static final int OBJECT_HEADER_BYTES = 16;
+  private static final int REFERENCE_BYTES = 4;
+  private static final int INT_BYTES = 4;
+
+  private ComponentMeasures[] measuresByRef = new ComponentMeasures[INITIAL_COMPONENT_CAPACITY];
+
+  /**
+   * @throws UnsupportedOperationException all the time, not supported
+   */
+  @Override
+  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    ComponentMeasures componentMeasures = get(component);
+    if (componentMeasures == null) {
+      return Optional.absent();
+    }
+    return Optional.fromNullable(componentMeasures.get(metric));
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (find(component, metric, measure) != null) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be set only once for a specific Component (key=%s), Metric (key=%s). Use update method",
+          component.getKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  @Override
+  public void update(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (find(component, metric, measure) == null) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be updated only if one already exists for a specific Component (key=%s), Metric (key=%s). Use add method",
+          component.getKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  private static void checkValueTypeConsistency(Metric metric, Measure measure) {
+    checkArgument(
+      measure.getValueType() == Measure.ValueType.NO_VALUE || measure.getValueType() == metric.getType().getValueType(),
+      format(
+        "Measure's ValueType (%s) is not consistent with the Metric's ValueType (%s)",
+        measure.getValueType(), metric.getType().getValueType()));
+  }
+
+  @Override
+  public Set<Measure> getRawMeasures(Component component, Metric metric) {
+    requireNonNull(metric);
+    requireNonNull(component);
+    ComponentMeasures componentMeasures = get(component);
+    if (componentMeasures == null) {
+      return Collections.emptySet();
+    }
+    ImmutableSet.Builder<Measure> builder = ImmutableSet.builder();
+    Measure measure = componentMeasures.get(metric);
+    if (measure != null) {
+      builder.add(measure);
+    }
+    if (componentMeasures.developerMeasures != null) {
+      for (Map.Entry<MeasureKey, Measure> entry : componentMeasures.developerMeasures.entrySet()) {
+        if (entry.getKey().getMetricKey().equals(metric.getKey())) {
+          builder.add(entry.getValue());
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public SetMultimap<String, Measure> getRawMeasures(Component component) {
+    ComponentMeasures componentMeasures = get(component);
+    if (componentMeasures == null) {
+      return ImmutableSetMultimap.of();
+    }
+
+    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+    for (int i = 0; i < componentMeasures.size; i++) {
+      builder.put(componentMeasures.metrics[i].getKey(), componentMeasures.measures[i]);
+    }
+    if (componentMeasures.developerMeasures != null) {
+      for (Map.Entry<MeasureKey, Measure> entry : componentMeasures.developerMeasures.entrySet()) {
+        builder.put(entry.getKey().getMetricKey(), entry.getValue());
+      }
+    }
+    return builder.build();
+  }
+
+  @CheckForNull
+  private Measure find(Component component, Metric metric, Measure measure) {
+    ComponentMeasures componentMeasures = get(component);
+    if (componentMeasures == null) {
+      return null;
+    }
+    if (measure.getDeveloper() == null) {
+      return componentMeasures.get(metric);
+    }
+    return componentMeasures.getForDeveloper(new MeasureKey(metric.getKey(), measure.getDeveloper()));
+  }
+
+  public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    requireNonNull(component);
+    requireNonNull(measure);
+    requireNonNull(overridePolicy);
+
+    ComponentMeasures componentMeasures = getOrCreate(component);
+    if (measure.getDeveloper() == null) {
+      componentMeasures.put(metric, measure, overridePolicy);
+    } else {
+      componentMeasures.putForDeveloper(new MeasureKey(metric.getKey(), measure.getDeveloper()), measure, overridePolicy);
+    }
+  }
+
+  /**
+   * Estimation of the number of bytes used by the structures of this repository, excluding the {@link Measure} and
+   * {@link Metric} objects themselves.
+   */
+  public MemoryUsage getMemoryUsage() {
+    long bytes = arrayBytes(measuresByRef.length, REFERENCE_BYTES);
+    int components = 0;
+    int measureCount = 0;
+    for (ComponentMeasures componentMeasures : measuresByRef) {
+      if (componentMeasures != null) {
+        components++;
+        measureCount += componentMeasures.count();
+        bytes += componentMeasures.estimatedBytes();
+      }
+    }
+    return new MemoryUsage(components, measureCount, bytes);
+  }
+
+  @CheckForNull
+  private ComponentMeasures get(Component component) {
+    int ref = component.getReportAttributes().getRef();
+    if (ref < 0 || ref >= measuresByRef.length) {
+      return null;
+    }
+    return measuresByRef[ref];
+  }
+
+  private ComponentMeasures getOrCreate(Component component) {
+    int ref = component.getReportAttributes().getRef();
+    checkArgument(ref >= 0, "Ref of component %s must be positive", component.getKey());
+    if (ref >= measuresByRef.length) {
+      measuresByRef = Arrays.copyOf(measuresByRef, Math.max(ref + 1, measuresByRef.length * 2));
+    }
+    ComponentMeasures res = measuresByRef[ref];
+    if (res == null) {
+      res = new ComponentMeasures();
+      measuresByRef[ref] = res;
+    }
+    return res;
+  }
+
+  private static long arrayBytes(int length, int elementBytes) {
+    return OBJECT_HEADER_BYTES + (long) length * elementBytes;
+  }
+
+  /**
+   * Measures of a component, sorted by metric id.
+   */
+  private static final class ComponentMeasures {
+    private int[] metricIds = new int[INITIAL_MEASURE_CAPACITY];
+    private Metric[] metrics = new Metric[INITIAL_MEASURE_CAPACITY];
+    private Measure[] measures = new Measure[INITIAL_MEASURE_CAPACITY];
+    private int size = 0;
+    @CheckForNull
+    private Map<MeasureKey, Measure> developerMeasures;
+
+    @CheckForNull
+    private Measure get(Metric metric) {
+      int index = Arrays.binarySearch(metricIds, 0, size, metric.getId());
+      return index >= 0 ? measures[index] : null;
+    }
+
+    private void put(Metric metric, Measure measure, OverridePolicy overridePolicy) {
+      int index = Arrays.binarySearch(metricIds, 0, size, metric.getId());
+      if (index >= 0) {
+        if (overridePolicy == OverridePolicy.OVERRIDE) {
+          metrics[index] = metric;
+          measures[index] = measure;
+        }
+        return;
+      }
+      int insertionPoint = -index - 1;
+      if (size == metricIds.length) {
+        int capacity = size * 2;
+        metricIds = Arrays.copyOf(metricIds, capacity);
+        metrics = Arrays.copyOf(metrics, capacity);
+        measures = Arrays.copyOf(measures, capacity);
+      }
+      int moved = size - insertionPoint;
+      System.arraycopy(metricIds, insertionPoint, metricIds, insertionPoint + 1, moved);
+      System.arraycopy(metrics, insertionPoint, metrics, insertionPoint + 1, moved);
+      System.arraycopy(measures, insertionPoint, measures, insertionPoint + 1, moved);
+      metricIds[insertionPoint] = metric.getId();
+      metrics[insertionPoint] = metric;
+      measures[insertionPoint] = measure;
+      size++;
+    }
+
+    @CheckForNull
+    private Measure getForDeveloper(MeasureKey key) {
+      return developerMeasures == null ? null : developerMeasures.get(key);
+    }
+
+    private void putForDeveloper(MeasureKey key, Measure measure, OverridePolicy overridePolicy) {
+      if (developerMeasures == null) {
+        developerMeasures = new HashMap<>();
+      }
+      if (!developerMeasures.containsKey(key) || overridePolicy == OverridePolicy.OVERRIDE) {
+        developerMeasures.put(key, measure);
+      }
+    }
+
+    private int count() {
+      return size + (developerMeasures == null ? 0 : developerMeasures.size());
+    }
+
+    private long estimatedBytes() {
+      long bytes = OBJECT_HEADER_BYTES + 4L * REFERENCE_BYTES + INT_BYTES
+        + arrayBytes(metricIds.length, INT_BYTES)
+        + 2 * arrayBytes(metrics.length, REFERENCE_BYTES);
+      if (developerMeasures != null) {
+        // approximation of the size of HashMap entries and of keys
+        bytes += OBJECT_HEADER_BYTES + developerMeasures.size() * 64L;
+      }
+      return bytes;
+    }
+  }
+
+  public static final class MemoryUsage {
+    private final int componentCount;
+    private final int measureCount;
+    private final long estimatedBytes;
+
+    private MemoryUsage(int componentCount, int measureCount, long estimatedBytes) {
+      this.componentCount = componentCount;
+      this.measureCount = measureCount;
+      this.estimatedBytes = estimatedBytes;
+    }
+
+    public int getComponentCount() {
+      return componentCount;
+    }
+
+    public int getMeasureCount() {
+      return measureCount;
+    }
+
+    public long getEstimatedBytes() {
+      return estimatedBytes;
+    }
+  }
+}
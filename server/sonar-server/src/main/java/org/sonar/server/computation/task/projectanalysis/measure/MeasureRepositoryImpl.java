@@ -21,8 +21,12 @@ package org.sonar.server.computation.task.projectanalysis.measure;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.SetMultimap;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -37,10 +41,11 @@ import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository
 import org.sonar.server.computation.task.projectanalysis.metric.ReportMetricValidator;
 
 import static java.util.Objects.requireNonNull;
-import static org.sonar.server.computation.task.projectanalysis.component.ComponentFunctions.toReportRef;
 
-public class MeasureRepositoryImpl implements MeasureRepository {
-  private final MapBasedRawMeasureRepository<Integer> delegate = new MapBasedRawMeasureRepository<>(toReportRef());
+public class MeasureRepositoryImpl implements MeasureRepository, Startable {
+  private static final Logger LOGGER = Loggers.get(MeasureRepositoryImpl.class);
+
+  private final ArrayBasedRawMeasureRepository delegate = new ArrayBasedRawMeasureRepository();
   private final DbClient dbClient;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
@@ -48,7 +53,7 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   private final ReportMetricValidator reportMetricValidator;
 
   private MeasureDtoToMeasure underTest = new MeasureDtoToMeasure();
-  private final Set<Integer> loadedComponents = new HashSet<>();
+  private final BitSet loadedComponents = new BitSet();
 
   public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository, ReportMetricValidator reportMetricValidator) {
     this.dbClient = dbClient;
@@ -109,11 +114,12 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   }
 
   private void loadBatchMeasuresForComponent(Component component) {
-    if (loadedComponents.contains(component.getReportAttributes().getRef())) {
+    int ref = component.getReportAttributes().getRef();
+    if (loadedComponents.get(ref)) {
       return;
     }
 
-    try (CloseableIterator<ScannerReport.Measure> readIt = reportReader.readComponentMeasures(component.getReportAttributes().getRef())) {
+    try (CloseableIterator<ScannerReport.Measure> readIt = reportReader.readComponentMeasures(ref)) {
       while (readIt.hasNext()) {
         ScannerReport.Measure batchMeasure = readIt.next();
         String metricKey = batchMeasure.getMetricKey();
@@ -123,7 +129,21 @@ public class MeasureRepositoryImpl implements MeasureRepository {
         }
       }
     }
-    loadedComponents.add(component.getReportAttributes().getRef());
+    loadedComponents.set(ref);
+  }
+
+  @Override
+  public void start() {
+    // nothing to do when starting
+  }
+
+  @Override
+  public void stop() {
+    ArrayBasedRawMeasureRepository.MemoryUsage memoryUsage = delegate.getMemoryUsage();
+    if (memoryUsage.getMeasureCount() > 0) {
+      LOGGER.info("Raw measures: {} measures on {} components | index size={}",
+        memoryUsage.getMeasureCount(), memoryUsage.getComponentCount(), FileUtils.byteCountToDisplaySize(memoryUsage.getEstimatedBytes()));
+    }
   }
 
 }
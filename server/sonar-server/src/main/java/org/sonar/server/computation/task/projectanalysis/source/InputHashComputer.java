@@ -0,0 +1,62 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
+
+/**
+ * Computes the input hash of a file from the hashes provided by the scanner: the hash of the source and the hash of
+ * the data of the analysis report which sources are computed from (coverage, highlighting, symbols, duplications and
+ * SCM changesets).
+ * <p>
+ * When it is the same as the one persisted by the previous analysis, sources of the file are up to date and neither
+ * the analysis report nor the source need to be read.
+ * </p>
+ */
+public class InputHashComputer {
+
+  /**
+   * To be incremented when the way sources are computed from the analysis report changes, so that sources of all
+   * files are computed again.
+   */
+  private static final int VERSION = 2;
+
+  private InputHashComputer() {
+    // only static methods
+  }
+
+  /**
+   * @return {@code null} if the report does not provide the hashes of the file, in which case sources must always be
+   * computed
+   */
+  @CheckForNull
+  public static String compute(Component file) {
+    FileAttributes fileAttributes = file.getFileAttributes();
+    String hash = fileAttributes.getHash();
+    String inputHash = fileAttributes.getInputHash();
+    if (hash == null || inputHash == null) {
+      return null;
+    }
+    return DigestUtils.md5Hex(VERSION + ":" + hash + ":" + inputHash);
+  }
+}
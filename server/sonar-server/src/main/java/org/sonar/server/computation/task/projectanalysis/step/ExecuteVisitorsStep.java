@@ -21,6 +21,8 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
@@ -56,9 +58,23 @@ public class ExecuteVisitorsStep implements ComputationStep {
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug("  Execution time for each component visitor:");
       Map<ComponentVisitor, Long> cumulativeDurations = visitorsCrawler.getCumulativeDurations();
+      Map<ComponentVisitor, Long> cumulativeCpuTimes = visitorsCrawler.getCumulativeCpuTimes();
+      Map<ComponentVisitor, Long> cumulativeAllocatedBytes = visitorsCrawler.getCumulativeAllocatedBytes();
       for (ComponentVisitor visitor : visitors) {
-        LOGGER.debug("  - {} | time={}ms", visitor.getClass().getSimpleName(), cumulativeDurations.get(visitor));
+        LOGGER.debug("  - {} | time={}ms | cpu={}ms | allocated={}", visitor.getClass().getSimpleName(), cumulativeDurations.get(visitor),
+          toStringOrUnknown(cumulativeCpuTimes.get(visitor)), formatBytes(cumulativeAllocatedBytes.get(visitor)));
       }
     }
   }
+
+  private static String toStringOrUnknown(@Nullable Long value) {
+    return value == null ? "?" : String.valueOf(value);
+  }
+
+  private static String formatBytes(@Nullable Long bytes) {
+    if (bytes == null) {
+      return "?";
+    }
+    return FileUtils.byteCountToDisplaySize(bytes);
+  }
 }
@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -32,14 +34,14 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.DependencyAwareComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 /**
  * Persist cross project duplications text blocks into DUPLICATIONS_INDEX table
  */
-public class PersistCrossProjectDuplicationIndexStep implements ComputationStep {
+public class PersistCrossProjectDuplicationIndexStep implements DependencyAwareComputationStep {
 
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
@@ -70,6 +72,16 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
     }
   }
 
+  @Override
+  public Set<Class<?>> reads() {
+    return ImmutableSet.of(CrossProjectDuplicationStatusHolder.class, TreeRootHolder.class, AnalysisMetadataHolder.class, BatchReportReader.class);
+  }
+
+  @Override
+  public Set<Class<?>> writes() {
+    return ImmutableSet.of(DuplicationUnitDto.class);
+  }
+
   private class DuplicationVisitor extends TypeAwareVisitorAdapter {
 
     private final DbSession session;
@@ -19,17 +19,32 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ObjectUtils;
+import org.slf4j.MDC;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -51,16 +66,32 @@ import org.sonar.server.computation.task.projectanalysis.source.ComputeFileSourc
 import org.sonar.server.computation.task.projectanalysis.source.CoverageLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.DuplicationLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.HighlightingLineReader;
+import org.sonar.server.computation.task.projectanalysis.source.InputHashComputer;
 import org.sonar.server.computation.task.projectanalysis.source.LineReader;
 import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter;
 import org.sonar.server.computation.task.projectanalysis.source.ScmLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SymbolsLineReader;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.DependencyAwareComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
-public class PersistFileSourcesStep implements ComputationStep {
+/**
+ * Persists the sources of files in batches. Data of the next files are computed by a dedicated thread while the
+ * previous ones are written, and the JDBC batch is flushed according to the size of the binary data it contains, to
+ * prevent OOM on big files.
+ * <p>
+ * Data of a file are not computed when its input hash (see {@link InputHashComputer}) is the same as the one persisted
+ * by the previous analysis. This check only relies on the hashes provided by the scanner, so the analysis report and
+ * the source of unchanged files are not read.
+ * </p>
+ */
+public class PersistFileSourcesStep implements DependencyAwareComputationStep {
+
+  private static final Logger LOGGER = Loggers.get(PersistFileSourcesStep.class);
+  private static final String THREAD_NAME_FORMAT = "CE_FileSources-%d";
+  static final long MAX_BATCH_SIZE_IN_BYTES = 10L * 1024 * 1024;
+  static final int MAX_PENDING_FILES = 4;
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -69,9 +100,17 @@ public class PersistFileSourcesStep implements ComputationStep {
   private final SourceLinesRepository sourceLinesRepository;
   private final ScmInfoRepository scmInfoRepository;
   private final DuplicationRepository duplicationRepository;
+  private final long maxBatchSizeInBytes;
+  private final int maxPendingFiles;
 
   public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository,
     ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository) {
+    this(dbClient, system2, treeRootHolder, reportReader, sourceLinesRepository, scmInfoRepository, duplicationRepository, MAX_BATCH_SIZE_IN_BYTES, MAX_PENDING_FILES);
+  }
+
+  @VisibleForTesting
+  PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository,
+    ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository, long maxBatchSizeInBytes, int maxPendingFiles) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
@@ -79,27 +118,61 @@ public class PersistFileSourcesStep implements ComputationStep {
     this.sourceLinesRepository = sourceLinesRepository;
     this.scmInfoRepository = scmInfoRepository;
     this.duplicationRepository = duplicationRepository;
+    this.maxBatchSizeInBytes = maxBatchSizeInBytes;
+    this.maxPendingFiles = maxPendingFiles;
   }
 
   @Override
   public void execute() {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(dbSession))
+    ExecutorService executorService = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_FORMAT)
+        .setDaemon(true)
+        .build());
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      FileSourceVisitor visitor = new FileSourceVisitor(dbSession, executorService);
+      new DepthTraversalTypeAwareCrawler(visitor)
         .visit(treeRootHolder.getRoot());
+      visitor.finish();
+    } finally {
+      executorService.shutdownNow();
     }
   }
 
+  @Override
+  public Set<Class<?>> reads() {
+    return ImmutableSet.of(TreeRootHolder.class, BatchReportReader.class, SourceLinesRepository.class, DuplicationRepository.class);
+  }
+
+  @Override
+  public Set<Class<?>> writes() {
+    // ScmInfoRepository lazily loads and caches SCM info of files
+    return ImmutableSet.of(ScmInfoRepository.class, DbFileSources.Data.class);
+  }
+
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
 
     private final DbSession session;
+    private final ExecutorService executorService;
+    // MDC holds the uuid of the CE task, it must be propagated to the thread computing data
+    @CheckForNull
+    private final Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+    private final Deque<PendingFile> pendingFiles = new ArrayDeque<>();
+    private final long startNanos = System.nanoTime();
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
+    private long batchSizeInBytes = 0L;
+    private int insertedFiles = 0;
+    private int updatedFiles = 0;
+    private int unchangedFiles = 0;
+    private int skippedFiles = 0;
+    private long writtenBytes = 0L;
 
-    private FileSourceVisitor(DbSession session) {
+    private FileSourceVisitor(DbSession session, ExecutorService executorService) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
       this.session = session;
+      this.executorService = executorService;
     }
 
     @Override
@@ -114,27 +187,53 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
-      CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
-      LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file);
+      // data of the next files are computed while the current one is persisted
+      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      pendingFiles.add(new PendingFile(file, executorService.submit(() -> computeInWorker(file, previousDto))));
+      persistPendingFiles(maxPendingFiles);
+    }
+
+    @CheckForNull
+    private FileSourceData computeInWorker(Component file, @Nullable FileSourceDto previousDto) {
+      if (mdcContext != null) {
+        MDC.setContextMap(mdcContext);
+      }
       try {
-        ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), file.getFileAttributes().getLines());
-        ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange());
-      } catch (Exception e) {
-        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+        return computeSourceData(file, previousDto);
       } finally {
-        linesIterator.close();
-        lineReaders.close();
+        MDC.clear();
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange) {
-      DbFileSources.Data fileData = fileSourceData.getFileSourceData();
+    void finish() {
+      persistPendingFiles(0);
+      session.commit();
+      logThroughput();
+    }
+
+    private void persistPendingFiles(int maxRemaining) {
+      while (pendingFiles.size() > maxRemaining) {
+        PendingFile pendingFile = pendingFiles.poll();
+        FileSourceData fileSourceData = pendingFile.get();
+        if (fileSourceData == null) {
+          skippedFiles++;
+          continue;
+        }
+        try {
+          persistSource(fileSourceData, pendingFile.file.getUuid());
+        } catch (Exception e) {
+          throw new IllegalStateException(String.format("Cannot persist sources of %s", pendingFile.file.getKey()), e);
+        }
+      }
+    }
 
-      byte[] data = FileSourceDto.encodeSourceData(fileData);
-      String dataHash = DigestUtils.md5Hex(data);
-      String srcHash = fileSourceData.getSrcHash();
-      String lineHashes = fileSourceData.getLineHashes();
+    private void persistSource(FileSourceData fileSourceData, String componentUuid) {
+      byte[] data = fileSourceData.data;
+      String dataHash = fileSourceData.dataHash;
+      String srcHash = fileSourceData.srcHash;
+      String lineHashes = fileSourceData.lineHashes;
+      String revision = fileSourceData.revision;
+      String inputHash = fileSourceData.inputHash;
       FileSourceDto previousDto = previousFileSourcesByUuid.get(componentUuid);
 
       if (previousDto == null) {
@@ -148,35 +247,136 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setLineHashes(lineHashes)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
-          .setRevision(computeRevision(latestChange));
+          .setRevision(revision)
+          .setInputHash(inputHash);
         dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
+        insertedFiles++;
+        addToBatch(data);
       } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+        // Update only if data_hash has changed or if src_hash, revision or input_hash is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
-        String revision = computeRevision(latestChange);
         boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated) {
+        boolean inputHashUpdated = !ObjectUtils.equals(inputHash, previousDto.getInputHash());
+        if (binaryDataUpdated || srcHashUpdated || revisionUpdated || inputHashUpdated) {
           previousDto
             .setBinaryData(data)
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
             .setLineHashes(lineHashes)
             .setRevision(revision)
+            .setInputHash(inputHash)
             .setUpdatedAt(system2.now());
           dbClient.fileSourceDao().update(session, previousDto);
-          session.commit();
+          updatedFiles++;
+          addToBatch(data);
+        } else {
+          unchangedFiles++;
         }
       }
     }
 
+    /**
+     * Binary data of files are kept in memory until the JDBC batch is executed, so the batch is flushed as soon as
+     * its cumulative size reaches {@link #maxBatchSizeInBytes}, whatever the number of statements it contains.
+     */
+    private void addToBatch(byte[] data) {
+      writtenBytes += data.length;
+      batchSizeInBytes += data.length;
+      if (batchSizeInBytes >= maxBatchSizeInBytes) {
+        session.commit();
+        batchSizeInBytes = 0L;
+      }
+    }
+
+    private void logThroughput() {
+      int persistedFiles = insertedFiles + updatedFiles;
+      int processedFiles = persistedFiles + unchangedFiles + skippedFiles;
+      if (processedFiles == 0) {
+        return;
+      }
+      double seconds = Math.max(System.nanoTime() - startNanos, 1L) / 1_000_000_000d;
+      LOGGER.info("{} files persisted ({} inserted, {} updated, {} unchanged, {} skipped) | {} files/s | {} MB/s",
+        persistedFiles, insertedFiles, updatedFiles, unchangedFiles, skippedFiles,
+        String.format(Locale.ENGLISH, "%.1f", processedFiles / seconds),
+        String.format(Locale.ENGLISH, "%.2f", writtenBytes / seconds / (1024 * 1024)));
+    }
+  }
+
+  /**
+   * @return {@code null} when the persisted sources of the file are up to date
+   */
+  @CheckForNull
+  private FileSourceData computeSourceData(Component file, @Nullable FileSourceDto previousDto) {
+    String inputHash = InputHashComputer.compute(file);
+    if (previousDto != null && inputHash != null && inputHash.equals(previousDto.getInputHash())) {
+      return null;
+    }
+
+    CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
+    LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file);
+    try {
+      ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), file.getFileAttributes().getLines());
+      ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
+      return new FileSourceData(fileSourceData, computeRevision(lineReaders.getLatestChange()), inputHash);
+    } catch (Exception e) {
+      throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+    } finally {
+      linesIterator.close();
+      lineReaders.close();
+    }
+  }
+
+  @CheckForNull
+  private static String computeRevision(@Nullable Changeset latestChange) {
+    if (latestChange == null) {
+      return null;
+    }
+    return latestChange.getRevision();
+  }
+
+  /**
+   * Data of a file, ready to be persisted. Encoding and hashing are done by the thread computing the data.
+   */
+  private static final class FileSourceData {
+    private final byte[] data;
+    private final String dataHash;
+    private final String srcHash;
+    private final String lineHashes;
     @CheckForNull
-    private String computeRevision(@Nullable Changeset latestChange) {
-      if (latestChange == null) {
-        return null;
+    private final String revision;
+    @CheckForNull
+    private final String inputHash;
+
+    private FileSourceData(ComputeFileSourceData.Data fileSourceData, @Nullable String revision, @Nullable String inputHash) {
+      this.data = FileSourceDto.encodeSourceData(fileSourceData.getFileSourceData());
+      this.dataHash = DigestUtils.md5Hex(data);
+      this.srcHash = fileSourceData.getSrcHash();
+      this.lineHashes = fileSourceData.getLineHashes();
+      this.revision = revision;
+      this.inputHash = inputHash;
+    }
+  }
+
+  private static final class PendingFile {
+    private final Component file;
+    private final Future<FileSourceData> future;
+
+    private PendingFile(Component file, Future<FileSourceData> future) {
+      this.file = file;
+      this.future = future;
+    }
+
+    @CheckForNull
+    FileSourceData get() {
+      try {
+        return future.get();
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(String.format("Interrupted while computing sources of %s", file.getKey()), e);
       }
-      return latestChange.getRevision();
     }
   }
 
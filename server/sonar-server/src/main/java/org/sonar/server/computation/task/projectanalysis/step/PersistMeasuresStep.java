@@ -22,17 +22,21 @@ package org.sonar.server.computation.task.projectanalysis.step;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.measure.MeasureDao;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DbIdsRepository;
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
@@ -42,7 +46,7 @@ import org.sonar.server.computation.task.projectanalysis.measure.MeasureReposito
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureToMeasureDto;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.DependencyAwareComputationStep;
 
 import static com.google.common.collect.FluentIterable.from;
 import static org.sonar.api.measures.CoreMetrics.CLASS_COMPLEXITY_DISTRIBUTION_KEY;
@@ -50,7 +54,7 @@ import static org.sonar.api.measures.CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION_KE
 import static org.sonar.api.measures.CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
-public class PersistMeasuresStep implements ComputationStep {
+public class PersistMeasuresStep implements DependencyAwareComputationStep {
 
   /**
    * List of metrics that should not be persisted on file measure (Waiting for SONAR-6688 to be implemented)
@@ -80,6 +84,17 @@ public class PersistMeasuresStep implements ComputationStep {
     return "Persist measures";
   }
 
+  @Override
+  public Set<Class<?>> reads() {
+    return ImmutableSet.of(MetricRepository.class, TreeRootHolder.class, AnalysisMetadataHolder.class, DbIdsRepository.class);
+  }
+
+  @Override
+  public Set<Class<?>> writes() {
+    // MeasureRepository lazily loads measures from the report
+    return ImmutableSet.of(MeasureRepository.class, MeasureDto.class);
+  }
+
   @Override
   public void execute() {
     DbSession dbSession = dbClient.openSession(true);
@@ -23,6 +23,7 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Table;
 import java.util.ArrayList;
@@ -51,9 +52,9 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.DependencyAwareComputationStep;
 
-public class PersistTestsStep implements ComputationStep {
+public class PersistTestsStep implements DependencyAwareComputationStep {
 
   private static final Logger LOG = Loggers.get(PersistTestsStep.class);
 
@@ -81,6 +82,16 @@ public class PersistTestsStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Class<?>> reads() {
+    return ImmutableSet.of(BatchReportReader.class, TreeRootHolder.class);
+  }
+
+  @Override
+  public Set<Class<?>> writes() {
+    return ImmutableSet.of(DbFileSources.Test.class);
+  }
+
   @Override
   public String getDescription() {
     return "Persist tests";
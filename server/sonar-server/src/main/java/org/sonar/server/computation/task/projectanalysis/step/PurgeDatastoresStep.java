@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import org.sonar.api.config.Settings;
+import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
@@ -30,6 +32,7 @@ import org.sonar.server.computation.task.projectanalysis.component.SettingsRepos
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
+import org.sonar.server.computation.dbcleaner.PurgeTaskSubmitter;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
@@ -45,15 +48,17 @@ public class PurgeDatastoresStep implements ComputationStep {
   private final TreeRootHolder treeRootHolder;
   private final SettingsRepository settingsRepository;
   private final DisabledComponentsHolder disabledComponentsHolder;
+  private final PurgeTaskSubmitter purgeTaskSubmitter;
 
   public PurgeDatastoresStep(DbClient dbClient, ProjectCleaner projectCleaner, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder,
-    SettingsRepository settingsRepository, DisabledComponentsHolder disabledComponentsHolder) {
+    SettingsRepository settingsRepository, DisabledComponentsHolder disabledComponentsHolder, PurgeTaskSubmitter purgeTaskSubmitter) {
     this.projectCleaner = projectCleaner;
     this.dbClient = dbClient;
     this.dbIdsRepository = dbIdsRepository;
     this.treeRootHolder = treeRootHolder;
     this.settingsRepository = settingsRepository;
     this.disabledComponentsHolder = disabledComponentsHolder;
+    this.purgeTaskSubmitter = purgeTaskSubmitter;
   }
 
   @Override
@@ -75,7 +80,14 @@ public class PurgeDatastoresStep implements ComputationStep {
   private void execute(Component root) {
     try (DbSession dbSession = dbClient.openSession(true)) {
       IdUuidPair idUuidPair = new IdUuidPair(dbIdsRepository.getComponentId(root), root.getUuid());
-      projectCleaner.purge(dbSession, idUuidPair, settingsRepository.getSettings(root), disabledComponentsHolder.getUuids());
+      Settings settings = settingsRepository.getSettings(root);
+      if (settings.getBoolean(PurgeConstants.BACKGROUND_PURGE)) {
+        // history is purged by a dedicated task, so that it does not delay the processing of the analysis
+        projectCleaner.purgeDisabledComponents(dbSession, idUuidPair, settings, disabledComponentsHolder.getUuids());
+        purgeTaskSubmitter.submit(root.getUuid());
+      } else {
+        projectCleaner.purge(dbSession, idUuidPair, settings, disabledComponentsHolder.getUuids());
+      }
       dbSession.commit();
     }
   }
@@ -90,10 +90,11 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     PersistComponentsStep.class,
     PersistAnalysisStep.class,
     PersistDevelopersStep.class,
-    PersistMeasuresStep.class,
     PersistIssuesStep.class,
     PersistProjectLinksStep.class,
     PersistEventsStep.class,
+    // independent steps, which can be executed concurrently
+    PersistMeasuresStep.class,
     PersistFileSourcesStep.class,
     PersistTestsStep.class,
     PersistCrossProjectDuplicationIndexStep.class,
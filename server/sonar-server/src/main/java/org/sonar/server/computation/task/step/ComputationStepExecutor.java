@@ -19,10 +19,12 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.annotations.VisibleForTesting;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.configuration.CeConfiguration;
 import org.sonar.core.util.logs.Profiler;
 
 public final class ComputationStepExecutor {
@@ -31,6 +33,7 @@ public final class ComputationStepExecutor {
   private final ComputationSteps steps;
   @CheckForNull
   private final Listener listener;
+  private final int parallelism;
 
   /**
    * Used when no {@link ComputationStepExecutor.Listener} is available in pico
@@ -40,9 +43,22 @@ public final class ComputationStepExecutor {
     this(steps, null);
   }
 
+  /**
+   * Used when no {@link CeConfiguration} is available in pico container. Steps are executed sequentially.
+   */
   public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener) {
+    this(steps, listener, 1);
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener, CeConfiguration ceConfiguration) {
+    this(steps, listener, ceConfiguration.getComputationStepsParallelism());
+  }
+
+  @VisibleForTesting
+  ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener, int parallelism) {
     this.steps = steps;
     this.listener = listener;
+    this.parallelism = parallelism;
   }
 
   public void execute() {
@@ -59,6 +75,10 @@ public final class ComputationStepExecutor {
   }
 
   private void executeSteps(Profiler stepProfiler) {
+    if (parallelism > 1) {
+      new ConcurrentComputationStepsExecution(LOGGER, steps.instances(), parallelism).execute();
+      return;
+    }
     for (ComputationStep step : steps.instances()) {
       stepProfiler.start();
       step.execute();
@@ -0,0 +1,193 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.MDC;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.core.util.logs.Profiler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Executes {@link ComputationStep}s on a bounded pool of threads, starting a step as soon as all the steps it depends on
+ * are done.
+ * <p>
+ * Step B, declared after step A, depends on A unless both steps implement {@link DependencyAwareComputationStep} and
+ * none of the resources written by one of them is read or written by the other.
+ * </p>
+ * <p>
+ * When several steps are ready to be executed, steps are started in declaration order. When a step fails, no other step
+ * is started, the steps being executed are awaited and the failure is propagated as is.
+ * </p>
+ */
+final class ConcurrentComputationStepsExecution {
+  private static final String THREAD_NAME_FORMAT = "CE_Step-%d";
+
+  private final Logger logger;
+  private final int parallelism;
+  private final List<ComputationStep> steps;
+  private final List<List<Integer>> successors;
+  private final int[] predecessorCounts;
+
+  ConcurrentComputationStepsExecution(Logger logger, Iterable<ComputationStep> steps, int parallelism) {
+    checkArgument(parallelism > 1, "parallelism must be > 1");
+    this.logger = logger;
+    this.parallelism = parallelism;
+    this.steps = ImmutableList.copyOf(steps);
+    this.successors = new ArrayList<>(this.steps.size());
+    this.predecessorCounts = new int[this.steps.size()];
+    for (int after = 0; after < this.steps.size(); after++) {
+      this.successors.add(new ArrayList<>());
+      for (int before = 0; before < after; before++) {
+        if (dependsOn(this.steps.get(after), this.steps.get(before))) {
+          this.successors.get(before).add(after);
+          this.predecessorCounts[after]++;
+        }
+      }
+    }
+  }
+
+  static boolean dependsOn(ComputationStep after, ComputationStep before) {
+    if (!(after instanceof DependencyAwareComputationStep) || !(before instanceof DependencyAwareComputationStep)) {
+      return true;
+    }
+    DependencyAwareComputationStep a = (DependencyAwareComputationStep) after;
+    DependencyAwareComputationStep b = (DependencyAwareComputationStep) before;
+    return !Collections.disjoint(b.writes(), a.reads())
+      || !Collections.disjoint(b.writes(), a.writes())
+      || !Collections.disjoint(b.reads(), a.writes());
+  }
+
+  void execute() {
+    ExecutorService executorService = Executors.newFixedThreadPool(
+      parallelism,
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_FORMAT)
+        .setDaemon(true)
+        .build());
+    try {
+      execute(new ExecutorCompletionService<>(executorService));
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void execute(CompletionService<Integer> completionService) {
+    // MDC holds the uuid of the CE task, it must be propagated to the threads of the pool
+    Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+    int[] remainingPredecessors = predecessorCounts.clone();
+    Queue<Integer> readySteps = new PriorityQueue<>();
+    for (int i = 0; i < steps.size(); i++) {
+      if (remainingPredecessors[i] == 0) {
+        readySteps.add(i);
+      }
+    }
+
+    Throwable failure = null;
+    int runningSteps = 0;
+    while (true) {
+      while (failure == null && runningSteps < parallelism && !readySteps.isEmpty()) {
+        completionService.submit(new StepCallable(readySteps.poll(), mdcContext));
+        runningSteps++;
+      }
+      if (runningSteps == 0) {
+        break;
+      }
+      Future<Integer> done = takeNext(completionService);
+      runningSteps--;
+      try {
+        for (Integer successor : successors.get(done.get())) {
+          remainingPredecessors[successor]--;
+          if (remainingPredecessors[successor] == 0) {
+            readySteps.add(successor);
+          }
+        }
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        throw interrupted(e);
+      }
+    }
+
+    if (failure != null) {
+      throw Throwables.propagate(failure);
+    }
+  }
+
+  private static Future<Integer> takeNext(CompletionService<Integer> completionService) {
+    try {
+      return completionService.take();
+    } catch (InterruptedException e) {
+      throw interrupted(e);
+    }
+  }
+
+  private static IllegalStateException interrupted(InterruptedException e) {
+    Thread.currentThread().interrupt();
+    return new IllegalStateException("Interrupted while executing computation steps", e);
+  }
+
+  private final class StepCallable implements Callable<Integer> {
+    private final int index;
+    @CheckForNull
+    private final Map<String, String> mdcContext;
+
+    private StepCallable(int index, @Nullable Map<String, String> mdcContext) {
+      this.index = index;
+      this.mdcContext = mdcContext;
+    }
+
+    @Override
+    public Integer call() {
+      if (mdcContext != null) {
+        MDC.setContextMap(mdcContext);
+      }
+      try {
+        ComputationStep step = steps.get(index);
+        Profiler stepProfiler = Profiler.create(logger).start();
+        step.execute();
+        stepProfiler.stopDebug(step.getDescription());
+        return index;
+      } finally {
+        MDC.clear();
+      }
+    }
+  }
+}
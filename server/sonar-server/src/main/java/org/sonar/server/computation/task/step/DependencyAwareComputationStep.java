@@ -0,0 +1,50 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.Set;
+
+/**
+ * A {@link ComputationStep} which declares the holders, repositories and persisted data it reads and writes, so that
+ * {@link ComputationStepExecutor} can execute it concurrently with other steps it does not conflict with.
+ * <p>
+ * Resources are identified by a class: the interface of a holder or repository (eg.
+ * {@link org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder}) or the class of the data
+ * persisted to the DB (eg. {@link org.sonar.db.measure.MeasureDto}).
+ * </p>
+ * <p>
+ * A holder or repository which lazily populates an internal cache when it is read must be declared as written.
+ * </p>
+ * <p>
+ * Steps which do not implement this interface are never executed concurrently with any other step.
+ * </p>
+ */
+public interface DependencyAwareComputationStep extends ComputationStep {
+
+  /**
+   * Resources read by this step.
+   */
+  Set<Class<?>> reads();
+
+  /**
+   * Resources written by this step.
+   */
+  Set<Class<?>> writes();
+}
@@ -20,17 +20,18 @@
 package org.sonar.server.es;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
 import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequestBuilder;
-import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.bulk.BulkItemResponse;
-import org.elasticsearch.action.bulk.BulkProcessor;
-import org.elasticsearch.action.bulk.BulkProcessor.Listener;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
@@ -40,6 +41,8 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.sort.SortOrder;
@@ -53,34 +56,40 @@ import static java.lang.String.format;
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
+ *   <li>bulk request is sent on the wire when its size is higher than a threshold, adapted to the latency of
+ *   Elasticsearch (see {@link BulkTuning})</li>
+ *   <li>bulk requests are sent asynchronously. The thread adding requests is blocked as long as the maximum
+ *   number of concurrent bulk requests is reached (backpressure)</li>
+ *   <li>items rejected by Elasticsearch because its queues are full are retried</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
  * </ul>
  */
 public class BulkIndexer implements Startable {
 
   private static final Logger LOGGER = Loggers.get(BulkIndexer.class);
-  private static final ByteSizeValue FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB);
-  private static final int FLUSH_ACTIONS = -1;
+  private static final int MAX_RETRIES = 3;
+  private static final long RETRY_DELAY_MS = 100L;
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final int DEFAULT_NUMBER_OF_SHARDS = 5;
 
   private final EsClient client;
   private final String indexName;
-  private final BulkProcessor bulkProcessor;
   private final AtomicLong counter = new AtomicLong(0L);
   private final SizeHandler sizeHandler;
+  private final BulkTuning tuning;
+  private final BulkIndexingStats stats;
+  private final Object lock = new Object();
+  // guarded by lock
+  private PendingBulk pendingBulk = new PendingBulk();
+  // guarded by lock
+  private int executingBulks = 0;
 
   public BulkIndexer(EsClient client, String indexName, Size size) {
     this.client = client;
     this.indexName = indexName;
     this.sizeHandler = size.createHandler(Runtime2.INSTANCE);
-    this.bulkProcessor = BulkProcessor.builder(client.nativeClient(), new BulkProcessorListener())
-      .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
-      .setBulkSize(FLUSH_BYTE_SIZE)
-      .setBulkActions(FLUSH_ACTIONS)
-      .setConcurrentRequests(sizeHandler.getConcurrentRequests())
-      .build();
+    this.tuning = new BulkTuning(Math.max(1, sizeHandler.getConcurrentRequests()));
+    this.stats = client.getBulkIndexingStats();
   }
 
   @Override
@@ -91,18 +100,182 @@ public class BulkIndexer implements Startable {
 
   @Override
   public void stop() {
-    try {
-      bulkProcessor.awaitClose(10, TimeUnit.MINUTES);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes", e);
+    long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10);
+    flushAndAwait(deadline);
+    while (hasPendingRequests()) {
+      // requests rejected by Elasticsearch
+      sleepBeforeRetry();
+      flushAndAwait(deadline);
     }
     client.prepareRefresh(indexName).get();
     sizeHandler.afterStop(this);
   }
 
   public void add(ActionRequest<?> request) {
-    bulkProcessor.add(request);
+    PendingBulk toExecute = null;
+    synchronized (lock) {
+      pendingBulk.add(new PendingRequest(request, 0));
+      if (pendingBulk.request.estimatedSizeInBytes() >= tuning.getBulkSizeInBytes()) {
+        toExecute = pendingBulk;
+        pendingBulk = new PendingBulk();
+      }
+    }
+    if (toExecute != null) {
+      execute(toExecute);
+    }
+  }
+
+  /**
+   * Rejected requests are put before the requests which have not been sent yet, so that they
+   * are not executed after a later request on the same document (for example a deletion).
+   */
+  private void retry(List<PendingRequest> rejectedRequests) {
+    if (rejectedRequests.isEmpty()) {
+      return;
+    }
+    synchronized (lock) {
+      PendingBulk retryBulk = new PendingBulk();
+      rejectedRequests.forEach(retryBulk::add);
+      pendingBulk.requests.forEach(retryBulk::add);
+      pendingBulk = retryBulk;
+    }
+  }
+
+  private boolean hasPendingRequests() {
+    synchronized (lock) {
+      return !pendingBulk.requests.isEmpty();
+    }
+  }
+
+  private void flushAndAwait(long deadline) {
+    PendingBulk toExecute;
+    synchronized (lock) {
+      toExecute = pendingBulk;
+      pendingBulk = new PendingBulk();
+    }
+    if (!toExecute.requests.isEmpty()) {
+      execute(toExecute);
+    }
+    synchronized (lock) {
+      while (executingBulks > 0) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes");
+        }
+        waitOnLock(remaining);
+      }
+    }
+  }
+
+  /**
+   * Blocks the calling thread as long as the maximum number of concurrent bulk requests
+   * is reached, then sends the bulk request asynchronously.
+   */
+  private void execute(PendingBulk bulk) {
+    synchronized (lock) {
+      while (executingBulks >= tuning.getConcurrency()) {
+        waitOnLock(0L);
+      }
+      executingBulks++;
+    }
+    long sizeInBytes = bulk.request.estimatedSizeInBytes();
+    long start = System.currentTimeMillis();
+    stats.onBulkStarted(start);
+    try {
+      client.nativeClient().bulk(bulk.request, new ActionListener<BulkResponse>() {
+        @Override
+        public void onResponse(BulkResponse response) {
+          try {
+            onBulkResponse(bulk, sizeInBytes, System.currentTimeMillis() - start, response);
+          } finally {
+            onBulkExecuted();
+          }
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+          try {
+            onBulkFailure(bulk, sizeInBytes, System.currentTimeMillis() - start, e);
+          } finally {
+            onBulkExecuted();
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      onBulkExecuted();
+      throw e;
+    }
+  }
+
+  private void onBulkExecuted() {
+    stats.onBulkCompleted(System.currentTimeMillis());
+    synchronized (lock) {
+      executingBulks--;
+      lock.notifyAll();
+    }
+  }
+
+  private void waitOnLock(long timeoutMs) {
+    try {
+      lock.wait(timeoutMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for Elasticsearch bulk requests", e);
+    }
+  }
+
+  private static void sleepBeforeRetry() {
+    try {
+      Thread.sleep(RETRY_DELAY_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while retrying rejected Elasticsearch bulk requests", e);
+    }
+  }
+
+  private void onBulkResponse(PendingBulk bulk, long sizeInBytes, long latencyMs, BulkResponse response) {
+    List<PendingRequest> rejectedRequests = new ArrayList<>();
+    int failed = 0;
+    for (BulkItemResponse item : response.getItems()) {
+      if (!item.isFailed()) {
+        continue;
+      }
+      PendingRequest request = bulk.requests.get(item.getItemId());
+      if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS && request.attempt < MAX_RETRIES) {
+        rejectedRequests.add(request.nextAttempt());
+      } else {
+        failed++;
+        LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+      }
+    }
+    retry(rejectedRequests);
+    int processed = response.getItems().length - rejectedRequests.size();
+    counter.addAndGet(processed);
+    stats.onBulk(processed - failed, sizeInBytes, rejectedRequests.size(), failed);
+    tuning.onBulkExecuted(sizeInBytes, latencyMs, !rejectedRequests.isEmpty());
+  }
+
+  private void onBulkFailure(PendingBulk bulk, long sizeInBytes, long latencyMs, Throwable e) {
+    if (ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException) {
+      List<PendingRequest> rejectedRequests = new ArrayList<>();
+      int failed = 0;
+      for (PendingRequest request : bulk.requests) {
+        if (request.attempt < MAX_RETRIES) {
+          rejectedRequests.add(request.nextAttempt());
+        } else {
+          failed++;
+        }
+      }
+      retry(rejectedRequests);
+      stats.onBulk(0, sizeInBytes, rejectedRequests.size(), failed);
+      tuning.onBulkExecuted(sizeInBytes, latencyMs, true);
+      if (failed > 0) {
+        LOGGER.error("Fail to execute bulk index request: " + bulk.request, e);
+      }
+    } else {
+      stats.onBulk(0, sizeInBytes, 0, bulk.requests.size());
+      LOGGER.error("Fail to execute bulk index request: " + bulk.request, e);
+    }
   }
 
   public void addDeletion(SearchRequestBuilder searchRequest) {
@@ -160,30 +333,6 @@ public class BulkIndexer implements Startable {
     bulk.stop();
   }
 
-  private final class BulkProcessorListener implements Listener {
-
-    @Override
-    public void beforeBulk(long executionId, BulkRequest request) {
-      // no action required
-    }
-
-    @Override
-    public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
-      counter.addAndGet(response.getItems().length);
-
-      for (BulkItemResponse item : response.getItems()) {
-        if (item.isFailed()) {
-          LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
-        }
-      }
-    }
-
-    @Override
-    public void afterBulk(long executionId, BulkRequest req, Throwable e) {
-      LOGGER.error("Fail to execute bulk index request: " + req, e);
-    }
-  }
-
   public enum Size {
     /** Use this size for a limited number of documents. */
     REGULAR {
@@ -217,12 +366,83 @@ public class BulkIndexer implements Startable {
     }
   }
 
+  private static final class PendingRequest {
+    private final ActionRequest<?> request;
+    private final int attempt;
+
+    private PendingRequest(ActionRequest<?> request, int attempt) {
+      this.request = request;
+      this.attempt = attempt;
+    }
+
+    private PendingRequest nextAttempt() {
+      return new PendingRequest(request, attempt + 1);
+    }
+  }
+
+  private static final class PendingBulk {
+    private final BulkRequest request = new BulkRequest();
+    // same order as request.requests(), so that the position of a BulkItemResponse identifies its request
+    private final List<PendingRequest> requests = new ArrayList<>();
+
+    private void add(PendingRequest pendingRequest) {
+      request.add(pendingRequest.request);
+      requests.add(pendingRequest);
+    }
+  }
+
+  /**
+   * Adapts the size of bulk requests and the number of concurrent bulk requests to the
+   * observed latency of Elasticsearch:
+   * <ul>
+   *   <li>size and concurrency are decreased when Elasticsearch rejects items</li>
+   *   <li>size is decreased when latency is higher than twice the target latency</li>
+   *   <li>size and concurrency are increased when full bulk requests are executed faster than the target latency</li>
+   * </ul>
+   */
+  static class BulkTuning {
+    static final long MIN_BULK_SIZE = new ByteSizeValue(256, ByteSizeUnit.KB).bytes();
+    static final long INITIAL_BULK_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB).bytes();
+    static final long MAX_BULK_SIZE = new ByteSizeValue(8, ByteSizeUnit.MB).bytes();
+    static final long TARGET_LATENCY_MS = 1_000L;
+
+    private final int maxConcurrency;
+    private long bulkSizeInBytes = INITIAL_BULK_SIZE;
+    private int concurrency;
+
+    BulkTuning(int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+      this.concurrency = maxConcurrency;
+    }
+
+    synchronized void onBulkExecuted(long sizeInBytes, long latencyMs, boolean rejections) {
+      if (rejections) {
+        bulkSizeInBytes = Math.max(MIN_BULK_SIZE, bulkSizeInBytes / 2);
+        concurrency = Math.max(1, concurrency - 1);
+      } else if (latencyMs > 2 * TARGET_LATENCY_MS) {
+        bulkSizeInBytes = Math.max(MIN_BULK_SIZE, bulkSizeInBytes * 3 / 4);
+      } else if (latencyMs < TARGET_LATENCY_MS && sizeInBytes >= bulkSizeInBytes) {
+        bulkSizeInBytes = Math.min(MAX_BULK_SIZE, bulkSizeInBytes + bulkSizeInBytes / 4);
+        concurrency = Math.min(maxConcurrency, concurrency + 1);
+      }
+    }
+
+    synchronized long getBulkSizeInBytes() {
+      return bulkSizeInBytes;
+    }
+
+    synchronized int getConcurrency() {
+      return concurrency;
+    }
+  }
+
   static class SizeHandler {
     /**
-     * @see BulkProcessor.Builder#setConcurrentRequests(int)
+     * Maximum number of bulk requests executed concurrently. A value lower than 1 means
+     * that a single bulk request is executed at a time.
      */
     int getConcurrentRequests() {
-      // in the same thread by default
+      // a single bulk request at a time by default
       return 0;
     }
 
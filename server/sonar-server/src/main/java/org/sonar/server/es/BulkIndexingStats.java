@@ -0,0 +1,111 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the bulk requests sent by the {@link BulkIndexer}s since startup.
+ */
+public class BulkIndexingStats {
+
+  private final AtomicLong bulks = new AtomicLong();
+  private final AtomicLong indexedDocuments = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private final AtomicLong rejectedDocuments = new AtomicLong();
+  private final AtomicLong failedDocuments = new AtomicLong();
+  // guarded by this
+  private int executingBulks = 0;
+  // guarded by this
+  private long activeSinceMs = 0L;
+  // guarded by this
+  private long activeTimeMs = 0L;
+
+  void onBulk(long indexedDocs, long sizeInBytes, long rejectedDocs, long failedDocs) {
+    bulks.incrementAndGet();
+    indexedDocuments.addAndGet(indexedDocs);
+    bytes.addAndGet(sizeInBytes);
+    rejectedDocuments.addAndGet(rejectedDocs);
+    failedDocuments.addAndGet(failedDocs);
+  }
+
+  /**
+   * Bulk requests of the different {@link BulkIndexer}s are executed concurrently, so only the
+   * wall-clock time during which at least one of them is being executed is counted.
+   */
+  synchronized void onBulkStarted(long nowMs) {
+    if (executingBulks == 0) {
+      activeSinceMs = nowMs;
+    }
+    executingBulks++;
+  }
+
+  synchronized void onBulkCompleted(long nowMs) {
+    executingBulks--;
+    if (executingBulks == 0) {
+      activeTimeMs += nowMs - activeSinceMs;
+    }
+  }
+
+  public long getBulks() {
+    return bulks.get();
+  }
+
+  public long getIndexedDocuments() {
+    return indexedDocuments.get();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * Documents rejected by Elasticsearch because of full queues. They are retried.
+   */
+  public long getRejectedDocuments() {
+    return rejectedDocuments.get();
+  }
+
+  /**
+   * Documents which could not be indexed, including rejected documents which have been retried too many times.
+   */
+  public long getFailedDocuments() {
+    return failedDocuments.get();
+  }
+
+  /**
+   * Throughput during the time at least one bulk request is being executed.
+   */
+  public long getDocumentsPerSecond() {
+    return perSecond(indexedDocuments.get());
+  }
+
+  public long getBytesPerSecond() {
+    return perSecond(bytes.get());
+  }
+
+  private long perSecond(long value) {
+    long durationMs;
+    synchronized (this) {
+      durationMs = activeTimeMs;
+    }
+    return durationMs == 0L ? 0L : (value * 1_000L / durationMs);
+  }
+}
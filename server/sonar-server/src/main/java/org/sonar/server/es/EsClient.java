@@ -77,11 +77,16 @@ public class EsClient implements Closeable {
   public static final Logger LOGGER = Loggers.get("es");
 
   private final Client nativeClient;
+  private final BulkIndexingStats bulkIndexingStats = new BulkIndexingStats();
 
   public EsClient(Client nativeClient) {
     this.nativeClient = requireNonNull(nativeClient);
   }
 
+  public BulkIndexingStats getBulkIndexingStats() {
+    return bulkIndexingStats;
+  }
+
   public RefreshRequestBuilder prepareRefresh(String... indices) {
     return new ProxyRefreshRequestBuilder(nativeClient()).setIndices(indices);
   }
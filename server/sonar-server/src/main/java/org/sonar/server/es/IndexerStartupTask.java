@@ -19,7 +19,20 @@
  */
 package org.sonar.server.es;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthAction;
 import org.elasticsearch.action.admin.indices.close.CloseIndexAction;
@@ -31,29 +44,51 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
+import org.sonar.core.util.ProgressLogger;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
 import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
+/**
+ * Indexes the empty index types during startup.
+ * <p>
+ * Indexers are executed concurrently, up to the number of threads defined by the property {@link #PARALLELISM_PROPERTY}.
+ * Indexers which write into the same index are executed sequentially by the same thread, as indexing in
+ * {@link BulkIndexer.Size#LARGE} mode changes the settings of the index and as initialization of
+ * types closes the index.
+ */
 public class IndexerStartupTask {
 
+  public static final String PARALLELISM_PROPERTY = "sonar.search.startupIndexing.parallelism";
+  private static final int DEFAULT_PARALLELISM = 2;
+
   private static final Logger LOG = Loggers.get(IndexerStartupTask.class);
   private static final String SETTING_PREFIX_INITIAL_INDEXING_FINISHED = "sonarqube_initial_indexing_finished.";
 
   private final EsClient esClient;
   private final Settings settings;
+  private final StartupIndexingStatus status;
   private final StartupIndexer[] indexers;
 
-  public IndexerStartupTask(EsClient esClient, Settings settings, StartupIndexer... indexers) {
+  public IndexerStartupTask(EsClient esClient, Settings settings, StartupIndexingStatus status, StartupIndexer... indexers) {
     this.esClient = esClient;
     this.settings = settings;
+    this.status = status;
     this.indexers = indexers;
   }
 
   public void execute() {
     if (indexesAreEnabled()) {
-      stream(indexers)
-        .forEach(this::indexEmptyTypes);
+      List<IndexingGroup> groups = groupByIndex(stream(indexers)
+        .map(indexer -> new IndexingTask(indexer, getUninitializedTypes(indexer)))
+        .filter(task -> !task.types.isEmpty())
+        .collect(toList()));
+      if (!groups.isEmpty()) {
+        execute(groups);
+      }
     }
   }
 
@@ -61,15 +96,87 @@ public class IndexerStartupTask {
     return !settings.getBoolean("sonar.internal.es.disableIndexes");
   }
 
-  private void indexEmptyTypes(StartupIndexer indexer) {
-    Set<IndexType> uninizializedTypes = getUninitializedTypes(indexer);
-    if (!uninizializedTypes.isEmpty()) {
-      Profiler profiler = Profiler.create(LOG);
-      profiler.startInfo(getLogMessage(uninizializedTypes, "..."));
-      indexer.indexOnStartup(uninizializedTypes);
+  private int getParallelism() {
+    int parallelism = settings.hasKey(PARALLELISM_PROPERTY) ? settings.getInt(PARALLELISM_PROPERTY) : DEFAULT_PARALLELISM;
+    checkArgument(parallelism > 0, "Property %s must be strictly positive. Got %s", PARALLELISM_PROPERTY, parallelism);
+    return parallelism;
+  }
+
+  private void execute(List<IndexingGroup> groups) {
+    List<IndexType> types = groups.stream()
+      .flatMap(group -> group.tasks.stream())
+      .flatMap(task -> task.types.stream())
+      .collect(toList());
+    status.setPending(types);
+
+    AtomicLong initializedTypes = new AtomicLong();
+    ProgressLogger progress = new ProgressLogger("ProgressLogger[IndexerStartupTask]", initializedTypes, LOG)
+      .setTotal(types.size())
+      .setPluralLabel("index types");
+    int threads = Math.min(getParallelism(), groups.size());
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("StartupIndexer-%d")
+      .setDaemon(true)
+      .build());
+    Profiler profiler = Profiler.create(LOG).startInfo(format("Indexing of %d index types with %d threads...", types.size(), threads));
+    progress.start();
+    try {
+      List<Future<?>> futures = groups.stream()
+        .map(group -> executorService.submit(() -> group.tasks.forEach(task -> indexEmptyTypes(task, initializedTypes))))
+        .collect(toList());
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Indexing of index types on startup has been interrupted", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executorService.shutdownNow();
+      progress.stop();
+    }
+    profiler.stopInfo(format("Indexing of %d index types done", types.size()));
+  }
+
+  private void indexEmptyTypes(IndexingTask task, AtomicLong initializedTypes) {
+    Set<IndexType> uninizializedTypes = task.types;
+    Profiler profiler = Profiler.create(LOG);
+    profiler.startInfo(getLogMessage(uninizializedTypes, "..."));
+    status.setInProgress(uninizializedTypes);
+    try {
+      task.indexer.indexOnStartup(uninizializedTypes);
       uninizializedTypes.forEach(this::setInitialized);
-      profiler.stopInfo(getLogMessage(uninizializedTypes, "done"));
+    } catch (RuntimeException e) {
+      status.setFailed(uninizializedTypes);
+      throw e;
+    }
+    status.setDone(uninizializedTypes);
+    initializedTypes.addAndGet(uninizializedTypes.size());
+    profiler.stopInfo(getLogMessage(uninizializedTypes, "done"));
+  }
+
+  /**
+   * Tasks sharing an index, directly or transitively, are put in the same group. Order of tasks is kept.
+   */
+  private static List<IndexingGroup> groupByIndex(List<IndexingTask> tasks) {
+    List<IndexingGroup> groups = new ArrayList<>();
+    for (IndexingTask task : tasks) {
+      IndexingGroup group = new IndexingGroup();
+      Iterator<IndexingGroup> it = groups.iterator();
+      while (it.hasNext()) {
+        IndexingGroup existingGroup = it.next();
+        if (!Collections.disjoint(existingGroup.indices, task.indices)) {
+          group.addAll(existingGroup);
+          it.remove();
+        }
+      }
+      group.add(task);
+      groups.add(group);
     }
+    // keep the tasks of each group in the order of the indexers
+    groups.forEach(group -> group.tasks.sort(Comparator.comparingInt(tasks::indexOf)));
+    return groups;
   }
 
   private Set<IndexType> getUninitializedTypes(StartupIndexer indexer) {
@@ -130,4 +237,30 @@ public class IndexerStartupTask {
     String typeList = emptyTypes.stream().map(Object::toString).collect(Collectors.joining(","));
     return String.format("Indexing of type%s %s %s", s, typeList, suffix);
   }
+
+  private static class IndexingTask {
+    private final StartupIndexer indexer;
+    private final Set<IndexType> types;
+    private final Set<String> indices;
+
+    private IndexingTask(StartupIndexer indexer, Set<IndexType> types) {
+      this.indexer = indexer;
+      this.types = types;
+      this.indices = types.stream().map(IndexType::getIndex).collect(toSet());
+    }
+  }
+
+  private static class IndexingGroup {
+    private final List<IndexingTask> tasks = new ArrayList<>();
+    private final Set<String> indices = new HashSet<>();
+
+    private void add(IndexingTask task) {
+      tasks.add(task);
+      indices.addAll(task.indices);
+    }
+
+    private void addAll(IndexingGroup group) {
+      group.tasks.forEach(this::add);
+    }
+  }
 }
@@ -0,0 +1,108 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+
+/**
+ * Status of the indexing of the empty index types during web server startup.
+ * It is updated by {@link IndexerStartupTask} and read by the system info.
+ */
+@ServerSide
+public class StartupIndexingStatus {
+
+  public enum State {
+    PENDING, IN_PROGRESS, DONE, FAILED
+  }
+
+  private final System2 system2;
+  private final Map<IndexType, TypeStatus> statusByType = new LinkedHashMap<>();
+
+  public StartupIndexingStatus(System2 system2) {
+    this.system2 = system2;
+  }
+
+  public synchronized void setPending(Collection<IndexType> indexTypes) {
+    indexTypes.forEach(indexType -> statusByType.put(indexType, new TypeStatus(State.PENDING, null, null)));
+  }
+
+  public synchronized void setInProgress(Collection<IndexType> indexTypes) {
+    long now = system2.now();
+    indexTypes.forEach(indexType -> statusByType.put(indexType, new TypeStatus(State.IN_PROGRESS, now, null)));
+  }
+
+  public synchronized void setDone(Collection<IndexType> indexTypes) {
+    setFinished(indexTypes, State.DONE);
+  }
+
+  public synchronized void setFailed(Collection<IndexType> indexTypes) {
+    setFinished(indexTypes, State.FAILED);
+  }
+
+  private void setFinished(Collection<IndexType> indexTypes, State state) {
+    long now = system2.now();
+    indexTypes.forEach(indexType -> {
+      TypeStatus previous = statusByType.get(indexType);
+      Long startedAt = previous == null ? null : previous.startedAt;
+      statusByType.put(indexType, new TypeStatus(state, startedAt, now));
+    });
+  }
+
+  /**
+   * Status of the index types indexed during startup, in the order they have been registered.
+   */
+  public synchronized Map<IndexType, TypeStatus> getStatusByType() {
+    return new LinkedHashMap<>(statusByType);
+  }
+
+  @Immutable
+  public static final class TypeStatus {
+    private final State state;
+    private final Long startedAt;
+    private final Long finishedAt;
+
+    private TypeStatus(State state, @Nullable Long startedAt, @Nullable Long finishedAt) {
+      this.state = state;
+      this.startedAt = startedAt;
+      this.finishedAt = finishedAt;
+    }
+
+    public State getState() {
+      return state;
+    }
+
+    @CheckForNull
+    public Long getStartedAt() {
+      return startedAt;
+    }
+
+    @CheckForNull
+    public Long getFinishedAt() {
+      return finishedAt;
+    }
+  }
+}
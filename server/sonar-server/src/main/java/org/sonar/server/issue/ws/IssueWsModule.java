@@ -48,6 +48,8 @@ public class IssueWsModule extends Module {
       IssueQueryFactory.class,
       IssuesWs.class,
       AvatarResolverImpl.class,
+      SearchResponseCache.class,
+      SearchResponseLoaderExecutorServiceImpl.class,
       SearchResponseLoader.class,
       SearchResponseFormat.class,
       OperationResponseWriter.class,
@@ -27,6 +27,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
@@ -38,6 +39,7 @@ import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.server.ws.WebService.Param;
 import org.sonar.api.utils.Paging;
+import org.sonar.api.utils.System2;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.server.es.Facets;
 import org.sonar.server.es.SearchOptions;
@@ -105,19 +107,28 @@ public class SearchAction implements IssuesWsAction {
   private static final String INTERNAL_PARAMETER_DISCLAIMER = "This parameter is mostly used by the Issues page, please prefer usage of the componentKeys parameter. ";
   private static final Set<String> IGNORED_FACETS = newHashSet(PARAM_PLANNED, DEPRECATED_PARAM_ACTION_PLANS, PARAM_REPORTERS);
 
+  /**
+   * Durations of the steps of the request, as defined by https://www.w3.org/TR/server-timing/
+   */
+  static final String TIMING_HEADER = "Server-Timing";
+  static final String SEARCH_STEP = "search";
+  static final String FORMAT_STEP = "format";
+
   private final UserSession userSession;
   private final IssueIndex issueIndex;
   private final IssueQueryFactory issueQueryFactory;
   private final SearchResponseLoader searchResponseLoader;
   private final SearchResponseFormat searchResponseFormat;
+  private final System2 system2;
 
   public SearchAction(UserSession userSession, IssueIndex issueIndex, IssueQueryFactory issueQueryFactory,
-    SearchResponseLoader searchResponseLoader, SearchResponseFormat searchResponseFormat) {
+    SearchResponseLoader searchResponseLoader, SearchResponseFormat searchResponseFormat, System2 system2) {
     this.userSession = userSession;
     this.issueIndex = issueIndex;
     this.issueQueryFactory = issueQueryFactory;
     this.searchResponseLoader = searchResponseLoader;
     this.searchResponseFormat = searchResponseFormat;
+    this.system2 = system2;
   }
 
   @Override
@@ -297,18 +308,28 @@ public class SearchAction implements IssuesWsAction {
 
   @Override
   public final void handle(Request request, Response response) throws Exception {
-    SearchWsResponse searchWsResponse = doHandle(toSearchWsRequest(request), request);
+    Map<String, Long> durationsByStep = new LinkedHashMap<>();
+    SearchWsResponse searchWsResponse = doHandle(toSearchWsRequest(request), request, durationsByStep);
+    response.setHeader(TIMING_HEADER, formatDurations(durationsByStep));
     writeProtobuf(searchWsResponse, request, response);
   }
 
-  private SearchWsResponse doHandle(SearchWsRequest request, Request wsRequest) {
+  static String formatDurations(Map<String, Long> durationsByStep) {
+    return durationsByStep.entrySet().stream()
+      .map(entry -> format("%s;dur=%d", entry.getKey(), entry.getValue()))
+      .collect(Collectors.joining(", "));
+  }
+
+  private SearchWsResponse doHandle(SearchWsRequest request, Request wsRequest, Map<String, Long> durationsByStep) {
     // prepare the Elasticsearch request
     SearchOptions options = createSearchOptionsFromRequest(request);
     EnumSet<SearchAdditionalField> additionalFields = SearchAdditionalField.getFromRequest(request);
     IssueQuery query = issueQueryFactory.create(request);
 
     // execute request
+    long start = system2.now();
     SearchResult<IssueDoc> result = issueIndex.search(query, options);
+    durationsByStep.put(SEARCH_STEP, system2.now() - start);
     List<String> issueKeys = result.getDocs().stream().map(IssueDoc::key).collect(MoreCollectors.toList(result.getDocs().size()));
 
     // load the additional information to be returned in response
@@ -325,6 +346,7 @@ public class SearchAction implements IssuesWsAction {
       collectFacets(collector, facets);
     }
     SearchResponseData data = searchResponseLoader.load(collector, facets);
+    durationsByStep.putAll(data.getDurations());
 
     // format response
 
@@ -336,7 +358,10 @@ public class SearchAction implements IssuesWsAction {
     // FIXME allow long in Paging
     Paging paging = forPageIndex(options.getPage()).withPageSize(options.getLimit()).andTotal((int) result.getTotal());
 
-    return searchResponseFormat.formatSearch(additionalFields, data, paging, facets);
+    start = system2.now();
+    SearchWsResponse response = searchResponseFormat.formatSearch(additionalFields, data, paging, facets);
+    durationsByStep.put(FORMAT_STEP, system2.now() - start);
+    return response;
   }
 
   private static SearchOptions createSearchOptionsFromRequest(SearchWsRequest request) {
@@ -0,0 +1,110 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.ServerSide;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.user.UserDto;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Rules, users and components recently loaded by {@link SearchResponseLoader}. They are shared by all the
+ * requests, as the same data is returned again and again when browsing issues.
+ * <p>
+ * Entries expire shortly after being loaded, so changes (for example renaming of a project) are visible
+ * after at most {@link #TTL_MS}. Cached DTOs are shared and must not be modified.
+ */
+@ServerSide
+public class SearchResponseCache {
+
+  @VisibleForTesting
+  static final long TTL_MS = 10_000L;
+  private static final long MAX_ENTRIES = 10_000L;
+
+  private final Cache<RuleKey, RuleDefinitionDto> rulesByKey;
+  private final Cache<String, UserDto> usersByLogin;
+  private final Cache<String, ComponentDto> componentsByUuid;
+
+  public SearchResponseCache() {
+    this(Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  SearchResponseCache(Ticker ticker) {
+    this.rulesByKey = newCache(ticker);
+    this.usersByLogin = newCache(ticker);
+    this.componentsByUuid = newCache(ticker);
+  }
+
+  private static <K, V> Cache<K, V> newCache(Ticker ticker) {
+    return CacheBuilder.newBuilder()
+      .ticker(ticker)
+      .expireAfterWrite(TTL_MS, MILLISECONDS)
+      .maximumSize(MAX_ENTRIES)
+      .build();
+  }
+
+  /**
+   * @param loader loads from DB the rules which are not cached
+   */
+  public List<RuleDefinitionDto> getRules(Collection<RuleKey> keys, Function<Set<RuleKey>, List<RuleDefinitionDto>> loader) {
+    return getAll(rulesByKey, keys, RuleDefinitionDto::getKey, loader);
+  }
+
+  /**
+   * @param loader loads from DB the users which are not cached
+   */
+  public List<UserDto> getUsers(Collection<String> logins, Function<Set<String>, List<UserDto>> loader) {
+    return getAll(usersByLogin, logins, UserDto::getLogin, loader);
+  }
+
+  /**
+   * @param loader loads from DB the components which are not cached
+   */
+  public List<ComponentDto> getComponents(Collection<String> uuids, Function<Set<String>, List<ComponentDto>> loader) {
+    return getAll(componentsByUuid, uuids, ComponentDto::uuid, loader);
+  }
+
+  private static <K, V> List<V> getAll(Cache<K, V> cache, Collection<K> keys, Function<V, K> keyFunction, Function<Set<K>, List<V>> loader) {
+    Map<K, V> cached = cache.getAllPresent(keys);
+    List<V> result = new ArrayList<>(cached.values());
+    Set<K> keysToLoad = keys.stream().filter(key -> !cached.containsKey(key)).collect(MoreCollectors.toSet());
+    if (!keysToLoad.isEmpty()) {
+      List<V> loaded = loader.apply(keysToLoad);
+      loaded.forEach(value -> cache.put(keyFunction.apply(value), value));
+      result.addAll(loaded);
+    }
+    return result;
+  }
+}
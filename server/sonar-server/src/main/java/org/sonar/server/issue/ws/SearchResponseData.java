@@ -25,6 +25,7 @@ import com.google.common.collect.ListMultimap;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -56,6 +57,7 @@ public class SearchResponseData {
   private final ListMultimap<String, String> actionsByIssueKey = ArrayListMultimap.create();
   private final ListMultimap<String, Transition> transitionsByIssueKey = ArrayListMultimap.create();
   private final Set<String> updatableComments = new HashSet<>();
+  private final Map<String, Long> durationsByStep = new LinkedHashMap<>();
 
   public SearchResponseData(IssueDto issue) {
     checkNotNull(issue);
@@ -170,4 +172,15 @@ public class SearchResponseData {
   public void addOrganization(OrganizationDto organizationDto) {
     this.organizationKeysByUuid.put(organizationDto.getUuid(), organizationDto.getKey());
   }
+
+  public void addDuration(String step, long durationInMs) {
+    durationsByStep.put(step, durationInMs);
+  }
+
+  /**
+   * Durations in milliseconds of the steps of loading, in the order of recording
+   */
+  public Map<String, Long> getDurations() {
+    return durationsByStep;
+  }
 }
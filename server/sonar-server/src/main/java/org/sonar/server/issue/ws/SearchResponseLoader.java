@@ -27,8 +27,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.System2;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
@@ -47,7 +51,6 @@ import org.sonarqube.ws.client.issue.IssuesWsParameters;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.collect.ImmutableSet.copyOf;
-import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.difference;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Stream.concat;
@@ -60,19 +63,37 @@ import static org.sonar.server.issue.ws.SearchAdditionalField.USERS;
 
 /**
  * Loads all the information required for the response of api/issues/search.
+ * <p>
+ * Rules and components do not depend on the other data, so they are loaded concurrently with comments
+ * and users. Rules, users and components are read from {@link SearchResponseCache} when possible. The
+ * duration of each step is recorded in {@link SearchResponseData#getDurations()}.
  */
 public class SearchResponseLoader {
 
+  static final String ISSUES_STEP = "issues";
+  static final String RULES_STEP = "rules";
+  static final String COMMENTS_STEP = "comments";
+  static final String USERS_STEP = "users";
+  static final String COMPONENTS_STEP = "components";
+  static final String ACTIONS_STEP = "actions";
+
   private final UserSession userSession;
   private final DbClient dbClient;
   private final ActionFinder actionService;
   private final TransitionService transitionService;
+  private final SearchResponseCache cache;
+  private final SearchResponseLoaderExecutorService executorService;
+  private final System2 system2;
 
-  public SearchResponseLoader(UserSession userSession, DbClient dbClient, ActionFinder actionService, TransitionService transitionService) {
+  public SearchResponseLoader(UserSession userSession, DbClient dbClient, ActionFinder actionService, TransitionService transitionService,
+    SearchResponseCache cache, SearchResponseLoaderExecutorService executorService, System2 system2) {
     this.userSession = userSession;
     this.dbClient = dbClient;
     this.actionService = actionService;
     this.transitionService = transitionService;
+    this.cache = cache;
+    this.executorService = executorService;
+    this.system2 = system2;
   }
 
   /**
@@ -80,18 +101,10 @@ public class SearchResponseLoader {
    */
   public SearchResponseData load(Collector collector, @Nullable Facets facets) {
     try (DbSession dbSession = dbClient.openSession(false)) {
+      long start = system2.now();
       SearchResponseData result = new SearchResponseData(dbClient.issueDao().selectByOrderedKeys(dbSession, collector.getIssueKeys()));
-      collector.collect(result.getIssues());
-
-      loadRules(collector, dbSession, result);
-      // order is important - loading of comments complete the list of users: loadComments() is
-      // before loadUsers()
-      loadComments(collector, dbSession, result);
-      loadUsers(collector, dbSession, result);
-      loadComponents(collector, dbSession, result);
-      loadOrganizations(dbSession, result);
-      loadActionsAndTransitions(collector, result);
-      completeTotalEffortFromFacet(facets, result);
+      result.addDuration(ISSUES_STEP, system2.now() - start);
+      loadAdditionalData(new SearchResponseData(emptyList()), collector, facets, dbSession, result);
       return result;
     }
   }
@@ -106,22 +119,72 @@ public class SearchResponseLoader {
    */
   public SearchResponseData load(SearchResponseData preloadedResponseData, Collector collector, @Nullable Facets facets) {
     try (DbSession dbSession = dbClient.openSession(false)) {
+      long start = system2.now();
       SearchResponseData result = new SearchResponseData(loadIssues(preloadedResponseData, collector, dbSession));
-      collector.collect(result.getIssues());
-
-      loadRules(preloadedResponseData, collector, dbSession, result);
-      // order is important - loading of comments complete the list of users: loadComments() is
-      // before loadUsers()
-      loadComments(collector, dbSession, result);
-      loadUsers(preloadedResponseData, collector, dbSession, result);
-      loadComponents(preloadedResponseData, collector, dbSession, result);
-      loadOrganizations(dbSession, result);
-      loadActionsAndTransitions(collector, result);
-      completeTotalEffortFromFacet(facets, result);
+      result.addDuration(ISSUES_STEP, system2.now() - start);
+      loadAdditionalData(preloadedResponseData, collector, facets, dbSession, result);
       return result;
     }
   }
 
+  private void loadAdditionalData(SearchResponseData preloadedResponseData, Collector collector, @Nullable Facets facets,
+    DbSession dbSession, SearchResponseData result) {
+    collector.collect(result.getIssues());
+
+    // keys are copied as the collector is completed by loadComments() while rules are being loaded
+    Set<RuleKey> ruleKeys = ImmutableSet.copyOf(collector.<RuleKey>get(RULES));
+    Future<Long> rulesLoading = submit(session -> loadRules(preloadedResponseData, collector, ruleKeys, session, result));
+    Future<Long> componentsLoading = submit(session -> {
+      loadComponents(preloadedResponseData, collector, session, result);
+      loadOrganizations(session, result);
+    });
+
+    // order is important - loading of comments complete the list of users: loadComments() is
+    // before loadUsers()
+    long start = system2.now();
+    loadComments(collector, dbSession, result);
+    result.addDuration(COMMENTS_STEP, system2.now() - start);
+    start = system2.now();
+    loadUsers(preloadedResponseData, collector, dbSession, result);
+    result.addDuration(USERS_STEP, system2.now() - start);
+
+    result.addDuration(RULES_STEP, await(rulesLoading));
+    result.addDuration(COMPONENTS_STEP, await(componentsLoading));
+
+    start = system2.now();
+    loadActionsAndTransitions(collector, result);
+    result.addDuration(ACTIONS_STEP, system2.now() - start);
+    completeTotalEffortFromFacet(facets, result);
+  }
+
+  /**
+   * Executes the loader in a dedicated DB session and returns its duration in milliseconds.
+   */
+  private Future<Long> submit(Consumer<DbSession> loader) {
+    return executorService.submit(() -> {
+      long start = system2.now();
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        loader.accept(dbSession);
+      }
+      return system2.now() - start;
+    });
+  }
+
+  private static long await(Future<Long> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading issues", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("Fail to load issues", cause);
+    }
+  }
+
   private List<IssueDto> loadIssues(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession) {
     List<IssueDto> preloadedIssues = preloadedResponseData.getIssues();
     Set<String> preloadedIssueKeys = preloadedIssues.stream().map(IssueDto::getKey).collect(MoreCollectors.toSet(preloadedIssues.size()));
@@ -145,7 +208,7 @@ public class SearchResponseLoader {
       if (loginsToLoad.isEmpty()) {
         result.setUsers(preloadedUsers);
       } else {
-        List<UserDto> loadedUsers = dbClient.userDao().selectByLogins(dbSession, loginsToLoad);
+        List<UserDto> loadedUsers = cache.getUsers(loginsToLoad, logins -> dbClient.userDao().selectByLogins(dbSession, logins));
         result.setUsers(concat(preloadedUsers.stream(), loadedUsers.stream()).collect(toList(preloadedUsers.size() + loadedUsers.size())));
       }
     }
@@ -158,7 +221,7 @@ public class SearchResponseLoader {
 
     result.addComponents(preloadedComponents);
     if (!componentUuidsToLoad.isEmpty()) {
-      result.addComponents(dbClient.componentDao().selectByUuids(dbSession, componentUuidsToLoad));
+      result.addComponents(selectComponents(dbSession, componentUuidsToLoad));
     }
 
     // always load components and projects, because some issue fields still relate to component ids/keys.
@@ -175,31 +238,29 @@ public class SearchResponseLoader {
     Set<String> loadedProjectUuids = loadedComponents.stream().filter(cpt -> cpt.uuid().equals(cpt.projectUuid())).map(ComponentDto::uuid).collect(MoreCollectors.toSet());
     Set<String> projectUuidsToLoad = copyOf(difference(collector.getProjectUuids(), loadedProjectUuids));
     if (!projectUuidsToLoad.isEmpty()) {
-      List<ComponentDto> projects = dbClient.componentDao().selectByUuids(dbSession, collector.getProjectUuids());
+      List<ComponentDto> projects = selectComponents(dbSession, collector.getProjectUuids());
       result.addComponents(projects);
     }
   }
 
-  private void loadRules(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession, SearchResponseData result) {
+  private List<ComponentDto> selectComponents(DbSession dbSession, Collection<String> uuids) {
+    return cache.getComponents(uuids, uuidsToLoad -> dbClient.componentDao().selectByUuids(dbSession, uuidsToLoad));
+  }
+
+  private void loadRules(SearchResponseData preloadedResponseData, Collector collector, Set<RuleKey> ruleKeys, DbSession dbSession, SearchResponseData result) {
     if (collector.contains(RULES)) {
       List<RuleDefinitionDto> preloadedRules = firstNonNull(preloadedResponseData.getRules(), emptyList());
       Set<RuleKey> preloaedRuleKeys = preloadedRules.stream().map(RuleDefinitionDto::getKey).collect(MoreCollectors.toSet());
-      Set<RuleKey> ruleKeysToLoad = copyOf(difference(collector.get(RULES), preloaedRuleKeys));
+      Set<RuleKey> ruleKeysToLoad = copyOf(difference(ruleKeys, preloaedRuleKeys));
       if (ruleKeysToLoad.isEmpty()) {
-        result.setRules(preloadedResponseData.getRules());
+        result.setRules(preloadedRules);
       } else {
-        List<RuleDefinitionDto> loadedRules = dbClient.ruleDao().selectDefinitionByKeys(dbSession, ruleKeysToLoad);
+        List<RuleDefinitionDto> loadedRules = cache.getRules(ruleKeysToLoad, keys -> dbClient.ruleDao().selectDefinitionByKeys(dbSession, keys));
         result.setRules(concat(preloadedRules.stream(), loadedRules.stream()).collect(toList(preloadedRules.size() + loadedRules.size())));
       }
     }
   }
 
-  private void loadUsers(Collector collector, DbSession dbSession, SearchResponseData result) {
-    if (collector.contains(USERS)) {
-      result.setUsers(dbClient.userDao().selectByLogins(dbSession, collector.getList(USERS)));
-    }
-  }
-
   private void loadComments(Collector collector, DbSession dbSession, SearchResponseData result) {
     if (collector.contains(COMMENTS)) {
       List<IssueChangeDto> comments = dbClient.issueChangeDao().selectByTypeAndIssueKeys(dbSession, collector.getIssueKeys(), IssueChangeDto.TYPE_COMMENT);
@@ -217,20 +278,6 @@ public class SearchResponseLoader {
     return userSession.isLoggedIn() && userSession.getLogin().equals(dto.getUserLogin());
   }
 
-  private void loadRules(Collector collector, DbSession dbSession, SearchResponseData result) {
-    if (collector.contains(RULES)) {
-      result.setRules(dbClient.ruleDao().selectDefinitionByKeys(dbSession, collector.getList(RULES)));
-    }
-  }
-
-  private void loadComponents(Collector collector, DbSession dbSession, SearchResponseData result) {
-    // always load components and projects, because some issue fields still relate to component ids/keys.
-    // They should be dropped but are kept for backward-compatibility (see SearchResponseFormat)
-    result.addComponents(dbClient.componentDao().selectByUuids(dbSession, collector.getComponentUuids()));
-    result.addComponents(dbClient.componentDao().selectSubProjectsByComponentUuids(dbSession, collector.getComponentUuids()));
-    addProjectUuids(collector, dbSession, result);
-  }
-
   private void loadOrganizations(DbSession dbSession, SearchResponseData result) {
     Collection<ComponentDto> components = result.getComponents();
     dbClient.organizationDao().selectByUuids(
@@ -336,10 +383,6 @@ public class SearchResponseLoader {
       return (Set<T>) fieldValues.get(key);
     }
 
-    <T> List<T> getList(SearchAdditionalField key) {
-      return newArrayList(get(key));
-    }
-
     boolean contains(SearchAdditionalField field) {
       return fields.contains(field);
     }
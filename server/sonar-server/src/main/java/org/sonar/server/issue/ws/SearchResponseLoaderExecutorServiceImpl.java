@@ -0,0 +1,51 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.sonar.server.util.AbstractStoppableExecutorService;
+
+/**
+ * Bounded pool shared by all the requests. Tasks are executed by the calling thread when all the
+ * threads are busy, so that the number of concurrent DB connections is bounded and loading never waits
+ * for a busy pool.
+ */
+public class SearchResponseLoaderExecutorServiceImpl
+  extends AbstractStoppableExecutorService<ThreadPoolExecutor>
+  implements SearchResponseLoaderExecutorService {
+
+  private static final int MAX_THREADS = 4;
+  private static final long KEEP_ALIVE_SECONDS = 60L;
+
+  public SearchResponseLoaderExecutorServiceImpl() {
+    super(new ThreadPoolExecutor(
+      0, MAX_THREADS,
+      KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+      new SynchronousQueue<>(),
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("IssueSearch-%d")
+        .build(),
+      (task, executor) -> task.run()));
+  }
+}
@@ -37,6 +37,7 @@ import org.sonar.db.user.UserGroupDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.OrganizationFlags;
 import org.sonar.server.rule.index.RuleIndexer;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.usergroups.DefaultGroupCreator;
 import org.sonar.server.usergroups.DefaultGroupFinder;
@@ -54,9 +55,11 @@ public class EnableSupportAction implements OrganizationsWsAction {
   private final DefaultGroupCreator defaultGroupCreator;
   private final DefaultGroupFinder defaultGroupFinder;
   private final RuleIndexer ruleIndexer;
+  private final UserPermissionCache userPermissionCache;
 
   public EnableSupportAction(UserSession userSession, DbClient dbClient, DefaultOrganizationProvider defaultOrganizationProvider,
-    OrganizationFlags organizationFlags, DefaultGroupCreator defaultGroupCreator, DefaultGroupFinder defaultGroupFinder, RuleIndexer ruleIndexer) {
+    OrganizationFlags organizationFlags, DefaultGroupCreator defaultGroupCreator, DefaultGroupFinder defaultGroupFinder, RuleIndexer ruleIndexer,
+    UserPermissionCache userPermissionCache) {
     this.userSession = userSession;
     this.dbClient = dbClient;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
@@ -64,6 +67,7 @@ public class EnableSupportAction implements OrganizationsWsAction {
     this.defaultGroupCreator = defaultGroupCreator;
     this.defaultGroupFinder = defaultGroupFinder;
     this.ruleIndexer = ruleIndexer;
+    this.userPermissionCache = userPermissionCache;
   }
 
   @Override
@@ -90,6 +94,7 @@ public class EnableSupportAction implements OrganizationsWsAction {
         List<RuleKey> disabledTemplateAndCustomRuleKeys = disableTemplateRulesAndCustomRules(dbSession);
         enableFeature(dbSession);
         dbSession.commit();
+        userPermissionCache.invalidateAll();
         ruleIndexer.indexRuleDefinitions(disabledTemplateAndCustomRuleKeys);
       }
     }
@@ -47,6 +47,7 @@ import org.sonar.db.permission.template.PermissionTemplateUserDto;
 import org.sonar.server.permission.index.PermissionIndexer;
 import org.sonar.server.permission.ws.template.DefaultTemplatesResolver;
 import org.sonar.server.permission.ws.template.DefaultTemplatesResolverImpl;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserSession;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -62,13 +63,15 @@ public class PermissionTemplateService {
   private final PermissionIndexer permissionIndexer;
   private final UserSession userSession;
   private final DefaultTemplatesResolver defaultTemplatesResolver;
+  private final UserPermissionCache userPermissionCache;
 
   public PermissionTemplateService(DbClient dbClient, PermissionIndexer permissionIndexer, UserSession userSession,
-    DefaultTemplatesResolver defaultTemplatesResolver) {
+    DefaultTemplatesResolver defaultTemplatesResolver, UserPermissionCache userPermissionCache) {
     this.dbClient = dbClient;
     this.permissionIndexer = permissionIndexer;
     this.userSession = userSession;
     this.defaultTemplatesResolver = defaultTemplatesResolver;
+    this.userPermissionCache = userPermissionCache;
   }
 
   public boolean wouldUserHaveScanPermissionWithDefaultTemplate(DbSession dbSession,
@@ -104,6 +107,7 @@ public class PermissionTemplateService {
       copyPermissions(dbSession, template, project, null);
     }
     dbSession.commit();
+    userPermissionCache.invalidateAll();
     indexProjectPermissions(dbSession, projects.stream().map(ComponentDto::uuid).collect(MoreCollectors.toList()));
   }
 
@@ -117,6 +121,7 @@ public class PermissionTemplateService {
     checkArgument(template != null, "Cannot retrieve default permission template");
     copyPermissions(dbSession, template, component, projectCreatorUserId);
     dbSession.commit();
+    userPermissionCache.invalidateAll();
     indexProjectPermissions(dbSession, asList(component.uuid()));
   }
 
@@ -20,11 +20,14 @@
 package org.sonar.server.permission.index;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.List;
 import java.util.Optional;
+import javax.annotation.CheckForNull;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Settings;
 import org.sonar.api.server.ServerSide;
 import org.sonar.db.user.GroupDto;
 import org.sonar.server.es.IndexType;
@@ -35,6 +38,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
 
 @ServerSide
 @ComputeEngineSide
@@ -52,10 +57,26 @@ public class AuthorizationTypeSupport {
    */
   public static final String FIELD_ALLOW_ANYONE = "allowAnyone";
 
+  /**
+   * When true, searches are filtered on the uuids of the projects readable by user, as returned by
+   * {@link ProjectAuthorizationCache}, instead of joining the "authorization" parent type.
+   */
+  public static final String DENORMALIZED_FILTER_PROPERTY = "sonar.search.denormalizedAuthorization";
+
+  private static final String FIELD_ROUTING = "_routing";
+
   private final UserSession userSession;
+  @CheckForNull
+  private final ProjectAuthorizationCache projectAuthorizationCache;
 
   public AuthorizationTypeSupport(UserSession userSession) {
     this.userSession = userSession;
+    this.projectAuthorizationCache = null;
+  }
+
+  public AuthorizationTypeSupport(UserSession userSession, Settings settings, ProjectAuthorizationCache projectAuthorizationCache) {
+    this.userSession = userSession;
+    this.projectAuthorizationCache = settings.getBoolean(DENORMALIZED_FILTER_PROPERTY) ? projectAuthorizationCache : null;
   }
 
   /**
@@ -102,6 +123,10 @@ public class AuthorizationTypeSupport {
       return QueryBuilders.matchAllQuery();
     }
 
+    if (projectAuthorizationCache != null) {
+      return createProjectUuidsFilter(projectAuthorizationCache);
+    }
+
     Integer userId = userSession.getUserId();
     BoolQueryBuilder filter = boolQuery();
 
@@ -122,4 +147,16 @@ public class AuthorizationTypeSupport {
     return QueryBuilders.hasParentQuery(TYPE_AUTHORIZATION,
       QueryBuilders.boolQuery().filter(filter));
   }
+
+  /**
+   * Documents of types requiring authorization are routed by the uuid of their project, so
+   * the routing is used as a project uuid available in all of them.
+   */
+  private QueryBuilder createProjectUuidsFilter(ProjectAuthorizationCache cache) {
+    List<Integer> groupIds = userSession.getGroups()
+      .stream()
+      .map(GroupDto::getId)
+      .collect(toList());
+    return termsQuery(FIELD_ROUTING, cache.getReadableProjectUuids(userSession.getUserId(), groupIds));
+  }
 }
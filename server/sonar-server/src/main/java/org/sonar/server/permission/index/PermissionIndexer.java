@@ -49,6 +49,7 @@ import static org.sonar.core.util.stream.MoreCollectors.toSet;
  *   <li>index the projects with recent permission changes</li>
  *   <li>delete project orphans from index</li>
  * </ul>
+ * The {@link ProjectAuthorizationCache} is invalidated each time the index is updated.
  */
 public class PermissionIndexer implements ProjectIndexer, StartupIndexer {
 
@@ -57,18 +58,22 @@ public class PermissionIndexer implements ProjectIndexer, StartupIndexer {
 
   private final DbClient dbClient;
   private final EsClient esClient;
+  private final ProjectAuthorizationCache projectAuthorizationCache;
   private final Collection<AuthorizationScope> authorizationScopes;
 
-  public PermissionIndexer(DbClient dbClient, EsClient esClient, NeedAuthorizationIndexer... needAuthorizationIndexers) {
-    this(dbClient, esClient, Arrays.stream(needAuthorizationIndexers)
+  public PermissionIndexer(DbClient dbClient, EsClient esClient, ProjectAuthorizationCache projectAuthorizationCache,
+    NeedAuthorizationIndexer... needAuthorizationIndexers) {
+    this(dbClient, esClient, projectAuthorizationCache, Arrays.stream(needAuthorizationIndexers)
       .map(NeedAuthorizationIndexer::getAuthorizationScope)
       .collect(MoreCollectors.toList(needAuthorizationIndexers.length)));
   }
 
   @VisibleForTesting
-  public PermissionIndexer(DbClient dbClient, EsClient esClient, Collection<AuthorizationScope> authorizationScopes) {
+  public PermissionIndexer(DbClient dbClient, EsClient esClient, ProjectAuthorizationCache projectAuthorizationCache,
+    Collection<AuthorizationScope> authorizationScopes) {
     this.dbClient = dbClient;
     this.esClient = esClient;
+    this.projectAuthorizationCache = projectAuthorizationCache;
     this.authorizationScopes = authorizationScopes;
   }
 
@@ -129,6 +134,7 @@ public class PermissionIndexer implements ProjectIndexer, StartupIndexer {
       .setRouting(projectUuid)
       .setRefresh(true)
       .get());
+    projectAuthorizationCache.invalidate();
   }
 
   private Stream<AuthorizationScope> getScopes(Set<IndexType> indexTypes) {
@@ -143,6 +149,7 @@ public class PermissionIndexer implements ProjectIndexer, StartupIndexer {
 
     // index each authorization in each scope
     scopes.forEach(scope -> index(authorizations, scope, bulkSize));
+    projectAuthorizationCache.invalidate();
   }
 
   private void index(Collection<PermissionIndexerDao.Dto> authorizations, AuthorizationScope scope, Size bulkSize) {
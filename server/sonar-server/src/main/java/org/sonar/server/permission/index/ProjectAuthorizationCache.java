@@ -0,0 +1,197 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.permission.index.PermissionIndexerDao.Dto;
+
+/**
+ * In-memory copy of the authorizations indexed by {@link PermissionIndexer}, used to get the uuids
+ * of the projects and views that a user can browse without joining the "authorization" types
+ * of Elasticsearch.
+ * <p>
+ * Authorizations are loaded from database on first use and kept as one bitset per user, group and
+ * "anyone". Sets of readable projects are then cached per user and groups. Everything is reloaded
+ * when {@link PermissionIndexer} updates the index ({@link #invalidate()}), or at the latest after
+ * {@link #TTL_MS} in order to take into account the changes made by other processes.
+ */
+@ServerSide
+@ComputeEngineSide
+public class ProjectAuthorizationCache {
+
+  @VisibleForTesting
+  static final long TTL_MS = 30_000L;
+  private static final int MAX_CACHED_USERS = 10_000;
+
+  private final Supplier<List<Dto>> loader;
+  private final System2 system2;
+  @CheckForNull
+  private volatile Snapshot snapshot;
+
+  public ProjectAuthorizationCache(DbClient dbClient, System2 system2) {
+    this(() -> {
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        return new PermissionIndexerDao().selectAll(dbClient, dbSession);
+      }
+    }, system2);
+  }
+
+  @VisibleForTesting
+  ProjectAuthorizationCache(Supplier<List<Dto>> loader, System2 system2) {
+    this.loader = loader;
+    this.system2 = system2;
+  }
+
+  /**
+   * Uuids of the projects and views on which the user, or one of the given groups, has the "user" permission,
+   * plus the public ones.
+   *
+   * @param userId id of the user, {@code null} if anonymous
+   */
+  public List<String> getReadableProjectUuids(@Nullable Integer userId, Collection<Integer> groupIds) {
+    return getSnapshot().getReadableProjectUuids(new UserKey(userId, groupIds));
+  }
+
+  /**
+   * Authorizations are reloaded from database on next call to {@link #getReadableProjectUuids(Integer, Collection)}.
+   */
+  public synchronized void invalidate() {
+    snapshot = null;
+  }
+
+  private Snapshot getSnapshot() {
+    Snapshot current = snapshot;
+    if (isOutdated(current)) {
+      synchronized (this) {
+        current = snapshot;
+        if (isOutdated(current)) {
+          long now = system2.now();
+          current = new Snapshot(loader.get(), now);
+          snapshot = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private boolean isOutdated(@Nullable Snapshot s) {
+    return s == null || s.loadedAt + TTL_MS < system2.now();
+  }
+
+  private static final class Snapshot {
+    private final long loadedAt;
+    private final String[] projectUuids;
+    private final BitSet anyone = new BitSet();
+    private final Map<Integer, BitSet> byUserId = new HashMap<>();
+    private final Map<Integer, BitSet> byGroupId = new HashMap<>();
+    private final Cache<UserKey, BitSet> byUserKey = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_USERS)
+      .build();
+
+    private Snapshot(List<Dto> authorizations, long loadedAt) {
+      this.loadedAt = loadedAt;
+      this.projectUuids = new String[authorizations.size()];
+      for (int i = 0; i < projectUuids.length; i++) {
+        Dto dto = authorizations.get(i);
+        projectUuids[i] = dto.getProjectUuid();
+        if (dto.isAllowAnyone()) {
+          anyone.set(i);
+        }
+        for (Integer userId : dto.getUserIds()) {
+          byUserId.computeIfAbsent(userId, k -> new BitSet()).set(i);
+        }
+        for (Integer groupId : dto.getGroupIds()) {
+          byGroupId.computeIfAbsent(groupId, k -> new BitSet()).set(i);
+        }
+      }
+    }
+
+    private List<String> getReadableProjectUuids(UserKey key) {
+      BitSet readable = byUserKey.asMap().computeIfAbsent(key, this::computeReadable);
+      List<String> uuids = new ArrayList<>(readable.cardinality());
+      for (int i = readable.nextSetBit(0); i >= 0; i = readable.nextSetBit(i + 1)) {
+        uuids.add(projectUuids[i]);
+      }
+      return uuids;
+    }
+
+    private BitSet computeReadable(UserKey key) {
+      BitSet readable = (BitSet) anyone.clone();
+      if (key.userId != null) {
+        or(readable, byUserId.get(key.userId));
+      }
+      key.groupIds.forEach(groupId -> or(readable, byGroupId.get(groupId)));
+      return readable;
+    }
+
+    private static void or(BitSet readable, @Nullable BitSet other) {
+      if (other != null) {
+        readable.or(other);
+      }
+    }
+  }
+
+  private static final class UserKey {
+    @CheckForNull
+    private final Integer userId;
+    private final Set<Integer> groupIds;
+
+    private UserKey(@Nullable Integer userId, Collection<Integer> groupIds) {
+      this.userId = userId;
+      this.groupIds = new TreeSet<>(groupIds);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      UserKey other = (UserKey) o;
+      return Objects.equals(userId, other.userId) && groupIds.equals(other.groupIds);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, groupIds);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sonar.server.es.BulkIndexingStats;
+import org.sonar.server.es.EsClient;
+
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+public class BulkIndexingMonitor extends BaseMonitorMBean implements BulkIndexingMonitorMBean {
+
+  private final BulkIndexingStats stats;
+
+  public BulkIndexingMonitor(EsClient esClient) {
+    this.stats = esClient.getBulkIndexingStats();
+  }
+
+  @Override
+  public String name() {
+    return "Elasticsearch Bulk Indexing";
+  }
+
+  @Override
+  public long getIndexedDocuments() {
+    return stats.getIndexedDocuments();
+  }
+
+  @Override
+  public long getIndexedBytes() {
+    return stats.getBytes();
+  }
+
+  @Override
+  public long getRejectedDocuments() {
+    return stats.getRejectedDocuments();
+  }
+
+  @Override
+  public long getFailedDocuments() {
+    return stats.getFailedDocuments();
+  }
+
+  @Override
+  public long getDocumentsPerSecond() {
+    return stats.getDocumentsPerSecond();
+  }
+
+  @Override
+  public long getBytesPerSecond() {
+    return stats.getBytesPerSecond();
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Bulk Requests", stats.getBulks());
+    attributes.put("Indexed Documents", getIndexedDocuments());
+    attributes.put("Indexed Size", byteCountToDisplaySize(getIndexedBytes()));
+    attributes.put("Rejected Documents", getRejectedDocuments());
+    attributes.put("Failed Documents", getFailedDocuments());
+    attributes.put("Documents per Second", getDocumentsPerSecond());
+    attributes.put("Size per Second", byteCountToDisplaySize(getBytesPerSecond()));
+    return attributes;
+  }
+}
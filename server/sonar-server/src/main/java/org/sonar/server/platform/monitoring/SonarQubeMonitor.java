@@ -39,6 +39,7 @@ import org.sonar.server.platform.ServerId;
 import org.sonar.server.platform.ServerIdLoader;
 import org.sonar.server.platform.ServerLogging;
 import org.sonar.server.user.SecurityRealmFactory;
+import org.sonar.server.user.UserPermissionCache;
 
 public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonitorMBean {
 
@@ -52,16 +53,18 @@ public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonit
   private final Server server;
   private final ServerLogging serverLogging;
   private final ServerIdLoader serverIdLoader;
+  private final UserPermissionCache userPermissionCache;
 
   public SonarQubeMonitor(Settings settings, SecurityRealmFactory securityRealmFactory,
     IdentityProviderRepository identityProviderRepository, Server server, ServerLogging serverLogging,
-    ServerIdLoader serverIdLoader) {
+    ServerIdLoader serverIdLoader, UserPermissionCache userPermissionCache) {
     this.settings = settings;
     this.securityRealmFactory = securityRealmFactory;
     this.identityProviderRepository = identityProviderRepository;
     this.server = server;
     this.serverLogging = serverLogging;
     this.serverIdLoader = serverIdLoader;
+    this.userPermissionCache = userPermissionCache;
   }
 
   @Override
@@ -79,6 +82,16 @@ public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonit
     return serverLogging.getRootLoggerLevel().name();
   }
 
+  @Override
+  public long getPermissionCacheHitCount() {
+    return userPermissionCache.getHitCount();
+  }
+
+  @Override
+  public long getPermissionCacheMissCount() {
+    return userPermissionCache.getMissCount();
+  }
+
   @CheckForNull
   private String getExternalUserAuthentication() {
     SecurityRealm realm = securityRealmFactory.getRealm();
@@ -134,6 +147,9 @@ public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonit
     attributes.put("Temp Dir", settings.getString(ProcessProperties.PATH_TEMP));
     attributes.put("Logs Dir", settings.getString(ProcessProperties.PATH_LOGS));
     attributes.put("Logs Level", getLogLevel());
+    attributes.put("Permission Cache Hits", getPermissionCacheHitCount());
+    attributes.put("Permission Cache Misses", getPermissionCacheMissCount());
+    attributes.put("Permission Cache Size", userPermissionCache.size());
     return attributes;
   }
 
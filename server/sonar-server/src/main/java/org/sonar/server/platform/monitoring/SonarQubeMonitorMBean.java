@@ -28,4 +28,8 @@ public interface SonarQubeMonitorMBean {
   String getVersion();
 
   String getLogLevel();
+
+  long getPermissionCacheHitCount();
+
+  long getPermissionCacheMissCount();
 }
@@ -0,0 +1,68 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sonar.api.utils.System2;
+import org.sonar.server.es.IndexType;
+import org.sonar.server.es.StartupIndexingStatus;
+import org.sonar.server.es.StartupIndexingStatus.TypeStatus;
+
+import static java.lang.String.format;
+
+/**
+ * Progress of the indexing of empty index types during startup. Section is empty
+ * when no index type had to be indexed.
+ */
+public class StartupIndexingMonitor implements Monitor {
+
+  private final StartupIndexingStatus status;
+  private final System2 system2;
+
+  public StartupIndexingMonitor(StartupIndexingStatus status, System2 system2) {
+    this.status = status;
+    this.system2 = system2;
+  }
+
+  @Override
+  public String name() {
+    return "Startup Indexing";
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    for (Map.Entry<IndexType, TypeStatus> entry : status.getStatusByType().entrySet()) {
+      attributes.put(entry.getKey().getIndex() + "/" + entry.getKey().getType(), toString(entry.getValue()));
+    }
+    return attributes;
+  }
+
+  private String toString(TypeStatus typeStatus) {
+    Long startedAt = typeStatus.getStartedAt();
+    if (startedAt == null) {
+      return typeStatus.getState().name();
+    }
+    Long finishedAt = typeStatus.getFinishedAt();
+    long duration = (finishedAt == null ? system2.now() : finishedAt) - startedAt;
+    return format("%s (%d ms)", typeStatus.getState().name(), duration);
+  }
+}
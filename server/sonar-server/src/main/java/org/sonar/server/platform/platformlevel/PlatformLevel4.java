@@ -53,6 +53,7 @@ import org.sonar.server.duplication.ws.DuplicationsWs;
 import org.sonar.server.email.ws.EmailsWsModule;
 import org.sonar.server.es.IndexCreator;
 import org.sonar.server.es.IndexDefinitions;
+import org.sonar.server.es.StartupIndexingStatus;
 import org.sonar.server.event.NewAlerts;
 import org.sonar.server.favorite.FavoriteModule;
 import org.sonar.server.issue.AddTagsAction;
@@ -99,12 +100,14 @@ import org.sonar.server.platform.BackendCleanup;
 import org.sonar.server.platform.PersistentSettings;
 import org.sonar.server.platform.ServerLogging;
 import org.sonar.server.platform.SettingsChangeNotifier;
+import org.sonar.server.platform.monitoring.BulkIndexingMonitor;
 import org.sonar.server.platform.monitoring.DatabaseMonitor;
 import org.sonar.server.platform.monitoring.EsMonitor;
 import org.sonar.server.platform.monitoring.JvmPropsMonitor;
 import org.sonar.server.platform.monitoring.PluginsMonitor;
 import org.sonar.server.platform.monitoring.SettingsMonitor;
 import org.sonar.server.platform.monitoring.SonarQubeMonitor;
+import org.sonar.server.platform.monitoring.StartupIndexingMonitor;
 import org.sonar.server.platform.monitoring.SystemMonitor;
 import org.sonar.server.platform.web.WebPagesFilter;
 import org.sonar.server.platform.web.requestid.HttpRequestIdModule;
@@ -198,6 +201,7 @@ import org.sonar.server.user.DefaultUserFinder;
 import org.sonar.server.user.DeprecatedUserFinder;
 import org.sonar.server.user.NewUserNotifier;
 import org.sonar.server.user.SecurityRealmFactory;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserSessionFactoryImpl;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndex;
@@ -244,6 +248,7 @@ public class PlatformLevel4 extends PlatformLevel {
       ServerWs.class,
       BackendCleanup.class,
       IndexDefinitions.class,
+      StartupIndexingStatus.class,
       WebPagesFilter.class,
 
       // batch
@@ -337,6 +342,7 @@ public class PlatformLevel4 extends PlatformLevel {
 
       // users
       UserSessionFactoryImpl.class,
+      UserPermissionCache.class,
       SecurityRealmFactory.class,
       DeprecatedUserFinder.class,
       NewUserNotifier.class,
@@ -477,6 +483,8 @@ public class PlatformLevel4 extends PlatformLevel {
       SettingsMonitor.class,
       SonarQubeMonitor.class,
       EsMonitor.class,
+      BulkIndexingMonitor.class,
+      StartupIndexingMonitor.class,
       PluginsMonitor.class,
       JvmPropsMonitor.class,
       DatabaseMonitor.class,
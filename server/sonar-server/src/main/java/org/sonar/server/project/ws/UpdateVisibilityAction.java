@@ -36,6 +36,7 @@ import org.sonar.db.permission.UserPermissionDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.permission.index.PermissionIndexer;
 import org.sonar.server.project.Visibility;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.client.project.ProjectsWsParameters;
 
@@ -55,14 +56,16 @@ public class UpdateVisibilityAction implements ProjectsWsAction {
   private final UserSession userSession;
   private final PermissionIndexer permissionIndexer;
   private final ProjectsWsSupport projectsWsSupport;
+  private final UserPermissionCache userPermissionCache;
 
   public UpdateVisibilityAction(DbClient dbClient, ComponentFinder componentFinder, UserSession userSession,
-    PermissionIndexer permissionIndexer, ProjectsWsSupport projectsWsSupport) {
+    PermissionIndexer permissionIndexer, ProjectsWsSupport projectsWsSupport, UserPermissionCache userPermissionCache) {
     this.dbClient = dbClient;
     this.componentFinder = componentFinder;
     this.userSession = userSession;
     this.permissionIndexer = permissionIndexer;
     this.projectsWsSupport = projectsWsSupport;
+    this.userPermissionCache = userPermissionCache;
   }
 
   public void define(WebService.NewController context) {
@@ -109,6 +112,7 @@ public class UpdateVisibilityAction implements ProjectsWsAction {
           updatePermissionsToPublic(dbSession, component);
         }
         dbSession.commit();
+        userPermissionCache.invalidateAll();
         permissionIndexer.indexProjectsByUuids(dbSession, singletonList(component.uuid()));
       }
     }
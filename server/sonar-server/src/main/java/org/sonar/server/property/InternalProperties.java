@@ -34,6 +34,12 @@ public interface InternalProperties {
 
   String ORGANIZATION_ENABLED = "organization.enabled";
 
+  /**
+   * Fingerprints of the rule repositories registered at last startup, one {@code <repository key>=<fingerprint>}
+   * per line.
+   */
+  String RULES_FINGERPRINTS = "rules.fingerprints";
+
   /**
    * Read the value of the specified property.
    *
@@ -19,20 +19,30 @@
  */
 package org.sonar.server.rule;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
+import org.sonar.api.SonarRuntime;
 import org.sonar.api.resources.Languages;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.RuleStatus;
@@ -53,6 +63,7 @@ import org.sonar.db.rule.RuleDto.Format;
 import org.sonar.db.rule.RuleParamDto;
 import org.sonar.db.rule.RuleRepositoryDto;
 import org.sonar.server.organization.OrganizationFlags;
+import org.sonar.server.property.InternalProperties;
 import org.sonar.server.qualityprofile.ActiveRuleChange;
 import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
@@ -61,9 +72,14 @@ import org.sonar.server.rule.index.RuleIndexer;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 
 /**
- * Register rules at server startup
+ * Register rules at server startup.
+ * <p>
+ * A fingerprint of the definitions of each repository is persisted, so that the repositories which have not changed
+ * since the previous startup of the same version of server are skipped.
+ * </p>
  */
 public class RegisterRules implements Startable {
 
@@ -78,10 +94,11 @@ public class RegisterRules implements Startable {
   private final System2 system2;
   private final OrganizationFlags organizationFlags;
   private final WebServerRuleFinder webServerRuleFinder;
+  private final SonarRuntime runtime;
 
   public RegisterRules(RuleDefinitionsLoader defLoader, RuleActivator ruleActivator, DbClient dbClient, RuleIndexer ruleIndexer,
     ActiveRuleIndexer activeRuleIndexer, Languages languages, System2 system2, OrganizationFlags organizationFlags,
-    WebServerRuleFinder webServerRuleFinder) {
+    WebServerRuleFinder webServerRuleFinder, SonarRuntime runtime) {
     this.defLoader = defLoader;
     this.ruleActivator = ruleActivator;
     this.dbClient = dbClient;
@@ -91,6 +108,7 @@ public class RegisterRules implements Startable {
     this.system2 = system2;
     this.organizationFlags = organizationFlags;
     this.webServerRuleFinder = webServerRuleFinder;
+    this.runtime = runtime;
   }
 
   @Override
@@ -98,31 +116,31 @@ public class RegisterRules implements Startable {
     Profiler profiler = Profiler.create(LOG).startInfo("Register rules");
     try (DbSession dbSession = dbClient.openSession(false)) {
       Map<RuleKey, RuleDefinitionDto> allRules = loadRules(dbSession);
+      ListMultimap<String, RuleDefinitionDto> dbRulesByRepository = Multimaps.index(allRules.values(), RuleDefinitionDto::getRepositoryKey);
       List<RuleKey> keysToIndex = new ArrayList<>();
 
       RulesDefinition.Context context = defLoader.load();
       boolean orgsEnabled = organizationFlags.isEnabled(dbSession);
-      for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
-        if (languages.get(repoDef.language()) != null) {
-          for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
-            RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
-            if (ruleDef.template() && orgsEnabled) {
-              RuleDefinitionDto ruleDefinition = allRules.get(ruleKey);
-              if (ruleDefinition != null && ruleDefinition.getStatus() == RuleStatus.REMOVED) {
-                LOG.debug("Template rule {} kept removed, because organizations are enabled.", ruleKey);
-                allRules.remove(ruleKey);
-              } else {
-                LOG.info("Template rule {} will not be imported, because organizations are enabled.", ruleKey);
-              }
-              continue;
-            }
-            boolean relevantForIndex = registerRule(ruleDef, allRules, dbSession);
-            if (relevantForIndex) {
-              keysToIndex.add(ruleKey);
-            }
-          }
-          dbSession.commit();
+      String serverVersion = runtime.getApiVersion().toString();
+      Map<String, String> previousFingerprints = loadFingerprints(dbSession);
+      Map<String, String> fingerprints = new TreeMap<>();
+      for (Map.Entry<String, List<RulesDefinition.Rule>> repository : getRulesByRepository(context).entrySet()) {
+        String repositoryKey = repository.getKey();
+        List<RulesDefinition.Rule> ruleDefs = repository.getValue();
+        Profiler repositoryProfiler = Profiler.create(LOG).start();
+        String fingerprint = RuleRepositoryFingerprint.of(ruleDefs, serverVersion, orgsEnabled);
+        if (fingerprint.equals(previousFingerprints.get(repositoryKey))
+          && isRegistered(ruleDefs, dbRulesByRepository.get(repositoryKey), allRules, orgsEnabled)) {
+          // rules of the repository are already up-to-date in DB
+          dbRulesByRepository.get(repositoryKey).stream()
+            .filter(rule -> !rule.isCustomRule())
+            .forEach(rule -> allRules.remove(rule.getKey()));
+          repositoryProfiler.stopDebug(format("Rules of repository %s are up-to-date", repositoryKey));
+        } else {
+          keysToIndex.addAll(registerRepository(ruleDefs, allRules, orgsEnabled, dbSession));
+          repositoryProfiler.stopInfo(format("Register %d rules of repository %s", ruleDefs.size(), repositoryKey));
         }
+        fingerprints.put(repositoryKey, fingerprint);
       }
       List<RuleDefinitionDto> removedRules = processRemainingDbRules(allRules.values(), dbSession);
       List<ActiveRuleChange> changes = removeActiveRulesOnStillExistingRepositories(dbSession, removedRules, context);
@@ -130,6 +148,7 @@ public class RegisterRules implements Startable {
       keysToIndex.addAll(removedRules.stream().map(RuleDefinitionDto::getKey).collect(Collectors.toList()));
 
       persistRepositories(dbSession, context.repositories());
+      persistFingerprints(dbSession, previousFingerprints, fingerprints);
       ruleIndexer.indexRuleDefinitions(keysToIndex);
       activeRuleIndexer.indexChanges(dbSession, changes);
       profiler.stopDebug();
@@ -138,34 +157,147 @@ public class RegisterRules implements Startable {
     }
   }
 
+  /**
+   * Rules of the repositories and of their extensions, grouped by repository key. Repositories which language is not
+   * installed are ignored.
+   */
+  private Map<String, List<RulesDefinition.Rule>> getRulesByRepository(RulesDefinition.Context context) {
+    Map<String, List<RulesDefinition.Rule>> rulesByRepository = new LinkedHashMap<>();
+    for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
+      if (languages.get(repoDef.language()) != null) {
+        rulesByRepository.computeIfAbsent(repoDef.key(), k -> new ArrayList<>()).addAll(repoDef.rules());
+      }
+    }
+    return rulesByRepository;
+  }
+
+  /**
+   * Whether DB is in the state left by a registration of the specified rules: all the rules exist with the expected
+   * status and no other rule of the repository is enabled.
+   */
+  private static boolean isRegistered(List<RulesDefinition.Rule> ruleDefs, List<RuleDefinitionDto> dbRules, Map<RuleKey, RuleDefinitionDto> allRules,
+    boolean orgsEnabled) {
+    Set<RuleKey> registeredKeys = new HashSet<>();
+    for (RulesDefinition.Rule ruleDef : ruleDefs) {
+      RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
+      RuleDefinitionDto dbRule = allRules.get(ruleKey);
+      if (ruleDef.template() && orgsEnabled) {
+        if (dbRule != null && dbRule.getStatus() != RuleStatus.REMOVED) {
+          return false;
+        }
+      } else if (dbRule == null || dbRule.getStatus() != ruleDef.status()) {
+        return false;
+      } else {
+        registeredKeys.add(ruleKey);
+      }
+    }
+    return dbRules.stream()
+      .filter(rule -> !rule.isCustomRule() && rule.getStatus() != RuleStatus.REMOVED)
+      .allMatch(rule -> registeredKeys.contains(rule.getKey()));
+  }
+
+  /**
+   * New rules and parameters are inserted one by one, as their generated ids are required. Updates of existing rules
+   * and parameters are executed in a batch session once the repository is processed.
+   *
+   * @return keys of the rules to index
+   */
+  private List<RuleKey> registerRepository(List<RulesDefinition.Rule> ruleDefs, Map<RuleKey, RuleDefinitionDto> allRules, boolean orgsEnabled,
+    DbSession dbSession) {
+    List<RuleKey> keysToIndex = new ArrayList<>();
+    List<Consumer<DbSession>> updates = new ArrayList<>();
+    ListMultimap<Integer, RuleParamDto> paramsByRuleId = loadParams(dbSession, ruleDefs, allRules);
+    for (RulesDefinition.Rule ruleDef : ruleDefs) {
+      RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
+      if (ruleDef.template() && orgsEnabled) {
+        RuleDefinitionDto ruleDefinition = allRules.get(ruleKey);
+        if (ruleDefinition != null && ruleDefinition.getStatus() == RuleStatus.REMOVED) {
+          LOG.debug("Template rule {} kept removed, because organizations are enabled.", ruleKey);
+          allRules.remove(ruleKey);
+        } else {
+          LOG.info("Template rule {} will not be imported, because organizations are enabled.", ruleKey);
+        }
+        continue;
+      }
+      boolean relevantForIndex = registerRule(ruleDef, allRules, paramsByRuleId, updates, dbSession);
+      if (relevantForIndex) {
+        keysToIndex.add(ruleKey);
+      }
+    }
+    dbSession.commit();
+
+    if (!updates.isEmpty()) {
+      try (DbSession batchSession = dbClient.openSession(true)) {
+        updates.forEach(update -> update.accept(batchSession));
+        batchSession.commit();
+      }
+    }
+    return keysToIndex;
+  }
+
+  private ListMultimap<Integer, RuleParamDto> loadParams(DbSession dbSession, List<RulesDefinition.Rule> ruleDefs, Map<RuleKey, RuleDefinitionDto> allRules) {
+    List<RuleKey> existingKeys = ruleDefs.stream()
+      .map(ruleDef -> RuleKey.of(ruleDef.repository().key(), ruleDef.key()))
+      .filter(allRules::containsKey)
+      .collect(MoreCollectors.toList());
+    return Multimaps.index(dbClient.ruleDao().selectRuleParamsByRuleKeys(dbSession, existingKeys), RuleParamDto::getRuleId);
+  }
+
+  private Map<String, String> loadFingerprints(DbSession dbSession) {
+    Map<String, String> fingerprints = new TreeMap<>();
+    dbClient.internalPropertiesDao().selectByKey(dbSession, InternalProperties.RULES_FINGERPRINTS)
+      .ifPresent(value -> Splitter.on('\n').omitEmptyStrings().split(value).forEach(line -> {
+        int separator = line.lastIndexOf('=');
+        if (separator > 0) {
+          fingerprints.put(line.substring(0, separator), line.substring(separator + 1));
+        }
+      }));
+    return fingerprints;
+  }
+
+  private void persistFingerprints(DbSession dbSession, Map<String, String> previousFingerprints, Map<String, String> fingerprints) {
+    if (fingerprints.equals(previousFingerprints)) {
+      return;
+    }
+    if (fingerprints.isEmpty()) {
+      dbClient.internalPropertiesDao().saveAsEmpty(dbSession, InternalProperties.RULES_FINGERPRINTS);
+    } else {
+      dbClient.internalPropertiesDao().save(dbSession, InternalProperties.RULES_FINGERPRINTS, Joiner.on('\n').withKeyValueSeparator("=").join(fingerprints));
+    }
+    dbSession.commit();
+  }
+
   private void persistRepositories(DbSession dbSession, List<RulesDefinition.Repository> repositories) {
-    dbClient.ruleRepositoryDao().truncate(dbSession);
     List<RuleRepositoryDto> dtos = repositories
       .stream()
       .map(r -> new RuleRepositoryDto(r.key(), r.language(), r.name()))
       .collect(MoreCollectors.toList(repositories.size()));
+    if (toSignatures(dbClient.ruleRepositoryDao().selectAll(dbSession)).equals(toSignatures(dtos))) {
+      return;
+    }
+    dbClient.ruleRepositoryDao().truncate(dbSession);
     dbClient.ruleRepositoryDao().insert(dbSession, dtos);
     dbSession.commit();
   }
 
+  private static Set<List<String>> toSignatures(List<RuleRepositoryDto> dtos) {
+    return dtos.stream()
+      .map(dto -> asList(dto.getKey(), dto.getLanguage(), dto.getName()))
+      .collect(MoreCollectors.toSet(dtos.size()));
+  }
+
   @Override
   public void stop() {
     // nothing
   }
 
-  private boolean registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDefinitionDto> allRules, DbSession session) {
+  private boolean registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDefinitionDto> allRules, ListMultimap<Integer, RuleParamDto> paramsByRuleId,
+    List<Consumer<DbSession>> updates, DbSession session) {
     RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
 
     RuleDefinitionDto existingRule = allRules.remove(ruleKey);
-    boolean newRule;
-    RuleDefinitionDto rule;
-    if (existingRule == null) {
-      rule = createRuleDto(ruleDef, session);
-      newRule = true;
-    } else {
-      rule = existingRule;
-      newRule = false;
-    }
+    boolean newRule = existingRule == null;
+    RuleDefinitionDto rule = newRule ? createRuleDto(ruleDef, session) : existingRule;
 
     boolean executeUpdate = false;
     if (mergeRule(ruleDef, rule)) {
@@ -181,10 +313,10 @@ public class RegisterRules implements Startable {
     }
 
     if (executeUpdate) {
-      update(session, rule);
+      updates.add(batchSession -> update(batchSession, rule));
     }
 
-    mergeParams(ruleDef, rule, session);
+    mergeParams(ruleDef, rule, newRule ? Collections.emptyList() : paramsByRuleId.get(rule.getId()), updates, session);
     return newRule || executeUpdate;
   }
 
@@ -327,8 +459,8 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDefinitionDto rule, DbSession session) {
-    List<RuleParamDto> paramDtos = dbClient.ruleDao().selectRuleParamsByRuleKey(session, rule.getKey());
+  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDefinitionDto rule, List<RuleParamDto> paramDtos, List<Consumer<DbSession>> updates,
+    DbSession session) {
     Map<String, RuleParamDto> existingParamsByName = Maps.newHashMap();
 
     Profiler profiler = Profiler.create(Loggers.get(getClass()));
@@ -341,7 +473,7 @@ public class RegisterRules implements Startable {
         dbClient.ruleDao().deleteRuleParam(session, paramDto.getId());
       } else {
         if (mergeParam(paramDto, paramDef)) {
-          dbClient.ruleDao().updateRuleParam(session, rule, paramDto);
+          updates.add(batchSession -> dbClient.ruleDao().updateRuleParam(batchSession, rule, paramDto));
         }
         existingParamsByName.put(paramDto.getName(), paramDto);
       }
@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Comparator;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.api.server.rule.RulesDefinition;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Hash of all the fields of the rules of a repository which are persisted by {@link RegisterRules}. Two
+ * registrations of rules with the same fingerprint result in the same data in DB.
+ */
+final class RuleRepositoryFingerprint {
+
+  /**
+   * To be incremented when the computation of the fingerprint changes, so that all the repositories are registered again.
+   */
+  private static final String FORMAT_VERSION = "1";
+  private static final byte SEPARATOR = 0;
+  private static final byte NULL = 1;
+
+  private RuleRepositoryFingerprint() {
+    // only statics
+  }
+
+  /**
+   * @param serverVersion version of the server. Registration also depends on the server code, so any upgrade
+   *                      of the server changes all the fingerprints.
+   */
+  static String of(Collection<RulesDefinition.Rule> rules, String serverVersion, boolean organizationsEnabled) {
+    MessageDigest digest = DigestUtils.getSha1Digest();
+    update(digest, FORMAT_VERSION, serverVersion, String.valueOf(organizationsEnabled));
+    rules.stream()
+      .sorted(Comparator.comparing(RulesDefinition.Rule::key))
+      .forEach(rule -> update(digest, rule));
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, RulesDefinition.Rule rule) {
+    update(digest, rule.repository().key(), rule.key(), rule.repository().language(), rule.name(), rule.htmlDescription(),
+      rule.markdownDescription(), rule.internalKey(), rule.severity(), String.valueOf(rule.template()), rule.status().name(),
+      rule.type().name(), rule.gapDescription());
+    DebtRemediationFunction debtRemediationFunction = rule.debtRemediationFunction();
+    if (debtRemediationFunction == null) {
+      update(digest, (String) null);
+    } else {
+      update(digest, debtRemediationFunction.type().name(), debtRemediationFunction.gapMultiplier(), debtRemediationFunction.baseEffort());
+    }
+    rule.tags().stream().sorted().forEach(tag -> update(digest, tag));
+    update(digest, (String) null);
+    rule.params().stream()
+      .sorted(Comparator.comparing(RulesDefinition.Param::key))
+      .forEach(param -> update(digest, param.key(), param.type().toString(), param.defaultValue(), param.description()));
+    update(digest, (String) null);
+  }
+
+  private static void update(MessageDigest digest, @Nullable String... values) {
+    for (String value : values) {
+      if (value == null) {
+        digest.update(NULL);
+      } else {
+        digest.update(value.getBytes(UTF_8));
+      }
+      digest.update(SEPARATOR);
+    }
+  }
+}
@@ -23,11 +23,13 @@ import org.sonar.core.platform.Module;
 import org.sonar.server.es.EsClientProvider;
 import org.sonar.server.es.EsClientStopper;
 import org.sonar.server.permission.index.AuthorizationTypeSupport;
+import org.sonar.server.permission.index.ProjectAuthorizationCache;
 
 public class EsSearchModule extends Module {
   @Override
   protected void configureModule() {
     add(AuthorizationTypeSupport.class);
+    add(ProjectAuthorizationCache.class);
     add(new EsClientProvider());
     add(EsClientStopper.class);
   }
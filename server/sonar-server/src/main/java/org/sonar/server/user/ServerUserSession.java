@@ -53,6 +53,7 @@ public class ServerUserSession extends AbstractUserSession {
   private final DbClient dbClient;
   private final OrganizationFlags organizationFlags;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final UserPermissionCache permissionCache;
   private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::loadGroups);
   private final Supplier<Boolean> isSystemAdministratorSupplier = Suppliers.memoize(this::loadIsSystemAdministrator);
   private final Map<String, String> projectUuidByComponentUuid = newHashMap();
@@ -60,10 +61,11 @@ public class ServerUserSession extends AbstractUserSession {
   private Map<String, Set<String>> permissionsByProjectUuid;
 
   ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
-    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto) {
+    DefaultOrganizationProvider defaultOrganizationProvider, UserPermissionCache permissionCache, @Nullable UserDto userDto) {
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.permissionCache = permissionCache;
     this.userDto = userDto;
   }
 
@@ -114,10 +116,15 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByOrganizationUuid == null) {
       permissionsByOrganizationUuid = new HashMap<>();
     }
-    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid, this::loadOrganizationPermissions);
+    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid,
+      uuid -> permissionCache.getOrganizationPermissions(getUserId(), getGroupIds(), uuid, this::loadOrganizationPermissions));
     return permissions.contains(permission);
   }
 
+  private List<Integer> getGroupIds() {
+    return getGroups().stream().map(GroupDto::getId).collect(MoreCollectors.toList());
+  }
+
   private Set<OrganizationPermission> loadOrganizationPermissions(String organizationUuid) {
     Set<String> permissionKeys;
     try (DbSession dbSession = dbClient.openSession(false)) {
@@ -154,7 +161,8 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByProjectUuid == null) {
       permissionsByProjectUuid = new HashMap<>();
     }
-    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid, this::loadProjectPermissions);
+    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid,
+      uuid -> permissionCache.getProjectPermissions(getUserId(), getGroupIds(), uuid, this::loadProjectPermissions));
     return permissions.contains(permission);
   }
 
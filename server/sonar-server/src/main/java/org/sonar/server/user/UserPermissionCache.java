@@ -0,0 +1,174 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.permission.OrganizationPermission;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Permissions of users on organizations and projects, shared by the {@link ServerUserSession} of all the
+ * HTTP requests.
+ * <p>
+ * Permissions are cached per user and set of groups, so that changes of group memberships are taken into account
+ * immediately. The web services which change permissions call {@link #invalidateAll()} once committed. Permissions
+ * loaded before such a call are not cached. As the cache is local to the web server, a revoked permission may
+ * still be granted by the cache during {@link #TTL_MS} when it is revoked by another process.
+ * </p>
+ */
+@ServerSide
+public class UserPermissionCache {
+
+  @VisibleForTesting
+  static final long TTL_MS = 30_000L;
+  private static final long MAX_ENTRIES = 100_000L;
+
+  private final Cache<Key, Set<OrganizationPermission>> organizationPermissions;
+  private final Cache<Key, Set<String>> projectPermissions;
+  // incremented by invalidateAll(), guarded by this
+  private long generation = 0L;
+
+  public UserPermissionCache() {
+    this(Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  UserPermissionCache(Ticker ticker) {
+    this.organizationPermissions = newCache(ticker);
+    this.projectPermissions = newCache(ticker);
+  }
+
+  private static <V> Cache<Key, V> newCache(Ticker ticker) {
+    return CacheBuilder.newBuilder()
+      .ticker(ticker)
+      .expireAfterWrite(TTL_MS, MILLISECONDS)
+      .maximumSize(MAX_ENTRIES)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * @param userId id of the user, {@code null} for anonymous
+   * @param loader loads the permissions from DB when they are not cached
+   */
+  public Set<OrganizationPermission> getOrganizationPermissions(@Nullable Integer userId, Collection<Integer> groupIds, String organizationUuid,
+    Function<String, Set<OrganizationPermission>> loader) {
+    return get(organizationPermissions, new Key(userId, groupIds, organizationUuid), loader);
+  }
+
+  /**
+   * @param userId id of the user, {@code null} for anonymous
+   * @param loader loads the permissions from DB when they are not cached
+   */
+  public Set<String> getProjectPermissions(@Nullable Integer userId, Collection<Integer> groupIds, String projectUuid, Function<String, Set<String>> loader) {
+    return get(projectPermissions, new Key(userId, groupIds, projectUuid), loader);
+  }
+
+  private <V> V get(Cache<Key, V> cache, Key key, Function<String, V> loader) {
+    V value = cache.getIfPresent(key);
+    if (value == null) {
+      long loadGeneration = getGeneration();
+      value = loader.apply(key.uuid);
+      putIfNotInvalidated(cache, key, value, loadGeneration);
+    }
+    return value;
+  }
+
+  private synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Permissions loaded before a call to {@link #invalidateAll()} may be out-of-date, so they are not cached.
+   */
+  private synchronized <V> void putIfNotInvalidated(Cache<Key, V> cache, Key key, V value, long loadGeneration) {
+    if (loadGeneration == generation) {
+      cache.put(key, value);
+    }
+  }
+
+  /**
+   * Drops all the cached permissions. Must be called once changes of permissions are committed.
+   */
+  public synchronized void invalidateAll() {
+    generation++;
+    organizationPermissions.invalidateAll();
+    projectPermissions.invalidateAll();
+  }
+
+  public long getHitCount() {
+    return stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return stats().missCount();
+  }
+
+  public long size() {
+    return organizationPermissions.size() + projectPermissions.size();
+  }
+
+  private CacheStats stats() {
+    return organizationPermissions.stats().plus(projectPermissions.stats());
+  }
+
+  private static final class Key {
+    @CheckForNull
+    private final Integer userId;
+    private final Set<Integer> groupIds;
+    private final String uuid;
+
+    private Key(@Nullable Integer userId, Collection<Integer> groupIds, String uuid) {
+      this.userId = userId;
+      this.groupIds = ImmutableSet.copyOf(groupIds);
+      this.uuid = uuid;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(userId, other.userId) && groupIds.equals(other.groupIds) && uuid.equals(other.uuid);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, groupIds, uuid);
+    }
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.CloseableIterator;
+
+/**
+ * Writes and reads objects on disk with a {@link ObjectCodec}. No search capabilities, only traversal (full scan).
+ * <p>
+ * Objects are stored in a compact binary format: each {@link DiskAppender} writes a segment of records, optionally
+ * compressed with LZ4, in which strings written with {@link Output#writeSharedString(String)} are stored only once. When traversing the cache, these strings are
+ * decoded once per segment and the same instance is shared by all the objects.
+ * </p>
+ */
+public class BinaryDiskCache<O> {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int LZ4_BLOCK_SIZE = 64 * 1024;
+  private static final int RECORD = 1;
+  private static final int END_OF_SEGMENT = 0;
+
+  private final File file;
+  private final System2 system2;
+  private final ObjectCodec<O> codec;
+  private final boolean compressed;
+
+  public BinaryDiskCache(File file, System2 system2, ObjectCodec<O> codec, boolean compressed) {
+    this.file = file;
+    this.system2 = system2;
+    this.codec = codec;
+    this.compressed = compressed;
+    OutputStream output = null;
+    boolean threw = true;
+    try {
+      // creates or truncates the file
+      output = new FileOutputStream(file);
+      threw = false;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write into file: " + file, e);
+    } finally {
+      if (threw) {
+        // do not hide initial exception
+        IOUtils.closeQuietly(output);
+      } else {
+        // raise an exception if can't close
+        system2.close(output);
+      }
+    }
+  }
+
+  public DiskAppender newAppender() {
+    return new DiskAppender();
+  }
+
+  public CloseableIterator<O> traverse() {
+    try {
+      return new SegmentsIterator(new PushbackInputStream(new BufferedInputStream(FileUtils.openInputStream(file), BUFFER_SIZE)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to traverse file: " + file, e);
+    }
+  }
+
+  public class DiskAppender implements AutoCloseable {
+    private final Output output;
+
+    private DiskAppender() {
+      try {
+        OutputStream stream = new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE);
+        if (compressed) {
+          stream = new LZ4BlockOutputStream(stream, LZ4_BLOCK_SIZE);
+        }
+        this.output = new Output(stream);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to open file " + file, e);
+      }
+    }
+
+    public DiskAppender append(O object) {
+      try {
+        output.writeByte(RECORD);
+        codec.encode(object, output);
+        return this;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to write into file " + file, e);
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        output.writeByte(END_OF_SEGMENT);
+      } catch (IOException e) {
+        IOUtils.closeQuietly(output);
+        throw new IllegalStateException("Fail to write into file " + file, e);
+      }
+      system2.close(output);
+    }
+  }
+
+  private class SegmentsIterator extends CloseableIterator<O> {
+    private final PushbackInputStream fileStream;
+    private Input segment;
+
+    private SegmentsIterator(PushbackInputStream fileStream) {
+      this.fileStream = fileStream;
+    }
+
+    @Override
+    @CheckForNull
+    protected O doNext() {
+      try {
+        while (true) {
+          if (segment == null && !openNextSegment()) {
+            return null;
+          }
+          if (segment.readUnsignedByte() == RECORD) {
+            return codec.decode(segment);
+          }
+          closeSegment();
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    private boolean openNextSegment() throws IOException {
+      int next = fileStream.read();
+      if (next == -1) {
+        return false;
+      }
+      fileStream.unread(next);
+      InputStream stream = fileStream;
+      if (compressed) {
+        stream = new LZ4BlockInputStream(new UncloseableInputStream(fileStream));
+      }
+      segment = new Input(stream);
+      return true;
+    }
+
+    private void closeSegment() throws IOException {
+      if (compressed && segment.read() != -1) {
+        // consumes the end mark of the LZ4 stream, so that the next segment starts at the current position of the file
+        throw new IllegalStateException("Unexpected data at the end of a segment of file " + file);
+      }
+      segment = null;
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(fileStream);
+    }
+  }
+
+  /**
+   * Output given to {@link ObjectCodec#encode(Object, Output)}.
+   */
+  public static final class Output extends DataOutputStream {
+    private final Map<String, Integer> sharedStringIds = new HashMap<>();
+
+    private Output(OutputStream out) {
+      super(out);
+    }
+
+    /**
+     * Writes a non negative integer on 1 to 5 bytes.
+     */
+    public void writeVarInt(int value) throws IOException {
+      int v = value;
+      while ((v & ~0x7F) != 0) {
+        writeByte((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+      writeByte(v);
+    }
+
+    /**
+     * Writes a nullable string of any length, unlike {@link #writeUTF(String)}.
+     */
+    public void writeString(@Nullable String s) throws IOException {
+      if (s == null) {
+        writeVarInt(0);
+        return;
+      }
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(bytes.length + 1);
+      write(bytes);
+    }
+
+    /**
+     * Writes a nullable string which is expected to be repeated in many objects of the segment, such as a component
+     * uuid or a rule key. It is written only once in the segment, subsequent occurrences are references to the first one.
+     */
+    public void writeSharedString(@Nullable String s) throws IOException {
+      if (s == null) {
+        writeVarInt(0);
+        return;
+      }
+      Integer id = sharedStringIds.get(s);
+      if (id == null) {
+        sharedStringIds.put(s, sharedStringIds.size());
+        writeVarInt(1);
+        writeString(s);
+      } else {
+        writeVarInt(id + 2);
+      }
+    }
+  }
+
+  /**
+   * Input given to {@link ObjectCodec#decode(Input)}.
+   */
+  public static final class Input extends DataInputStream {
+    private final List<String> sharedStrings = new ArrayList<>();
+    private byte[] buffer = new byte[256];
+
+    private Input(InputStream in) {
+      super(in);
+    }
+
+    public int readVarInt() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        int b = readUnsignedByte();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed variable-length integer");
+    }
+
+    @CheckForNull
+    public String readString() throws IOException {
+      int length = readVarInt();
+      if (length == 0) {
+        return null;
+      }
+      length--;
+      if (buffer.length < length) {
+        buffer = new byte[Math.max(length, buffer.length * 2)];
+      }
+      readFully(buffer, 0, length);
+      return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @CheckForNull
+    public String readSharedString() throws IOException {
+      int code = readVarInt();
+      if (code == 0) {
+        return null;
+      }
+      if (code == 1) {
+        String s = readString();
+        sharedStrings.add(s);
+        return s;
+      }
+      int id = code - 2;
+      if (id >= sharedStrings.size()) {
+        throw new EOFException("Reference to unknown shared string " + id);
+      }
+      return sharedStrings.get(id);
+    }
+  }
+
+  /**
+   * Prevents {@link LZ4BlockInputStream#close()} from closing the file, which may contain other segments.
+   */
+  private static class UncloseableInputStream extends FilterInputStream {
+    private UncloseableInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public void close() {
+      // the underlying stream is closed by the iterator
+    }
+  }
+}
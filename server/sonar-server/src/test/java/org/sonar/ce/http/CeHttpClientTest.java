@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.Optional;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import okio.Buffer;
 import org.junit.Before;
 import org.junit.Rule;
@@ -134,6 +135,39 @@ public class CeHttpClientTest {
     underTest.changeLogLevel(LoggerLevel.INFO);
   }
 
+  @Test
+  public void signalSubmittedTasks_posts_to_Compute_Engine() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(200));
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    underTest.signalSubmittedTasks();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getMethod()).isEqualTo("POST");
+    assertThat(request.getPath()).isEqualTo("/tasksSubmitted");
+  }
+
+  @Test
+  public void signalSubmittedTasks_does_not_fail_if_process_is_down() {
+    underTest.signalSubmittedTasks();
+
+    assertThat(server.getRequestCount()).isZero();
+  }
+
+  @Test
+  public void signalSubmittedTasks_throws_ISE_if_http_error() {
+    server.enqueue(new MockResponse().setResponseCode(500).setBody("blah"));
+    setUpWithHttpUrl(ProcessId.COMPUTE_ENGINE);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Failed to call HTTP server of process " + ProcessId.COMPUTE_ENGINE);
+    expectedException.expectCause(hasType(IOException.class)
+      .andMessage(format("Failed to signal submitted tasks to Compute Engine. Code was '500' and response was 'blah' for url " +
+        "'http://%s:%s/tasksSubmitted'", server.getHostName(), server.getPort())));
+
+    underTest.signalSubmittedTasks();
+  }
+
   private void setUpWithHttpUrl(ProcessId processId) {
     try (DefaultProcessCommands processCommands = DefaultProcessCommands.secondary(ipcSharedDir, processId.getIpcIndex())) {
       processCommands.setUp();
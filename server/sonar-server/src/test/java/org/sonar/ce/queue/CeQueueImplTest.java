@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.ce.http.CeHttpClient;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.core.util.UuidFactoryImpl;
 import org.sonar.db.DbSession;
@@ -40,8 +41,13 @@ import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class CeQueueImplTest {
 
@@ -60,7 +66,9 @@ public class CeQueueImplTest {
   private UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(dbTester);
 
-  private CeQueue underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, defaultOrganizationProvider);
+  private CeHttpClient ceHttpClient = mock(CeHttpClient.class);
+
+  private CeQueue underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, defaultOrganizationProvider, ceHttpClient);
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -90,6 +98,36 @@ public class CeQueueImplTest {
     verifyCeTask(taskSubmit, task, null);
   }
 
+  @Test
+  public void submit_signals_submitted_task_to_Compute_Engine() {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    verify(ceHttpClient).signalSubmittedTasks();
+  }
+
+  @Test
+  public void submit_does_not_fail_if_Compute_Engine_can_not_be_signaled() {
+    doThrow(new IllegalStateException("Failed to call HTTP server of process ce")).when(ceHttpClient).signalSubmittedTasks();
+
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    assertThat(dbTester.getDbClient().ceQueueDao().selectAllInAscOrder(session)).hasSize(1);
+  }
+
+  @Test
+  public void massSubmit_signals_submitted_tasks_to_Compute_Engine() {
+    underTest.massSubmit(asList(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", null), createTaskSubmit("some type")));
+
+    verify(ceHttpClient).signalSubmittedTasks();
+  }
+
+  @Test
+  public void massSubmit_does_not_signal_Compute_Engine_if_no_tasks() {
+    underTest.massSubmit(emptyList());
+
+    verifyZeroInteractions(ceHttpClient);
+  }
+
   @Test
   public void submit_fails_with_ISE_if_paused() {
     underTest.pauseSubmit();
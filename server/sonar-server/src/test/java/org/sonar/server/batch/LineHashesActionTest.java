@@ -0,0 +1,165 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.api.web.UserRole;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.scanner.protocol.input.ScannerInput.FileLineHashes;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.MediaTypes;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+
+public class LineHashesActionTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  private WsActionTester ws = new WsActionTester(new LineHashesAction(db.getDbClient(), userSession));
+
+  @Test
+  public void return_line_hashes_of_files() throws Exception {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project));
+    insertSource(file1, "HASH1", "ABC\nDEF");
+    insertSource(file2, "HASH2", "GHI");
+    userSession.logIn().addProjectPermission(UserRole.USER, project);
+
+    List<FileLineHashes> result = call(file1.key(), file2.key());
+
+    assertThat(result).extracting(FileLineHashes::getKey, FileLineHashes::getSrcHash, FileLineHashes::getLineHashes).containsOnly(
+      tuple(file1.key(), "HASH1", "ABC\nDEF"),
+      tuple(file2.key(), "HASH2", "GHI"));
+  }
+
+  @Test
+  public void ignore_unknown_files_and_files_without_source() throws Exception {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    ComponentDto fileWithoutSource = db.components().insertComponent(newFileDto(project));
+    insertSource(file, "HASH", "ABC");
+    userSession.logIn().addProjectPermission(UserRole.USER, project);
+
+    List<FileLineHashes> result = call(file.key(), fileWithoutSource.key(), "unknown");
+
+    assertThat(result).extracting(FileLineHashes::getKey).containsOnly(file.key());
+  }
+
+  @Test
+  public void ignore_files_of_projects_without_browse_permission() throws Exception {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto otherProject = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    ComponentDto otherFile = db.components().insertComponent(newFileDto(otherProject));
+    insertSource(file, "HASH", "ABC");
+    insertSource(otherFile, "OTHER_HASH", "DEF");
+    userSession.logIn().addProjectPermission(UserRole.USER, project);
+
+    List<FileLineHashes> result = call(file.key(), otherFile.key());
+
+    assertThat(result).extracting(FileLineHashes::getKey).containsOnly(file.key());
+  }
+
+  @Test
+  public void fail_if_too_many_keys() throws Exception {
+    String[] keys = IntStream.rangeClosed(1, LineHashesAction.MAX_KEYS + 1).mapToObj(i -> "key" + i).toArray(String[]::new);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("'keys' can contain only 500 values, got 501");
+
+    call(keys);
+  }
+
+  @Test
+  public void fail_if_no_keys() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("The 'keys' parameter is missing");
+
+    call();
+  }
+
+  @Test
+  public void support_keys_containing_commas() throws Exception {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project).setKey(project.key() + ":src/a,b.xoo"));
+    insertSource(file, "HASH", "ABC");
+    userSession.logIn().addProjectPermission(UserRole.USER, project);
+
+    List<FileLineHashes> result = call(file.key());
+
+    assertThat(result).extracting(FileLineHashes::getKey).containsOnly(file.key());
+  }
+
+  @Test
+  public void definition() {
+    assertThat(ws.getDef().key()).isEqualTo("line_hashes");
+    assertThat(ws.getDef().isPost()).isTrue();
+    assertThat(ws.getDef().isInternal()).isTrue();
+    assertThat(ws.getDef().since()).isEqualTo("6.5");
+    assertThat(ws.getDef().param("keys")).isNotNull();
+  }
+
+  private void insertSource(ComponentDto file, String srcHash, String lineHashes) {
+    db.getDbClient().fileSourceDao().insert(db.getSession(), new FileSourceDto()
+      .setProjectUuid(file.projectUuid())
+      .setFileUuid(file.uuid())
+      .setSrcHash(srcHash)
+      .setLineHashes(lineHashes)
+      .setDataType(FileSourceDto.Type.SOURCE)
+      .setCreatedAt(1_500_000_000_000L)
+      .setUpdatedAt(1_500_000_000_000L));
+    db.commit();
+  }
+
+  private List<FileLineHashes> call(String... keys) throws IOException {
+    InputStream input = ws.newRequest()
+      .setMethod("POST")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMultiParam("keys", asList(keys))
+      .execute()
+      .getInputStream();
+    List<FileLineHashes> result = new ArrayList<>();
+    FileLineHashes fileLineHashes;
+    while ((fileLineHashes = FileLineHashes.parseDelimitedFrom(input)) != null) {
+      result.add(fileLineHashes);
+    }
+    return result;
+  }
+}
@@ -28,6 +28,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
 import org.sonar.db.purge.PurgeConfiguration;
 import org.sonar.db.purge.PurgeDao;
 import org.sonar.db.purge.PurgeListener;
@@ -35,6 +36,7 @@ import org.sonar.db.purge.PurgeProfiler;
 import org.sonar.db.purge.period.DefaultPeriodCleaner;
 
 import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyLong;
@@ -42,6 +44,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class ProjectCleanerTest {
 
@@ -102,4 +105,52 @@ public class ProjectCleanerTest {
 
     verify(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class));
   }
+
+  @Test
+  public void purgeDisabledComponents_purges_only_disabled_components() {
+    underTest.purgeDisabledComponents(mock(DbSession.class), new IdUuidPair(1L, "P1"), settings, emptyList());
+
+    verify(dao).purgeDisabledComponents(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class));
+    verify(dao, never()).purge(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class));
+    verify(periodCleaner, never()).clean(any(DbSession.class), anyString(), any(Settings.class));
+  }
+
+  @Test
+  public void purgeWithinBudget_returns_false_if_purge_is_not_completed() {
+    PurgeBudget budget = PurgeBudget.unlimited();
+    when(dao.purgeHistory(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class), any(PurgeBudget.class)))
+      .thenReturn(false);
+
+    boolean completed = underTest.purgeWithinBudget(mock(DbSession.class), new IdUuidPair(1L, "P1"), settings, budget);
+
+    assertThat(completed).isFalse();
+    verify(periodCleaner).clean(any(DbSession.class), anyString(), any(Settings.class), any(PurgeBudget.class));
+    verify(dao).purgeHistory(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class), any(PurgeBudget.class));
+  }
+
+  @Test
+  public void purgeWithinBudget_dumps_profiling_only_if_enabled() {
+    underTest.purgeWithinBudget(mock(DbSession.class), new IdUuidPair(1L, "P1"), settings, PurgeBudget.unlimited());
+    verify(profiler, never()).dump(anyLong(), any(Logger.class));
+
+    settings.setProperty(CoreProperties.PROFILING_LOG_PROPERTY, true);
+    underTest.purgeWithinBudget(mock(DbSession.class), new IdUuidPair(1L, "P1"), settings, PurgeBudget.unlimited());
+    verify(profiler).dump(anyLong(), any(Logger.class));
+  }
+
+  @Test
+  public void purgeWithinBudget_returns_true_if_purge_is_completed() {
+    when(dao.purgeHistory(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class), any(PurgeBudget.class)))
+      .thenReturn(true);
+
+    assertThat(underTest.purgeWithinBudget(mock(DbSession.class), new IdUuidPair(1L, "P1"), settings, PurgeBudget.unlimited())).isTrue();
+  }
+
+  @Test
+  public void purgeWithinBudget_does_not_resume_purge_which_fails() {
+    doThrow(RuntimeException.class).when(dao)
+      .purgeHistory(any(DbSession.class), any(PurgeConfiguration.class), any(PurgeListener.class), any(PurgeProfiler.class), any(PurgeBudget.class));
+
+    assertThat(underTest.purgeWithinBudget(mock(DbSession.class), new IdUuidPair(1L, "P1"), settings, PurgeBudget.unlimited())).isTrue();
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.ce.settings.ProjectSettingsFactory;
+import org.sonar.core.config.PurgeConstants;
+import org.sonar.core.config.PurgeProperties;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.property.PropertyDto;
+import org.sonar.db.purge.IdUuidPair;
+import org.sonar.db.purge.PurgeBudget;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class PurgeTaskProcessorTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private Settings globalSettings = new MapSettings(new PropertyDefinitions(PurgeProperties.all()));
+  private ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
+  private PurgeTaskSubmitter purgeTaskSubmitter = mock(PurgeTaskSubmitter.class);
+
+  private PurgeTaskProcessor underTest = new PurgeTaskProcessor(db.getDbClient(), projectCleaner, new ProjectSettingsFactory(globalSettings, db.getDbClient()),
+    purgeTaskSubmitter);
+
+  @Test
+  public void handles_PROJECT_PURGE_tasks() {
+    assertThat(underTest.getHandledCeTaskTypes()).containsOnly(CeTaskTypes.PROJECT_PURGE);
+  }
+
+  @Test
+  public void purge_project_within_budget() {
+    ComponentDto project = db.components().insertPrivateProject();
+    when(projectCleaner.purgeWithinBudget(any(DbSession.class), any(IdUuidPair.class), any(Settings.class), any(PurgeBudget.class))).thenReturn(true);
+
+    assertThat(underTest.process(newTask(project.uuid()))).isNull();
+
+    ArgumentCaptor<IdUuidPair> idUuidPair = ArgumentCaptor.forClass(IdUuidPair.class);
+    verify(projectCleaner).purgeWithinBudget(any(DbSession.class), idUuidPair.capture(), any(Settings.class), any(PurgeBudget.class));
+    assertThat(idUuidPair.getValue().getId()).isEqualTo(project.getId());
+    assertThat(idUuidPair.getValue().getUuid()).isEqualTo(project.uuid());
+    verifyZeroInteractions(purgeTaskSubmitter);
+  }
+
+  @Test
+  public void submit_new_task_when_purge_is_not_completed() {
+    ComponentDto project = db.components().insertPrivateProject();
+    when(projectCleaner.purgeWithinBudget(any(DbSession.class), any(IdUuidPair.class), any(Settings.class), any(PurgeBudget.class))).thenReturn(false);
+
+    underTest.process(newTask(project.uuid()));
+
+    verify(purgeTaskSubmitter).submit(project.uuid());
+  }
+
+  @Test
+  public void use_project_settings() {
+    ComponentDto project = db.components().insertPrivateProject();
+    db.properties().insertProperty(new PropertyDto().setKey(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES).setValue("5")
+      .setResourceId(project.getId()));
+
+    underTest.process(newTask(project.uuid()));
+
+    ArgumentCaptor<Settings> settings = ArgumentCaptor.forClass(Settings.class);
+    verify(projectCleaner).purgeWithinBudget(any(DbSession.class), any(IdUuidPair.class), settings.capture(), any(PurgeBudget.class));
+    assertThat(settings.getValue().getInt(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES)).isEqualTo(5);
+  }
+
+  @Test
+  public void do_nothing_if_component_does_not_exist() {
+    assertThat(underTest.process(newTask("missing"))).isNull();
+
+    verifyZeroInteractions(projectCleaner, purgeTaskSubmitter);
+  }
+
+  private static CeTask newTask(String componentUuid) {
+    return new CeTask.Builder()
+      .setOrganizationUuid("org1")
+      .setUuid("TASK_1")
+      .setType(CeTaskTypes.PROJECT_PURGE)
+      .setComponentUuid(componentUuid)
+      .build();
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import java.util.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.core.util.UuidFactoryImpl;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.organization.TestDefaultOrganizationProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PurgeTaskSubmitterTest {
+
+  private System2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
+
+  @Rule
+  public DbTester db = DbTester.create(system2);
+
+  private PurgeTaskSubmitter underTest = new PurgeTaskSubmitter(
+    new CeQueueImpl(db.getDbClient(), UuidFactoryImpl.INSTANCE, TestDefaultOrganizationProvider.from(db)), db.getDbClient());
+
+  @Test
+  public void submit_purge_task_of_component() {
+    ComponentDto project = db.components().insertPrivateProject();
+
+    Optional<CeTask> task = underTest.submit(project.uuid());
+
+    assertThat(task).isPresent();
+    assertThat(task.get().getType()).isEqualTo(CeTaskTypes.PROJECT_PURGE);
+    assertThat(task.get().getComponentUuid()).isEqualTo(project.uuid());
+    assertThat(db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), project.uuid()))
+      .extracting(CeQueueDto::getTaskType)
+      .containsExactly(CeTaskTypes.PROJECT_PURGE);
+  }
+
+  @Test
+  public void do_not_submit_purge_task_if_one_is_already_pending() {
+    ComponentDto project = db.components().insertPrivateProject();
+    underTest.submit(project.uuid());
+
+    Optional<CeTask> task = underTest.submit(project.uuid());
+
+    assertThat(task).isEmpty();
+    assertThat(db.getDbClient().ceQueueDao().selectByComponentUuid(db.getSession(), project.uuid())).hasSize(1);
+  }
+
+  @Test
+  public void submit_purge_task_if_other_one_is_in_progress() {
+    ComponentDto project = db.components().insertPrivateProject();
+    insertQueue(project, CeTaskTypes.PROJECT_PURGE, CeQueueDto.Status.IN_PROGRESS);
+    insertQueue(project, CeTaskTypes.REPORT, CeQueueDto.Status.PENDING);
+
+    assertThat(underTest.submit(project.uuid())).isPresent();
+  }
+
+  private void insertQueue(ComponentDto component, String type, CeQueueDto.Status status) {
+    CeQueueDto dto = new CeQueueDto()
+      .setUuid(UuidFactoryImpl.INSTANCE.create())
+      .setTaskType(type)
+      .setComponentUuid(component.uuid())
+      .setStatus(status);
+    db.getDbClient().ceQueueDao().insert(db.getSession(), dto);
+    db.commit();
+  }
+}
@@ -23,6 +23,7 @@ import java.io.File;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 public class BatchReportDirectoryHolderImplTest {
 
@@ -38,5 +39,22 @@ public class BatchReportDirectoryHolderImplTest {
     holder.setDirectory(file);
 
     assertThat(holder.getDirectory()).isSameAs(file);
+    assertThat(holder.getZipFile()).isNull();
+  }
+
+  @Test
+  public void setZipFile_replaces_directory() {
+    File zip = new File("report.zip");
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setDirectory(new File(""));
+    holder.setZipFile(zip);
+
+    assertThat(holder.getZipFile()).isSameAs(zip);
+    try {
+      holder.getDirectory();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Directory has not been set yet");
+    }
   }
 }
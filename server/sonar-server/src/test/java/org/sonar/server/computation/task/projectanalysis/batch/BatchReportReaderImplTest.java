@@ -25,6 +25,7 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -315,4 +316,32 @@ public class BatchReportReaderImplTest {
     assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
     res.close();
   }
+  @Test
+  public void read_report_from_zip_file_without_extracting_it() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("P1").build());
+    writer.writeComponent(COMPONENT);
+    writer.writeComponentIssues(COMPONENT_REF, of(ISSUE));
+    writer.writeTests(COMPONENT_REF, of(TEST_1, TEST_2));
+    writer.writeCoverageDetails(COMPONENT_REF, of(COVERAGE_DETAIL_1));
+    FileUtils.write(writer.getSourceFile(COMPONENT_REF), "line1\nline2");
+    FileUtils.write(writer.getFileStructure().analysisLog(), "log1");
+    File zip = tempFolder.newFile();
+    ZipUtils.zipDir(writer.getFileStructure().root(), zip);
+
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setZipFile(zip);
+    BatchReportReaderImpl zipReader = new BatchReportReaderImpl(holder);
+
+    assertThat(zipReader.readMetadata().getProjectKey()).isEqualTo("P1");
+    assertThat(zipReader.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    assertThat(zipReader.readComponentIssues(COMPONENT_REF)).containsExactly(ISSUE);
+    assertThat(zipReader.readComponentMeasures(COMPONENT_REF)).isEmpty();
+    assertThat(zipReader.readChangesets(COMPONENT_REF)).isNull();
+    assertThat(zipReader.readTests(COMPONENT_REF)).containsExactly(TEST_1, TEST_2);
+    assertThat(zipReader.readCoverageDetails(COMPONENT_REF)).containsExactly(COVERAGE_DETAIL_1);
+    assertThat(zipReader.readFileSource(COMPONENT_REF).get()).containsExactly("line1", "line2");
+    assertThat(zipReader.readFileSource(2)).isAbsent();
+    assertThat(zipReader.readScannerLogs()).containsExactly("log1");
+    zipReader.stop();
+  }
 }
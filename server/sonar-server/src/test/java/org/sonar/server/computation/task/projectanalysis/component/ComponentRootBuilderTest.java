@@ -489,6 +489,22 @@ public class ComponentRootBuilderTest {
     assertThat(createFileAttributes(newBuilder().setType(FILE).setLines(10).build()).getLines()).isEqualTo(10);
   }
 
+  @Test
+  public void createFileAttributes_sets_hashes_from_Scanner_Component() {
+    FileAttributes fileAttributes = createFileAttributes(newBuilder().setType(FILE).setLines(1).setHash("source hash").setInputHash("input hash").build());
+
+    assertThat(fileAttributes.getHash()).isEqualTo("source hash");
+    assertThat(fileAttributes.getInputHash()).isEqualTo("input hash");
+  }
+
+  @Test
+  public void createFileAttributes_sets_hashes_to_null_when_unset_in_Scanner_Component() {
+    FileAttributes fileAttributes = createFileAttributes(newBuilder().setType(FILE).setLines(1).build());
+
+    assertThat(fileAttributes.getHash()).isNull();
+    assertThat(fileAttributes.getInputHash()).isNull();
+  }
+
   @Test
   public void fail_with_IAE_when_createFileAttributes_lines_is_not_set() throws Exception {
     expectedException.expect(IllegalArgumentException.class);
@@ -39,6 +39,14 @@ public class FileAttributesTest {
     assertThat(underTest.getLines()).isEqualTo(10);
   }
 
+  @Test
+  public void create_file_with_hashes() throws Exception {
+    FileAttributes underTest = new FileAttributes(false, "java", 10, "source hash", "input hash");
+
+    assertThat(underTest.getHash()).isEqualTo("source hash");
+    assertThat(underTest.getInputHash()).isEqualTo("input hash");
+  }
+
   @Test
   public void create_unit_test() throws Exception {
     FileAttributes underTest = new FileAttributes(true, "java", 10);
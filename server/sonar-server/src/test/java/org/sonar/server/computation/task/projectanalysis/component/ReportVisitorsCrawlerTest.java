@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.component;
 
 import java.util.Arrays;
+import java.util.Map;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -29,7 +30,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.MODULE;
@@ -39,6 +42,8 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class ReportVisitorsCrawlerTest {
 
+  private static Object blackhole;
+
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
@@ -109,6 +114,8 @@ public class ReportVisitorsCrawlerTest {
     underTest.visit(COMPONENT_TREE);
 
     assertThat(underTest.getCumulativeDurations()).isEmpty();
+    assertThat(underTest.getCumulativeCpuTimes()).isEmpty();
+    assertThat(underTest.getCumulativeAllocatedBytes()).isEmpty();
   }
 
   @Test
@@ -119,6 +126,39 @@ public class ReportVisitorsCrawlerTest {
     assertThat(underTest.getCumulativeDurations()).hasSize(2);
   }
 
+  @Test
+  public void getCumulativeAllocatedBytes_returns_memory_allocated_by_each_visitor_when_computation_is_enabled_in_constructor() {
+    TypeAwareVisitor allocatingVisitor = new TestTypeAwareVisitor(CrawlerDepthLimit.FILE, PRE_ORDER) {
+      @Override
+      public void visitFile(Component file) {
+        blackhole = new byte[1_000_000];
+      }
+    };
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(allocatingVisitor, spyPostOrderTypeAwareVisitor), true);
+    underTest.visit(COMPONENT_TREE);
+
+    Map<ComponentVisitor, Long> allocatedBytes = underTest.getCumulativeAllocatedBytes();
+    // measurement of allocated memory is not supported by all JVMs
+    if (!allocatedBytes.isEmpty()) {
+      assertThat(allocatedBytes.get(allocatingVisitor)).isGreaterThanOrEqualTo(1_000_000L);
+      assertThat(allocatedBytes.get(spyPostOrderTypeAwareVisitor)).isLessThan(1_000_000L);
+    }
+  }
+
+  @Test
+  public void visit_only_visitors_which_max_depth_includes_the_component() {
+    TypeAwareVisitor spyModuleVisitor = spy(new TestTypeAwareVisitor(CrawlerDepthLimit.MODULE, PRE_ORDER));
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(spyModuleVisitor, spyPostOrderTypeAwareVisitor));
+    underTest.visit(COMPONENT_TREE);
+
+    verify(spyModuleVisitor).visitProject(COMPONENT_TREE);
+    verify(spyModuleVisitor).visitModule(MODULE_2);
+    verify(spyModuleVisitor).visitModule(MODULE_3);
+    verify(spyModuleVisitor, never()).visitAny(DIRECTORY_4);
+    verify(spyModuleVisitor, never()).visitAny(FILE_5);
+    verify(spyPostOrderTypeAwareVisitor).visitFile(FILE_5);
+  }
+
   @Test
   public void fail_with_IAE_when_visitor_is_not_path_aware_or_type_aware() throws Exception {
     thrown.expect(IllegalArgumentException.class);
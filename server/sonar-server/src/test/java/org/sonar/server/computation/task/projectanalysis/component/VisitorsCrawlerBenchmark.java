@@ -0,0 +1,148 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.MODULE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+
+/**
+ * Traversal of a tree of 500k files by {@link VisitorsCrawler}, with visitors of different max depths.
+ * It is not executed by the build. Run it with {@link #main(String[])}, for example with the GC profiler
+ * ("-prof gc") in order to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VisitorsCrawlerBenchmark {
+
+  @Param({"500000"})
+  private int files;
+
+  @Param({"false", "true"})
+  private boolean computeDuration;
+
+  private Component root;
+  private Blackhole blackhole;
+
+  @Setup(Level.Trial)
+  public void setUp(Blackhole blackhole) {
+    this.blackhole = blackhole;
+    this.root = createTree(files, 20, 50);
+  }
+
+  @Benchmark
+  public void crawl() {
+    VisitorsCrawler crawler = new VisitorsCrawler(Arrays.asList(
+      new CountingVisitor(CrawlerDepthLimit.FILE, PRE_ORDER),
+      new CountingVisitor(CrawlerDepthLimit.FILE, POST_ORDER),
+      new CountingVisitor(CrawlerDepthLimit.DIRECTORY, POST_ORDER),
+      new CountingVisitor(CrawlerDepthLimit.PROJECT, PRE_ORDER),
+      new CountingPathAwareVisitor(CrawlerDepthLimit.FILE, POST_ORDER)), computeDuration);
+    crawler.visit(root);
+  }
+
+  private static Component createTree(int fileCount, int moduleCount, int filesPerDirectory) {
+    int ref = 1;
+    ComponentImpl.Builder project = builder(PROJECT, ref++);
+    int filesPerModule = fileCount / moduleCount;
+    for (int m = 0; m < moduleCount; m++) {
+      ComponentImpl.Builder module = builder(MODULE, ref++);
+      for (int d = 0; d < filesPerModule / filesPerDirectory; d++) {
+        ComponentImpl.Builder directory = builder(DIRECTORY, ref++);
+        for (int f = 0; f < filesPerDirectory; f++) {
+          directory.addChildren(builder(FILE, ref++).setFileAttributes(new FileAttributes(false, "java", 100)).build());
+        }
+        module.addChildren(directory.build());
+      }
+      project.addChildren(module.build());
+    }
+    return project.build();
+  }
+
+  private static ComponentImpl.Builder builder(Component.Type type, int ref) {
+    String key = "KEY_" + ref;
+    return ComponentImpl.builder(type)
+      .setReportAttributes(ReportAttributes.newBuilder(ref).setPath("path/" + ref).build())
+      .setUuid("UUID_" + ref)
+      .setKey(key)
+      .setName(key);
+  }
+
+  private class CountingVisitor extends TypeAwareVisitorAdapter {
+    private CountingVisitor(CrawlerDepthLimit maxDepth, Order order) {
+      super(maxDepth, order);
+    }
+
+    @Override
+    public void visitAny(Component any) {
+      blackhole.consume(any);
+    }
+  }
+
+  private class CountingPathAwareVisitor extends PathAwareVisitorAdapter<Integer> {
+    private CountingPathAwareVisitor(CrawlerDepthLimit maxDepth, Order order) {
+      super(maxDepth, order, new SimpleStackElementFactory<Integer>() {
+        @Override
+        public Integer createForAny(Component component) {
+          return 0;
+        }
+      });
+    }
+
+    @Override
+    public void visitAny(Component any, Path<Integer> path) {
+      blackhole.consume(path.current());
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(VisitorsCrawlerBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultIssueCodecTest {
+
+  private static final Date DATE_1 = new Date(1_500_000_000_000L);
+  private static final Date DATE_2 = new Date(1_500_000_100_000L);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void encode_and_decode_all_fields() throws Exception {
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(3).setEndLine(4))
+      .build();
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_1")
+      .setType(RuleType.VULNERABILITY)
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setRuleKey(RuleKey.of("java", "S001"))
+      .setLanguage("java")
+      .setSeverity(Severity.CRITICAL)
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(3)
+      .setGap(2.5)
+      .setEffort(Duration.create(10L))
+      .setStatus(Issue.STATUS_RESOLVED)
+      .setResolution(Issue.RESOLUTION_FIXED)
+      .setAssignee("john")
+      .setChecksum("checksum")
+      .setAttribute("JIRA", "FOO-123")
+      .setAuthorLogin("simon")
+      .setTags(Arrays.asList("security", "cwe"))
+      .setLocations(locations)
+      .setCreationDate(DATE_1)
+      .setUpdateDate(DATE_2)
+      .setCloseDate(DATE_2)
+      .setSelectedAt(1_000L)
+      .setNew(false)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true);
+    issue.addComment(new DefaultIssueComment().setIssueKey("ISSUE_1").setKey("COMMENT_1").setUserLogin("john")
+      .setMarkdownText("the comment").setCreatedAt(DATE_1).setUpdatedAt(DATE_2).setNew(true));
+    issue.addChange(new FieldDiffs().setIssueKey("ISSUE_1").setUserLogin("simon").setCreationDate(DATE_1).setDiff("severity", "MINOR", "MAJOR"));
+    IssueChangeContext context = IssueChangeContext.createUser(DATE_2, "john");
+    issue.setFieldChange(context, "status", Issue.STATUS_OPEN, Issue.STATUS_RESOLVED);
+    issue.setFieldChange(context, "effort", 5L, 10L);
+
+    DefaultIssue decoded = writeAndRead(issue);
+
+    assertThat(decoded.key()).isEqualTo("ISSUE_1");
+    assertThat(decoded.type()).isEqualTo(RuleType.VULNERABILITY);
+    assertThat(decoded.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(decoded.componentKey()).isEqualTo("FILE_KEY");
+    assertThat(decoded.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(decoded.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(decoded.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(decoded.projectKey()).isEqualTo("PROJECT_KEY");
+    assertThat(decoded.ruleKey()).isEqualTo(RuleKey.of("java", "S001"));
+    assertThat(decoded.language()).isEqualTo("java");
+    assertThat(decoded.severity()).isEqualTo(Severity.CRITICAL);
+    assertThat(decoded.manualSeverity()).isTrue();
+    assertThat(decoded.message()).isEqualTo("the message");
+    assertThat(decoded.line()).isEqualTo(3);
+    assertThat(decoded.gap()).isEqualTo(2.5);
+    assertThat(decoded.effort()).isEqualTo(Duration.create(10L));
+    assertThat(decoded.status()).isEqualTo(Issue.STATUS_RESOLVED);
+    assertThat(decoded.resolution()).isEqualTo(Issue.RESOLUTION_FIXED);
+    assertThat(decoded.assignee()).isEqualTo("john");
+    assertThat(decoded.checksum()).isEqualTo("checksum");
+    assertThat(decoded.attributes()).isEqualTo(ImmutableMap.of("JIRA", "FOO-123"));
+    assertThat(decoded.authorLogin()).isEqualTo("simon");
+    assertThat(decoded.tags()).containsExactly("security", "cwe");
+    assertThat((DbIssues.Locations) decoded.getLocations()).isEqualTo(locations);
+    assertThat(decoded.creationDate()).isEqualTo(DATE_1);
+    assertThat(decoded.updateDate()).isEqualTo(DATE_2);
+    assertThat(decoded.closeDate()).isEqualTo(DATE_2);
+    assertThat(decoded.selectedAt()).isEqualTo(1_000L);
+    assertThat(decoded.isNew()).isFalse();
+    assertThat(decoded.isBeingClosed()).isTrue();
+    assertThat(decoded.isOnDisabledRule()).isTrue();
+    assertThat(decoded.isChanged()).isTrue();
+    assertThat(decoded.mustSendNotifications()).isTrue();
+
+    assertThat(decoded.comments()).hasSize(1);
+    DefaultIssueComment comment = (DefaultIssueComment) decoded.comments().get(0);
+    assertThat(comment.issueKey()).isEqualTo("ISSUE_1");
+    assertThat(comment.key()).isEqualTo("COMMENT_1");
+    assertThat(comment.userLogin()).isEqualTo("john");
+    assertThat(comment.markdownText()).isEqualTo("the comment");
+    assertThat(comment.createdAt()).isEqualTo(DATE_1);
+    assertThat(comment.updatedAt()).isEqualTo(DATE_2);
+    assertThat(comment.isNew()).isTrue();
+
+    assertThat(decoded.changes()).hasSize(issue.changes().size());
+    assertThat(decoded.changes().get(0).toString()).isEqualTo("severity=MINOR|MAJOR");
+    assertThat(decoded.changes().get(0).userLogin()).isEqualTo("simon");
+    assertThat(decoded.changes().get(0).creationDate()).isEqualTo(DATE_1);
+    FieldDiffs currentChange = decoded.currentChange();
+    assertThat(currentChange.toString()).isEqualTo(issue.currentChange().toString());
+    assertThat(currentChange.get("effort").newValue()).isEqualTo(10L);
+    // the current change is the same instance as the one in the list of changes
+    for (int i = 1; i < decoded.changes().size(); i++) {
+      assertThat(decoded.changes().get(i)).isSameAs(currentChange);
+    }
+  }
+
+  @Test
+  public void encode_and_decode_issue_with_only_mandatory_fields() throws Exception {
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_1")
+      .setRuleKey(RuleKey.of("java", "S001"))
+      .setComponentUuid("FILE_UUID");
+
+    DefaultIssue decoded = writeAndRead(issue);
+
+    assertThat(decoded.key()).isEqualTo("ISSUE_1");
+    assertThat(decoded.ruleKey()).isEqualTo(RuleKey.of("java", "S001"));
+    assertThat(decoded.type()).isNull();
+    assertThat(decoded.status()).isNull();
+    assertThat(decoded.line()).isNull();
+    assertThat(decoded.gap()).isNull();
+    assertThat(decoded.effort()).isNull();
+    assertThat(decoded.creationDate()).isNull();
+    assertThat((Object) decoded.getLocations()).isNull();
+    assertThat(decoded.currentChange()).isNull();
+    assertThat(decoded.changes()).isEmpty();
+    assertThat(decoded.comments()).isEmpty();
+    assertThat(decoded.tags()).isEmpty();
+    assertThat(decoded.attributes()).isEmpty();
+    assertThat(decoded.isNew()).isTrue();
+  }
+
+  @Test
+  public void decoded_issue_accepts_new_changes() throws Exception {
+    DefaultIssue issue = new DefaultIssue().setKey("ISSUE_1").setRuleKey(RuleKey.of("java", "S001"));
+    issue.addChange(new FieldDiffs().setIssueKey("ISSUE_1").setCreationDate(DATE_1).setDiff("severity", "MINOR", "MAJOR"));
+
+    DefaultIssue decoded = writeAndRead(issue);
+    decoded.addChange(new FieldDiffs().setIssueKey("ISSUE_1").setCreationDate(DATE_2).setDiff("severity", "MAJOR", "BLOCKER"));
+
+    assertThat(decoded.changes()).hasSize(2);
+  }
+
+  private DefaultIssue writeAndRead(DefaultIssue issue) throws Exception {
+    IssueCache cache = new IssueCache(temp.newFile(), System2.INSTANCE);
+    cache.newAppender().append(issue).close();
+    try (CloseableIterator<DefaultIssue> traverse = cache.traverse()) {
+      DefaultIssue decoded = traverse.next();
+      assertThat(traverse.hasNext()).isFalse();
+      return decoded;
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.Tracker;
+import org.sonar.core.issue.tracking.Tracking;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+
+public class TrackerExecutionTest {
+
+  private static final Component FILE_1 = builder(Component.Type.FILE, 3).setUuid("FILE_1").build();
+  private static final Component FILE_2 = builder(Component.Type.FILE, 4).setUuid("FILE_2").build();
+  private static final Component FILE_3 = builder(Component.Type.FILE, 5).setUuid("FILE_3").build();
+  private static final Component DIRECTORY = builder(Component.Type.DIRECTORY, 2).setUuid("DIRECTORY").addChildren(FILE_1, FILE_2, FILE_3).build();
+  private static final Component PROJECT = builder(Component.Type.PROJECT, 1).setUuid("PROJECT").addChildren(DIRECTORY).build();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(PROJECT);
+
+  private TrackerBaseInputFactory baseInputFactory = mock(TrackerBaseInputFactory.class);
+  private TrackerRawInputFactory rawInputFactory = mock(TrackerRawInputFactory.class);
+  private Tracker<DefaultIssue, DefaultIssue> tracker = mock(Tracker.class);
+  private CeConfiguration ceConfiguration = mock(CeConfiguration.class);
+  private Map<String, Input<DefaultIssue>> rawInputs = new HashMap<>();
+  private Map<String, Input<DefaultIssue>> baseInputs = new HashMap<>();
+  private Map<String, Tracking<DefaultIssue, DefaultIssue>> trackings = new HashMap<>();
+
+  private TrackerExecution underTest;
+
+  @Before
+  public void setUp() {
+    for (Component component : new Component[] {PROJECT, DIRECTORY, FILE_1, FILE_2, FILE_3}) {
+      Input<DefaultIssue> rawInput = newInput();
+      Input<DefaultIssue> baseInput = newInput();
+      Tracking<DefaultIssue, DefaultIssue> tracking = mock(Tracking.class);
+      when(rawInputFactory.create(component)).thenReturn(rawInput);
+      when(baseInputFactory.create(component)).thenReturn(baseInput);
+      when(tracker.track(rawInput, baseInput)).thenReturn(tracking);
+      rawInputs.put(component.getUuid(), rawInput);
+      baseInputs.put(component.getUuid(), baseInput);
+      trackings.put(component.getUuid(), tracking);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    if (underTest != null) {
+      underTest.stop();
+    }
+  }
+
+  @Test
+  public void track_issues_of_requested_component_only_when_parallelism_is_1() {
+    when(ceConfiguration.getIssueTrackingParallelism()).thenReturn(1);
+    underTest = new TrackerExecution(baseInputFactory, rawInputFactory, tracker, treeRootHolder, ceConfiguration);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(trackings.get("FILE_1"));
+
+    verify(rawInputFactory, never()).create(FILE_2);
+    verify(rawInputFactory, never()).create(FILE_3);
+  }
+
+  @Test
+  public void track_issues_sequentially_without_configuration() {
+    underTest = new TrackerExecution(baseInputFactory, rawInputFactory, tracker);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(trackings.get("FILE_1"));
+    assertThat(underTest.track(PROJECT)).isSameAs(trackings.get("PROJECT"));
+
+    verify(rawInputFactory, never()).create(FILE_2);
+  }
+
+  @Test
+  public void track_issues_of_next_files_in_advance_when_parallelism_is_greater_than_1() {
+    when(ceConfiguration.getIssueTrackingParallelism()).thenReturn(2);
+    underTest = new TrackerExecution(baseInputFactory, rawInputFactory, tracker, treeRootHolder, ceConfiguration);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(trackings.get("FILE_1"));
+
+    // issues of next files are loaded by the calling thread
+    verify(rawInputs.get("FILE_2")).getIssues();
+    verify(baseInputs.get("FILE_2")).getIssues();
+    verify(rawInputs.get("FILE_3")).getIssues();
+    verify(baseInputs.get("FILE_3")).getIssues();
+
+    assertThat(underTest.track(FILE_2)).isSameAs(trackings.get("FILE_2"));
+    assertThat(underTest.track(FILE_3)).isSameAs(trackings.get("FILE_3"));
+    assertThat(underTest.track(DIRECTORY)).isSameAs(trackings.get("DIRECTORY"));
+    assertThat(underTest.track(PROJECT)).isSameAs(trackings.get("PROJECT"));
+  }
+
+  @Test
+  public void load_raw_line_hashes_in_advance_only_if_there_are_raw_issues() {
+    when(rawInputs.get("FILE_2").getIssues()).thenReturn(singletonList(new DefaultIssue()));
+    when(ceConfiguration.getIssueTrackingParallelism()).thenReturn(2);
+    underTest = new TrackerExecution(baseInputFactory, rawInputFactory, tracker, treeRootHolder, ceConfiguration);
+
+    underTest.track(FILE_1);
+
+    verify(rawInputs.get("FILE_2")).getLineHashSequence();
+    verify(rawInputs.get("FILE_3"), never()).getLineHashSequence();
+  }
+
+  @Test
+  public void track_issues_of_component_which_is_not_in_the_tree() {
+    Component otherFile = builder(Component.Type.FILE, 10).setUuid("OTHER").build();
+    Tracking<DefaultIssue, DefaultIssue> tracking = mock(Tracking.class);
+    when(tracker.track(any(Input.class), any(Input.class))).thenReturn(tracking);
+    when(ceConfiguration.getIssueTrackingParallelism()).thenReturn(2);
+    underTest = new TrackerExecution(baseInputFactory, rawInputFactory, tracker, treeRootHolder, ceConfiguration);
+
+    assertThat(underTest.track(otherFile)).isSameAs(tracking);
+  }
+
+  @Test
+  public void propagate_failure_of_tracking() {
+    when(tracker.track(rawInputs.get("FILE_2"), baseInputs.get("FILE_2"))).thenThrow(new IllegalStateException("BOOM"));
+    when(ceConfiguration.getIssueTrackingParallelism()).thenReturn(2);
+    underTest = new TrackerExecution(baseInputFactory, rawInputFactory, tracker, treeRootHolder, ceConfiguration);
+    underTest.track(FILE_1);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("BOOM");
+
+    underTest.track(FILE_2);
+  }
+
+  private static Input<DefaultIssue> newInput() {
+    Input<DefaultIssue> input = mock(Input.class);
+    when(input.getIssues()).thenReturn(Collections.emptyList());
+    return input;
+  }
+}
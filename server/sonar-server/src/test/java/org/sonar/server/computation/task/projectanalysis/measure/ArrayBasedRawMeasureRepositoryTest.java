@@ -0,0 +1,163 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.SetMultimap;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.Developer;
+import org.sonar.server.computation.task.projectanalysis.component.DumbDeveloper;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.guava.api.Assertions.assertThat;
+
+public class ArrayBasedRawMeasureRepositoryTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey("file cpt key").build();
+  private static final ReportComponent OTHER_COMPONENT = ReportComponent.builder(Component.Type.FILE, 2).setKey("some other key").build();
+  private static final ReportComponent COMPONENT_WITH_BIG_REF = ReportComponent.builder(Component.Type.FILE, 100_000).setKey("big ref").build();
+
+  private static final Metric METRIC_1 = new MetricImpl(10, "metric 1", "metric 1", Metric.MetricType.STRING);
+  private static final Metric METRIC_2 = new MetricImpl(2, "metric 2", "metric 2", Metric.MetricType.STRING);
+  private static final Metric METRIC_3 = new MetricImpl(5, "metric 3", "metric 3", Metric.MetricType.INT);
+
+  private static final Measure SOME_MEASURE = Measure.newMeasureBuilder().create("some value");
+  private static final Measure OTHER_MEASURE = Measure.newMeasureBuilder().create("other value");
+  private static final Developer SOME_DEVELOPER = new DumbDeveloper("DEV1");
+
+  private ArrayBasedRawMeasureRepository underTest = new ArrayBasedRawMeasureRepository();
+
+  @Test
+  public void getBaseMeasure_is_not_supported() {
+    expectedException.expect(UnsupportedOperationException.class);
+
+    underTest.getBaseMeasure(FILE_COMPONENT, METRIC_1);
+  }
+
+  @Test
+  public void getRawMeasure_returns_absent_if_repository_is_empty() {
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, METRIC_1)).isAbsent();
+    assertThat(underTest.getRawMeasure(COMPONENT_WITH_BIG_REF, METRIC_1)).isAbsent();
+  }
+
+  @Test
+  public void getRawMeasure_returns_measures_of_each_component_and_metric() {
+    Measure intMeasure = Measure.newMeasureBuilder().create(3);
+    underTest.add(FILE_COMPONENT, METRIC_1, SOME_MEASURE);
+    underTest.add(FILE_COMPONENT, METRIC_2, OTHER_MEASURE);
+    underTest.add(FILE_COMPONENT, METRIC_3, intMeasure);
+    underTest.add(COMPONENT_WITH_BIG_REF, METRIC_2, SOME_MEASURE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, METRIC_1).get()).isSameAs(SOME_MEASURE);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, METRIC_2).get()).isSameAs(OTHER_MEASURE);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, METRIC_3).get()).isSameAs(intMeasure);
+    assertThat(underTest.getRawMeasure(COMPONENT_WITH_BIG_REF, METRIC_2).get()).isSameAs(SOME_MEASURE);
+    assertThat(underTest.getRawMeasure(COMPONENT_WITH_BIG_REF, METRIC_1)).isAbsent();
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, METRIC_1)).isAbsent();
+  }
+
+  @Test
+  public void add_throws_UOE_if_measure_already_exists() {
+    underTest.add(FILE_COMPONENT, METRIC_1, SOME_MEASURE);
+
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("a measure can be set only once for a specific Component (key=file cpt key), Metric (key=metric 1). Use update method");
+
+    underTest.add(FILE_COMPONENT, METRIC_1, OTHER_MEASURE);
+  }
+
+  @Test
+  public void update_throws_UOE_if_measure_does_not_exist() {
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("a measure can be updated only if one already exists for a specific Component (key=file cpt key), Metric (key=metric 1). Use add method");
+
+    underTest.update(FILE_COMPONENT, METRIC_1, SOME_MEASURE);
+  }
+
+  @Test
+  public void update_replaces_existing_measure() {
+    underTest.add(FILE_COMPONENT, METRIC_1, SOME_MEASURE);
+    underTest.update(FILE_COMPONENT, METRIC_1, OTHER_MEASURE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, METRIC_1).get()).isSameAs(OTHER_MEASURE);
+  }
+
+  @Test
+  public void add_with_DO_NOT_OVERRIDE_policy_keeps_existing_measure() {
+    underTest.add(FILE_COMPONENT, METRIC_1, SOME_MEASURE, OverridePolicy.DO_NOT_OVERRIDE);
+    underTest.add(FILE_COMPONENT, METRIC_1, OTHER_MEASURE, OverridePolicy.DO_NOT_OVERRIDE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, METRIC_1).get()).isSameAs(SOME_MEASURE);
+  }
+
+  @Test
+  public void developer_measures_are_stored_apart_from_component_measures() {
+    Measure devMeasure = Measure.newMeasureBuilder().forDeveloper(SOME_DEVELOPER).create("dev value");
+    underTest.add(FILE_COMPONENT, METRIC_1, SOME_MEASURE);
+    underTest.add(FILE_COMPONENT, METRIC_1, devMeasure);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, METRIC_1).get()).isSameAs(SOME_MEASURE);
+    Set<Measure> measures = underTest.getRawMeasures(FILE_COMPONENT, METRIC_1);
+    assertThat(measures).containsOnly(SOME_MEASURE, devMeasure);
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT, METRIC_2)).isEmpty();
+  }
+
+  @Test
+  public void getRawMeasures_returns_all_measures_of_component_by_metric_key() {
+    Measure devMeasure = Measure.newMeasureBuilder().forDeveloper(SOME_DEVELOPER).create("dev value");
+    underTest.add(FILE_COMPONENT, METRIC_1, SOME_MEASURE);
+    underTest.add(FILE_COMPONENT, METRIC_2, OTHER_MEASURE);
+    underTest.add(FILE_COMPONENT, METRIC_2, devMeasure);
+
+    SetMultimap<String, Measure> measures = underTest.getRawMeasures(FILE_COMPONENT);
+
+    assertThat(measures.keySet()).containsOnly("metric 1", "metric 2");
+    assertThat(measures.get("metric 1")).containsOnly(SOME_MEASURE);
+    assertThat(measures.get("metric 2")).containsOnly(OTHER_MEASURE, devMeasure);
+    assertThat(underTest.getRawMeasures(OTHER_COMPONENT)).isEmpty();
+  }
+
+  @Test
+  public void getMemoryUsage_counts_components_and_measures() {
+    assertThat(underTest.getMemoryUsage().getMeasureCount()).isEqualTo(0);
+
+    underTest.add(FILE_COMPONENT, METRIC_1, SOME_MEASURE);
+    underTest.add(FILE_COMPONENT, METRIC_2, OTHER_MEASURE);
+    underTest.add(OTHER_COMPONENT, METRIC_1, SOME_MEASURE);
+    Optional<Measure> ignored = underTest.getRawMeasure(COMPONENT_WITH_BIG_REF, METRIC_1);
+
+    ArrayBasedRawMeasureRepository.MemoryUsage memoryUsage = underTest.getMemoryUsage();
+    assertThat(ignored).isAbsent();
+    assertThat(memoryUsage.getComponentCount()).isEqualTo(2);
+    assertThat(memoryUsage.getMeasureCount()).isEqualTo(3);
+    assertThat(memoryUsage.getEstimatedBytes()).isGreaterThan(0L);
+  }
+}
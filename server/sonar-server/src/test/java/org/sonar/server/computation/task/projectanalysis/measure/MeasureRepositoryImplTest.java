@@ -99,8 +99,10 @@ public class MeasureRepositoryImplTest {
 
   @Before
   public void setUp() {
+    when(metric1.getId()).thenReturn(METRIC_ID_1);
     when(metric1.getKey()).thenReturn(METRIC_KEY_1);
     when(metric1.getType()).thenReturn(Metric.MetricType.STRING);
+    when(metric2.getId()).thenReturn(METRIC_ID_2);
     when(metric2.getKey()).thenReturn(METRIC_KEY_2);
     when(metric2.getType()).thenReturn(Metric.MetricType.STRING);
 
@@ -229,7 +231,7 @@ public class MeasureRepositoryImplTest {
   @Test
   public void add_accepts_NO_VALUE_as_measure_arg() {
     for (Metric.MetricType metricType : Metric.MetricType.values()) {
-      underTest.add(FILE_COMPONENT, new MetricImpl(1, "key" + metricType, "name" + metricType, metricType), Measure.newMeasureBuilder().createNoValue());
+      underTest.add(FILE_COMPONENT, new MetricImpl(metricType.ordinal() + 1, "key" + metricType, "name" + metricType, metricType), Measure.newMeasureBuilder().createNoValue());
     }
   }
 
@@ -242,7 +244,7 @@ public class MeasureRepositoryImplTest {
       }
 
       try {
-        final MetricImpl metric = new MetricImpl(1, "key" + metricType, "name" + metricType, metricType);
+        final MetricImpl metric = new MetricImpl(metricType.ordinal() + 1, "key" + metricType, "name" + metricType, metricType);
         underTest.add(FILE_COMPONENT, metric, getSomeMeasureByValueType(metricType));
         underTest.update(FILE_COMPONENT, metric, measure);
         fail("An IllegalArgumentException should have been raised");
@@ -257,7 +259,7 @@ public class MeasureRepositoryImplTest {
   @Test
   public void update_accepts_NO_VALUE_as_measure_arg() {
     for (Metric.MetricType metricType : Metric.MetricType.values()) {
-      MetricImpl metric = new MetricImpl(1, "key" + metricType, "name" + metricType, metricType);
+      MetricImpl metric = new MetricImpl(metricType.ordinal() + 1, "key" + metricType, "name" + metricType, metricType);
       underTest.add(FILE_COMPONENT, metric, getSomeMeasureByValueType(metricType));
       underTest.update(FILE_COMPONENT, metric, Measure.newMeasureBuilder().createNoValue());
     }
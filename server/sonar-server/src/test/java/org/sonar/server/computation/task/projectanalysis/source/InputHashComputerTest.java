@@ -0,0 +1,65 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InputHashComputerTest {
+
+  @Test
+  public void hash_is_the_same_for_the_same_hashes_of_the_report() {
+    String hash = InputHashComputer.compute(newFile("source hash", "input hash"));
+
+    assertThat(hash).hasSize(32);
+    assertThat(InputHashComputer.compute(newFile("source hash", "input hash"))).isEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_with_hash_of_source() {
+    String hash = InputHashComputer.compute(newFile("source hash", "input hash"));
+
+    assertThat(InputHashComputer.compute(newFile("other source hash", "input hash"))).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_with_input_hash() {
+    String hash = InputHashComputer.compute(newFile("source hash", "input hash"));
+
+    assertThat(InputHashComputer.compute(newFile("source hash", "other input hash"))).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_is_null_when_report_does_not_provide_hashes_of_file() {
+    assertThat(InputHashComputer.compute(newFile(null, null))).isNull();
+    assertThat(InputHashComputer.compute(newFile("source hash", null))).isNull();
+    assertThat(InputHashComputer.compute(newFile(null, "input hash"))).isNull();
+  }
+
+  private static Component newFile(@Nullable String hash, @Nullable String inputHash) {
+    return ReportComponent.builder(Component.Type.FILE, 2).setKey("PROJECT_KEY:src/Foo.java")
+      .setFileAttributes(new FileAttributes(false, null, 3, hash, inputHash)).build();
+  }
+}
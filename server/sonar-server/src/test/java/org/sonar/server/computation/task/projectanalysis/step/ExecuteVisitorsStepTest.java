@@ -139,6 +139,7 @@ public class ExecuteVisitorsStepTest {
       assertThat(logs.get(1)).startsWith("  - VisitorA | time=");
       assertThat(logs.get(2)).startsWith("  - VisitorB | time=");
       assertThat(logs.get(3)).startsWith("  - VisitorC | time=");
+      assertThat(logs.get(1)).contains(" | cpu=", " | allocated=");
 
     }
   }
@@ -70,7 +70,7 @@ public class ExtractReportStepTest {
   }
 
   @Test
-  public void unzip_report() throws Exception {
+  public void copy_report_without_extracting_it() throws Exception {
     File reportFile = generateReport();
     try (InputStream input = FileUtils.openInputStream(reportFile)) {
       dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), TASK_UUID, input);
@@ -80,10 +80,11 @@ public class ExtractReportStepTest {
 
     underTest.execute();
 
-    // directory contains the uncompressed report (which contains only metadata.pb in this test)
-    File unzippedDir = reportDirectoryHolder.getDirectory();
-    assertThat(unzippedDir).isDirectory().exists();
-    assertThat(unzippedDir.listFiles()).hasSize(1);
+    // the zip file is copied as is (it contains only metadata.pb in this test)
+    File zipFile = reportDirectoryHolder.getZipFile();
+    assertThat(zipFile).isFile().hasBinaryContent(FileUtils.readFileToByteArray(reportFile));
+    File unzippedDir = tempFolder.newDir();
+    ZipUtils.unzip(zipFile, unzippedDir);
     assertThat(new File(unzippedDir, "metadata.pb")).hasContent("{metadata}");
   }
 
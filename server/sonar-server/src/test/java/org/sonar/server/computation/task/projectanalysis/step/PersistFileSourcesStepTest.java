@@ -20,11 +20,14 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import java.util.Arrays;
+import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
@@ -46,6 +49,7 @@ import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplic
 import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.source.InputHashComputer;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
 import org.sonar.server.computation.task.step.ComputationStep;
 
@@ -61,12 +65,16 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   private static final String PROJECT_KEY = "PROJECT_KEY";
   private static final String FILE_UUID = "FILE";
   private static final long NOW = 123456789L;
+  private static final String SOURCE_HASH = "ee5a58024a155466b43bc559d953e018";
+  private static final String INPUT_HASH = "9d5ad2dd5c4ac3cd3e8f4a1a2b3c4d5e";
 
   private System2 system2 = mock(System2.class);
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public LogTester logTester = new LogTester();
   @Rule
   public DbTester dbTester = DbTester.create(system2);
   @Rule
@@ -277,6 +285,9 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
 
   @Test
   public void not_update_sources_when_nothing_has_changed() {
+    // Sources from the report
+    initBasicReport(1, SOURCE_HASH, INPUT_HASH);
+
     // Existing sources
     long past = 150000L;
     String srcHash = "137f72c3708c6bd0de00a0e5a69c699b";
@@ -289,6 +300,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
       .setSrcHash(srcHash)
       .setLineHashes(lineHashes)
       .setDataHash(dataHash)
+      .setInputHash(computeInputHash())
       .setSourceData(DbFileSources.Data.newBuilder()
         .addLines(DbFileSources.Line.newBuilder()
           .setLine(1)
@@ -299,9 +311,6 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
       .setUpdatedAt(past));
     dbTester.getSession().commit();
 
-    // Sources from the report
-    initBasicReport(1);
-
     underTest.execute();
 
     assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
@@ -311,6 +320,111 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+    assertThat(logTester.logs(LoggerLevel.INFO).get(0)).startsWith("0 files persisted (0 inserted, 0 updated, 0 unchanged, 1 skipped) | ");
+  }
+
+  @Test
+  public void update_sources_when_input_hash_is_missing() {
+    initBasicReport(1, SOURCE_HASH, INPUT_HASH);
+
+    // Existing sources, persisted before input hash existed
+    long past = 150000L;
+    String dataHash = "29f25900140c94db38035128cb6de6a2";
+    dbClient.fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(FILE_UUID)
+      .setSrcHash("137f72c3708c6bd0de00a0e5a69c699b")
+      .setLineHashes("137f72c3708c6bd0de00a0e5a69c699b")
+      .setDataHash(dataHash)
+      .setSourceData(DbFileSources.Data.newBuilder()
+        .addLines(DbFileSources.Line.newBuilder()
+          .setLine(1)
+          .setSource("line1")
+          .build())
+        .build())
+      .setCreatedAt(past)
+      .setUpdatedAt(past));
+    dbTester.getSession().commit();
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
+    assertThat(fileSourceDto.getInputHash()).isEqualTo(computeInputHash());
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void not_compute_sources_of_unchanged_file_on_next_analysis() {
+    initBasicReport(2, SOURCE_HASH, INPUT_HASH);
+    Changeset changeset = Changeset.newChangesetBuilder()
+      .setAuthor("john")
+      .setDate(123456789L)
+      .setRevision("rev-1")
+      .build();
+    scmInfoRepository.setScmInfo(FILE_REF, changeset, changeset);
+    underTest.execute();
+
+    long later = NOW + 1000L;
+    when(system2.now()).thenReturn(later);
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+    assertThat(fileSourceDto.getRevision()).isEqualTo("rev-1");
+    assertThat(logTester.logs(LoggerLevel.INFO).get(1)).startsWith("0 files persisted (0 inserted, 0 updated, 0 unchanged, 1 skipped) | ");
+  }
+
+  @Test
+  public void compute_sources_of_file_when_coverage_changed_since_previous_analysis() {
+    initBasicReport(2, SOURCE_HASH, INPUT_HASH);
+    reportReader.putCoverage(FILE_REF, newArrayList(ScannerReport.LineCoverage.newBuilder()
+      .setLine(1)
+      .setConditions(10)
+      .setHits(true)
+      .build()));
+    underTest.execute();
+
+    long later = NOW + 1000L;
+    when(system2.now()).thenReturn(later);
+    setTreeRoot(2, SOURCE_HASH, "other input hash");
+    reportReader.putCoverage(FILE_REF, newArrayList(ScannerReport.LineCoverage.newBuilder()
+      .setLine(1)
+      .setConditions(10)
+      .setHits(false)
+      .build()));
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(later);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getLineHits()).isEqualTo(0);
+  }
+
+  @Test
+  public void compute_sources_of_file_when_source_changed_since_previous_analysis() {
+    initBasicReport(1, SOURCE_HASH, INPUT_HASH);
+    underTest.execute();
+
+    long later = NOW + 1000L;
+    when(system2.now()).thenReturn(later);
+    setTreeRoot(2, "other source hash", INPUT_HASH);
+    fileSourceRepository.addLine(FILE_REF, "new line");
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(later);
+    assertThat(fileSourceDto.getSourceData().getLinesCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void compute_sources_of_file_on_each_analysis_when_report_does_not_provide_hashes() {
+    initBasicReport(1);
+    underTest.execute();
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getInputHash()).isNull();
+    assertThat(logTester.logs(LoggerLevel.INFO).get(1)).startsWith("0 files persisted (0 inserted, 0 updated, 1 unchanged, 0 skipped) | ");
   }
 
   @Test
@@ -456,14 +570,64 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getRevision()).isNull();
   }
 
-  private void initBasicReport(int numberOfLines) {
+  @Test
+  public void persist_sources_of_files_in_several_batches() {
+    int nbFiles = 10;
+    ReportComponent.Builder module = ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY");
+    for (int i = 0; i < nbFiles; i++) {
+      int ref = 10 + i;
+      module.addChildren(ReportComponent.builder(Component.Type.FILE, ref).setUuid("FILE_" + i).setKey("MODULE_KEY:src/Foo" + i + ".java")
+        .setFileAttributes(new FileAttributes(false, null, 1)).build());
+      fileSourceRepository.addLine(ref, "line of file " + i);
+    }
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(module.build()).build());
+    // a batch is flushed after each file and data of 2 files are computed in advance
+    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, scmInfoRepository, duplicationRepository, 1L, 2);
+
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(nbFiles);
+    for (int i = 0; i < nbFiles; i++) {
+      FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, "FILE_" + i);
+      assertThat(fileSourceDto.getProjectUuid()).isEqualTo(PROJECT_UUID);
+      assertThat(fileSourceDto.getSourceData().getLines(0).getSource()).isEqualTo("line of file " + i);
+    }
+  }
+
+  @Test
+  public void log_throughput() {
+    initBasicReport(2);
+
+    underTest.execute();
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.INFO).get(0)).startsWith("1 files persisted (1 inserted, 0 updated, 0 unchanged, 0 skipped) | ");
+  }
+
+  @Test
+  public void fail_when_data_of_a_file_cannot_be_computed() {
     treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(
-      ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY").addChildren(
-        ReportComponent.builder(Component.Type.FILE, FILE_REF).setUuid(FILE_UUID).setKey("MODULE_KEY:src/Foo.java")
-          .setFileAttributes(new FileAttributes(false, null, numberOfLines)).build())
-        .build())
+      ReportComponent.builder(Component.Type.FILE, FILE_REF).setUuid(FILE_UUID).setKey("MODULE_KEY:src/Foo.java")
+        .setFileAttributes(new FileAttributes(false, null, 1)).build())
       .build());
 
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("has no source code");
+
+    underTest.execute();
+  }
+
+  private String computeInputHash() {
+    return InputHashComputer.compute(treeRootHolder.getComponentByRef(FILE_REF));
+  }
+
+  private void initBasicReport(int numberOfLines) {
+    initBasicReport(numberOfLines, null, null);
+  }
+
+  private void initBasicReport(int numberOfLines, @Nullable String hash, @Nullable String inputHash) {
+    setTreeRoot(numberOfLines, hash, inputHash);
+
     reportReader.putComponent(ScannerReport.Component.newBuilder()
       .setRef(1)
       .setType(ComponentType.PROJECT)
@@ -485,4 +649,13 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     }
   }
 
+  private void setTreeRoot(int numberOfLines, @Nullable String hash, @Nullable String inputHash) {
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(
+      ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY").addChildren(
+        ReportComponent.builder(Component.Type.FILE, FILE_REF).setUuid(FILE_UUID).setKey("MODULE_KEY:src/Foo.java")
+          .setFileAttributes(new FileAttributes(false, null, numberOfLines, hash, inputHash)).build())
+        .build())
+      .build());
+  }
+
 }
@@ -31,10 +31,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.sonar.api.config.Settings;
 import org.sonar.api.config.MapSettings;
+import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
+import org.sonar.server.computation.dbcleaner.PurgeTaskSubmitter;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDbIdsRepositoryRule;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDisabledComponentsHolder;
@@ -70,8 +72,10 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
   private ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
   private SettingsRepository settingsRepository = mock(SettingsRepository.class);
   private MutableDisabledComponentsHolder disabledComponentsHolder = mock(MutableDisabledComponentsHolder.class, RETURNS_DEEP_STUBS);
+  private PurgeTaskSubmitter purgeTaskSubmitter = mock(PurgeTaskSubmitter.class);
 
-  private PurgeDatastoresStep underTest = new PurgeDatastoresStep(mock(DbClient.class, Mockito.RETURNS_DEEP_STUBS), projectCleaner, dbIdsRepository, treeRootHolder, settingsRepository, disabledComponentsHolder);
+  private PurgeDatastoresStep underTest = new PurgeDatastoresStep(mock(DbClient.class, Mockito.RETURNS_DEEP_STUBS), projectCleaner, dbIdsRepository, treeRootHolder, settingsRepository, disabledComponentsHolder,
+    purgeTaskSubmitter);
 
   @Test
   public void call_purge_method_of_the_purge_task_for_project() {
@@ -87,6 +91,22 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
     verify_call_purge_method_of_the_purge_task(project);
   }
 
+  @Test
+  public void purge_only_disabled_components_and_submit_purge_task_when_background_purge_is_enabled() {
+    Component project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    when(settingsRepository.getSettings(project)).thenReturn(new MapSettings().setProperty(PurgeConstants.BACKGROUND_PURGE, true));
+    dbIdsRepository.setComponentId(project, PROJECT_ID);
+
+    underTest.execute();
+
+    ArgumentCaptor<IdUuidPair> argumentCaptor = ArgumentCaptor.forClass(IdUuidPair.class);
+    verify(projectCleaner).purgeDisabledComponents(any(DbSession.class), argumentCaptor.capture(), any(Settings.class), anyList());
+    verifyNoMoreInteractions(projectCleaner);
+    assertThat(argumentCaptor.getValue().getUuid()).isEqualTo(PROJECT_UUID);
+    verify(purgeTaskSubmitter).submit(PROJECT_UUID);
+  }
+
   @DataProvider
   public static Object[][] nonRootProjectComponentTypes() {
     return dataproviderFromComponentTypeValues(new Predicate<Component.Type>() {
@@ -142,6 +162,7 @@ public class PurgeDatastoresStepTest extends BaseStepTest {
     verify(projectCleaner).purge(any(DbSession.class), argumentCaptor.capture(), any(Settings.class), anyList());
     assertThat(argumentCaptor.getValue().getId()).isEqualTo(PROJECT_ID);
     assertThat(argumentCaptor.getValue().getUuid()).isEqualTo(PROJECT_UUID);
+    verifyNoMoreInteractions(purgeTaskSubmitter);
   }
 
   private static Object[][] dataproviderFromComponentTypeValues(Predicate<Component.Type> predicate) {
@@ -19,8 +19,14 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -32,6 +38,7 @@ import org.sonar.server.computation.task.ChangeLogLevel;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -152,6 +159,108 @@ public class ComputationStepExecutorTest {
     new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
   }
 
+  @Test
+  public void execute_runs_independent_DependencyAwareComputationSteps_concurrently_when_parallelism_is_greater_than_1() {
+    CountDownLatch latch = new CountDownLatch(2);
+    ComputationStep step1 = new TestStep("step1", ImmutableSet.of(String.class), ImmutableSet.of(Integer.class), () -> awaitOthers(latch));
+    ComputationStep step2 = new TestStep("step2", ImmutableSet.of(String.class), ImmutableSet.of(Long.class), () -> awaitOthers(latch));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2), listener, 2).execute();
+
+    assertThat(latch.getCount()).isZero();
+    verify(listener).finished(true);
+  }
+
+  @Test
+  public void execute_runs_DependencyAwareComputationStep_after_steps_writing_what_it_reads() {
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ComputationStep step1 = new TestStep("step1", ImmutableSet.of(), ImmutableSet.of(String.class), () -> executed.add("step1"));
+    ComputationStep step2 = new TestStep("step2", ImmutableSet.of(String.class), ImmutableSet.of(), () -> executed.add("step2"));
+    ComputationStep step3 = new TestStep("step3", ImmutableSet.of(), ImmutableSet.of(String.class), () -> executed.add("step3"));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2, step3), listener, 3).execute();
+
+    assertThat(executed).containsExactly("step1", "step2", "step3");
+  }
+
+  @Test
+  public void execute_runs_non_DependencyAwareComputationStep_after_all_previous_steps_and_before_all_next_steps() {
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ComputationStep step1 = new TestStep("step1", ImmutableSet.of(), ImmutableSet.of(String.class), () -> executed.add("step1"));
+    ComputationStep step2 = mockComputationStep("step2");
+    ComputationStep step3 = new TestStep("step3", ImmutableSet.of(), ImmutableSet.of(Long.class), () -> executed.add("step3"));
+    doAnswer(invocation -> executed.add("step2")).when(step2).execute();
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2, step3), listener, 3).execute();
+
+    assertThat(executed).containsExactly("step1", "step2", "step3");
+  }
+
+  @Test
+  public void execute_let_exception_thrown_by_ComputationStep_go_up_as_is_and_does_not_start_next_steps_when_parallelism_is_greater_than_1() {
+    RuntimeException toBeThrown = new RuntimeException("simulating failing execute Step method");
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ComputationStep step1 = new TestStep("step1", ImmutableSet.of(), ImmutableSet.of(String.class), () -> {
+      throw toBeThrown;
+    });
+    ComputationStep step2 = new TestStep("step2", ImmutableSet.of(String.class), ImmutableSet.of(), () -> executed.add("step2"));
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(step1, step2), listener, 2).execute();
+      fail("exception toBeThrown should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(toBeThrown);
+      assertThat(executed).isEmpty();
+      verify(listener).finished(false);
+    }
+  }
+
+  private static void awaitOthers(CountDownLatch latch) {
+    latch.countDown();
+    try {
+      if (!latch.await(10, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("steps have not been executed concurrently");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class TestStep implements DependencyAwareComputationStep {
+    private final String description;
+    private final Set<Class<?>> reads;
+    private final Set<Class<?>> writes;
+    private final Runnable runnable;
+
+    private TestStep(String description, Set<Class<?>> reads, Set<Class<?>> writes, Runnable runnable) {
+      this.description = description;
+      this.reads = reads;
+      this.writes = writes;
+      this.runnable = runnable;
+    }
+
+    @Override
+    public Set<Class<?>> reads() {
+      return reads;
+    }
+
+    @Override
+    public Set<Class<?>> writes() {
+      return writes;
+    }
+
+    @Override
+    public void execute() {
+      runnable.run();
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
@@ -20,16 +20,34 @@
 package org.sonar.server.es;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.server.es.BulkIndexer.Size;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.sonar.server.es.FakeIndexDefinition.INDEX;
 import static org.sonar.server.es.FakeIndexDefinition.INDEX_TYPE_FAKE;
 
@@ -102,6 +120,178 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(removeFrom);
   }
 
+  @Test
+  public void update_bulk_indexing_stats() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), INDEX, Size.REGULAR);
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    indexer.add(newIndexRequest(78));
+    indexer.stop();
+
+    BulkIndexingStats stats = esTester.client().getBulkIndexingStats();
+    assertThat(stats.getBulks()).isEqualTo(1);
+    assertThat(stats.getIndexedDocuments()).isEqualTo(2);
+    assertThat(stats.getBytes()).isGreaterThan(0);
+    assertThat(stats.getRejectedDocuments()).isEqualTo(0);
+    assertThat(stats.getFailedDocuments()).isEqualTo(0);
+  }
+
+  @Test
+  public void retry_items_rejected_by_elasticsearch() {
+    Client nativeClient = mock(Client.class);
+    EsClient client = mockEsClient(nativeClient);
+    List<Integer> bulkSizes = new ArrayList<>();
+    doAnswer(invocation -> {
+      BulkRequest request = (BulkRequest) invocation.getArguments()[0];
+      bulkSizes.add(request.numberOfActions());
+      BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+      for (int i = 0; i < items.length; i++) {
+        // the second item is rejected on first attempt
+        items[i] = bulkSizes.size() == 1 && i == 1 ? rejectedItem(i) : successfulItem(i);
+      }
+      ((ActionListener<BulkResponse>) invocation.getArguments()[1]).onResponse(new BulkResponse(items, 10L));
+      return null;
+    }).when(nativeClient).bulk(any(BulkRequest.class), any(ActionListener.class));
+
+    BulkIndexer indexer = new BulkIndexer(client, INDEX, Size.REGULAR);
+    indexer.start();
+    indexer.add(newIndexRequest(1));
+    indexer.add(newIndexRequest(2));
+    indexer.add(newIndexRequest(3));
+    indexer.stop();
+
+    // only the rejected item is sent again
+    assertThat(bulkSizes).containsExactly(3, 1);
+    BulkIndexingStats stats = client.getBulkIndexingStats();
+    assertThat(stats.getIndexedDocuments()).isEqualTo(3);
+    assertThat(stats.getRejectedDocuments()).isEqualTo(1);
+    assertThat(stats.getFailedDocuments()).isEqualTo(0);
+  }
+
+  @Test
+  public void rejected_items_are_retried_before_the_requests_added_later() {
+    Client nativeClient = mock(Client.class);
+    EsClient client = mockEsClient(nativeClient);
+    List<List<String>> bulks = new ArrayList<>();
+    List<ActionListener<BulkResponse>> listeners = new ArrayList<>();
+    doAnswer(invocation -> {
+      BulkRequest request = (BulkRequest) invocation.getArguments()[0];
+      bulks.add(request.requests().stream().map(r -> r.getClass().getSimpleName()).collect(Collectors.toList()));
+      ActionListener<BulkResponse> listener = (ActionListener<BulkResponse>) invocation.getArguments()[1];
+      if (bulks.size() == 1) {
+        // response is received later
+        listeners.add(listener);
+      } else {
+        BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+        for (int i = 0; i < items.length; i++) {
+          items[i] = successfulItem(i);
+        }
+        listener.onResponse(new BulkResponse(items, 10L));
+      }
+      return null;
+    }).when(nativeClient).bulk(any(BulkRequest.class), any(ActionListener.class));
+
+    BulkIndexer indexer = new BulkIndexer(client, INDEX, Size.REGULAR);
+    indexer.start();
+    // large enough to be sent immediately
+    indexer.add(new IndexRequest(INDEX, INDEX_TYPE_FAKE.getType(), "1")
+      .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, 1, "text", StringUtils.repeat("a", (int) BulkIndexer.BulkTuning.INITIAL_BULK_SIZE))));
+    indexer.add(new DeleteRequest(INDEX, INDEX_TYPE_FAKE.getType(), "1"));
+    // indexing of the document is rejected after the deletion has been added
+    listeners.get(0).onResponse(new BulkResponse(new BulkItemResponse[] {rejectedItem(0)}, 10L));
+    indexer.stop();
+
+    assertThat(bulks).containsExactly(asList("IndexRequest"), asList("IndexRequest", "DeleteRequest"));
+  }
+
+  @Test
+  public void give_up_items_rejected_too_many_times() {
+    Client nativeClient = mock(Client.class);
+    EsClient client = mockEsClient(nativeClient);
+    List<Integer> bulkSizes = new ArrayList<>();
+    doAnswer(invocation -> {
+      BulkRequest request = (BulkRequest) invocation.getArguments()[0];
+      bulkSizes.add(request.numberOfActions());
+      ((ActionListener<BulkResponse>) invocation.getArguments()[1]).onResponse(new BulkResponse(new BulkItemResponse[] {rejectedItem(0)}, 10L));
+      return null;
+    }).when(nativeClient).bulk(any(BulkRequest.class), any(ActionListener.class));
+
+    BulkIndexer indexer = new BulkIndexer(client, INDEX, Size.REGULAR);
+    indexer.start();
+    indexer.add(newIndexRequest(1));
+    indexer.stop();
+
+    // first attempt and 3 retries
+    assertThat(bulkSizes).containsExactly(1, 1, 1, 1);
+    assertThat(client.getBulkIndexingStats().getRejectedDocuments()).isEqualTo(3);
+    assertThat(client.getBulkIndexingStats().getFailedDocuments()).isEqualTo(1);
+  }
+
+  @Test
+  public void tuning_decreases_bulk_size_and_concurrency_on_rejections() {
+    BulkIndexer.BulkTuning tuning = new BulkIndexer.BulkTuning(4);
+    assertThat(tuning.getBulkSizeInBytes()).isEqualTo(BulkIndexer.BulkTuning.INITIAL_BULK_SIZE);
+    assertThat(tuning.getConcurrency()).isEqualTo(4);
+
+    tuning.onBulkExecuted(BulkIndexer.BulkTuning.INITIAL_BULK_SIZE, 100L, true);
+    assertThat(tuning.getBulkSizeInBytes()).isEqualTo(BulkIndexer.BulkTuning.INITIAL_BULK_SIZE / 2);
+    assertThat(tuning.getConcurrency()).isEqualTo(3);
+
+    for (int i = 0; i < 10; i++) {
+      tuning.onBulkExecuted(BulkIndexer.BulkTuning.INITIAL_BULK_SIZE, 100L, true);
+    }
+    assertThat(tuning.getBulkSizeInBytes()).isEqualTo(BulkIndexer.BulkTuning.MIN_BULK_SIZE);
+    assertThat(tuning.getConcurrency()).isEqualTo(1);
+  }
+
+  @Test
+  public void tuning_decreases_bulk_size_on_high_latency() {
+    BulkIndexer.BulkTuning tuning = new BulkIndexer.BulkTuning(4);
+
+    tuning.onBulkExecuted(BulkIndexer.BulkTuning.INITIAL_BULK_SIZE, 3 * BulkIndexer.BulkTuning.TARGET_LATENCY_MS, false);
+
+    assertThat(tuning.getBulkSizeInBytes()).isEqualTo(BulkIndexer.BulkTuning.INITIAL_BULK_SIZE * 3 / 4);
+    assertThat(tuning.getConcurrency()).isEqualTo(4);
+  }
+
+  @Test
+  public void tuning_increases_bulk_size_and_concurrency_when_full_bulks_are_fast() {
+    BulkIndexer.BulkTuning tuning = new BulkIndexer.BulkTuning(4);
+    tuning.onBulkExecuted(BulkIndexer.BulkTuning.INITIAL_BULK_SIZE, 100L, true);
+    long size = tuning.getBulkSizeInBytes();
+
+    // partial bulk, for example the last one, does not change tuning
+    tuning.onBulkExecuted(size / 10, 100L, false);
+    assertThat(tuning.getBulkSizeInBytes()).isEqualTo(size);
+    assertThat(tuning.getConcurrency()).isEqualTo(3);
+
+    tuning.onBulkExecuted(size, 100L, false);
+    assertThat(tuning.getBulkSizeInBytes()).isEqualTo(size + size / 4);
+    assertThat(tuning.getConcurrency()).isEqualTo(4);
+
+    for (int i = 0; i < 20; i++) {
+      tuning.onBulkExecuted(BulkIndexer.BulkTuning.MAX_BULK_SIZE, 100L, false);
+    }
+    assertThat(tuning.getBulkSizeInBytes()).isEqualTo(BulkIndexer.BulkTuning.MAX_BULK_SIZE);
+    assertThat(tuning.getConcurrency()).isEqualTo(4);
+  }
+
+  private static EsClient mockEsClient(Client nativeClient) {
+    EsClient client = mock(EsClient.class, RETURNS_DEEP_STUBS);
+    when(client.nativeClient()).thenReturn(nativeClient);
+    when(client.getBulkIndexingStats()).thenReturn(new BulkIndexingStats());
+    return client;
+  }
+
+  private static BulkItemResponse successfulItem(int itemId) {
+    return new BulkItemResponse(itemId, "index", new IndexResponse(INDEX, INDEX_TYPE_FAKE.getType(), String.valueOf(itemId), 1L, true));
+  }
+
+  private static BulkItemResponse rejectedItem(int itemId) {
+    return new BulkItemResponse(itemId, "index",
+      new BulkItemResponse.Failure(INDEX, INDEX_TYPE_FAKE.getType(), String.valueOf(itemId), new EsRejectedExecutionException("queue is full")));
+  }
+
   private long count() {
     return esTester.countDocuments("fakes", "fake");
   }
@@ -0,0 +1,61 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkIndexingStatsTest {
+
+  private BulkIndexingStats underTest = new BulkIndexingStats();
+
+  @Test
+  public void throughput_is_zero_if_no_bulks() {
+    assertThat(underTest.getDocumentsPerSecond()).isEqualTo(0L);
+    assertThat(underTest.getBytesPerSecond()).isEqualTo(0L);
+  }
+
+  @Test
+  public void throughput_is_computed_on_wall_clock_time_of_concurrent_bulks() {
+    underTest.onBulkStarted(1_000L);
+    underTest.onBulkStarted(1_500L);
+    underTest.onBulkCompleted(2_000L);
+    underTest.onBulkCompleted(3_000L);
+    underTest.onBulk(1_000L, 4_000L, 0L, 0L);
+    underTest.onBulk(1_000L, 4_000L, 0L, 0L);
+
+    // 2 seconds, not the 3.5 seconds spent by the two bulks
+    assertThat(underTest.getDocumentsPerSecond()).isEqualTo(1_000L);
+    assertThat(underTest.getBytesPerSecond()).isEqualTo(4_000L);
+  }
+
+  @Test
+  public void throughput_ignores_idle_time_between_bulks() {
+    underTest.onBulkStarted(1_000L);
+    underTest.onBulkCompleted(2_000L);
+    underTest.onBulkStarted(10_000L);
+    underTest.onBulkCompleted(11_000L);
+    underTest.onBulk(500L, 0L, 0L, 0L);
+    underTest.onBulk(500L, 0L, 0L, 0L);
+
+    assertThat(underTest.getDocumentsPerSecond()).isEqualTo(500L);
+  }
+}
@@ -20,14 +20,28 @@
 package org.sonar.server.es;
 
 import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -41,8 +55,14 @@ public class IndexerStartupTaskTest {
   @Rule
   public DbTester db = DbTester.create(system2);
 
+  private static final IndexType INDEX_TYPE_OTHER = new IndexType("others", "other");
+
+  private StartupIndexingStatus status = new StartupIndexingStatus(system2);
+
   @Rule
-  public EsTester es = new EsTester(new FakeIndexDefinition());
+  public EsTester es = new EsTester(new FakeIndexDefinition(), context -> context.create(INDEX_TYPE_OTHER.getIndex()).createType(INDEX_TYPE_OTHER.getType()));
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
 
   @Test
   public void only_index_once() throws Exception {
@@ -76,17 +96,108 @@ public class IndexerStartupTaskTest {
     verifyNoMoreInteractions(indexer);
   }
 
+  @Test
+  public void index_concurrently_the_indexers_of_distinct_indices() throws Exception {
+    settings.setProperty(IndexerStartupTask.PARALLELISM_PROPERTY, 2);
+    CountDownLatch latch = new CountDownLatch(2);
+    List<Boolean> concurrent = new CopyOnWriteArrayList<>();
+    Answer<Void> waitForOtherIndexer = invocation -> {
+      latch.countDown();
+      concurrent.add(latch.await(10, TimeUnit.SECONDS));
+      return null;
+    };
+    StartupIndexer indexer1 = createIndexer(INDEX_TYPE_FAKE);
+    doAnswer(waitForOtherIndexer).when(indexer1).indexOnStartup(anySetOf(IndexType.class));
+    StartupIndexer indexer2 = createIndexer(INDEX_TYPE_OTHER);
+    doAnswer(waitForOtherIndexer).when(indexer2).indexOnStartup(anySetOf(IndexType.class));
+
+    emulateStartup(indexer1, indexer2);
+
+    assertThat(concurrent).containsExactly(true, true);
+    assertThat(IndexerStartupTask.isUninitialized(INDEX_TYPE_FAKE, es.client())).isFalse();
+    assertThat(IndexerStartupTask.isUninitialized(INDEX_TYPE_OTHER, es.client())).isFalse();
+  }
+
+  @Test
+  public void index_sequentially_and_in_order_the_indexers_of_the_same_index() throws Exception {
+    settings.setProperty(IndexerStartupTask.PARALLELISM_PROPERTY, 4);
+    AtomicInteger running = new AtomicInteger();
+    List<Integer> concurrentIndexers = new CopyOnWriteArrayList<>();
+    Answer<Void> index = invocation -> {
+      concurrentIndexers.add(running.incrementAndGet());
+      Thread.sleep(50L);
+      running.decrementAndGet();
+      return null;
+    };
+    StartupIndexer indexer1 = createIndexer(INDEX_TYPE_FAKE);
+    doAnswer(index).when(indexer1).indexOnStartup(anySetOf(IndexType.class));
+    StartupIndexer indexer2 = createIndexer(INDEX_TYPE_OTHER);
+    StartupIndexer indexer3 = createIndexer(INDEX_TYPE_FAKE);
+    doAnswer(index).when(indexer3).indexOnStartup(anySetOf(IndexType.class));
+
+    emulateStartup(indexer1, indexer2, indexer3);
+
+    assertThat(concurrentIndexers).containsExactly(1, 1);
+    InOrder inOrder = inOrder(indexer1, indexer3);
+    inOrder.verify(indexer1).indexOnStartup(ImmutableSet.of(INDEX_TYPE_FAKE));
+    inOrder.verify(indexer3).indexOnStartup(ImmutableSet.of(INDEX_TYPE_FAKE));
+    verify(indexer2).indexOnStartup(ImmutableSet.of(INDEX_TYPE_OTHER));
+  }
+
+  @Test
+  public void update_status_of_indexed_types() throws Exception {
+    StartupIndexer indexer = createIndexer(INDEX_TYPE_FAKE);
+
+    emulateStartup(indexer);
+
+    assertThat(status.getStatusByType()).containsOnlyKeys(INDEX_TYPE_FAKE);
+    StartupIndexingStatus.TypeStatus typeStatus = status.getStatusByType().get(INDEX_TYPE_FAKE);
+    assertThat(typeStatus.getState()).isEqualTo(StartupIndexingStatus.State.DONE);
+    assertThat(typeStatus.getStartedAt()).isNotNull();
+    assertThat(typeStatus.getFinishedAt()).isNotNull();
+  }
+
+  @Test
+  public void fail_and_mark_types_as_failed_if_indexer_fails() throws Exception {
+    StartupIndexer indexer = createIndexer(INDEX_TYPE_FAKE);
+    doThrow(new IllegalStateException("Simulates failure of indexer")).when(indexer).indexOnStartup(anySetOf(IndexType.class));
+
+    try {
+      emulateStartup(indexer);
+      fail("An IllegalStateException should have been raised");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Simulates failure of indexer");
+    }
+    assertThat(status.getStatusByType().get(INDEX_TYPE_FAKE).getState()).isEqualTo(StartupIndexingStatus.State.FAILED);
+    assertThat(IndexerStartupTask.isUninitialized(INDEX_TYPE_FAKE, es.client())).isTrue();
+  }
+
+  @Test
+  public void fail_if_parallelism_is_not_strictly_positive() throws Exception {
+    settings.setProperty(IndexerStartupTask.PARALLELISM_PROPERTY, 0);
+    StartupIndexer indexer = createIndexer(INDEX_TYPE_FAKE);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.search.startupIndexing.parallelism must be strictly positive. Got 0");
+
+    emulateStartup(indexer);
+  }
+
   private void insertDocumentIntoIndex() {
     es.putDocuments(INDEX_TYPE_FAKE, new FakeDoc());
   }
 
   private StartupIndexer createIndexer() {
+    return createIndexer(INDEX_TYPE_FAKE);
+  }
+
+  private StartupIndexer createIndexer(IndexType indexType) {
     StartupIndexer indexer = mock(StartupIndexer.class);
-    doReturn(ImmutableSet.of(INDEX_TYPE_FAKE)).when(indexer).getIndexTypes();
+    doReturn(ImmutableSet.of(indexType)).when(indexer).getIndexTypes();
     return indexer;
   }
 
-  private void emulateStartup(StartupIndexer indexer) {
-    new IndexerStartupTask(es.client(), settings, indexer).execute();
+  private void emulateStartup(StartupIndexer... indexers) {
+    new IndexerStartupTask(es.client(), settings, status, indexers).execute();
   }
 }
@@ -19,11 +19,13 @@
  */
 package org.sonar.server.issue.ws;
 
+import com.google.common.collect.ImmutableMap;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.server.ws.WebService.Param;
+import org.sonar.api.utils.System2;
 import org.sonar.server.issue.IssueQueryFactory;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.tester.UserSessionRule;
@@ -44,7 +46,7 @@ public class SearchActionTest {
   private IssueQueryFactory issueQueryFactory = mock(IssueQueryFactory.class);
   private SearchResponseLoader searchResponseLoader = mock(SearchResponseLoader.class);
   private SearchResponseFormat searchResponseFormat = mock(SearchResponseFormat.class);
-  private SearchAction underTest = new SearchAction(userSession, index, issueQueryFactory, searchResponseLoader, searchResponseFormat);
+  private SearchAction underTest = new SearchAction(userSession, index, issueQueryFactory, searchResponseLoader, searchResponseFormat, System2.INSTANCE);
   private WsActionTester wsTester = new WsActionTester(underTest);
 
   @Test
@@ -66,4 +68,11 @@ public class SearchActionTest {
       .matches(p -> p.since().equals("6.4"));
   }
 
+  @Test
+  public void format_durations_as_server_timing_header() {
+    assertThat(SearchAction.formatDurations(ImmutableMap.of("search", 12L, "issues", 3L, "rules", 0L)))
+      .isEqualTo("search;dur=12, issues;dur=3, rules;dur=0");
+    assertThat(SearchAction.formatDurations(ImmutableMap.<String, Long>of())).isEmpty();
+  }
+
 }
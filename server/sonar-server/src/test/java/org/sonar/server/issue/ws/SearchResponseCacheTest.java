@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.sonar.db.user.UserDto;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchResponseCacheTest {
+
+  private FakeTicker ticker = new FakeTicker();
+  private SearchResponseCache underTest = new SearchResponseCache(ticker);
+  private List<Set<String>> loadedLogins = new ArrayList<>();
+
+  @Test
+  public void load_only_logins_which_are_not_cached() {
+    assertThat(underTest.getUsers(asList("u1", "u2"), this::loadUsers)).extracting(UserDto::getLogin).containsOnly("u1", "u2");
+    assertThat(underTest.getUsers(asList("u2", "u3"), this::loadUsers)).extracting(UserDto::getLogin).containsOnly("u2", "u3");
+    assertThat(underTest.getUsers(asList("u1", "u3"), this::loadUsers)).extracting(UserDto::getLogin).containsOnly("u1", "u3");
+
+    assertThat(loadedLogins).containsExactly(ImmutableSet.of("u1", "u2"), ImmutableSet.of("u3"));
+  }
+
+  @Test
+  public void do_not_cache_unknown_keys() {
+    assertThat(underTest.getUsers(asList("u1", "unknown"), this::loadUsers)).extracting(UserDto::getLogin).containsOnly("u1");
+    assertThat(underTest.getUsers(asList("u1", "unknown"), this::loadUsers)).extracting(UserDto::getLogin).containsOnly("u1");
+
+    assertThat(loadedLogins).containsExactly(ImmutableSet.of("u1", "unknown"), ImmutableSet.of("unknown"));
+  }
+
+  @Test
+  public void entries_expire_after_ttl() {
+    underTest.getUsers(asList("u1"), this::loadUsers);
+    ticker.advanceMs(SearchResponseCache.TTL_MS - 1);
+    underTest.getUsers(asList("u1"), this::loadUsers);
+    assertThat(loadedLogins).hasSize(1);
+
+    ticker.advanceMs(1);
+    underTest.getUsers(asList("u1"), this::loadUsers);
+    assertThat(loadedLogins).hasSize(2);
+  }
+
+  private List<UserDto> loadUsers(Set<String> logins) {
+    loadedLogins.add(logins);
+    return logins.stream()
+      .filter(login -> !login.equals("unknown"))
+      .map(login -> new UserDto().setLogin(login))
+      .collect(toList());
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos = 0L;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advanceMs(long ms) {
+      nanos += ms * 1_000_000L;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.EnumSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.issue.ActionFinder;
+import org.sonar.server.issue.TransitionService;
+import org.sonar.server.tester.UserSessionRule;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.server.issue.ws.SearchAdditionalField.COMMENTS;
+import static org.sonar.server.issue.ws.SearchAdditionalField.RULES;
+import static org.sonar.server.issue.ws.SearchAdditionalField.USERS;
+
+public class SearchResponseLoaderTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  private SearchResponseLoaderExecutorServiceImpl executorService = new SearchResponseLoaderExecutorServiceImpl();
+  private SearchResponseLoader underTest = new SearchResponseLoader(userSession, db.getDbClient(), mock(ActionFinder.class), mock(TransitionService.class),
+    new SearchResponseCache(), executorService, System2.INSTANCE);
+
+  private OrganizationDto organization;
+  private ComponentDto project;
+  private ComponentDto file;
+  private RuleDefinitionDto rule;
+  private UserDto assignee;
+  private UserDto commenter;
+  private IssueDto issue;
+
+  @Before
+  public void setUp() {
+    organization = db.organizations().insert();
+    project = db.components().insertPrivateProject(organization);
+    file = db.components().insertComponent(newFileDto(project));
+    rule = db.rules().insert();
+    assignee = db.users().insertUser();
+    commenter = db.users().insertUser();
+    issue = db.issues().insert(rule, project, file, i -> i.setAssignee(assignee.getLogin()));
+    db.issues().insertComment(issue, commenter.getLogin(), "the comment");
+  }
+
+  @After
+  public void tearDown() {
+    executorService.stop();
+  }
+
+  @Test
+  public void load_issues_and_additional_data() {
+    SearchResponseData data = underTest.load(newCollector(), null);
+
+    assertThat(data.getIssues()).extracting(IssueDto::getKey).containsExactly(issue.getKey());
+    assertThat(data.getRules()).extracting(RuleDefinitionDto::getKey).containsExactly(rule.getKey());
+    assertThat(data.getUsers()).extracting(UserDto::getLogin).containsOnly(assignee.getLogin(), commenter.getLogin());
+    assertThat(data.getComponents()).extracting(ComponentDto::uuid).containsOnly(project.uuid(), file.uuid());
+    assertThat(data.getOrganizationKey(organization.getUuid())).isEqualTo(organization.getKey());
+    assertThat(data.getCommentsForIssueKey(issue.getKey())).hasSize(1);
+  }
+
+  @Test
+  public void record_duration_of_each_step() {
+    SearchResponseData data = underTest.load(newCollector(), null);
+
+    assertThat(data.getDurations()).containsOnlyKeys("issues", "comments", "users", "rules", "components", "actions");
+    assertThat(data.getDurations().values()).allMatch(duration -> duration >= 0L);
+  }
+
+  @Test
+  public void rules_users_and_components_are_shared_by_successive_loads() {
+    underTest.load(newCollector(), null);
+    db.getDbClient().userDao().update(db.getSession(), assignee.setName("new name"));
+    db.commit();
+
+    SearchResponseData data = underTest.load(newCollector(), null);
+
+    assertThat(data.getUsers()).extracting(UserDto::getName).doesNotContain("new name");
+    assertThat(data.getRules()).extracting(RuleDefinitionDto::getKey).containsExactly(rule.getKey());
+    assertThat(data.getComponents()).extracting(ComponentDto::uuid).containsOnly(project.uuid(), file.uuid());
+  }
+
+  @Test
+  public void load_only_data_which_is_not_preloaded() {
+    SearchResponseData preloaded = new SearchResponseData(issue);
+    preloaded.setRules(singletonList(rule));
+
+    SearchResponseData data = underTest.load(preloaded, newCollector(), null);
+
+    assertThat(data).isNotSameAs(preloaded);
+    assertThat(data.getIssues()).containsExactly(issue);
+    assertThat(data.getRules()).hasSize(1);
+    assertThat(data.getRules().get(0)).isSameAs(rule);
+    assertThat(data.getUsers()).extracting(UserDto::getLogin).containsOnly(assignee.getLogin(), commenter.getLogin());
+  }
+
+  private SearchResponseLoader.Collector newCollector() {
+    return new SearchResponseLoader.Collector(EnumSet.of(RULES, USERS, COMMENTS), singletonList(issue.getKey()));
+  }
+}
@@ -47,6 +47,7 @@ import org.sonar.server.organization.OrganizationFlagsImpl;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.usergroups.DefaultGroupCreatorImpl;
 import org.sonar.server.usergroups.DefaultGroupFinder;
 import org.sonar.server.ws.TestResponse;
@@ -71,7 +72,7 @@ public class EnableSupportActionTest {
   private OrganizationFlags organizationFlags = new OrganizationFlagsImpl(db.getDbClient());
   private RuleIndexer ruleIndexer = mock(RuleIndexer.class);
   private EnableSupportAction underTest = new EnableSupportAction(userSession, db.getDbClient(), defaultOrganizationProvider, organizationFlags,
-    new DefaultGroupCreatorImpl(db.getDbClient()), new DefaultGroupFinder(db.getDbClient()), ruleIndexer);
+    new DefaultGroupCreatorImpl(db.getDbClient()), new DefaultGroupFinder(db.getDbClient()), ruleIndexer, new UserPermissionCache());
   private WsActionTester tester = new WsActionTester(underTest);
 
   @Test
@@ -44,7 +44,12 @@ import org.sonar.server.es.SearchOptions;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.organization.TestOrganizationFlags;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserPermissionCache;
+import org.sonar.server.user.UserSession;
+import org.sonar.server.user.UserSessionFactoryImpl;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexDefinition;
 import org.sonar.server.user.index.UserIndexer;
@@ -80,7 +85,8 @@ public class RemoveMemberActionTest {
   private UserIndex userIndex = new UserIndex(es.client());
   private UserIndexer userIndexer = new UserIndexer(dbClient, es.client());
 
-  private WsActionTester ws = new WsActionTester(new RemoveMemberAction(dbClient, userSession, userIndexer));
+  private UserPermissionCache userPermissionCache = new UserPermissionCache();
+  private WsActionTester ws = new WsActionTester(new RemoveMemberAction(dbClient, userSession, userIndexer, userPermissionCache));
 
   private OrganizationDto organization;
   private ComponentDto project;
@@ -134,6 +140,23 @@ public class RemoveMemberActionTest {
     assertNotAMember(organization.getUuid(), user);
   }
 
+  @Test
+  public void permissions_of_removed_member_are_revoked_immediately() {
+    db.users().insertPermissionOnUser(organization, user, ADMINISTER);
+    db.users().insertProjectPermissionOnUser(user, CODEVIEWER, project);
+    UserSessionFactoryImpl userSessionFactory = new UserSessionFactoryImpl(dbClient, TestDefaultOrganizationProvider.from(db),
+      TestOrganizationFlags.standalone(), userPermissionCache);
+    UserSession sessionBeforeRemoval = userSessionFactory.create(user);
+    assertThat(sessionBeforeRemoval.hasPermission(ADMINISTER, organization)).isTrue();
+    assertThat(sessionBeforeRemoval.hasComponentPermission(CODEVIEWER, project)).isTrue();
+
+    call(organization.getKey(), user.getLogin());
+
+    UserSession sessionAfterRemoval = userSessionFactory.create(user);
+    assertThat(sessionAfterRemoval.hasPermission(ADMINISTER, organization)).isFalse();
+    assertThat(sessionAfterRemoval.hasComponentPermission(CODEVIEWER, project)).isFalse();
+  }
+
   @Test
   public void remove_organization_permissions() {
     UserDto anotherUser = db.users().insertUser();
@@ -41,10 +41,12 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.permission.index.PermissionIndexer;
 import org.sonar.server.permission.ws.template.DefaultTemplatesResolverRule;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserPermissionCache;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.core.permission.GlobalPermissions.SCAN_EXECUTION;
 
 public class PermissionTemplateServiceTest {
@@ -60,6 +62,7 @@ public class PermissionTemplateServiceTest {
   private PermissionTemplateDbTester templateDb = dbTester.permissionTemplates();
   private DbSession session = dbTester.getSession();
   private PermissionIndexer permissionIndexer = mock(PermissionIndexer.class);
+  private UserPermissionCache userPermissionCache = mock(UserPermissionCache.class);
 
   private OrganizationDto organization;
   private ComponentDto privateProject;
@@ -68,7 +71,8 @@ public class PermissionTemplateServiceTest {
   private UserDto user;
   private UserDto creator;
 
-  private PermissionTemplateService underTest = new PermissionTemplateService(dbTester.getDbClient(), permissionIndexer, userSession, defaultTemplatesResolver);
+  private PermissionTemplateService underTest = new PermissionTemplateService(dbTester.getDbClient(), permissionIndexer, userSession, defaultTemplatesResolver,
+    userPermissionCache);
 
   @Before
   public void setUp() throws Exception {
@@ -80,6 +84,26 @@ public class PermissionTemplateServiceTest {
     creator = dbTester.users().insertUser();
   }
 
+  @Test
+  public void apply_invalidates_cache_of_user_permissions() {
+    PermissionTemplateDto permissionTemplate = dbTester.permissionTemplates().insertTemplate(organization);
+    dbTester.permissionTemplates().addUserToTemplate(permissionTemplate, user, "p1");
+
+    underTest.apply(session, permissionTemplate, singletonList(privateProject));
+
+    verify(userPermissionCache).invalidateAll();
+  }
+
+  @Test
+  public void applyDefault_invalidates_cache_of_user_permissions() {
+    PermissionTemplateDto permissionTemplate = dbTester.permissionTemplates().insertTemplate(organization);
+    dbTester.organizations().setDefaultTemplates(organization, permissionTemplate.getUuid(), null);
+
+    underTest.applyDefault(session, organization.getUuid(), privateProject, creator.getId());
+
+    verify(userPermissionCache).invalidateAll();
+  }
+
   @Test
   public void apply_does_not_insert_permission_to_group_AnyOne_when_applying_template_on_private_project() {
     PermissionTemplateDto permissionTemplate = dbTester.permissionTemplates().insertTemplate(organization);
@@ -0,0 +1,168 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.db.user.GroupDto;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.permission.index.PermissionIndexerDao.Dto;
+import org.sonar.server.tester.MockUserSession;
+
+import static org.sonar.server.permission.index.FooIndexDefinition.FOO_INDEX;
+import static org.sonar.server.permission.index.FooIndexDefinition.FOO_TYPE;
+
+/**
+ * Compares the latency of a search filtered by the join on the "authorization" parent type with the latency
+ * of the same search filtered on the uuids of the projects returned by {@link ProjectAuthorizationCache}.
+ * The user can browse one project out of ten through a group, and one project out of a hundred is public.
+ * It is not executed by the build. Run it with {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AuthorizationFilterBenchmark {
+
+  private static final int USER_ID = 1;
+  private static final int GROUP_ID = 2;
+
+  @Param({"1000", "20000"})
+  private int projects;
+
+  @Param({"20"})
+  private int docsPerProject;
+
+  private final BenchmarkEsTester esTester = new BenchmarkEsTester();
+  private EsClient esClient;
+  private AuthorizationTypeSupport joinFilter;
+  private AuthorizationTypeSupport denormalizedFilter;
+
+  @Setup
+  public void setUp() throws Throwable {
+    esTester.start();
+    esClient = esTester.client();
+
+    List<Dto> authorizations = new ArrayList<>(projects);
+    BulkIndexer bulkIndexer = new BulkIndexer(esClient, FOO_INDEX, BulkIndexer.Size.LARGE);
+    bulkIndexer.start();
+    for (int p = 0; p < projects; p++) {
+      String projectUuid = "P" + p;
+      Dto dto = new Dto(projectUuid, 0L, "TRK");
+      if (p % 100 == 0) {
+        dto.allowAnyone();
+      } else if (p % 10 == 0) {
+        dto.addGroupId(GROUP_ID);
+      } else {
+        dto.addUserId(USER_ID + 1 + p % 50);
+      }
+      authorizations.add(dto);
+      for (int d = 0; d < docsPerProject; d++) {
+        bulkIndexer.add(new IndexRequest(FOO_INDEX, FOO_TYPE)
+          .routing(projectUuid)
+          .parent(projectUuid)
+          .source(ImmutableMap.of(FooIndexDefinition.FIELD_NAME, d % 2 == 0 ? "bar" : "baz", FooIndexDefinition.FIELD_PROJECT_UUID, projectUuid)));
+      }
+    }
+    bulkIndexer.stop();
+
+    ProjectAuthorizationCache cache = new ProjectAuthorizationCache(() -> authorizations, System2.INSTANCE);
+    new PermissionIndexer(null, esClient, cache, new FooIndexer(esClient)).index(authorizations);
+
+    MockUserSession userSession = new MockUserSession("john").setUserId(USER_ID).setGroups(new GroupDto().setId(GROUP_ID));
+    joinFilter = new AuthorizationTypeSupport(userSession);
+    denormalizedFilter = new AuthorizationTypeSupport(userSession,
+      new MapSettings().setProperty(AuthorizationTypeSupport.DENORMALIZED_FILTER_PROPERTY, true), cache);
+  }
+
+  @TearDown
+  public void tearDown() {
+    esTester.stop();
+  }
+
+  @Benchmark
+  public long join() {
+    return search(joinFilter);
+  }
+
+  @Benchmark
+  public long denormalized() {
+    return search(denormalizedFilter);
+  }
+
+  private long search(AuthorizationTypeSupport authorizationTypeSupport) {
+    return esClient.prepareSearch(FOO_INDEX)
+      .setTypes(FOO_TYPE)
+      .setQuery(QueryBuilders.boolQuery()
+        .must(QueryBuilders.termQuery(FooIndexDefinition.FIELD_NAME, "bar"))
+        .filter(authorizationTypeSupport.createQueryFilter()))
+      .setSize(100)
+      .get()
+      .getHits()
+      .getTotalHits();
+  }
+
+  private static class BenchmarkEsTester extends EsTester {
+    BenchmarkEsTester() {
+      super(new FooIndexDefinition());
+    }
+
+    void start() throws Throwable {
+      before();
+    }
+
+    void stop() {
+      after();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(AuthorizationFilterBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
@@ -24,11 +24,17 @@ import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.config.MapSettings;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.GroupTesting;
 import org.sonar.server.tester.UserSessionRule;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 import static org.sonar.test.JsonAssert.assertJson;
 
 public class AuthorizationTypeSupportTest {
@@ -36,6 +42,8 @@ public class AuthorizationTypeSupportTest {
   @Rule
   public UserSessionRule userSession = UserSessionRule.standalone();
 
+  private ProjectAuthorizationCache projectAuthorizationCache = mock(ProjectAuthorizationCache.class);
+  private MapSettings settings = new MapSettings();
   private AuthorizationTypeSupport underTest = new AuthorizationTypeSupport(userSession);
 
   @Test
@@ -150,4 +158,57 @@ public class AuthorizationTypeSupportTest {
       "  }" +
       "}");
   }
+
+  @Test
+  public void createQueryFilter_joins_authorization_type_if_denormalized_filter_is_disabled() {
+    userSession.logIn().setUserId(1234);
+    underTest = new AuthorizationTypeSupport(userSession, settings, projectAuthorizationCache);
+
+    assertThat(underTest.createQueryFilter()).isInstanceOf(HasParentQueryBuilder.class);
+    verifyZeroInteractions(projectAuthorizationCache);
+  }
+
+  @Test
+  public void createQueryFilter_sets_filter_on_uuids_of_readable_projects_if_denormalized_filter_is_enabled() {
+    GroupDto group1 = GroupTesting.newGroupDto().setId(10);
+    GroupDto group2 = GroupTesting.newGroupDto().setId(11);
+    userSession.logIn().setUserId(1234).setGroups(group1, group2);
+    when(projectAuthorizationCache.getReadableProjectUuids(1234, asList(10, 11))).thenReturn(asList("P1", "P2"));
+    settings.setProperty(AuthorizationTypeSupport.DENORMALIZED_FILTER_PROPERTY, true);
+    underTest = new AuthorizationTypeSupport(userSession, settings, projectAuthorizationCache);
+
+    QueryBuilder filter = underTest.createQueryFilter();
+
+    assertJson(filter.toString()).isSimilarTo("{" +
+      "  \"terms\": {" +
+      "    \"_routing\": [\"P1\", \"P2\"]" +
+      "  }" +
+      "}");
+  }
+
+  @Test
+  public void createQueryFilter_sets_filter_on_uuids_of_public_projects_if_denormalized_filter_is_enabled_and_user_is_anonymous() {
+    userSession.anonymous();
+    when(projectAuthorizationCache.getReadableProjectUuids(null, emptyList())).thenReturn(asList("P1"));
+    settings.setProperty(AuthorizationTypeSupport.DENORMALIZED_FILTER_PROPERTY, true);
+    underTest = new AuthorizationTypeSupport(userSession, settings, projectAuthorizationCache);
+
+    QueryBuilder filter = underTest.createQueryFilter();
+
+    assertJson(filter.toString()).isSimilarTo("{" +
+      "  \"terms\": {" +
+      "    \"_routing\": [\"P1\"]" +
+      "  }" +
+      "}");
+  }
+
+  @Test
+  public void createQueryFilter_does_not_use_cache_of_authorizations_if_user_is_flagged_as_root() {
+    userSession.logIn().setRoot();
+    settings.setProperty(AuthorizationTypeSupport.DENORMALIZED_FILTER_PROPERTY, true);
+    underTest = new AuthorizationTypeSupport(userSession, settings, projectAuthorizationCache);
+
+    assertThat(underTest.createQueryFilter()).isInstanceOf(MatchAllQueryBuilder.class);
+    verifyZeroInteractions(projectAuthorizationCache);
+  }
 }
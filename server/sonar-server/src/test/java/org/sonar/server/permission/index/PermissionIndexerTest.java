@@ -19,9 +19,11 @@
  */
 package org.sonar.server.permission.index;
 
+import java.util.Collections;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDbTester;
@@ -54,9 +56,12 @@ public class PermissionIndexerTest {
 
   private ComponentDbTester componentDbTester = new ComponentDbTester(dbTester);
   private UserDbTester userDbTester = new UserDbTester(dbTester);
+  private ProjectAuthorizationCache projectAuthorizationCache = new ProjectAuthorizationCache(dbTester.getDbClient(), System2.INSTANCE);
   private FooIndex fooIndex = new FooIndex(esTester.client(), new AuthorizationTypeSupport(userSession));
+  private FooIndex denormalizedFooIndex = new FooIndex(esTester.client(), new AuthorizationTypeSupport(userSession,
+    new MapSettings().setProperty(AuthorizationTypeSupport.DENORMALIZED_FILTER_PROPERTY, true), projectAuthorizationCache));
   private FooIndexer fooIndexer = new FooIndexer(esTester.client());
-  private PermissionIndexer underTest = new PermissionIndexer(dbTester.getDbClient(), esTester.client(), fooIndexer);
+  private PermissionIndexer underTest = new PermissionIndexer(dbTester.getDbClient(), esTester.client(), projectAuthorizationCache, fooIndexer);
 
   @Test
   public void initalizeOnStartup_grants_access_to_any_user_and_to_group_Anyone_on_public_projects() {
@@ -209,6 +214,32 @@ public class PermissionIndexerTest {
     assertThat(esTester.countDocuments(INDEX_TYPE_FOO_AUTH)).isEqualTo(1);
   }
 
+  @Test
+  public void deleteProject_invalidates_cache_of_authorizations() {
+    ComponentDto project = createAndIndexPublicProject();
+    indexOnStartup();
+    verifyAnyoneAuthorized(project);
+
+    dbTester.getDbClient().componentDao().delete(dbTester.getSession(), project.getId());
+    dbTester.commit();
+    underTest.deleteProject(project.uuid());
+
+    assertThat(projectAuthorizationCache.getReadableProjectUuids(null, Collections.emptyList())).isEmpty();
+  }
+
+  @Test
+  public void indexProjectsByUuids_invalidates_cache_of_authorizations() {
+    ComponentDto project = createAndIndexPrivateProject();
+    UserDto user = userDbTester.insertUser();
+    indexOnStartup();
+    verifyNotAuthorized(project, user);
+
+    userDbTester.insertProjectPermissionOnUser(user, USER, project);
+    underTest.indexProjectsByUuids(dbTester.getSession(), Collections.singletonList(project.uuid()));
+
+    verifyAuthorized(project, user);
+  }
+
   @Test
   public void indexProject_does_nothing_because_authorizations_are_triggered_outside_standard_indexer_lifecycle() {
     ComponentDto project = createAndIndexPublicProject();
@@ -270,6 +301,7 @@ public class PermissionIndexerTest {
 
   private void verifyAuthorized(ComponentDto project, boolean expectedAccess) {
     assertThat(fooIndex.hasAccessToProject(project.uuid())).isEqualTo(expectedAccess);
+    assertThat(denormalizedFooIndex.hasAccessToProject(project.uuid())).isEqualTo(expectedAccess);
   }
 
   private UserSessionRule log_in(UserDto u) {
@@ -27,6 +27,7 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.es.EsTester;
 
 import static java.util.Arrays.asList;
+import static org.mockito.Mockito.mock;
 
 public class PermissionIndexerTester {
 
@@ -34,7 +35,7 @@ public class PermissionIndexerTester {
 
   public PermissionIndexerTester(EsTester esTester, NeedAuthorizationIndexer indexer, NeedAuthorizationIndexer... others) {
     NeedAuthorizationIndexer[] indexers = Stream.concat(Stream.of(indexer), Arrays.stream(others)).toArray(NeedAuthorizationIndexer[]::new);
-    this.permissionIndexer = new PermissionIndexer(null, esTester.client(), indexers);
+    this.permissionIndexer = new PermissionIndexer(null, esTester.client(), mock(ProjectAuthorizationCache.class), indexers);
   }
 
   public PermissionIndexerTester allowOnlyAnyone(ComponentDto project) {
@@ -0,0 +1,123 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.server.permission.index.PermissionIndexerDao.Dto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectAuthorizationCacheTest {
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+  private List<Dto> authorizations = new ArrayList<>();
+  private AtomicInteger loads = new AtomicInteger();
+  private ProjectAuthorizationCache underTest = new ProjectAuthorizationCache(() -> {
+    loads.incrementAndGet();
+    return new ArrayList<>(authorizations);
+  }, system2);
+
+  @Test
+  public void anonymous_can_read_only_public_projects() {
+    addPublicProject("P1");
+    addProject("P2").addUserId(10);
+    addProject("P3").addGroupId(100);
+
+    assertThat(underTest.getReadableProjectUuids(null, emptyList())).containsExactly("P1");
+  }
+
+  @Test
+  public void user_can_read_public_projects_and_projects_granted_to_user_or_groups() {
+    addPublicProject("P1");
+    addProject("P2").addUserId(10);
+    addProject("P3").addGroupId(100);
+    addProject("P4").addGroupId(101).addUserId(11);
+    addProject("P5");
+
+    assertThat(underTest.getReadableProjectUuids(10, emptyList())).containsExactly("P1", "P2");
+    assertThat(underTest.getReadableProjectUuids(10, asList(100, 101))).containsExactly("P1", "P2", "P3", "P4");
+    assertThat(underTest.getReadableProjectUuids(12, asList(100))).containsExactly("P1", "P3");
+    assertThat(underTest.getReadableProjectUuids(11, emptyList())).containsExactly("P1", "P4");
+  }
+
+  @Test
+  public void authorizations_are_loaded_once() {
+    addProject("P1").addUserId(10);
+
+    underTest.getReadableProjectUuids(10, emptyList());
+    underTest.getReadableProjectUuids(10, emptyList());
+    underTest.getReadableProjectUuids(null, asList(100));
+
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidate_reloads_authorizations() {
+    addProject("P1").addUserId(10);
+    assertThat(underTest.getReadableProjectUuids(10, emptyList())).containsExactly("P1");
+
+    addProject("P2").addUserId(10);
+    assertThat(underTest.getReadableProjectUuids(10, emptyList())).containsExactly("P1");
+
+    underTest.invalidate();
+    assertThat(underTest.getReadableProjectUuids(10, emptyList())).containsExactly("P1", "P2");
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void authorizations_are_reloaded_when_outdated() {
+    addProject("P1").addUserId(10);
+    assertThat(underTest.getReadableProjectUuids(10, emptyList())).containsExactly("P1");
+
+    addProject("P2").addUserId(10);
+    system2.setNow(1_000L + ProjectAuthorizationCache.TTL_MS);
+    assertThat(underTest.getReadableProjectUuids(10, emptyList())).containsExactly("P1");
+
+    system2.setNow(1_000L + ProjectAuthorizationCache.TTL_MS + 1);
+    assertThat(underTest.getReadableProjectUuids(10, emptyList())).containsExactly("P1", "P2");
+  }
+
+  @Test
+  public void order_of_groups_does_not_matter() {
+    addProject("P1").addGroupId(100);
+    addProject("P2").addGroupId(101);
+
+    assertThat(underTest.getReadableProjectUuids(null, asList(101, 100))).containsExactly("P1", "P2");
+    assertThat(underTest.getReadableProjectUuids(null, asList(100, 101))).containsExactly("P1", "P2");
+  }
+
+  private Dto addPublicProject(String uuid) {
+    Dto dto = addProject(uuid);
+    dto.allowAnyone();
+    return dto;
+  }
+
+  private Dto addProject(String uuid) {
+    Dto dto = new Dto(uuid, 0L, "TRK");
+    authorizations.add(dto);
+    return dto;
+  }
+}
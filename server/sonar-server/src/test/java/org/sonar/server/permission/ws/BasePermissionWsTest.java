@@ -36,6 +36,7 @@ import org.sonar.server.permission.PermissionUpdater;
 import org.sonar.server.permission.UserPermissionChanger;
 import org.sonar.server.permission.index.PermissionIndexer;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.usergroups.DefaultGroupFinder;
 import org.sonar.server.usergroups.ws.GroupWsSupport;
 import org.sonar.server.ws.TestRequest;
@@ -80,7 +81,8 @@ public abstract class BasePermissionWsTest<A extends PermissionsWsAction> {
     return new PermissionUpdater(db.getDbClient(),
       mock(PermissionIndexer.class),
       new UserPermissionChanger(db.getDbClient()),
-      new GroupPermissionChanger(db.getDbClient()));
+      new GroupPermissionChanger(db.getDbClient()),
+      new UserPermissionCache());
   }
 
   protected TestRequest newRequest() {
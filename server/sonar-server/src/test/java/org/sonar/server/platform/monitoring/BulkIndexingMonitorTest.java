@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.server.es.BulkIndexingStats;
+import org.sonar.server.es.EsClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkIndexingMonitorTest {
+
+  private BulkIndexingStats stats = mock(BulkIndexingStats.class);
+  private EsClient esClient = mock(EsClient.class);
+  private BulkIndexingMonitor underTest;
+
+  @Test
+  public void name() {
+    underTest = new BulkIndexingMonitor(esClient);
+
+    assertThat(underTest.name()).isEqualTo("Elasticsearch Bulk Indexing");
+  }
+
+  @Test
+  public void attributes() {
+    when(esClient.getBulkIndexingStats()).thenReturn(stats);
+    when(stats.getBulks()).thenReturn(3L);
+    when(stats.getIndexedDocuments()).thenReturn(1_000L);
+    when(stats.getBytes()).thenReturn(2_048L);
+    when(stats.getRejectedDocuments()).thenReturn(10L);
+    when(stats.getFailedDocuments()).thenReturn(1L);
+    when(stats.getDocumentsPerSecond()).thenReturn(500L);
+    when(stats.getBytesPerSecond()).thenReturn(1_024L);
+    underTest = new BulkIndexingMonitor(esClient);
+
+    Map<String, Object> attributes = underTest.attributes();
+
+    assertThat(attributes).containsExactly(
+      entry("Bulk Requests", 3L),
+      entry("Indexed Documents", 1_000L),
+      entry("Indexed Size", "2 KB"),
+      entry("Rejected Documents", 10L),
+      entry("Failed Documents", 1L),
+      entry("Documents per Second", 500L),
+      entry("Size per Second", "1 KB"));
+    assertThat(underTest.getIndexedBytes()).isEqualTo(2_048L);
+    assertThat(underTest.getBytesPerSecond()).isEqualTo(1_024L);
+  }
+}
@@ -38,6 +38,7 @@ import org.sonar.server.platform.ServerId;
 import org.sonar.server.platform.ServerIdLoader;
 import org.sonar.server.platform.ServerLogging;
 import org.sonar.server.user.SecurityRealmFactory;
+import org.sonar.server.user.UserPermissionCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.data.MapEntry.entry;
@@ -61,9 +62,10 @@ public class SonarQubeMonitorTest {
   ServerIdLoader serverIdLoader = mock(ServerIdLoader.class, RETURNS_DEEP_STUBS);
   ServerLogging serverLogging = mock(ServerLogging.class);
   SecurityRealmFactory securityRealmFactory = mock(SecurityRealmFactory.class);
+  UserPermissionCache userPermissionCache = mock(UserPermissionCache.class);
 
   SonarQubeMonitor underTest = new SonarQubeMonitor(settings, securityRealmFactory, identityProviderRepository, server,
-    serverLogging, serverIdLoader);
+    serverLogging, serverIdLoader, userPermissionCache);
 
   @Before
   public void setUp() throws Exception {
@@ -108,6 +110,18 @@ public class SonarQubeMonitorTest {
     assertThat(attributes).doesNotContainKeys(SERVER_ID_PROPERTY, SERVER_ID_VALIDATED_PROPERTY);
   }
 
+  @Test
+  public void attributes_contain_statistics_of_permission_cache() {
+    when(userPermissionCache.getHitCount()).thenReturn(12L);
+    when(userPermissionCache.getMissCount()).thenReturn(3L);
+    when(userPermissionCache.size()).thenReturn(2L);
+
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat(attributes).contains(entry("Permission Cache Hits", 12L), entry("Permission Cache Misses", 3L), entry("Permission Cache Size", 2L));
+    assertThat(underTest.getPermissionCacheHitCount()).isEqualTo(12L);
+    assertThat(underTest.getPermissionCacheMissCount()).isEqualTo(3L);
+  }
+
   @Test
   public void official_distribution() throws Exception {
     File rootDir = temp.newFolder();
@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Collections;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.server.es.IndexType;
+import org.sonar.server.es.StartupIndexingStatus;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StartupIndexingMonitorTest {
+
+  private static final IndexType TYPE_1 = new IndexType("issues", "issue");
+  private static final IndexType TYPE_2 = new IndexType("rules", "rule");
+  private static final IndexType TYPE_3 = new IndexType("users", "user");
+
+  private System2 system2 = mock(System2.class);
+  private StartupIndexingStatus status = new StartupIndexingStatus(system2);
+  private StartupIndexingMonitor underTest = new StartupIndexingMonitor(status, system2);
+
+  @Test
+  public void name_is_not_empty() {
+    assertThat(underTest.name()).isNotEmpty();
+  }
+
+  @Test
+  public void no_attributes_if_no_type_is_indexed_on_startup() {
+    assertThat(underTest.attributes()).isEmpty();
+  }
+
+  @Test
+  public void attributes_contain_state_and_duration_of_each_type() {
+    status.setPending(asList(TYPE_1, TYPE_2, TYPE_3));
+    when(system2.now()).thenReturn(1_000L);
+    status.setInProgress(Collections.singletonList(TYPE_1));
+    status.setInProgress(Collections.singletonList(TYPE_2));
+    when(system2.now()).thenReturn(1_500L);
+    status.setDone(Collections.singletonList(TYPE_1));
+    when(system2.now()).thenReturn(3_000L);
+
+    assertThat(underTest.attributes()).containsExactly(
+      entry("issues/issue", "DONE (500 ms)"),
+      entry("rules/rule", "IN_PROGRESS (2000 ms)"),
+      entry("users/user", "PENDING"));
+  }
+
+  @Test
+  public void attributes_contain_failed_types() {
+    when(system2.now()).thenReturn(1_000L);
+    status.setPending(Collections.singletonList(TYPE_1));
+    status.setInProgress(Collections.singletonList(TYPE_1));
+    when(system2.now()).thenReturn(1_200L);
+    status.setFailed(Collections.singletonList(TYPE_1));
+
+    assertThat(underTest.attributes()).containsExactly(entry("issues/issue", "FAILED (200 ms)"));
+  }
+}
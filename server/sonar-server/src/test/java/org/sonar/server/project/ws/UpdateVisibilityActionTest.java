@@ -53,6 +53,7 @@ import org.sonar.server.organization.BillingValidations;
 import org.sonar.server.organization.BillingValidationsProxy;
 import org.sonar.server.permission.index.PermissionIndexer;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.WsActionTester;
 
@@ -92,7 +93,7 @@ public class UpdateVisibilityActionTest {
   private BillingValidationsProxy billingValidations = mock(BillingValidationsProxy.class);
 
   private UpdateVisibilityAction underTest = new UpdateVisibilityAction(dbClient, TestComponentFinder.from(dbTester), userSessionRule, permissionIndexer,
-    new ProjectsWsSupport(dbClient, billingValidations));
+    new ProjectsWsSupport(dbClient, billingValidations), new UserPermissionCache());
   private WsActionTester actionTester = new WsActionTester(underTest);
 
   private final Random random = new Random();
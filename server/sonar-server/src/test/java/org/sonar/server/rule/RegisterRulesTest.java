@@ -23,7 +23,10 @@ import java.util.Date;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.api.SonarQubeSide;
+import org.sonar.api.SonarRuntime;
 import org.sonar.api.config.MapSettings;
+import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Languages;
 import org.sonar.api.rule.RuleKey;
@@ -33,6 +36,7 @@ import org.sonar.api.server.debt.DebtRemediationFunction;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.Version;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.db.DbClient;
@@ -47,6 +51,7 @@ import org.sonar.server.es.EsTester;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.organization.OrganizationFlags;
 import org.sonar.server.organization.TestOrganizationFlags;
+import org.sonar.server.property.InternalProperties;
 import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
 import org.sonar.server.qualityprofile.index.ActiveRuleIteratorFactory;
@@ -93,6 +98,7 @@ public class RegisterRulesTest {
   private RuleIndex ruleIndex;
   private OrganizationDto defaultOrganization;
   private OrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
+  private SonarRuntime runtime = SonarRuntimeImpl.forSonarQube(Version.create(6, 5), SonarQubeSide.SERVER);
 
   @Before
   public void before() {
@@ -481,13 +487,91 @@ public class RegisterRulesTest {
     assertThat(logTester.logs(LoggerLevel.INFO)).contains("Template rule test:rule1 will not be imported, because organizations are enabled.");
   }
 
+  @Test
+  public void skip_repositories_which_have_not_changed() {
+    execute(new FakeRepositoryV1(), new FindbugsRepository());
+    assertThat(hasLog(LoggerLevel.INFO, "Register 2 rules of repository fake")).isTrue();
+    assertThat(hasLog(LoggerLevel.INFO, "Register 1 rules of repository findbugs")).isTrue();
+    assertThat(dbClient.internalPropertiesDao().selectByKey(dbTester.getSession(), InternalProperties.RULES_FINGERPRINTS).get())
+      .startsWith("fake=")
+      .contains("\nfindbugs=");
+
+    logTester.clear();
+    logTester.setLevel(LoggerLevel.DEBUG);
+    when(system.now()).thenReturn(DATE2.getTime());
+    execute(new FakeRepositoryV2(), new FindbugsRepository());
+
+    assertThat(hasLog(LoggerLevel.INFO, "Register 2 rules of repository fake")).isTrue();
+    assertThat(hasLog(LoggerLevel.INFO, "Register 1 rules of repository findbugs")).isFalse();
+    assertThat(hasLog(LoggerLevel.DEBUG, "Rules of repository findbugs are up-to-date")).isTrue();
+    assertThat(dbClient.ruleDao().selectOrFailDefinitionByKey(dbTester.getSession(), RULE_KEY1).getName()).isEqualTo("One v2");
+    assertThat(dbClient.ruleDao().selectOrFailDefinitionByKey(dbTester.getSession(), RuleKey.of("findbugs", "rule1")).getStatus())
+      .isEqualTo(RuleStatus.READY);
+  }
+
+  @Test
+  public void register_all_repositories_when_server_is_upgraded() {
+    execute(new FakeRepositoryV1(), new FindbugsRepository());
+
+    logTester.clear();
+    runtime = SonarRuntimeImpl.forSonarQube(Version.create(6, 6), SonarQubeSide.SERVER);
+    execute(new FakeRepositoryV1(), new FindbugsRepository());
+
+    assertThat(hasLog(LoggerLevel.INFO, "Register 2 rules of repository fake")).isTrue();
+    assertThat(hasLog(LoggerLevel.INFO, "Register 1 rules of repository findbugs")).isTrue();
+  }
+
+  @Test
+  public void register_repository_which_has_not_changed_if_its_rules_are_missing_in_db() {
+    execute(new FakeRepositoryV1());
+    RuleDefinitionDto rule1 = dbClient.ruleDao().selectOrFailDefinitionByKey(dbTester.getSession(), RULE_KEY1);
+    dbClient.ruleDao().update(dbTester.getSession(), rule1.setStatus(RuleStatus.REMOVED));
+    dbTester.getSession().commit();
+
+    execute(new FakeRepositoryV1());
+
+    assertThat(dbClient.ruleDao().selectOrFailDefinitionByKey(dbTester.getSession(), RULE_KEY1).getStatus()).isEqualTo(RuleStatus.BETA);
+  }
+
+  @Test
+  public void register_repository_which_has_not_changed_if_it_has_other_enabled_rules_in_db() {
+    execute(new FindbugsRepository());
+    dbClient.ruleDao().insert(dbTester.getSession(), new RuleDefinitionDto()
+      .setRuleKey("unknown")
+      .setRepositoryKey("findbugs")
+      .setName("Unknown")
+      .setDescription("Unknown rule")
+      .setDescriptionFormat(RuleDto.Format.HTML)
+      .setType(RuleType.CODE_SMELL)
+      .setStatus(RuleStatus.READY));
+    dbTester.getSession().commit();
+
+    execute(new FindbugsRepository());
+
+    assertThat(dbClient.ruleDao().selectOrFailDefinitionByKey(dbTester.getSession(), RuleKey.of("findbugs", "unknown")).getStatus())
+      .isEqualTo(RuleStatus.REMOVED);
+  }
+
+  @Test
+  public void register_repository_which_has_not_changed_if_organizations_have_been_enabled() {
+    execute(new RepositoryWithOneTemplateRule());
+    assertThat(dbClient.ruleDao().selectAllDefinitions(dbTester.getSession())).hasSize(1);
+
+    organizationFlags.enable(dbTester.getSession());
+    execute(new RepositoryWithOneTemplateRule());
+
+    assertThat(dbClient.ruleDao().selectOrFailDefinitionByKey(dbTester.getSession(), RuleKey.of("test", "rule1")).getStatus())
+      .isEqualTo(RuleStatus.REMOVED);
+  }
+
   private void execute(RulesDefinition... defs) {
     RuleDefinitionsLoader loader = new RuleDefinitionsLoader(mock(DeprecatedRulesDefinitionLoader.class), mock(CommonRuleDefinitionsImpl.class), defs);
     Languages languages = mock(Languages.class);
     when(languages.get("java")).thenReturn(mock(Language.class));
     reset(webServerRuleFinder);
 
-    RegisterRules task = new RegisterRules(loader, ruleActivator, dbClient, ruleIndexer, activeRuleIndexer, languages, system, organizationFlags, webServerRuleFinder);
+    RegisterRules task = new RegisterRules(loader, ruleActivator, dbClient, ruleIndexer, activeRuleIndexer, languages, system, organizationFlags, webServerRuleFinder,
+      runtime);
     task.start();
     // Execute a commit to refresh session state as the task is using its own session
     dbTester.getSession().commit();
@@ -495,6 +579,10 @@ public class RegisterRulesTest {
     verify(webServerRuleFinder).startCaching();
   }
 
+  private boolean hasLog(LoggerLevel level, String prefix) {
+    return logTester.logs(level).stream().anyMatch(log -> log.startsWith(prefix));
+  }
+
   private RuleParamDto getParam(List<RuleParamDto> params, String key) {
     for (RuleParamDto param : params) {
       if (param.getName().equals(key)) {
@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.util.List;
+import org.junit.Test;
+import org.sonar.api.server.rule.RulesDefinition;
+
+import static com.google.common.collect.Lists.reverse;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuleRepositoryFingerprintTest {
+
+  private static final String SERVER_VERSION = "6.5";
+
+  @Test
+  public void fingerprint_does_not_depend_on_order_of_rules() {
+    List<RulesDefinition.Rule> rules = rules(new RegisterRulesTest.FakeRepositoryV1());
+
+    assertThat(RuleRepositoryFingerprint.of(rules, SERVER_VERSION, false)).isEqualTo(RuleRepositoryFingerprint.of(reverse(rules), SERVER_VERSION, false));
+  }
+
+  @Test
+  public void fingerprint_is_the_same_for_the_same_definitions() {
+    assertThat(RuleRepositoryFingerprint.of(rules(new RegisterRulesTest.FakeRepositoryV1()), SERVER_VERSION, false))
+      .isEqualTo(RuleRepositoryFingerprint.of(rules(new RegisterRulesTest.FakeRepositoryV1()), SERVER_VERSION, false));
+  }
+
+  @Test
+  public void fingerprint_changes_when_definitions_change() {
+    assertThat(RuleRepositoryFingerprint.of(rules(new RegisterRulesTest.FakeRepositoryV1()), SERVER_VERSION, false))
+      .isNotEqualTo(RuleRepositoryFingerprint.of(rules(new RegisterRulesTest.FakeRepositoryV2()), SERVER_VERSION, false));
+  }
+
+  @Test
+  public void fingerprint_changes_when_organizations_are_enabled() {
+    List<RulesDefinition.Rule> rules = rules(new RegisterRulesTest.FakeRepositoryV1());
+
+    assertThat(RuleRepositoryFingerprint.of(rules, SERVER_VERSION, false)).isNotEqualTo(RuleRepositoryFingerprint.of(rules, SERVER_VERSION, true));
+  }
+
+  @Test
+  public void fingerprint_changes_when_server_is_upgraded() {
+    List<RulesDefinition.Rule> rules = rules(new RegisterRulesTest.FakeRepositoryV1());
+
+    assertThat(RuleRepositoryFingerprint.of(rules, "6.5", false)).isNotEqualTo(RuleRepositoryFingerprint.of(rules, "6.6", false));
+  }
+
+  @Test
+  public void fingerprint_changes_when_param_changes() {
+    RulesDefinition.Context context1 = new RulesDefinition.Context();
+    RulesDefinition.NewRepository repo1 = context1.createRepository("fake", "java");
+    repo1.createRule("rule1").setName("One").setHtmlDescription("Desc").createParam("param1").setDefaultValue("1");
+    repo1.done();
+    RulesDefinition.Context context2 = new RulesDefinition.Context();
+    RulesDefinition.NewRepository repo2 = context2.createRepository("fake", "java");
+    repo2.createRule("rule1").setName("One").setHtmlDescription("Desc").createParam("param1").setDefaultValue("2");
+    repo2.done();
+
+    assertThat(RuleRepositoryFingerprint.of(context1.repository("fake").rules(), SERVER_VERSION, false))
+      .isNotEqualTo(RuleRepositoryFingerprint.of(context2.repository("fake").rules(), SERVER_VERSION, false));
+  }
+
+  private static List<RulesDefinition.Rule> rules(RulesDefinition definition) {
+    RulesDefinition.Context context = new RulesDefinition.Context();
+    definition.define(context);
+    return context.repository("fake").rules();
+  }
+}
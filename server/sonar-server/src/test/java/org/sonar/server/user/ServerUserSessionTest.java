@@ -512,8 +512,51 @@ public class ServerUserSessionTest {
     session.checkIsSystemAdministrator();
   }
 
+  @Test
+  public void permissions_are_shared_by_sessions_of_same_user() {
+    UserPermissionCache permissionCache = new UserPermissionCache();
+    db.users().insertPermissionOnUser(organization, user, PROVISION_PROJECTS);
+    addProjectPermissions(privateProject, UserRole.USER);
+
+    assertThat(newUserSession(permissionCache, user).hasPermission(PROVISION_PROJECTS, organization)).isTrue();
+    assertThat(newUserSession(permissionCache, user).hasComponentPermission(UserRole.USER, privateProject)).isTrue();
+    db.users().deletePermissionFromUser(organization, user, PROVISION_PROJECTS);
+
+    assertThat(newUserSession(permissionCache, user).hasPermission(PROVISION_PROJECTS, organization)).isTrue();
+    assertThat(newUserSession(permissionCache, user).hasComponentPermission(UserRole.USER, privateProject)).isTrue();
+    assertThat(permissionCache.getHitCount()).isEqualTo(2);
+    assertThat(permissionCache.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void permissions_are_reloaded_when_cache_is_invalidated() {
+    UserPermissionCache permissionCache = new UserPermissionCache();
+    db.users().insertPermissionOnUser(organization, user, PROVISION_PROJECTS);
+    assertThat(newUserSession(permissionCache, user).hasPermission(PROVISION_PROJECTS, organization)).isTrue();
+
+    db.users().deletePermissionFromUser(organization, user, PROVISION_PROJECTS);
+    permissionCache.invalidateAll();
+
+    assertThat(newUserSession(permissionCache, user).hasPermission(PROVISION_PROJECTS, organization)).isFalse();
+  }
+
+  @Test
+  public void permissions_are_not_shared_by_users_with_different_groups() {
+    UserPermissionCache permissionCache = new UserPermissionCache();
+    db.users().insertPermissionOnGroup(groupOfUser, PROVISION_PROJECTS);
+    assertThat(newUserSession(permissionCache, user).hasPermission(PROVISION_PROJECTS, organization)).isFalse();
+
+    db.users().insertMember(groupOfUser, user);
+
+    assertThat(newUserSession(permissionCache, user).hasPermission(PROVISION_PROJECTS, organization)).isTrue();
+  }
+
   private ServerUserSession newUserSession(@Nullable UserDto userDto) {
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, userDto);
+    return newUserSession(new UserPermissionCache(), userDto);
+  }
+
+  private ServerUserSession newUserSession(UserPermissionCache permissionCache, @Nullable UserDto userDto) {
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, permissionCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.base.Ticker;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+import org.sonar.db.permission.OrganizationPermission;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.sonar.db.permission.OrganizationPermission.ADMINISTER;
+import static org.sonar.db.permission.OrganizationPermission.SCAN;
+
+public class UserPermissionCacheTest {
+
+  private static final String ORGANIZATION_UUID = "ORG1";
+  private static final String PROJECT_UUID = "PROJECT1";
+
+  private FakeTicker ticker = new FakeTicker();
+  private UserPermissionCache underTest = new UserPermissionCache(ticker);
+  private AtomicInteger loads = new AtomicInteger();
+  private Function<String, Set<OrganizationPermission>> organizationLoader = uuid -> {
+    loads.incrementAndGet();
+    return of(ADMINISTER, SCAN);
+  };
+  private Function<String, Set<String>> projectLoader = uuid -> {
+    loads.incrementAndGet();
+    return of("user", "codeviewer");
+  };
+
+  @Test
+  public void load_permissions_only_once_for_same_user_and_groups() {
+    assertThat(underTest.getOrganizationPermissions(1, asList(10, 11), ORGANIZATION_UUID, organizationLoader)).containsOnly(ADMINISTER, SCAN);
+    assertThat(underTest.getOrganizationPermissions(1, asList(11, 10), ORGANIZATION_UUID, organizationLoader)).containsOnly(ADMINISTER, SCAN);
+    assertThat(underTest.getProjectPermissions(1, asList(10, 11), PROJECT_UUID, projectLoader)).containsOnly("user", "codeviewer");
+    assertThat(underTest.getProjectPermissions(1, asList(10, 11), PROJECT_UUID, projectLoader)).containsOnly("user", "codeviewer");
+
+    assertThat(loads.get()).isEqualTo(2);
+    assertThat(underTest.getHitCount()).isEqualTo(2);
+    assertThat(underTest.getMissCount()).isEqualTo(2);
+    assertThat(underTest.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void permissions_are_cached_per_user_groups_and_uuid() {
+    underTest.getOrganizationPermissions(1, singletonList(10), ORGANIZATION_UUID, organizationLoader);
+    underTest.getOrganizationPermissions(2, singletonList(10), ORGANIZATION_UUID, organizationLoader);
+    underTest.getOrganizationPermissions(1, asList(10, 11), ORGANIZATION_UUID, organizationLoader);
+    underTest.getOrganizationPermissions(1, singletonList(10), "ORG2", organizationLoader);
+    underTest.getOrganizationPermissions(null, emptyList(), ORGANIZATION_UUID, organizationLoader);
+    underTest.getOrganizationPermissions(null, emptyList(), ORGANIZATION_UUID, organizationLoader);
+
+    assertThat(loads.get()).isEqualTo(5);
+    assertThat(underTest.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void permissions_expire_after_ttl() {
+    underTest.getOrganizationPermissions(1, emptyList(), ORGANIZATION_UUID, organizationLoader);
+    ticker.advanceMs(UserPermissionCache.TTL_MS - 1);
+    underTest.getOrganizationPermissions(1, emptyList(), ORGANIZATION_UUID, organizationLoader);
+    assertThat(loads.get()).isEqualTo(1);
+
+    ticker.advanceMs(1);
+    underTest.getOrganizationPermissions(1, emptyList(), ORGANIZATION_UUID, organizationLoader);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidateAll_drops_all_permissions() {
+    underTest.getOrganizationPermissions(1, emptyList(), ORGANIZATION_UUID, organizationLoader);
+    underTest.getProjectPermissions(1, emptyList(), PROJECT_UUID, projectLoader);
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.size()).isZero();
+    underTest.getOrganizationPermissions(1, emptyList(), ORGANIZATION_UUID, organizationLoader);
+    underTest.getProjectPermissions(1, emptyList(), PROJECT_UUID, projectLoader);
+    assertThat(loads.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void permissions_loaded_before_invalidateAll_are_not_cached() {
+    Set<String> permissions = underTest.getProjectPermissions(1, emptyList(), PROJECT_UUID, uuid -> {
+      // permissions are revoked while being loaded
+      underTest.invalidateAll();
+      return of("user");
+    });
+
+    assertThat(permissions).containsOnly("user");
+    assertThat(underTest.size()).isZero();
+    underTest.getProjectPermissions(1, emptyList(), PROJECT_UUID, projectLoader);
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void failure_of_loader_is_propagated_and_not_cached() {
+    try {
+      underTest.getProjectPermissions(1, emptyList(), PROJECT_UUID, uuid -> {
+        throw new IllegalArgumentException("DB is down");
+      });
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("DB is down");
+    }
+
+    assertThat(underTest.getProjectPermissions(1, emptyList(), PROJECT_UUID, projectLoader)).containsOnly("user", "codeviewer");
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos = 0L;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advanceMs(long ms) {
+      nanos += ms * 1_000_000L;
+    }
+  }
+}
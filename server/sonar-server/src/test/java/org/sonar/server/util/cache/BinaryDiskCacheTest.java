@@ -0,0 +1,172 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import java.io.IOException;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.CloseableIterator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class BinaryDiskCacheTest {
+
+  private static final ObjectCodec<String> STRING_CODEC = new ObjectCodec<String>() {
+    @Override
+    public void encode(String object, BinaryDiskCache.Output output) throws IOException {
+      output.writeSharedString(object);
+    }
+
+    @Override
+    public String decode(BinaryDiskCache.Input input) throws IOException {
+      return input.readSharedString();
+    }
+  };
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void write_and_read() throws Exception {
+    verifyWriteAndRead(false);
+  }
+
+  @Test
+  public void write_and_read_compressed() throws Exception {
+    verifyWriteAndRead(true);
+  }
+
+  private void verifyWriteAndRead(boolean compressed) throws IOException {
+    BinaryDiskCache<String> cache = new BinaryDiskCache<>(temp.newFile(), System2.INSTANCE, STRING_CODEC, compressed);
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+
+    cache.newAppender()
+      .append("foo")
+      .append("bar")
+      .append("foo")
+      .close();
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("foo", "bar", "foo");
+    }
+  }
+
+  @Test
+  public void read_objects_written_by_several_appenders() throws Exception {
+    verifySeveralAppenders(false);
+  }
+
+  @Test
+  public void read_objects_written_by_several_compressed_appenders() throws Exception {
+    verifySeveralAppenders(true);
+  }
+
+  private void verifySeveralAppenders(boolean compressed) throws IOException {
+    BinaryDiskCache<String> cache = new BinaryDiskCache<>(temp.newFile(), System2.INSTANCE, STRING_CODEC, compressed);
+    cache.newAppender().append("foo").append("bar").close();
+    // empty segment
+    cache.newAppender().close();
+    cache.newAppender().append("bar").append(null).append("baz").close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse.next()).isEqualTo("foo");
+      assertThat(traverse.next()).isEqualTo("bar");
+      assertThat(traverse.next()).isEqualTo("bar");
+      // null can not be returned by iterator, as it means the end of the cache
+      assertThat(traverse.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void share_instances_of_strings_in_a_segment() throws Exception {
+    BinaryDiskCache<String> cache = new BinaryDiskCache<>(temp.newFile(), System2.INSTANCE, STRING_CODEC, true);
+    cache.newAppender().append("foo").append("foo").close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse.next()).isSameAs(traverse.next());
+    }
+  }
+
+  @Test
+  public void write_and_read_large_strings_and_var_ints() throws Exception {
+    String largeString = StringUtils.repeat("éà", 100_000);
+    BinaryDiskCache<Object[]> cache = new BinaryDiskCache<>(temp.newFile(), System2.INSTANCE, new ObjectCodec<Object[]>() {
+      @Override
+      public void encode(Object[] object, BinaryDiskCache.Output output) throws IOException {
+        output.writeString((String) object[0]);
+        output.writeVarInt((Integer) object[1]);
+      }
+
+      @Override
+      public Object[] decode(BinaryDiskCache.Input input) throws IOException {
+        return new Object[] {input.readString(), input.readVarInt()};
+      }
+    }, true);
+    cache.newAppender()
+      .append(new Object[] {largeString, Integer.MAX_VALUE})
+      .append(new Object[] {null, 0})
+      .append(new Object[] {"", 300})
+      .close();
+
+    try (CloseableIterator<Object[]> traverse = cache.traverse()) {
+      assertThat(traverse.next()).containsExactly(largeString, Integer.MAX_VALUE);
+      assertThat(traverse.next()).containsExactly(null, 0);
+      assertThat(traverse.next()).containsExactly("", 300);
+      assertThat(traverse.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void fail_if_file_is_not_writable() throws Exception {
+    try {
+      new BinaryDiskCache<>(temp.newFolder(), System2.INSTANCE, STRING_CODEC, false);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("Fail to write into file");
+    }
+  }
+
+  @Test
+  public void fail_to_encode() throws Exception {
+    BinaryDiskCache<String> cache = new BinaryDiskCache<>(temp.newFile(), System2.INSTANCE, new ObjectCodec<String>() {
+      @Override
+      public void encode(String object, BinaryDiskCache.Output output) throws IOException {
+        throw new IOException("expected error");
+      }
+
+      @Override
+      public String decode(BinaryDiskCache.Input input) {
+        throw new UnsupportedOperationException();
+      }
+    }, false);
+    try {
+      cache.newAppender().append("foo");
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("Fail to write into file");
+      assertThat(e.getCause()).hasMessage("expected error");
+    }
+  }
+}
@@ -27,4 +27,7 @@ public interface PurgeConstants {
   String WEEKS_BEFORE_KEEPING_ONLY_ONE_SNAPSHOT_BY_MONTH = "sonar.dbcleaner.weeksBeforeKeepingOnlyOneSnapshotByMonth";
   String WEEKS_BEFORE_DELETING_ALL_SNAPSHOTS = "sonar.dbcleaner.weeksBeforeDeletingAllSnapshots";
   String DAYS_BEFORE_DELETING_CLOSED_ISSUES = "sonar.dbcleaner.daysBeforeDeletingClosedIssues";
+  String BACKGROUND_PURGE = "sonar.dbcleaner.backgroundPurge";
+  String BACKGROUND_PURGE_MAX_SECONDS = "sonar.dbcleaner.backgroundPurgeMaxSeconds";
+  String BACKGROUND_PURGE_MAX_ROWS_PER_SECOND = "sonar.dbcleaner.backgroundPurgeMaxRowsPerSecond";
 }
@@ -100,6 +100,40 @@ public final class PurgeProperties {
         .category(CoreProperties.CATEGORY_GENERAL)
         .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
         .index(6)
+        .build(),
+
+      PropertyDefinition.builder(PurgeConstants.BACKGROUND_PURGE)
+        .defaultValue("false")
+        .name("Purge in background")
+        .description("If set to true, the history of projects is purged by a dedicated background task instead of during "
+          + "the processing of the analysis report. Tasks of a project are processed one at a time, so the processing of "
+          + "the next analysis report of the project may be delayed until the purge task completes.")
+        .type(PropertyType.BOOLEAN)
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(7)
+        .build(),
+
+      PropertyDefinition.builder(PurgeConstants.BACKGROUND_PURGE_MAX_SECONDS)
+        .defaultValue("60")
+        .name("Max duration of a background purge")
+        .description("Maximum number of seconds spent by a background purge task. Remaining data is purged by a new task. "
+          + "It is also the maximum delay of the processing of the next analysis report of the project. Zero means no limit.")
+        .type(PropertyType.INTEGER)
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(8)
+        .build(),
+
+      PropertyDefinition.builder(PurgeConstants.BACKGROUND_PURGE_MAX_ROWS_PER_SECOND)
+        .defaultValue("0")
+        .name("Max rows purged per second in background")
+        .description("Maximum number of database rows deleted or updated per second by a background purge task. "
+          + "Zero means no limit.")
+        .type(PropertyType.INTEGER)
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(9)
         .build()
       );
   }
@@ -51,6 +51,7 @@ public class ProgressLogger {
    * Warning, does not check if already started.
    */
   public void start() {
+    task.startedAt = System.currentTimeMillis();
     // first log after {periodMs} milliseconds
     timer.schedule(task, periodMs, periodMs);
   }
@@ -84,6 +85,19 @@ public class ProgressLogger {
     return task.pluralLabel;
   }
 
+  /**
+   * Expected final value of the counter. When set, logs include the
+   * estimated remaining time. Default is 0, meaning unknown.
+   */
+  public ProgressLogger setTotal(long l) {
+    task.total = l;
+    return this;
+  }
+
+  public long getTotal() {
+    return task.total;
+  }
+
   public void log() {
     task.log();
   }
@@ -93,6 +107,8 @@ public class ProgressLogger {
     private final Logger logger;
     private String pluralLabel = "rows";
     private long previousCounter = 0L;
+    private long total = 0L;
+    private long startedAt = 0L;
 
     private LoggerTimerTask(AtomicLong counter, Logger logger) {
       this.counter = counter;
@@ -106,8 +122,32 @@ public class ProgressLogger {
 
     private void log() {
       long current = counter.get();
-      logger.info(String.format("%d %s processed (%d items/sec)", current, pluralLabel, 1000 * (current - previousCounter) / periodMs));
+      long itemsPerSec = 1000 * (current - previousCounter) / periodMs;
+      if (total > 0L) {
+        logger.info(String.format("%d/%d %s processed (%d items/sec, ETA %s)", current, total, pluralLabel, itemsPerSec, formatEta(current)));
+      } else {
+        logger.info(String.format("%d %s processed (%d items/sec)", current, pluralLabel, itemsPerSec));
+      }
       previousCounter = current;
     }
+
+    /**
+     * The estimation is based on the average throughput since start, which is
+     * more stable than the throughput of the last period.
+     */
+    private String formatEta(long current) {
+      if (current <= 0L || startedAt == 0L) {
+        return "unknown";
+      }
+      long elapsedMs = System.currentTimeMillis() - startedAt;
+      long remainingSec = Math.max(0L, total - current) * elapsedMs / current / 1000L;
+      if (remainingSec >= 3600L) {
+        return String.format("%dh%02dmin", remainingSec / 3600L, (remainingSec % 3600L) / 60L);
+      }
+      if (remainingSec >= 60L) {
+        return String.format("%dmin%02ds", remainingSec / 60L, remainingSec % 60L);
+      }
+      return String.format("%ds", remainingSec);
+    }
   }
 }
@@ -53,6 +53,24 @@ public class ProgressLoggerTest {
     assertThat(hasInfoLog("43 rows processed")).isTrue();
   }
 
+  @Test
+  public void log_estimated_remaining_time_when_total_is_known() {
+    AtomicLong counter = new AtomicLong(0L);
+    ProgressLogger progress = new ProgressLogger("ProgressLoggerTest", counter, Loggers.get(getClass()))
+      .setTotal(10L)
+      .setPluralLabel("types");
+    progress.start();
+
+    progress.log();
+    assertThat(hasInfoLog("0/10 types processed")).isTrue();
+    assertThat(logTester.logs(LoggerLevel.INFO).get(0)).endsWith("ETA unknown)");
+
+    counter.set(10L);
+    progress.log();
+    progress.stop();
+    assertThat(logTester.logs(LoggerLevel.INFO).get(1)).startsWith("10/10 types processed").endsWith("ETA 0s)");
+  }
+
   @Test
   public void create() {
     ProgressLogger progress = ProgressLogger.create(getClass(), new AtomicLong());
@@ -60,6 +78,7 @@ public class ProgressLoggerTest {
     // default values
     assertThat(progress.getPeriodMs()).isEqualTo(60000L);
     assertThat(progress.getPluralLabel()).isEqualTo("rows");
+    assertThat(progress.getTotal()).isEqualTo(0L);
 
     // override values
     progress.setPeriodMs(10L);
@@ -44,6 +44,11 @@ import javax.annotation.Nullable;
  * <p>
  * Note that this implementation currently does not support deletion, however it's possible to implement.
  * </p>
+ * <p>
+ * Once sorted, which happens on the first query following an insertion, the index is not modified by queries anymore:
+ * {@link #getByResourceId(String)}, {@link #getBySequenceHash(ByteArray)} and {@link #iterator()} can then be called
+ * concurrently from several threads, as long as no block is inserted.
+ * </p>
  */
 public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
@@ -70,8 +75,6 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
   private int[] resourceIdsIndex;
 
-  private final Block.Builder blockBuilder = Block.builder();
-
   public PackedMemoryCloneIndex() {
     this(8, DEFAULT_INITIAL_CAPACITY);
   }
@@ -100,24 +103,22 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   public Collection<Block> getByResourceId(String resourceId) {
     ensureSorted();
 
-    // prepare resourceId for binary search
-    resourceIds[size] = resourceId;
-    resourceIdsIndex[size] = size;
-
-    int index = DataUtils.binarySearch(byResourceId);
+    int index = lowerBoundByResourceId(resourceId);
 
+    Block.Builder blockBuilder = Block.builder();
     List<Block> result = new ArrayList<>();
-    int realIndex = resourceIdsIndex[index];
-    while (index < size && FastStringComparator.INSTANCE.compare(resourceIds[realIndex], resourceId) == 0) {
-      result.add(getBlock(realIndex, resourceId));
-
+    while (index < size) {
+      int realIndex = resourceIdsIndex[index];
+      if (FastStringComparator.INSTANCE.compare(resourceIds[realIndex], resourceId) != 0) {
+        break;
+      }
+      result.add(getBlock(blockBuilder, realIndex, resourceId));
       index++;
-      realIndex = resourceIdsIndex[index];
     }
     return result;
   }
 
-  private Block createBlock(int index, String resourceId, @Nullable ByteArray byteHash) {
+  private Block createBlock(Block.Builder blockBuilder, int index, String resourceId, @Nullable ByteArray byteHash) {
     int offset = index * blockInts;
     ByteArray blockHash;
 
@@ -147,11 +148,12 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
       .build();
   }
 
-  private Block getBlock(int index, String resourceId) {
-    return createBlock(index, resourceId, null);
+  private Block getBlock(Block.Builder blockBuilder, int index, String resourceId) {
+    return createBlock(blockBuilder, index, resourceId, null);
   }
 
   private class ResourceIterator implements Iterator<ResourceBlocks> {
+    private final Block.Builder blockBuilder = Block.builder();
     private int index = 0;
 
     @Override
@@ -170,7 +172,7 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
       // while we are at the same resource, keep going
       do {
-        blocks.add(getBlock(resourceIdsIndex[index], resourceId));
+        blocks.add(getBlock(blockBuilder, resourceIdsIndex[index], resourceId));
         index++;
       } while (hasNext() && FastStringComparator.INSTANCE.compare(resourceIds[resourceIdsIndex[index]], resourceId) == 0);
 
@@ -217,23 +219,19 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
     ensureSorted();
 
-    // prepare hash for binary search
     int[] hash = sequenceHash.toIntArray();
     if (hash.length != hashInts) {
       throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
     }
-    int offset = size * blockInts;
-    for (int i = 0; i < hashInts; i++) {
-      blockData[offset++] = hash[i];
-    }
 
-    int index = DataUtils.binarySearch(byBlockHash);
+    int index = lowerBoundByHash(hash);
 
+    Block.Builder blockBuilder = Block.builder();
     List<Block> result = new ArrayList<>();
-    while (index < size && !isLessByHash(size, index)) {
+    while (index < size && compareHash(index, hash) == 0) {
       // extract block (note that there is no need to extract hash)
       String resourceId = resourceIds[index];
-      result.add(createBlock(index, resourceId, sequenceHash));
+      result.add(createBlock(blockBuilder, index, resourceId, sequenceHash));
       index++;
     }
     return result;
@@ -309,6 +307,55 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     sorted = true;
   }
 
+  /**
+   * Binary search of the first position, in order of resource ids, of a block with the specified resource id.
+   * No sentinel value is written to the index, so that concurrent queries are possible.
+   */
+  private int lowerBoundByResourceId(String resourceId) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (FastStringComparator.INSTANCE.compare(resourceIds[resourceIdsIndex[mid]], resourceId) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
+  /**
+   * Binary search of the first position of a block with the specified hash.
+   * No sentinel value is written to the index, so that concurrent queries are possible.
+   */
+  private int lowerBoundByHash(int[] hash) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (compareHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
+  private int compareHash(int index, int[] hash) {
+    int offset = index * blockInts;
+    for (int k = 0; k < hashInts; k++, offset++) {
+      if (blockData[offset] < hash[k]) {
+        return -1;
+      }
+      if (blockData[offset] > hash[k]) {
+        return 1;
+      }
+    }
+    return 0;
+  }
+
   private boolean isLessByHash(int i, int j) {
     int i2 = i * blockInts;
     int j2 = j * blockInts;
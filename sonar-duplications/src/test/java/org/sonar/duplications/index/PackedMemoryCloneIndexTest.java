@@ -28,6 +28,10 @@ import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -142,6 +146,38 @@ public class PackedMemoryCloneIndexTest {
     index.getBySequenceHash(new ByteArray(1L));
   }
 
+  /**
+   * Given: sorted index.
+   * Expected: queries executed concurrently return the same results as sequential ones.
+   */
+  @Test
+  public void should_support_concurrent_queries_once_sorted() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      index.insert(newBlock("resource" + (i % 100), i % 10));
+    }
+    assertThat(index.noResources()).isEqualTo(100);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executorService.submit(() -> {
+          boolean valid = true;
+          for (int i = 0; i < 1000; i++) {
+            valid &= index.getBySequenceHash(new ByteArray((long) (i % 10))).size() == 100;
+            valid &= index.getByResourceId("resource" + (i % 100)).size() == 10;
+          }
+          return valid;
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        assertThat(future.get()).isTrue();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
   private static Block newBlock(String resourceId, long hash) {
     return Block.builder()
         .setResourceId(resourceId)
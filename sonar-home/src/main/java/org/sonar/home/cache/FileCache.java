@@ -21,6 +21,7 @@ package org.sonar.home.cache;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import javax.annotation.CheckForNull;
 
@@ -73,6 +74,16 @@ public class FileCache {
     void download(String filename, File toFile) throws IOException;
   }
 
+  /**
+   * Opens the stream of the file to be downloaded. Contrary to {@link Downloader}, the hash
+   * of the file is computed while it is being written to the cache.
+   *
+   * @since 6.5
+   */
+  public interface StreamDownloader {
+    InputStream download(String filename) throws IOException;
+  }
+
   public File get(String filename, String hash, Downloader downloader) {
     // Does not fail if another process tries to create the directory at the same time.
     File hashDir = hashDir(hash);
@@ -81,16 +92,36 @@ public class FileCache {
       File tempFile = newTempFile();
       download(downloader, filename, tempFile);
       String downloadedHash = hashes.of(tempFile);
-      if (!hash.equals(downloadedHash)) {
-        throw new IllegalStateException("INVALID HASH: File " + tempFile.getAbsolutePath() + " was expected to have hash " + hash
-          + " but was downloaded with hash " + downloadedHash);
-      }
-      mkdirQuietly(hashDir);
-      renameQuietly(tempFile, targetFile);
+      moveToCache(hash, downloadedHash, tempFile, targetFile);
+    }
+    return targetFile;
+  }
+
+  /**
+   * Same as {@link #get(String, String, Downloader)}, but the downloaded stream is hashed on the fly.
+   * Can be called concurrently.
+   *
+   * @since 6.5
+   */
+  public File get(String filename, String hash, StreamDownloader downloader) {
+    File targetFile = new File(hashDir(hash), filename);
+    if (!targetFile.exists()) {
+      File tempFile = newTempFile();
+      String downloadedHash = hashes.copyAndHash(download(downloader, filename, tempFile), tempFile);
+      moveToCache(hash, downloadedHash, tempFile, targetFile);
     }
     return targetFile;
   }
 
+  private void moveToCache(String expectedHash, String downloadedHash, File tempFile, File targetFile) {
+    if (!expectedHash.equals(downloadedHash)) {
+      throw new IllegalStateException("INVALID HASH: File " + tempFile.getAbsolutePath() + " was expected to have hash " + expectedHash
+        + " but was downloaded with hash " + downloadedHash);
+    }
+    mkdirQuietly(targetFile.getParentFile());
+    renameQuietly(tempFile, targetFile);
+  }
+
   private static void download(Downloader downloader, String filename, File tempFile) {
     try {
       downloader.download(filename, tempFile);
@@ -99,6 +130,14 @@ public class FileCache {
     }
   }
 
+  private static InputStream download(StreamDownloader downloader, String filename, File tempFile) {
+    try {
+      return downloader.download(filename);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to download " + filename + " to " + tempFile, e);
+    }
+  }
+
   private void renameQuietly(File sourceFile, File targetFile) {
     boolean rename = sourceFile.renameTo(targetFile);
     // Check if the file was cached by another process during download
@@ -21,8 +21,10 @@ package org.sonar.home.cache;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 
@@ -34,6 +36,7 @@ import java.security.MessageDigest;
 public class FileHashes {
 
   private static final int STREAM_BUFFER_LENGTH = 1024;
+  private static final int COPY_BUFFER_LENGTH = 16 * 1024;
 
   public String of(File file) {
     try {
@@ -56,6 +59,28 @@ public class FileHashes {
     }
   }
 
+  /**
+   * Copies the given stream to a file and computes its hash at the same time, so that the file
+   * does not have to be read again. The stream is closed by this method.
+   *
+   * @since 6.5
+   */
+  public String copyAndHash(InputStream input, File toFile) {
+    try (InputStream is = input; OutputStream output = new FileOutputStream(toFile)) {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      byte[] buffer = new byte[COPY_BUFFER_LENGTH];
+      int read = is.read(buffer);
+      while (read > -1) {
+        digest.update(buffer, 0, read);
+        output.write(buffer, 0, read);
+        read = is.read(buffer);
+      }
+      return toHex(digest.digest());
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to copy stream to: " + toFile.getAbsolutePath(), e);
+    }
+  }
+
   private static byte[] digest(InputStream input, MessageDigest digest) throws IOException {
     final byte[] buffer = new byte[STREAM_BUFFER_LENGTH];
     int read = input.read(buffer, 0, STREAM_BUFFER_LENGTH);
@@ -19,8 +19,10 @@
  */
 package org.sonar.home.cache;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -30,6 +32,7 @@ import org.junit.rules.TemporaryFolder;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class FileCacheTest {
@@ -114,4 +117,36 @@ public class FileCacheTest {
     assertThat(cachedFile.getParentFile().getParentFile()).isEqualTo(cache.getDir());
     assertThat(FileUtils.readFileToString(cachedFile)).contains("downloaded by");
   }
+
+  @Test
+  public void download_stream_and_add_to_cache() throws IOException {
+    FileCache cache = FileCache.create(tempFolder.newFolder(), mock(Logger.class));
+    String hash = new FileHashes().of(new ByteArrayInputStream("body".getBytes(StandardCharsets.UTF_8)));
+
+    File cachedFile = cache.get("sonar-foo-plugin-1.5.jar", hash, filename -> new ByteArrayInputStream("body".getBytes(StandardCharsets.UTF_8)));
+    assertThat(cachedFile).isNotNull().exists().isFile();
+    assertThat(cachedFile.getName()).isEqualTo("sonar-foo-plugin-1.5.jar");
+    assertThat(cachedFile.getParentFile().getName()).isEqualTo(hash);
+    assertThat(FileUtils.readFileToString(cachedFile)).isEqualTo("body");
+  }
+
+  @Test
+  public void download_corrupted_stream() throws IOException {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("INVALID HASH");
+
+    FileCache cache = FileCache.create(tempFolder.newFolder(), mock(Logger.class));
+    cache.get("sonar-foo-plugin-1.5.jar", "ABCDE", filename -> new ByteArrayInputStream("corrupted body".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void do_not_download_stream_if_already_in_cache() throws IOException {
+    FileCache cache = FileCache.create(tempFolder.newFolder(), mock(Logger.class));
+    File cachedFile = new File(new File(cache.getDir(), "ABCDE"), "sonar-foo-plugin-1.5.jar");
+    FileUtils.write(cachedFile, "body");
+
+    FileCache.StreamDownloader downloader = mock(FileCache.StreamDownloader.class);
+    assertThat(cache.get("sonar-foo-plugin-1.5.jar", "ABCDE", downloader)).isEqualTo(cachedFile);
+    verifyZeroInteractions(downloader);
+  }
 }
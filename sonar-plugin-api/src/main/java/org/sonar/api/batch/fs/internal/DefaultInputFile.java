@@ -68,7 +68,10 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
     this.contents = contents;
   }
 
-  public void checkMetadata() {
+  /**
+   * Synchronized as metadata can be requested concurrently by sensors executed in parallel
+   */
+  public synchronized void checkMetadata() {
     if (metadata == null) {
       metadataGenerator.accept(this);
     }
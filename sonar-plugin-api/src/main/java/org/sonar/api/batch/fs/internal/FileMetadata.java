@@ -27,11 +27,15 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 
 import javax.annotation.CheckForNull;
@@ -56,6 +60,13 @@ public class FileMetadata {
 
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
+  private static final char REPLACEMENT_CHARACTER = '\ufffd';
+
+  /**
+   * Files smaller than this size are read in a heap buffer rather than being memory-mapped,
+   * as mapping is more expensive than reading for them.
+   */
+  private static final int MAPPING_THRESHOLD = 256 * 1024;
 
   public abstract static class CharHandler {
 
@@ -87,7 +98,7 @@ public class FileMetadata {
 
     @Override
     protected void handleAll(char c) {
-      if (!alreadyLoggedInvalidCharacter && c == '\ufffd') {
+      if (!alreadyLoggedInvalidCharacter && c == REPLACEMENT_CHARACTER) {
         LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", filePath,
           lines, encoding, CoreProperties.ENCODING_PROPERTY);
         alreadyLoggedInvalidCharacter = true;
@@ -290,6 +301,196 @@ public class FileMetadata {
     return readMetadata(stream, encoding, filePath, null);
   }
 
+  /**
+   * Same as {@link #readMetadata(InputStream, Charset, String, CharHandler)} for the content of the file starting
+   * at the given position (for example after a BOM). UTF-8 and US-ASCII files are scanned in a single pass over their
+   * bytes, without decoding chars. Other charsets, files with an additional handler and files with invalid content
+   * (which require the replacement character to be logged and hashed) use the decoding path.
+   */
+  public Metadata readMetadata(Path file, long position, Charset encoding, String filePath, @Nullable CharHandler otherHandler) {
+    if (otherHandler == null && (StandardCharsets.UTF_8.equals(encoding) || StandardCharsets.US_ASCII.equals(encoding))) {
+      Metadata metadata = readBytes(file, position, StandardCharsets.US_ASCII.equals(encoding), filePath, encoding);
+      if (metadata != null) {
+        return metadata;
+      }
+    }
+    try (InputStream stream = Files.newInputStream(file)) {
+      long skipped = 0;
+      while (skipped < position) {
+        skipped += stream.skip(position - skipped);
+      }
+      return readMetadata(stream, encoding, filePath, otherHandler);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", filePath, encoding), e);
+    }
+  }
+
+  @CheckForNull
+  private static Metadata readBytes(Path file, long position, boolean asciiOnly, String filePath, Charset encoding) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = Math.max(0L, channel.size() - position);
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalStateException("File is too big: " + size);
+      }
+      ByteBuffer bytes;
+      if (size < MAPPING_THRESHOLD) {
+        bytes = ByteBuffer.allocate((int) size);
+        while (bytes.hasRemaining() && channel.read(bytes, position + bytes.position()) >= 0) {
+          // read until the end of file
+        }
+        bytes.flip();
+      } else {
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      }
+      return new ByteScanner(bytes, asciiOnly).scan();
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", filePath, encoding), e);
+    }
+  }
+
+  /**
+   * Computes the same {@link Metadata} as {@link LineCounter}, {@link FileHashComputer} and {@link LineOffsetCounter}
+   * on the bytes of an UTF-8 or US-ASCII content. Line ends are detected on bytes, as the UTF-8 encoding of other
+   * characters never contains CR or LF. The hash is computed on the ranges of bytes between CR, as re-encoding
+   * the decoded chars would give back the same bytes. Offsets are counted in chars, so multi-byte sequences
+   * are decoded to count surrogate pairs and to detect whitespaces. Returns {@code null} on the first invalid
+   * sequence or replacement character.
+   */
+  private static class ByteScanner {
+    private final ByteBuffer bytes;
+    private final ByteBuffer range;
+    private final boolean asciiOnly;
+    private final MessageDigest md5Digest = DigestUtils.getMd5Digest();
+    private final IntArrayList lineOffsets = new IntArrayList();
+    private int lines = 1;
+    private int nonBlankLines = 0;
+    private boolean blankLine = true;
+    private int chars = 0;
+
+    ByteScanner(ByteBuffer bytes, boolean asciiOnly) {
+      this.bytes = bytes;
+      this.range = bytes.duplicate();
+      this.asciiOnly = asciiOnly;
+      lineOffsets.add(0);
+    }
+
+    @CheckForNull
+    Metadata scan() {
+      int length = bytes.limit();
+      int hashedUpTo = 0;
+      int i = 0;
+      while (i < length) {
+        int b = bytes.get(i) & 0xFF;
+        if (b == LINE_FEED) {
+          i++;
+          chars++;
+          newLine();
+        } else if (b == CARRIAGE_RETURN) {
+          // CR and CRLF are hashed as LF
+          hash(hashedUpTo, i);
+          md5Digest.update((byte) LINE_FEED);
+          i++;
+          chars++;
+          if (i < length && bytes.get(i) == LINE_FEED) {
+            i++;
+            chars++;
+          }
+          hashedUpTo = i;
+          newLine();
+        } else if (b < 0x80) {
+          blankLine &= Character.isWhitespace(b);
+          i++;
+          chars++;
+        } else {
+          int sequenceLength = asciiOnly ? 0 : sequenceLength(i, length);
+          if (sequenceLength == 0) {
+            return null;
+          }
+          int codePoint = codePoint(i, sequenceLength);
+          if (codePoint == REPLACEMENT_CHARACTER) {
+            return null;
+          }
+          blankLine &= Character.isWhitespace(codePoint);
+          i += sequenceLength;
+          chars += Character.charCount(codePoint);
+        }
+      }
+      hash(hashedUpTo, length);
+      if (!blankLine) {
+        nonBlankLines++;
+      }
+      return new Metadata(lines, nonBlankLines, Hex.encodeHexString(md5Digest.digest()), lineOffsets.trimAndGet(), chars);
+    }
+
+    private void newLine() {
+      lines++;
+      if (!blankLine) {
+        nonBlankLines++;
+      }
+      blankLine = true;
+      lineOffsets.add(chars);
+    }
+
+    private void hash(int start, int end) {
+      if (start < end) {
+        range.limit(end).position(start);
+        md5Digest.update(range);
+      }
+    }
+
+    /**
+     * Length of the well-formed UTF-8 sequence starting at the given index, as defined by the
+     * table 3-7 of the Unicode standard, or 0 if the sequence is ill-formed.
+     */
+    private int sequenceLength(int index, int length) {
+      int lead = bytes.get(index) & 0xFF;
+      int sequenceLength;
+      int secondMin = 0x80;
+      int secondMax = 0xBF;
+      if (lead >= 0xC2 && lead <= 0xDF) {
+        sequenceLength = 2;
+      } else if (lead >= 0xE0 && lead <= 0xEF) {
+        sequenceLength = 3;
+        if (lead == 0xE0) {
+          secondMin = 0xA0;
+        } else if (lead == 0xED) {
+          // surrogates
+          secondMax = 0x9F;
+        }
+      } else if (lead >= 0xF0 && lead <= 0xF4) {
+        sequenceLength = 4;
+        if (lead == 0xF0) {
+          secondMin = 0x90;
+        } else if (lead == 0xF4) {
+          secondMax = 0x8F;
+        }
+      } else {
+        return 0;
+      }
+      if (index + sequenceLength > length) {
+        return 0;
+      }
+      int second = bytes.get(index + 1) & 0xFF;
+      if (second < secondMin || second > secondMax) {
+        return 0;
+      }
+      for (int j = 2; j < sequenceLength; j++) {
+        if ((bytes.get(index + j) & 0xC0) != 0x80) {
+          return 0;
+        }
+      }
+      return sequenceLength;
+    }
+
+    private int codePoint(int index, int sequenceLength) {
+      int codePoint = bytes.get(index) & (0xFF >> (sequenceLength + 1));
+      for (int j = 1; j < sequenceLength; j++) {
+        codePoint = (codePoint << 6) | (bytes.get(index + j) & 0x3F);
+      }
+      return codePoint;
+    }
+  }
+
   /**
    * For testing purpose
    */
@@ -43,6 +43,16 @@ public abstract class BlameCommand {
    */
   public abstract void blame(BlameInput input, BlameOutput output);
 
+  /**
+   * Whether {@link #blame(BlameInput, BlameOutput)} can be called concurrently by several threads, each call
+   * receiving a different subset of the files to blame. In this case the scanner partitions the files
+   * and blames the chunks in parallel. Returns {@code false} by default.
+   * @since 6.5
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
+
   /**
    * Callback for the provider to report results of blame per file.
    */
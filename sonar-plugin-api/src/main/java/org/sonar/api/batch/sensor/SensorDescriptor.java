@@ -84,4 +84,11 @@ public interface SensorDescriptor {
    * @since 6.4
    */
   SensorDescriptor global();
+
+  /**
+   * This sensor can be executed concurrently with other thread-safe sensors, when parallel execution
+   * of sensors is enabled. It must not depend on data produced by other sensors.
+   * @since 6.5
+   */
+  SensorDescriptor threadSafe();
 }
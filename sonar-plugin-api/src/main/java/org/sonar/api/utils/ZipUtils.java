@@ -198,6 +198,20 @@ public final class ZipUtils {
     }
   }
 
+  /**
+   * Compresses the content of the directory into the stream, with the given compression level
+   * (see {@link java.util.zip.Deflater#setLevel(int)}). The stream is not closed.
+   *
+   * @since 6.5
+   */
+  public static void zipDir(File dir, OutputStream out, int compressionLevel) throws IOException {
+    ZipOutputStream zout = new ZipOutputStream(out);
+    zout.setLevel(compressionLevel);
+    doZipDir(dir, zout);
+    zout.finish();
+    zout.flush();
+  }
+
   private static void doZip(String entryName, InputStream in, ZipOutputStream out) throws IOException {
     ZipEntry entry = new ZipEntry(entryName);
     out.putNextEntry(entry);
@@ -299,4 +299,94 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void read_utf_8_and_ascii_files_without_decoding() throws Exception {
+    String[] contents = {
+      "",
+      "foo\r\nbar\rbaz\n\nqux",
+      "foo\r\r\n\r",
+      "  \t\n \u3000\n \nföo\r\nbàr\uD834\uDD1E\n",
+      "\ufefffoo\n\u0085\n"};
+    for (String content : contents) {
+      File tempFile = temp.newFile();
+      FileUtils.write(tempFile, content, StandardCharsets.UTF_8);
+      assertSameMetadata(tempFile, StandardCharsets.UTF_8);
+    }
+
+    File asciiFile = temp.newFile();
+    FileUtils.write(asciiFile, "foo\r\n\t \nbar\rbaz", StandardCharsets.US_ASCII);
+    assertSameMetadata(asciiFile, StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void read_big_file_without_decoding() throws Exception {
+    File tempFile = temp.newFile();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 50_000; i++) {
+      sb.append("line é ").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+    }
+    FileUtils.write(tempFile, sb.toString(), StandardCharsets.UTF_8);
+
+    assertSameMetadata(tempFile, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void read_file_from_position() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "\ufefffoo\nbar", StandardCharsets.UTF_8);
+
+    Metadata metadata = new FileMetadata().readMetadata(tempFile.toPath(), 3, StandardCharsets.UTF_8, tempFile.getName(), null);
+    assertThat(metadata.hash()).isEqualTo(md5Hex("foo\nbar"));
+    assertThat(metadata.originalLineOffsets()).containsOnly(0, 4);
+    assertThat(metadata.lastValidOffset()).isEqualTo(7);
+  }
+
+  @Test
+  public void decode_file_with_invalid_content() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "marker´s\n", Charset.forName("cp1252"));
+
+    Metadata metadata = new FileMetadata().readMetadata(tempFile.toPath(), 0, StandardCharsets.UTF_8, tempFile.getName(), null);
+    assertThat(metadata.hash()).isEqualTo(md5Hex("marker\ufffds\n"));
+    assertThat(logTester.logs(LoggerLevel.WARN).get(0)).contains("Invalid character encountered in file");
+
+    metadata = new FileMetadata().readMetadata(tempFile.toPath(), 0, StandardCharsets.US_ASCII, tempFile.getName(), null);
+    assertThat(metadata.hash()).isEqualTo(md5Hex("marker\ufffds\n"));
+
+    File truncated = temp.newFile();
+    FileUtils.writeByteArrayToFile(truncated, new byte[] {'a', (byte) 0xE2, (byte) 0x82});
+    assertSameMetadata(truncated, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void decode_file_with_other_handler() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "foo\nbar", StandardCharsets.UTF_8);
+    StringBuilder sb = new StringBuilder();
+
+    Metadata metadata = new FileMetadata().readMetadata(tempFile.toPath(), 0, StandardCharsets.UTF_8, tempFile.getName(), new FileMetadata.CharHandler() {
+      @Override
+      protected void handleAll(char c) {
+        sb.append(c);
+      }
+    });
+
+    assertThat(sb.toString()).isEqualTo("foo\nbar");
+    assertThat(metadata.lines()).isEqualTo(2);
+  }
+
+  private static void assertSameMetadata(File file, Charset encoding) throws Exception {
+    Metadata expected;
+    try (FileInputStream stream = new FileInputStream(file)) {
+      expected = new FileMetadata().readMetadata(stream, encoding, file.getName());
+    }
+    Metadata metadata = new FileMetadata().readMetadata(file.toPath(), 0, encoding, file.getName(), null);
+
+    assertThat(metadata.lines()).isEqualTo(expected.lines());
+    assertThat(metadata.nonBlankLines()).isEqualTo(expected.nonBlankLines());
+    assertThat(metadata.hash()).isEqualTo(expected.hash());
+    assertThat(metadata.originalLineOffsets()).isEqualTo(expected.originalLineOffsets());
+    assertThat(metadata.lastValidOffset()).isEqualTo(expected.lastValidOffset());
+  }
+
 }
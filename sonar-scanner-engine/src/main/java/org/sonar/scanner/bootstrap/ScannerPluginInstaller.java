@@ -20,7 +20,10 @@
 package org.sonar.scanner.bootstrap;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -29,7 +32,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.io.FileUtils;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.CharUtils;
 import org.apache.commons.lang.StringUtils;
@@ -49,20 +58,34 @@ import static java.lang.String.format;
 /**
  * Downloads the plugins installed on server and stores them in a local user cache
  * (see {@link FileCacheProvider}).
+ * <p>
+ * Plugins are downloaded and extracted concurrently, by at most {@link #THREADS_PROPERTY} threads. The HTTP
+ * connections of {@link ScannerWsClient} are pooled, so they are reused between downloads.
  */
 public class ScannerPluginInstaller implements PluginInstaller {
 
+  static final String THREADS_PROPERTY = "sonar.scanner.pluginDownload.threads";
+  static final int DEFAULT_THREADS = 4;
+
   private static final Logger LOG = Loggers.get(ScannerPluginInstaller.class);
   private static final String PLUGINS_INDEX_URL = "/deploy/plugins/index.txt";
 
   private final FileCache fileCache;
   private final ScannerPluginPredicate pluginPredicate;
   private final ScannerWsClient wsClient;
+  private final ScannerPluginJarExploder jarExploder;
+  private final GlobalProperties globalProperties;
+  private final AtomicInteger downloads = new AtomicInteger();
+  private final AtomicLong downloadTimeMs = new AtomicLong();
+  private final AtomicLong extractionTimeMs = new AtomicLong();
 
-  public ScannerPluginInstaller(ScannerWsClient wsClient, FileCache fileCache, ScannerPluginPredicate pluginPredicate) {
+  public ScannerPluginInstaller(ScannerWsClient wsClient, FileCache fileCache, ScannerPluginPredicate pluginPredicate,
+    ScannerPluginJarExploder jarExploder, GlobalProperties globalProperties) {
     this.fileCache = fileCache;
     this.pluginPredicate = pluginPredicate;
     this.wsClient = wsClient;
+    this.jarExploder = jarExploder;
+    this.globalProperties = globalProperties;
   }
 
   @Override
@@ -75,18 +98,77 @@ public class ScannerPluginInstaller implements PluginInstaller {
 
     Profiler profiler = Profiler.create(LOG).startDebug("Load plugins");
 
+    List<RemotePlugin> acceptedPlugins = new ArrayList<>(remotePlugins.size());
     for (RemotePlugin remotePlugin : remotePlugins) {
       if (pluginPredicate.apply(remotePlugin.getKey())) {
-        File jarFile = download(remotePlugin);
-        PluginInfo info = PluginInfo.create(jarFile);
-        infosByKey.put(info.getKey(), info);
+        acceptedPlugins.add(remotePlugin);
       }
     }
 
-    profiler.stopDebug();
+    for (PluginInfo info : installConcurrently(acceptedPlugins)) {
+      infosByKey.put(info.getKey(), info);
+    }
+
+    profiler
+      .addContext("plugins", infosByKey.size())
+      .addContext("downloaded", downloads.get())
+      .addContext("downloadTime", downloadTimeMs.get() + "ms")
+      .addContext("extractionTime", extractionTimeMs.get() + "ms")
+      .stopDebug();
     return infosByKey;
   }
 
+  private List<PluginInfo> installConcurrently(List<RemotePlugin> remotePlugins) {
+    if (remotePlugins.isEmpty()) {
+      return Collections.emptyList();
+    }
+    int threads = Math.min(getThreads(), remotePlugins.size());
+    ExecutorService executorService = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("plugin-download-%d").setDaemon(true).build());
+    try {
+      List<Future<PluginInfo>> futures = new ArrayList<>(remotePlugins.size());
+      for (RemotePlugin remotePlugin : remotePlugins) {
+        futures.add(executorService.submit(() -> install(remotePlugin)));
+      }
+      List<PluginInfo> infos = new ArrayList<>(remotePlugins.size());
+      for (Future<PluginInfo> future : futures) {
+        infos.add(future.get());
+      }
+      return infos;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while downloading plugins", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private PluginInfo install(RemotePlugin remotePlugin) {
+    File jarFile = download(remotePlugin);
+    PluginInfo info = PluginInfo.create(jarFile);
+    // extraction is done once for all in the user cache. Plugin loader will then only list the extracted libraries.
+    long start = System.nanoTime();
+    jarExploder.explode(info);
+    extractionTimeMs.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return info;
+  }
+
+  @VisibleForTesting
+  int getThreads() {
+    String value = globalProperties.property(THREADS_PROPERTY);
+    if (value == null) {
+      return DEFAULT_THREADS;
+    }
+    try {
+      int threads = Integer.parseInt(value.trim());
+      return threads < 1 ? DEFAULT_THREADS : threads;
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Property " + THREADS_PROPERTY + " must be an integer. Got: " + value, e);
+    }
+  }
+
   /**
    * Returns empty on purpose. This method is used only by tests.
    * @see org.sonar.scanner.mediumtest.ScannerMediumTester
@@ -139,7 +221,10 @@ public class ScannerPluginInstaller implements PluginInstaller {
     return str;
   }
 
-  private class FileDownloader implements FileCache.Downloader {
+  /**
+   * The returned stream is written to the cache and hashed at the same time by {@link FileCache}.
+   */
+  private class FileDownloader implements FileCache.StreamDownloader {
     private String key;
 
     FileDownloader(String key) {
@@ -147,17 +232,38 @@ public class ScannerPluginInstaller implements PluginInstaller {
     }
 
     @Override
-    public void download(String filename, File toFile) throws IOException {
+    public InputStream download(String filename) throws IOException {
       String url = format("/deploy/plugins/%s/%s", key, filename);
       if (LOG.isDebugEnabled()) {
-        LOG.debug("Download plugin {} to {}", filename, toFile);
+        LOG.debug("Download plugin {} of {}", filename, key);
       } else {
         LOG.info("Download {}", filename);
       }
 
+      downloads.incrementAndGet();
+      long start = System.nanoTime();
       WsResponse response = wsClient.call(new GetRequest(url));
-      try (InputStream stream = response.contentStream()) {
-        FileUtils.copyInputStreamToFile(stream, toFile);
+      return new TimedInputStream(response.contentStream(), start);
+    }
+  }
+
+  /**
+   * Counts the time spent until the downloaded stream is closed.
+   */
+  private class TimedInputStream extends FilterInputStream {
+    private final long start;
+
+    TimedInputStream(InputStream in, long start) {
+      super(in);
+      this.start = start;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        downloadTimeMs.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
       }
     }
   }
@@ -22,15 +22,20 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
@@ -56,6 +61,10 @@ import static com.google.common.collect.FluentIterable.from;
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module
  * by {@link CpdSensor). The sensor is responsible for handling exclusions and block sizes.
+ * <p>
+ * Detection of the duplications of each file can be executed concurrently on {@link #THREADS_PROPERTY} threads, as the
+ * index is not modified anymore. Duplications are always saved to the report in the order of the index.
+ * </p>
  */
 public class CpdExecutor {
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
@@ -63,6 +72,10 @@ public class CpdExecutor {
   private static final int TIMEOUT = 5 * 60 * 1000;
   static final int MAX_CLONE_GROUP_PER_FILE = 100;
   static final int MAX_CLONE_PART_PER_GROUP = 100;
+  static final String THREADS_PROPERTY = "sonar.cpd.threads";
+  private static final int DEFAULT_THREADS = 1;
+  // number of files for which detection can be submitted in advance, per thread
+  private static final int PENDING_FILES_PER_THREAD = 4;
 
   private final SonarCpdBlockIndex index;
   private final ReportPublisher publisher;
@@ -91,15 +104,26 @@ public class CpdExecutor {
     if (filesWithoutBlocks > 0) {
       LOG.info("{} {} had no CPD blocks", filesWithoutBlocks, pluralize(filesWithoutBlocks));
     }
+    int threads = getThreads();
     progressReport.start(String.format("Calculating CPD for %d %s", total, pluralize(total)));
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    ExecutorService executorService = createExecutorService(threads);
     try {
       Iterator<ResourceBlocks> it = index.iterator();
+      Deque<FileDetection> pendingDetections = new ArrayDeque<>();
+      int maxPendingDetections = threads * PENDING_FILES_PER_THREAD;
 
       while (it.hasNext()) {
         ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks(), timeout);
-        count++;
+        FileDetection detection = submitCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks());
+        if (detection != null) {
+          pendingDetections.add(detection);
+        }
+        if (pendingDetections.size() >= maxPendingDetections) {
+          saveCpdAnalysis(pendingDetections.poll(), timeout);
+        }
+      }
+      while (!pendingDetections.isEmpty()) {
+        saveCpdAnalysis(pendingDetections.poll(), timeout);
       }
       progressReport.stop("CPD calculation finished");
     } catch (Exception e) {
@@ -110,29 +134,78 @@ public class CpdExecutor {
     }
   }
 
+  private static ExecutorService createExecutorService(int threads) {
+    if (threads == 1) {
+      return Executors.newSingleThreadExecutor();
+    }
+    LOG.info("Calculating CPD using {} threads", threads);
+    return Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("cpd-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  @VisibleForTesting
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    return threads < 1 ? DEFAULT_THREADS : threads;
+  }
+
   private static String pluralize(int files) {
     return files == 1 ? "file" : "files";
   }
 
   @VisibleForTesting
   void runCpdAnalysis(ExecutorService executorService, String componentKey, final Collection<Block> fileBlocks, long timeout) {
+    FileDetection detection = submitCpdAnalysis(executorService, componentKey, fileBlocks);
+    if (detection != null) {
+      saveCpdAnalysis(detection, timeout);
+    }
+  }
+
+  @CheckForNull
+  private FileDetection submitCpdAnalysis(ExecutorService executorService, String componentKey, final Collection<Block> fileBlocks) {
     DefaultInputComponent component = (DefaultInputComponent) componentStore.getByKey(componentKey);
     if (component == null) {
       LOG.error("Resource not found in component store: {}. Skipping CPD computation for it", componentKey);
-      return;
+      count++;
+      return null;
+    }
+
+    FileDetection detection = new FileDetection(component);
+    detection.futureResult = executorService.submit(() -> {
+      detection.onStarted();
+      return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
+    });
+    return detection;
+  }
+
+  /**
+   * The timeout applies to the detection itself, starting when a thread starts to execute it, and not to
+   * the time spent in the queue of the executor. Detection is still abandoned if no thread starts it
+   * before the timeout, for example when all threads are busy with abandoned detections.
+   */
+  private static List<CloneGroup> awaitResult(FileDetection detection, long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+    if (!detection.started.await(timeout, TimeUnit.MILLISECONDS)) {
+      throw new TimeoutException();
     }
+    long remaining = detection.startedAt + timeout - System.currentTimeMillis();
+    return detection.futureResult.get(Math.max(remaining, 0L), TimeUnit.MILLISECONDS);
+  }
 
+  private void saveCpdAnalysis(FileDetection detection, long timeout) {
+    DefaultInputComponent component = detection.component;
     InputFile inputFile = (InputFile) component;
     LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
+    count++;
 
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
     try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+      duplications = awaitResult(detection, timeout);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      futureResult.cancel(true);
+      detection.futureResult.cancel(true);
       return;
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
@@ -221,4 +294,21 @@ public class CpdExecutor {
     }
     return dupBuilder.build();
   }
+
+  private static final class FileDetection {
+    private final DefaultInputComponent component;
+    private final CountDownLatch started = new CountDownLatch(1);
+    // written before the count down of started
+    private long startedAt;
+    private Future<List<CloneGroup>> futureResult;
+
+    private FileDetection(DefaultInputComponent component) {
+      this.component = component;
+    }
+
+    private void onStarted() {
+      startedAt = System.currentTimeMillis();
+      started.countDown();
+    }
+  }
 }
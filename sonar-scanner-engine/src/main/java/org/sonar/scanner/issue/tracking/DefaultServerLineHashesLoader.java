@@ -19,30 +19,104 @@
  */
 package org.sonar.scanner.issue.tracking;
 
-import org.sonarqube.ws.client.GetRequest;
-
-import java.io.IOException;
-import java.io.Reader;
-
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
 import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.protocol.input.ScannerInput.FileLineHashes;
 import org.sonar.scanner.util.ScannerUtils;
+import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.PostRequest;
+
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
 
 public class DefaultServerLineHashesLoader implements ServerLineHashesLoader {
-  private ScannerWsClient wsClient;
 
-  public DefaultServerLineHashesLoader(ScannerWsClient wsClient) {
+  private static final Logger LOG = Loggers.get(DefaultServerLineHashesLoader.class);
+
+  /**
+   * Maximum number of files per request, as accepted by the server
+   */
+  static final int BULK_SIZE = 500;
+
+  private final ScannerWsClient wsClient;
+  private final LineHashesCache cache;
+  private final Map<String, String> srcHashesByFileKey = new HashMap<>();
+
+  public DefaultServerLineHashesLoader(ScannerWsClient wsClient, LineHashesCache cache) {
     this.wsClient = wsClient;
+    this.cache = cache;
+  }
+
+  @Override
+  public void preload(Map<String, String> srcHashesByFileKey) {
+    this.srcHashesByFileKey.putAll(srcHashesByFileKey);
+    List<String> keysToLoad = srcHashesByFileKey.entrySet().stream()
+      .filter(e -> !cache.contains(e.getValue()))
+      .map(Map.Entry::getKey)
+      .sorted()
+      .collect(toList());
+    if (keysToLoad.isEmpty()) {
+      return;
+    }
+
+    Profiler profiler = Profiler.create(LOG).startInfo("Load line hashes of " + keysToLoad.size() + " changed files");
+    try {
+      for (List<String> keys : Lists.partition(keysToLoad, BULK_SIZE)) {
+        loadInBulk(keys);
+      }
+    } catch (HttpException e) {
+      if (e.code() != HTTP_NOT_FOUND) {
+        throw e;
+      }
+      // server older than 6.5, line hashes will be loaded file by file
+      LOG.debug("Server does not support bulk loading of line hashes");
+    } finally {
+      profiler.stopInfo();
+    }
+  }
+
+  private void loadInBulk(List<String> keys) {
+    PostRequest request = new PostRequest("/batch/line_hashes.protobuf").setParam("keys", keys);
+    try (InputStream input = wsClient.call(request).contentStream()) {
+      FileLineHashes fileLineHashes = FileLineHashes.parseDelimitedFrom(input);
+      while (fileLineHashes != null) {
+        if (fileLineHashes.hasSrcHash()) {
+          cache.put(fileLineHashes.getSrcHash(), fileLineHashes.getLineHashes());
+        }
+        fileLineHashes = FileLineHashes.parseDelimitedFrom(input);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to load line hashes", e);
+    }
   }
 
   @Override
   public String[] getLineHashes(String fileKey) {
-    String hashesFromWs = loadHashesFromWs(fileKey);
-    return Iterators.toArray(Splitter.on('\n').split(hashesFromWs).iterator(), String.class);
+    String hashes = loadHashesFromCache(fileKey);
+    if (hashes == null) {
+      hashes = loadHashesFromWs(fileKey);
+    }
+    return Iterators.toArray(Splitter.on('\n').split(hashes).iterator(), String.class);
+  }
+
+  @CheckForNull
+  private String loadHashesFromCache(String fileKey) {
+    String srcHash = srcHashesByFileKey.get(fileKey);
+    return srcHash == null ? null : cache.get(srcHash);
   }
 
   private String loadHashesFromWs(String fileKey) {
@@ -19,9 +19,26 @@
  */
 package org.sonar.scanner.issue.tracking;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
+import org.sonar.api.config.Settings;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.ProjectAnalysisInfo;
 import org.sonar.scanner.issue.IssueCache;
@@ -31,34 +48,43 @@ import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 import org.sonar.scanner.util.ProgressReport;
-import javax.annotation.Nullable;
-
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
 
+/**
+ * Tracks raw issues against server issues in issues mode, and stores them in the {@link IssueCache}.
+ * <p>
+ * When {@link #THREADS_PROPERTY} is greater than 1, the tracking of the next components is executed in advance on a pool
+ * of threads. Raw and server issues are still loaded by the calling thread, and the tracked issues are always stored in
+ * the order of the components, so the result does not depend on the number of threads.
+ * </p>
+ */
 @ScannerSide
 public class IssueTransition {
+  static final String THREADS_PROPERTY = "sonar.issueTracking.threads";
+  private static final int DEFAULT_THREADS = 1;
+  // number of components which can be tracked in advance, per thread
+  private static final int PENDING_COMPONENTS_PER_THREAD = 4;
+
   private final IssueCache issueCache;
   private final InputComponentStore inputComponentStore;
   private final ReportPublisher reportPublisher;
+  private final Settings settings;
   private final Date analysisDate;
   @Nullable
   private final LocalIssueTracking localIssueTracking;
 
   public IssueTransition(InputComponentStore inputComponentCache, ProjectAnalysisInfo projectAnalysisInfo, IssueCache issueCache, ReportPublisher reportPublisher,
-    @Nullable LocalIssueTracking localIssueTracking) {
+    Settings settings, @Nullable LocalIssueTracking localIssueTracking) {
     this.inputComponentStore = inputComponentCache;
     this.issueCache = issueCache;
     this.reportPublisher = reportPublisher;
+    this.settings = settings;
     this.localIssueTracking = localIssueTracking;
     this.analysisDate = projectAnalysisInfo.analysisDate();
   }
 
-  public IssueTransition(InputComponentStore inputComponentCache, ProjectAnalysisInfo projectAnalysisInfo, IssueCache issueCache, ReportPublisher reportPublisher) {
-    this(inputComponentCache, projectAnalysisInfo, issueCache, reportPublisher, null);
+  public IssueTransition(InputComponentStore inputComponentCache, ProjectAnalysisInfo projectAnalysisInfo, IssueCache issueCache, ReportPublisher reportPublisher,
+    Settings settings) {
+    this(inputComponentCache, projectAnalysisInfo, issueCache, reportPublisher, settings, null);
   }
 
   public void execute() {
@@ -77,18 +103,53 @@ public class IssueTransition {
     progressReport.start("Performing issue tracking");
     int count = 0;
 
+    int threads = getThreads();
+    ExecutorService executorService = null;
     try {
-      for (InputComponent component : inputComponentStore.all()) {
-        trackIssues(reader, (DefaultInputComponent) component);
-        count++;
-        progressReport.message(count + "/" + nbComponents + " components tracked");
+      if (threads == 1) {
+        for (InputComponent component : inputComponentStore.all()) {
+          trackIssues(reader, (DefaultInputComponent) component);
+          count++;
+          progressReport.message(count + "/" + nbComponents + " components tracked");
+        }
+      } else {
+        executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+          .setNameFormat("issue-tracking-%d")
+          .setDaemon(true)
+          .build());
+        Deque<Future<List<TrackedIssue>>> pendingTrackings = new ArrayDeque<>();
+        int maxPendingTrackings = threads * PENDING_COMPONENTS_PER_THREAD;
+        for (InputComponent component : inputComponentStore.all()) {
+          pendingTrackings.add(executorService.submit(prepareTracking(reader, (DefaultInputComponent) component)::get));
+          if (pendingTrackings.size() >= maxPendingTrackings) {
+            store(pendingTrackings.poll());
+            count++;
+            progressReport.message(count + "/" + nbComponents + " components tracked");
+          }
+        }
+        while (!pendingTrackings.isEmpty()) {
+          store(pendingTrackings.poll());
+          count++;
+          progressReport.message(count + "/" + nbComponents + " components tracked");
+        }
       }
     } finally {
+      if (executorService != null) {
+        executorService.shutdownNow();
+      }
       progressReport.stop(count + "/" + nbComponents + " components tracked");
     }
   }
 
   public void trackIssues(ScannerReportReader reader, DefaultInputComponent component) {
+    store(prepareTracking(reader, component).get());
+  }
+
+  /**
+   * Reads the raw issues of the component and loads its server issues. The returned supplier tracks the issues
+   * and can be executed by another thread.
+   */
+  private Supplier<List<TrackedIssue>> prepareTracking(ScannerReportReader reader, DefaultInputComponent component) {
     // raw issues = all the issues created by rule engines during this module scan and not excluded by filters
     List<ScannerReport.Issue> rawIssues = new LinkedList<>();
     try (CloseableIterator<ScannerReport.Issue> it = reader.readComponentIssues(component.batchId())) {
@@ -99,18 +160,35 @@ public class IssueTransition {
       throw new IllegalStateException("Can't read issues for " + component.key(), e);
     }
 
-    List<TrackedIssue> trackedIssues;
     if (localIssueTracking != null) {
-      trackedIssues = localIssueTracking.trackIssues(component, rawIssues, analysisDate);
-    } else {
-      trackedIssues = doTransition(rawIssues, component);
+      return localIssueTracking.prepareTracking(component, rawIssues, analysisDate);
     }
+    return () -> doTransition(rawIssues, component);
+  }
 
+  private void store(Future<List<TrackedIssue>> pendingTracking) {
+    try {
+      store(pendingTracking.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while tracking issues", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private void store(List<TrackedIssue> trackedIssues) {
     for (TrackedIssue issue : trackedIssues) {
       issueCache.put(issue);
     }
   }
 
+  @VisibleForTesting
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    return threads < 1 ? DEFAULT_THREADS : threads;
+  }
+
   private static List<TrackedIssue> doTransition(List<ScannerReport.Issue> rawIssues, InputComponent component) {
     List<TrackedIssue> issues = new ArrayList<>(rawIssues.size());
 
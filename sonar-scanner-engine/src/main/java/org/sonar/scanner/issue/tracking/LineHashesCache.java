@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
+
+/**
+ * Local cache of the line hashes of server-side sources, stored in the user cache directory.
+ * Line hashes only depend on the content of the file, so they are keyed by the hash of the source and can
+ * be shared between projects, branches and analyses. The cache is best-effort: any I/O failure is
+ * considered as a cache miss.
+ */
+@ScannerSide
+public class LineHashesCache {
+
+  private static final Logger LOG = Loggers.get(LineHashesCache.class);
+  private static final String DIR_NAME = "_line_hashes";
+  private static final Pattern VALID_SRC_HASH = Pattern.compile("[a-zA-Z0-9]+");
+
+  private final Path dir;
+
+  public LineHashesCache(FileCache fileCache) {
+    this.dir = fileCache.getDir().toPath().resolve(DIR_NAME);
+  }
+
+  public boolean contains(String srcHash) {
+    return isValid(srcHash) && Files.isRegularFile(dir.resolve(srcHash));
+  }
+
+  /**
+   * @return the line hashes separated by '\n', or {@code null} if they are not cached
+   */
+  @CheckForNull
+  public String get(String srcHash) {
+    if (!contains(srcHash)) {
+      return null;
+    }
+    try {
+      return new String(Files.readAllBytes(dir.resolve(srcHash)), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOG.debug("Fail to read cached line hashes of source " + srcHash, e);
+      return null;
+    }
+  }
+
+  public void put(String srcHash, String lineHashes) {
+    if (!isValid(srcHash)) {
+      return;
+    }
+    Path tempFile = null;
+    try {
+      Files.createDirectories(dir);
+      tempFile = Files.createTempFile(dir, srcHash, ".tmp");
+      Files.write(tempFile, lineHashes.getBytes(StandardCharsets.UTF_8));
+      move(tempFile, dir.resolve(srcHash));
+    } catch (IOException e) {
+      LOG.debug("Fail to cache line hashes of source " + srcHash, e);
+      deleteQuietly(tempFile);
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void deleteQuietly(@Nullable Path file) {
+    if (file != null) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // ignore, the file is in a temporary state anyway
+      }
+    }
+  }
+
+  private static boolean isValid(String srcHash) {
+    return VALID_SRC_HASH.matcher(srcHash).matches();
+  }
+}
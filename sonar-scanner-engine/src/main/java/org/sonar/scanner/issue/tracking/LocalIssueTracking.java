@@ -25,9 +25,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.ScannerSide;
@@ -40,13 +42,17 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputComponentTree;
 import org.sonar.api.batch.rule.ActiveRule;
 import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.core.component.ComponentKeys;
 import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracker;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.issue.IssueTransformer;
+import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.repository.FileData;
 import org.sonar.scanner.repository.ProjectRepositories;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 @ScannerSide
 public class LocalIssueTracking {
@@ -56,15 +62,20 @@ public class LocalIssueTracking {
   private final ServerIssueRepository serverIssueRepository;
   private final DefaultAnalysisMode mode;
   private final InputComponentTree componentTree;
+  private final InputComponentStore componentStore;
+  private final ProjectRepositories projectRepositories;
 
   private boolean hasServerAnalysis;
 
   public LocalIssueTracking(Tracker<TrackedIssue, ServerIssueFromWs> tracker, ServerLineHashesLoader lastLineHashes, InputComponentTree componentTree,
-    ActiveRules activeRules, ServerIssueRepository serverIssueRepository, ProjectRepositories projectRepositories, DefaultAnalysisMode mode) {
+    InputComponentStore componentStore, ActiveRules activeRules, ServerIssueRepository serverIssueRepository, ProjectRepositories projectRepositories,
+    DefaultAnalysisMode mode) {
     this.tracker = tracker;
     this.lastLineHashes = lastLineHashes;
     this.componentTree = componentTree;
+    this.componentStore = componentStore;
     this.serverIssueRepository = serverIssueRepository;
+    this.projectRepositories = projectRepositories;
     this.mode = mode;
     this.activeRules = activeRules;
     this.hasServerAnalysis = projectRepositories.lastAnalysisDate() != null;
@@ -73,15 +84,53 @@ public class LocalIssueTracking {
   public void init() {
     if (hasServerAnalysis) {
       serverIssueRepository.load();
+      preloadLineHashes();
+    }
+  }
+
+  /**
+   * Line hashes of the server-side sources are needed to track the issues of changed files (see {@link SourceHashHolder}).
+   * They are loaded all at once rather than file by file.
+   */
+  private void preloadLineHashes() {
+    Map<String, String> srcHashesByFileKey = new HashMap<>();
+    for (InputFile inputFile : componentStore.allFiles()) {
+      if (inputFile.status() == Status.CHANGED) {
+        DefaultInputModule module = (DefaultInputModule) componentTree.getParent(componentTree.getParent(inputFile));
+        String moduleKeyWithBranch = module.definition().getKeyWithBranch();
+        FileData fileData = projectRepositories.fileData(moduleKeyWithBranch, inputFile.relativePath());
+        if (fileData != null) {
+          srcHashesByFileKey.put(ComponentKeys.createEffectiveKey(moduleKeyWithBranch, inputFile), fileData.hash());
+        }
+      }
+    }
+    if (!srcHashesByFileKey.isEmpty()) {
+      lastLineHashes.preload(srcHashesByFileKey);
     }
   }
 
   public List<TrackedIssue> trackIssues(InputComponent component, Collection<ScannerReport.Issue> reportIssues, Date analysisDate) {
-    List<TrackedIssue> trackedIssues = new LinkedList<>();
-    if (hasServerAnalysis) {
-      // all the issues that are not closed in db before starting this module scan, including manual issues
-      Collection<ServerIssueFromWs> serverIssues = loadServerIssues(component);
+    return prepareTracking(component, reportIssues, analysisDate).get();
+  }
+
+  /**
+   * Loads the server issues of the component and returns the tracking of its issues. The returned tracking does not
+   * read the storages, so it can be executed by another thread.
+   */
+  public Supplier<List<TrackedIssue>> prepareTracking(InputComponent component, Collection<ScannerReport.Issue> reportIssues, Date analysisDate) {
+    if (!hasServerAnalysis) {
+      return LinkedList::new;
+    }
+    // all the issues that are not closed in db before starting this module scan, including manual issues
+    Collection<ServerIssueFromWs> serverIssues = loadServerIssues(component);
+    Collection<ServerIssue> issuesOnDeletedComponents = new ArrayList<>();
+    if (componentTree.getParent(component) == null) {
+      Preconditions.checkState(component instanceof InputModule, "Object without parent is of type: " + component.getClass());
+      serverIssueRepository.issuesOnMissingComponents().forEach(issuesOnDeletedComponents::add);
+    }
 
+    return () -> {
+      List<TrackedIssue> trackedIssues = new LinkedList<>();
       if (shouldCopyServerIssues(component)) {
         // raw issues should be empty, we just need to deal with server issues (SONAR-6931)
         copyServerIssues(serverIssues, trackedIssues, component.key());
@@ -99,15 +148,10 @@ public class LocalIssueTracking {
         mergeMatched(track, trackedIssues, rIssues);
         addUnmatchedFromReport(track.getUnmatchedRaws(), trackedIssues, analysisDate);
       }
-    }
-
-    if (hasServerAnalysis && componentTree.getParent(component) == null) {
-      Preconditions.checkState(component instanceof InputModule, "Object without parent is of type: " + component.getClass());
       // issues that relate to deleted components
-      addIssuesOnDeletedComponents(trackedIssues, component.key());
-    }
-
-    return trackedIssues;
+      addIssuesOnDeletedComponents(issuesOnDeletedComponents, trackedIssues, component.key());
+      return trackedIssues;
+    };
   }
 
   private static Input<ServerIssueFromWs> createBaseInput(Collection<ServerIssueFromWs> serverIssues, @Nullable SourceHashHolder sourceHashHolder) {
@@ -221,8 +265,8 @@ public class LocalIssueTracking {
     }
   }
 
-  private void addIssuesOnDeletedComponents(Collection<TrackedIssue> issues, String componentKey) {
-    for (org.sonar.scanner.protocol.input.ScannerInput.ServerIssue previous : serverIssueRepository.issuesOnMissingComponents()) {
+  private void addIssuesOnDeletedComponents(Collection<ServerIssue> issuesOnDeletedComponents, Collection<TrackedIssue> issues, String componentKey) {
+    for (ServerIssue previous : issuesOnDeletedComponents) {
       TrackedIssue dead = IssueTransformer.toTrackedIssue(previous, componentKey);
       updateUnmatchedIssue(dead);
       issues.add(dead);
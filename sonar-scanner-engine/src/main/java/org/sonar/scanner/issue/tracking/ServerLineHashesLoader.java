@@ -19,10 +19,22 @@
  */
 package org.sonar.scanner.issue.tracking;
 
+import java.util.Map;
 import org.sonar.api.batch.ScannerSide;
 
 @ScannerSide
 public interface ServerLineHashesLoader {
 
   String[] getLineHashes(String fileKey);
+
+  /**
+   * Loads in advance the line hashes of several files, so that the next calls to {@link #getLineHashes(String)}
+   * don't need a request per file.
+   *
+   * @param srcHashesByFileKey hashes of the server-side sources, by file key
+   * @since 6.5
+   */
+  default void preload(Map<String, String> srcHashesByFileKey) {
+    // by default line hashes are loaded lazily
+  }
 }
@@ -76,6 +76,8 @@ public abstract class AbstractPhaseExecutor {
 
     afterSensors();
 
+    fsLogger.logMetadataCache();
+
     if (module.definition().getParent() == null) {
       executeOnRoot();
       postJobsExecutor.execute(sensorContext);
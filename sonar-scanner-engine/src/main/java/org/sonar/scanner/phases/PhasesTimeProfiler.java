@@ -19,6 +19,10 @@
  */
 package org.sonar.scanner.phases;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.events.SensorExecutionHandler;
@@ -30,10 +34,16 @@ import org.sonar.scanner.bootstrap.ScannerPluginRepository;
 import org.sonar.scanner.sensor.SensorWrapper;
 import org.sonar.scanner.util.ScannerUtils;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Logs the wall time and, when supported by the JVM, the CPU time of each sensor. Sensors
+ * can be executed concurrently, so CPU time is the one of the thread executing the sensor.
+ */
 public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseHandler {
 
   private static final Logger LOG = Loggers.get(PhasesTimeProfiler.class);
-  private Profiler profiler = Profiler.create(LOG);
+  private final Map<Sensor, SensorProfiling> profilingBySensor = new ConcurrentHashMap<>();
   private final ScannerPluginRepository pluginRepo;
 
   public PhasesTimeProfiler(ScannerPluginRepository pluginRepo) {
@@ -56,10 +66,27 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseH
       if (pluginKey != null) {
         suffix = " [" + pluginKey + "]";
       }
-      profiler.startInfo("Sensor " + ScannerUtils.describe(event.getSensor()) + suffix);
+      Profiler profiler = Profiler.create(LOG).startInfo("Sensor " + ScannerUtils.describe(event.getSensor()) + suffix);
+      profilingBySensor.put(event.getSensor(), new SensorProfiling(profiler, currentThreadCpuTime()));
     } else {
-      profiler.stopInfo();
+      SensorProfiling profiling = profilingBySensor.remove(event.getSensor());
+      long cpuTime = currentThreadCpuTime();
+      if (cpuTime >= 0 && profiling.cpuTimeAtStart >= 0) {
+        profiling.profiler.addContext("cpu", NANOSECONDS.toMillis(cpuTime - profiling.cpuTimeAtStart) + "ms");
+      }
+      profiling.profiler.stopInfo();
+    }
+  }
+
+  /**
+   * CPU time of current thread in nanoseconds, or -1 if not supported
+   */
+  private static long currentThreadCpuTime() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (threadMXBean.isCurrentThreadCpuTimeSupported()) {
+      return threadMXBean.getCurrentThreadCpuTime();
     }
+    return -1L;
   }
 
   private static ClassLoader getSensorClassLoader(Sensor sensor) {
@@ -71,4 +98,14 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseH
     }
   }
 
+  private static class SensorProfiling {
+    private final Profiler profiler;
+    private final long cpuTimeAtStart;
+
+    private SensorProfiling(Profiler profiler, long cpuTimeAtStart) {
+      this.profiler = profiler;
+      this.cpuTimeAtStart = cpuTimeAtStart;
+    }
+  }
+
 }
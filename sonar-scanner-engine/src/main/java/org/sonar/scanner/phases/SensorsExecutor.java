@@ -19,32 +19,56 @@
  */
 package org.sonar.scanner.phases;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
 import org.sonar.scanner.sensor.SensorStrategy;
+import org.sonar.scanner.sensor.SensorWrapper;
 
+/**
+ * Executes the sensors of a module.
+ * <p>
+ * When {@link #THREADS_PROPERTY} is greater than 1, consecutive sensors which declare themselves
+ * {@link org.sonar.api.batch.sensor.SensorDescriptor#threadSafe() thread-safe} are executed concurrently.
+ * Other sensors are executed alone, so that their order relative to the other sensors is kept.
+ * </p>
+ */
 @ScannerSide
 public class SensorsExecutor {
+  static final String THREADS_PROPERTY = "sonar.sensors.threads";
+  private static final int DEFAULT_THREADS = 1;
+
   private final ScannerExtensionDictionnary selector;
   private final DefaultInputModule module;
   private final EventBus eventBus;
   private final SensorStrategy strategy;
+  private final Settings settings;
   private final boolean isRoot;
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus, SensorStrategy strategy) {
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus, SensorStrategy strategy, Settings settings) {
     this.selector = selector;
     this.module = module;
     this.eventBus = eventBus;
     this.strategy = strategy;
+    this.settings = settings;
     this.isRoot = module.definition().getParent() == null;
   }
 
@@ -77,11 +101,65 @@ public class SensorsExecutor {
   }
 
   private void execute(SensorContext context, Collection<Sensor> sensors) {
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    int threads = getThreads();
+    if (threads == 1) {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
+      return;
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("sensor-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Sensor> threadSafeSensors = new ArrayList<>();
+      for (Sensor sensor : sensors) {
+        if (isThreadSafe(sensor)) {
+          threadSafeSensors.add(sensor);
+        } else {
+          executeConcurrently(executorService, context, threadSafeSensors);
+          threadSafeSensors.clear();
+          executeSensor(context, sensor);
+        }
+      }
+      executeConcurrently(executorService, context, threadSafeSensors);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void executeConcurrently(ExecutorService executorService, SensorContext context, List<Sensor> sensors) {
+    if (sensors.size() == 1) {
+      executeSensor(context, sensors.get(0));
+      return;
+    }
+    List<Future<?>> futures = sensors.stream()
+      .map(sensor -> executorService.submit(() -> executeSensor(context, sensor)))
+      .collect(Collectors.toList());
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing sensors", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
     }
   }
 
+  private static boolean isThreadSafe(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).isThreadSafe();
+  }
+
+  @VisibleForTesting
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    return threads < 1 ? DEFAULT_THREADS : threads;
+  }
+
   private void executeSensor(SensorContext context, Sensor sensor) {
     eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
     sensor.analyse(new Project(module.definition()), context);
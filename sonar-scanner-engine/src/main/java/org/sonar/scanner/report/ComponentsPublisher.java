@@ -19,10 +19,16 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.Collection;
 import java.util.stream.Collectors;
 
 import javax.annotation.CheckForNull;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
@@ -37,6 +43,7 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputComponentTree;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReport.Component.ComponentType;
@@ -46,10 +53,24 @@ import org.sonar.scanner.protocol.output.ScannerReport.Issue;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
 /**
- * Adds components and analysis metadata to output report
+ * Adds components and analysis metadata to output report.
+ * <p>
+ * Must be executed after the steps writing data of files, as the input hash of each file is computed from the report.
+ * </p>
  */
 public class ComponentsPublisher implements ReportPublisherStep {
 
+  /**
+   * Data of the report that the Compute Engine computes sources of files from
+   */
+  private static final FileStructure.Domain[] SOURCE_INPUT_DOMAINS = {
+    FileStructure.Domain.COVERAGES,
+    FileStructure.Domain.SYNTAX_HIGHLIGHTINGS,
+    FileStructure.Domain.SYMBOLS,
+    FileStructure.Domain.DUPLICATIONS,
+    FileStructure.Domain.CHANGESETS
+  };
+
   private InputComponentTree componentTree;
   private InputModuleHierarchy moduleHierarchy;
   private ScannerReportReader reader;
@@ -109,6 +130,12 @@ public class ComponentsPublisher implements ReportPublisherStep {
       DefaultInputFile file = (DefaultInputFile) component;
       builder.setIsTest(file.type() == InputFile.Type.TEST);
       builder.setLines(file.lines());
+      builder.setInputHash(computeInputHash(file));
+
+      String hash = file.hash();
+      if (hash != null) {
+        builder.setHash(hash);
+      }
 
       String lang = getLanguageKey(file);
       if (lang != null) {
@@ -129,6 +156,27 @@ public class ComponentsPublisher implements ReportPublisherStep {
     return true;
   }
 
+  /**
+   * Report files are hashed as they are written, without being parsed
+   */
+  private String computeInputHash(DefaultInputFile file) {
+    MessageDigest md5Digest = DigestUtils.getMd5Digest();
+    for (FileStructure.Domain domain : SOURCE_INPUT_DOMAINS) {
+      File reportFile = writer.getFileStructure().fileFor(domain, file.batchId());
+      boolean exists = reportFile.isFile();
+      md5Digest.update((byte) domain.ordinal());
+      md5Digest.update((byte) (exists ? 1 : 0));
+      if (exists) {
+        try {
+          md5Digest.update(Files.readAllBytes(reportFile.toPath()));
+        } catch (IOException e) {
+          throw new IllegalStateException("Fail to compute input hash of " + file, e);
+        }
+      }
+    }
+    return Hex.encodeHexString(md5Digest.digest());
+  }
+
   private boolean shouldSkipComponent(DefaultInputComponent component, Collection<InputComponent> children) {
     if (component instanceof InputDir && children.isEmpty()) {
       try (CloseableIterator<Issue> componentIssuesIt = reader.readComponentIssues(component.batchId())) {
@@ -21,9 +21,11 @@ package org.sonar.scanner.report;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.io.CountingOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
@@ -31,6 +33,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
 import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
 import org.apache.commons.io.FileUtils;
@@ -66,6 +70,19 @@ public class ReportPublisher implements Startable {
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
 
+  /**
+   * When enabled, the report directory is compressed directly into the body of the upload request,
+   * instead of being compressed into a temporary file which is then uploaded.
+   */
+  public static final String STREAMING_UPLOAD_KEY = "sonar.scanner.report.streamingUpload";
+
+  /**
+   * Compression level of the report, from 0 (no compression) to 9 (best compression)
+   */
+  public static final String COMPRESSION_LEVEL_KEY = "sonar.scanner.report.compressionLevel";
+
+  private static final String REPORT_FILENAME = "batch-report.zip";
+
   private final Settings settings;
   private final ScannerWsClient wsClient;
   private final AnalysisContextReportPublisher contextPublisher;
@@ -77,6 +94,7 @@ public class ReportPublisher implements Startable {
 
   private File reportDir;
   private ScannerReportWriter writer;
+  private int compressionLevel;
 
   public ReportPublisher(Settings settings, ScannerWsClient wsClient, Server server, AnalysisContextReportPublisher contextPublisher,
     ImmutableProjectReactor projectReactor, DefaultAnalysisMode analysisMode, TempFolder temp, ReportPublisherStep[] publishers) {
@@ -95,6 +113,7 @@ public class ReportPublisher implements Startable {
     reportDir = new File(projectReactor.getRoot().getWorkDir(), "batch-report");
     writer = new ScannerReportWriter(reportDir);
     contextPublisher.init(writer);
+    compressionLevel = loadCompressionLevel();
 
     if (!analysisMode.isIssues() && !analysisMode.isMediumTest()) {
       String publicUrl = server.getPublicRootUrl();
@@ -104,6 +123,23 @@ public class ReportPublisher implements Startable {
     }
   }
 
+  private int loadCompressionLevel() {
+    if (!settings.hasKey(COMPRESSION_LEVEL_KEY)) {
+      return Deflater.DEFAULT_COMPRESSION;
+    }
+    String value = settings.getString(COMPRESSION_LEVEL_KEY);
+    try {
+      int level = Integer.parseInt(value);
+      if (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION) {
+        return level;
+      }
+    } catch (NumberFormatException e) {
+      // error below
+    }
+    throw MessageException.of(String.format("Property '%s' must be an integer between %d and %d. Got: '%s'", COMPRESSION_LEVEL_KEY,
+      Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION, value));
+  }
+
   @Override
   public void stop() {
     if (!shouldKeepReport()) {
@@ -123,12 +159,19 @@ public class ReportPublisher implements Startable {
     // If this is a issues mode analysis then we should not upload reports
     String taskId = null;
     if (!analysisMode.isIssues()) {
-      File report = generateReportFile();
+      long reportSize = generateReport();
       if (shouldKeepReport()) {
         LOG.info("Analysis report generated in " + reportDir);
       }
-      if (!analysisMode.isMediumTest()) {
-        taskId = upload(report);
+      if (settings.getBoolean(STREAMING_UPLOAD_KEY)) {
+        if (!analysisMode.isMediumTest()) {
+          taskId = streamingUpload();
+        }
+      } else {
+        File report = compressReport(reportSize);
+        if (!analysisMode.isMediumTest()) {
+          taskId = upload(report);
+        }
       }
     }
     logSuccess(taskId);
@@ -138,20 +181,27 @@ public class ReportPublisher implements Startable {
     return settings.getBoolean(KEEP_REPORT_PROP_KEY) || settings.getBoolean(VERBOSE_KEY);
   }
 
-  private File generateReportFile() {
+  private long generateReport() {
+    long startTime = System.currentTimeMillis();
+    for (ReportPublisherStep publisher : publishers) {
+      publisher.publish(writer);
+    }
+    long duration = System.currentTimeMillis() - startTime;
+    long dirSize = FileUtils.sizeOfDirectory(reportDir);
+    LOG.info("Analysis report generated in {}ms, dir size={}, {}", duration, FileUtils.byteCountToDisplaySize(dirSize), throughput(dirSize, duration));
+    return dirSize;
+  }
+
+  private File compressReport(long reportSize) {
     try {
       long startTime = System.currentTimeMillis();
-      for (ReportPublisherStep publisher : publishers) {
-        publisher.publish(writer);
-      }
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir)));
-
-      startTime = System.currentTimeMillis();
       File reportZip = temp.newFile("batch-report", ".zip");
-      ZipUtils.zipDir(reportDir, reportZip);
-      stopTime = System.currentTimeMillis();
-      LOG.info("Analysis reports compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
+      try (OutputStream output = FileUtils.openOutputStream(reportZip)) {
+        ZipUtils.zipDir(reportDir, output, compressionLevel);
+      }
+      long duration = System.currentTimeMillis() - startTime;
+      LOG.info("Analysis reports compressed in {}ms, zip size={}, {}", duration, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)),
+        throughput(reportSize, duration));
       return reportZip;
     } catch (IOException e) {
       throw new IllegalStateException("Unable to prepare analysis report", e);
@@ -165,8 +215,43 @@ public class ReportPublisher implements Startable {
   String upload(File report) {
     LOG.debug("Upload report");
     long startTime = System.currentTimeMillis();
+    try {
+      return submit(new PostRequest.Part(MediaTypes.ZIP, report));
+    } finally {
+      long duration = System.currentTimeMillis() - startTime;
+      LOG.info("Analysis report uploaded in {}ms, {}", duration, throughput(report.length(), duration));
+    }
+  }
+
+  /**
+   * Compresses the report directory into the body of the request, so that the compressed report
+   * is never written to disk, and returns the generated task id
+   */
+  @VisibleForTesting
+  String streamingUpload() {
+    LOG.debug("Compress and upload report");
+    long startTime = System.currentTimeMillis();
+    AtomicLong zipSize = new AtomicLong();
+    PostRequest.Part part = new PostRequest.Part(MediaTypes.ZIP, REPORT_FILENAME, output -> {
+      CountingOutputStream countingOutput = new CountingOutputStream(output);
+      ZipUtils.zipDir(reportDir, countingOutput, compressionLevel);
+      zipSize.set(countingOutput.getCount());
+    });
+    try {
+      return submit(part);
+    } finally {
+      long duration = System.currentTimeMillis() - startTime;
+      LOG.info("Analysis report compressed and uploaded in {}ms, zip size={}, {}", duration, FileUtils.byteCountToDisplaySize(zipSize.get()),
+        throughput(zipSize.get(), duration));
+    }
+  }
+
+  private static String throughput(long bytes, long durationMs) {
+    return FileUtils.byteCountToDisplaySize(bytes * 1000 / Math.max(1L, durationMs)) + "/s";
+  }
+
+  private String submit(PostRequest.Part filePart) {
     ProjectDefinition projectDefinition = projectReactor.getRoot();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
     PostRequest post = new PostRequest("api/ce/submit")
       .setMediaType(MediaTypes.PROTOBUF)
       .setParam("organization", settings.getString(CoreProperties.PROJECT_ORGANIZATION_PROPERTY))
@@ -186,9 +271,6 @@ public class ReportPublisher implements Startable {
       return WsCe.SubmitResponse.parser().parseFrom(protobuf).getTaskId();
     } catch (Exception e) {
       throw Throwables.propagate(e);
-    } finally {
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report uploaded in " + (stopTime - startTime) + "ms");
     }
   }
 
@@ -53,6 +53,7 @@ import org.sonar.scanner.issue.DefaultProjectIssues;
 import org.sonar.scanner.issue.IssueCache;
 import org.sonar.scanner.issue.tracking.DefaultServerLineHashesLoader;
 import org.sonar.scanner.issue.tracking.IssueTransition;
+import org.sonar.scanner.issue.tracking.LineHashesCache;
 import org.sonar.scanner.issue.tracking.LocalIssueTracking;
 import org.sonar.scanner.issue.tracking.ServerIssueRepository;
 import org.sonar.scanner.issue.tracking.ServerLineHashesLoader;
@@ -87,6 +88,7 @@ import org.sonar.scanner.rule.DefaultRulesLoader;
 import org.sonar.scanner.rule.RulesLoader;
 import org.sonar.scanner.rule.RulesProvider;
 import org.sonar.scanner.scan.filesystem.BatchIdGenerator;
+import org.sonar.scanner.scan.filesystem.FileMetadataCache;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 import org.sonar.scanner.scan.measure.DefaultMetricFinder;
 import org.sonar.scanner.scan.measure.DeprecatedMetricFinder;
@@ -149,6 +151,7 @@ public class ProjectScanContainer extends ComponentContainer {
       InputComponentStore.class,
       PathResolver.class,
       DefaultInputModuleHierarchy.class,
+      FileMetadataCache.class,
       DefaultComponentTree.class,
       BatchIdGenerator.class,
 
@@ -189,10 +192,11 @@ public class ProjectScanContainer extends ComponentContainer {
       AnalysisContextReportPublisher.class,
       MetadataPublisher.class,
       ActiveRulesPublisher.class,
-      ComponentsPublisher.class,
-      MeasuresPublisher.class,
       CoveragePublisher.class,
       SourcePublisher.class,
+      // hashes the data of files written by the previous steps
+      ComponentsPublisher.class,
+      MeasuresPublisher.class,
       TestExecutionAndCoveragePublisher.class,
 
       // Cpd
@@ -210,7 +214,8 @@ public class ProjectScanContainer extends ComponentContainer {
   private void addIssueTrackingComponents() {
     add(
       LocalIssueTracking.class,
-      ServerIssueRepository.class);
+      ServerIssueRepository.class,
+      LineHashesCache.class);
     addIfMissing(DefaultServerIssuesLoader.class, ServerIssuesLoader.class);
     addIfMissing(DefaultServerLineHashesLoader.class, ServerLineHashesLoader.class);
   }
@@ -38,6 +38,7 @@ public class CharsetDetector {
   private BufferedInputStream stream;
   private Charset detectedCharset;
   private Charset userEncoding;
+  private int bomLength = 0;
 
   public CharsetDetector(Path filePath, Charset userEncoding) {
     this.filePath = filePath;
@@ -64,6 +65,14 @@ public class CharsetDetector {
     return stream;
   }
 
+  /**
+   * Number of bytes of the BOM skipped at the beginning of {@link #inputStream()}
+   */
+  public int bomLength() {
+    assertRun();
+    return bomLength;
+  }
+
   private byte[] readBuffer() throws IOException {
     stream = new BufferedInputStream(Files.newInputStream(filePath), BYTES_TO_DECODE * 2);
     stream.mark(BYTES_TO_DECODE);
@@ -79,7 +88,8 @@ public class CharsetDetector {
     ByteOrderMark bom = detector.detectBOM(buf);
     if (bom != null) {
       detectedCharset = Charset.forName(bom.getCharsetName());
-      stream.skip(bom.length());
+      bomLength = bom.length();
+      stream.skip(bomLength);
       return true;
     }
 
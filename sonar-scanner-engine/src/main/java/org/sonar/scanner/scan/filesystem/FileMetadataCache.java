@@ -0,0 +1,278 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
+
+/**
+ * Metadata of files (charset, lines, hash, line offsets) computed by previous analyses of the project, stored
+ * in the user cache. An entry is valid as long as the path, size and last modification date of the file, as well as
+ * the default encoding, are unchanged. Files modified less than {@link #RACY_DELAY_MS} before being read are not
+ * cached, because a later modification could keep the same modification date.
+ * <p>
+ * Can be disabled with {@link #ENABLED_KEY}.
+ */
+@ScannerSide
+public class FileMetadataCache implements Startable {
+
+  public static final String ENABLED_KEY = "sonar.scanner.fileMetadataCache";
+  static final long RACY_DELAY_MS = 2_000L;
+
+  private static final Logger LOG = Loggers.get(FileMetadataCache.class);
+  private static final int FORMAT_VERSION = 1;
+
+  private final InputModuleHierarchy moduleHierarchy;
+  private final FileCache fileCache;
+  private final System2 system2;
+  private final boolean enabled;
+  private final Map<String, Entry> entriesByPath = new ConcurrentHashMap<>();
+  private final Map<String, Counters> countersByModule = new ConcurrentHashMap<>();
+  private File cacheFile;
+
+  public FileMetadataCache(InputModuleHierarchy moduleHierarchy, FileCache fileCache, Settings settings, System2 system2) {
+    this.moduleHierarchy = moduleHierarchy;
+    this.fileCache = fileCache;
+    this.system2 = system2;
+    this.enabled = !settings.hasKey(ENABLED_KEY) || settings.getBoolean(ENABLED_KEY);
+  }
+
+  @Override
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    String projectId = moduleHierarchy.root().definition().getBaseDir().getAbsolutePath() + "|" + moduleHierarchy.root().key();
+    cacheFile = new File(new File(fileCache.getDir(), "_metadata"), DigestUtils.md5Hex(projectId));
+    if (cacheFile.isFile()) {
+      try (InputStream input = new BufferedInputStream(Files.newInputStream(cacheFile.toPath()))) {
+        read(new DataInputStream(input));
+      } catch (Exception e) {
+        // the cache is only an optimization
+        LOG.debug("Ignore invalid file metadata cache " + cacheFile.getAbsolutePath(), e);
+        entriesByPath.clear();
+      }
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (cacheFile == null) {
+      return;
+    }
+    try {
+      Files.createDirectories(cacheFile.getParentFile().toPath());
+      File tempFile = fileCache.createTempDir().toPath().resolve(cacheFile.getName()).toFile();
+      try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()))) {
+        write(new DataOutputStream(output));
+      }
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      Files.deleteIfExists(tempFile.getParentFile().toPath());
+    } catch (Exception e) {
+      LOG.debug("Fail to save file metadata cache " + cacheFile.getAbsolutePath(), e);
+    }
+    cacheFile = null;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Reads the attributes of the file that identify its content. Must be called before reading the file.
+   */
+  @CheckForNull
+  Key keyOf(Path path, Charset defaultEncoding) {
+    if (!enabled) {
+      return null;
+    }
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      return new Key(path.toAbsolutePath().toString(), attributes.size(), attributes.lastModifiedTime().toMillis(), defaultEncoding.name());
+    } catch (IOException e) {
+      LOG.debug("Fail to read attributes of " + path, e);
+      return null;
+    }
+  }
+
+  @CheckForNull
+  Entry get(Key key, String moduleKey) {
+    Counters counters = countersByModule.computeIfAbsent(moduleKey, k -> new Counters());
+    Entry entry = entriesByPath.get(key.path);
+    if (entry != null && entry.key.equals(key)) {
+      counters.hits.incrementAndGet();
+      return entry;
+    }
+    counters.misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Number of files of the module whose metadata was found in the cache
+   */
+  int hits(String moduleKey) {
+    Counters counters = countersByModule.get(moduleKey);
+    return counters == null ? 0 : counters.hits.get();
+  }
+
+  /**
+   * Number of files of the module whose metadata was not found in the cache, or was stale
+   */
+  int misses(String moduleKey) {
+    Counters counters = countersByModule.get(moduleKey);
+    return counters == null ? 0 : counters.misses.get();
+  }
+
+  void put(Key key, Charset charset, Metadata metadata) {
+    if (key.lastModified > system2.now() - RACY_DELAY_MS) {
+      entriesByPath.remove(key.path);
+      return;
+    }
+    entriesByPath.put(key.path, new Entry(key, charset, metadata));
+  }
+
+  private void read(DataInputStream input) throws IOException {
+    if (input.readInt() != FORMAT_VERSION) {
+      return;
+    }
+    int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      Key key = new Key(input.readUTF(), input.readLong(), input.readLong(), input.readUTF());
+      Charset charset = Charset.forName(input.readUTF());
+      int lines = input.readInt();
+      int nonBlankLines = input.readInt();
+      String hash = input.readUTF();
+      int lastValidOffset = input.readInt();
+      int[] offsets = new int[input.readInt()];
+      for (int j = 0; j < offsets.length; j++) {
+        offsets[j] = input.readInt();
+      }
+      entriesByPath.put(key.path, new Entry(key, charset, new Metadata(lines, nonBlankLines, hash, offsets, lastValidOffset)));
+    }
+  }
+
+  private void write(DataOutputStream output) throws IOException {
+    // entries of deleted files are dropped
+    entriesByPath.values().removeIf(entry -> !Files.exists(Paths.get(entry.key.path)));
+    output.writeInt(FORMAT_VERSION);
+    output.writeInt(entriesByPath.size());
+    for (Entry entry : entriesByPath.values()) {
+      Key key = entry.key;
+      output.writeUTF(key.path);
+      output.writeLong(key.size);
+      output.writeLong(key.lastModified);
+      output.writeUTF(key.defaultEncoding);
+      output.writeUTF(entry.charset.name());
+      Metadata metadata = entry.metadata;
+      output.writeInt(metadata.lines());
+      output.writeInt(metadata.nonBlankLines());
+      output.writeUTF(metadata.hash());
+      output.writeInt(metadata.lastValidOffset());
+      int[] offsets = metadata.originalLineOffsets();
+      output.writeInt(offsets.length);
+      for (int offset : offsets) {
+        output.writeInt(offset);
+      }
+    }
+    output.flush();
+  }
+
+  private static final class Counters {
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+  }
+
+  static final class Key {
+    private final String path;
+    private final long size;
+    private final long lastModified;
+    private final String defaultEncoding;
+
+    Key(String path, long size, long lastModified, String defaultEncoding) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.defaultEncoding = defaultEncoding;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return size == key.size && lastModified == key.lastModified && path.equals(key.path) && defaultEncoding.equals(key.defaultEncoding);
+    }
+
+    @Override
+    public int hashCode() {
+      return path.hashCode();
+    }
+  }
+
+  static final class Entry {
+    private final Key key;
+    private final Charset charset;
+    private final Metadata metadata;
+
+    Entry(Key key, Charset charset, Metadata metadata) {
+      this.key = key;
+      this.charset = charset;
+      this.metadata = metadata;
+    }
+
+    Charset charset() {
+      return charset;
+    }
+
+    Metadata metadata() {
+      return metadata;
+    }
+  }
+}
@@ -30,21 +30,42 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.scan.filesystem.PathResolver;
 
 @ScannerSide
 public class FileSystemLogger {
 
   private final DefaultModuleFileSystem fs;
+  private final DefaultInputModule module;
+  private final FileMetadataCache metadataCache;
 
-  public FileSystemLogger(DefaultModuleFileSystem fs) {
+  public FileSystemLogger(DefaultModuleFileSystem fs, DefaultInputModule module, FileMetadataCache metadataCache) {
     this.fs = fs;
+    this.module = module;
+    this.metadataCache = metadataCache;
   }
 
   public void log() {
     doLog(LoggerFactory.getLogger(getClass()));
   }
 
+  /**
+   * Logs the hit ratio of {@link FileMetadataCache} for the files of the module whose metadata was requested so far.
+   */
+  public void logMetadataCache() {
+    doLogMetadataCache(LoggerFactory.getLogger(getClass()));
+  }
+
+  @VisibleForTesting
+  void doLogMetadataCache(Logger logger) {
+    int hits = metadataCache.hits(module.key());
+    int lookups = hits + metadataCache.misses(module.key());
+    if (lookups > 0) {
+      logger.info("File metadata cache: {}/{} hits ({}%)", hits, lookups, hits * 100 / lookups);
+    }
+  }
+
   @VisibleForTesting
   void doLog(Logger logger) {
     logDir(logger, "Base dir: ", fs.baseDir());
@@ -19,7 +19,6 @@
  */
 package org.sonar.scanner.scan.filesystem;
 
-import java.io.InputStream;
 import java.nio.charset.Charset;
 
 import org.slf4j.Logger;
@@ -28,6 +27,7 @@ import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.FileMetadata.CharHandler;
 import org.sonar.api.batch.fs.internal.Metadata;
 import org.sonar.scanner.issue.ignore.scanner.IssueExclusionsLoader;
 
@@ -45,19 +45,35 @@ class MetadataGenerator {
   private final FileMetadata fileMetadata;
   private final DefaultInputModule inputModule;
   private final IssueExclusionsLoader exclusionsScanner;
+  private final FileMetadataCache metadataCache;
 
-  MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner) {
+  MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner,
+    FileMetadataCache metadataCache) {
     this.inputModule = inputModule;
     this.statusDetection = statusDetection;
     this.fileMetadata = fileMetadata;
     this.exclusionsScanner = exclusionsScanner;
+    this.metadataCache = metadataCache;
   }
 
   /**
    * Sets all metadata in the file, including charset and status.
-   * It is an expensive computation, reading the entire file.
+   * It is an expensive computation, reading the entire file, unless the metadata of the unchanged file
+   * is in {@link FileMetadataCache}.
    */
   public void setMetadata(final DefaultInputFile inputFile, Charset defaultEncoding) {
+    CharHandler exclusionsHandler = exclusionsScanner.createCharHandlerFor(inputFile.key());
+    // the content must be read when it is scanned for issue exclusions
+    FileMetadataCache.Key cacheKey = exclusionsHandler == null ? metadataCache.keyOf(inputFile.path(), defaultEncoding) : null;
+    if (cacheKey != null) {
+      FileMetadataCache.Entry cached = metadataCache.get(cacheKey, inputModule.key());
+      if (cached != null) {
+        inputFile.setCharset(cached.charset());
+        setMetadata(inputFile, cached.metadata());
+        return;
+      }
+    }
+
     CharsetDetector charsetDetector = new CharsetDetector(inputFile.path(), defaultEncoding);
     try {
       Charset charset;
@@ -67,15 +83,23 @@ class MetadataGenerator {
         LOG.debug("Failed to detect a valid charset for file '{}'. Using default charset.", inputFile.relativePath());
         charset = defaultEncoding;
       }
-      InputStream is = charsetDetector.inputStream();
       inputFile.setCharset(charset);
-      Metadata metadata = fileMetadata.readMetadata(is, charset, inputFile.absolutePath(), exclusionsScanner.createCharHandlerFor(inputFile.key()));
-      inputFile.setMetadata(metadata);
-      inputFile.setStatus(statusDetection.status(inputModule.definition().getKeyWithBranch(), inputFile.relativePath(), metadata.hash()));
+      // the file is read again after the BOM, so that UTF-8 and ASCII files can be scanned without decoding chars
+      charsetDetector.inputStream().close();
+      Metadata metadata = fileMetadata.readMetadata(inputFile.path(), charsetDetector.bomLength(), charset, inputFile.absolutePath(), exclusionsHandler);
+      setMetadata(inputFile, metadata);
+      if (cacheKey != null) {
+        metadataCache.put(cacheKey, charset, metadata);
+      }
       LOG.debug("'{}' generated metadata {} with charset '{}'", inputFile.relativePath(), inputFile.type() == Type.TEST ? "as test " : "", charset);
     } catch (Exception e) {
       throw new IllegalStateException(e);
     }
   }
 
+  private void setMetadata(DefaultInputFile inputFile, Metadata metadata) {
+    inputFile.setMetadata(metadata);
+    inputFile.setStatus(statusDetection.status(inputModule.definition().getKeyWithBranch(), inputFile.relativePath(), metadata.hash()));
+  }
+
 }
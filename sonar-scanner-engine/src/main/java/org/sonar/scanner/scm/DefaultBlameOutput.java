@@ -21,10 +21,10 @@ package org.sonar.scanner.scm;
 
 import com.google.common.base.Preconditions;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
@@ -39,12 +39,16 @@ import org.sonar.scanner.protocol.output.ScannerReport.Changesets.Builder;
 import org.sonar.scanner.util.ProgressReport;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
+/**
+ * Writes the changesets of each file to the report as soon as its blame is received. Results can be received
+ * concurrently: only the bookkeeping of remaining files is synchronized.
+ */
 class DefaultBlameOutput implements BlameOutput {
 
   private static final Logger LOG = Loggers.get(DefaultBlameOutput.class);
 
   private final ScannerReportWriter writer;
-  private final Set<InputFile> allFilesToBlame = new HashSet<>();
+  private final Set<InputFile> allFilesToBlame = ConcurrentHashMap.newKeySet();
   private ProgressReport progressReport;
   private int count;
   private int total;
@@ -59,7 +63,7 @@ class DefaultBlameOutput implements BlameOutput {
   }
 
   @Override
-  public synchronized void blameResult(InputFile file, List<BlameLine> lines) {
+  public void blameResult(InputFile file, List<BlameLine> lines) {
     Preconditions.checkNotNull(file);
     Preconditions.checkNotNull(lines);
     Preconditions.checkArgument(allFilesToBlame.contains(file), "It was not expected to blame file %s", file.relativePath());
@@ -87,6 +91,10 @@ class DefaultBlameOutput implements BlameOutput {
       lineId++;
     }
     writer.writeComponentChangesets(scmBuilder.build());
+    onFileBlamed(file);
+  }
+
+  private synchronized void onFileBlamed(InputFile file) {
     allFilesToBlame.remove(file);
     count++;
     progressReport.message(count + "/" + total + " files analyzed");
@@ -115,7 +123,7 @@ class DefaultBlameOutput implements BlameOutput {
     return inputString.toLowerCase();
   }
 
-  public void finish(boolean success) {
+  public synchronized void finish(boolean success) {
     progressReport.stop(count + "/" + total + " files analyzed");
     if (success && !allFilesToBlame.isEmpty()) {
       LOG.warn("Missing blame information for the following files:");
@@ -55,6 +55,8 @@ public final class ScmConfiguration implements Startable {
   private static final Logger LOG = Loggers.get(ScmConfiguration.class);
 
   public static final String FORCE_RELOAD_KEY = "sonar.scm.forceReloadAll";
+  public static final String THREADS_KEY = "sonar.scm.threads";
+  static final int DEFAULT_THREADS = 4;
 
   private final ImmutableProjectReactor projectReactor;
   private final Settings settings;
@@ -147,6 +149,18 @@ public final class ScmConfiguration implements Startable {
     return settings.getBoolean(FORCE_RELOAD_KEY);
   }
 
+  /**
+   * Maximum number of threads used to blame files, when the {@link org.sonar.api.batch.scm.BlameCommand}
+   * of the provider is thread-safe.
+   */
+  public int threads() {
+    if (!settings.hasKey(THREADS_KEY)) {
+      return DEFAULT_THREADS;
+    }
+    int threads = settings.getInt(THREADS_KEY);
+    return threads < 1 ? DEFAULT_THREADS : threads;
+  }
+
   @Override
   public void stop() {
     // Nothing to do
@@ -19,8 +19,15 @@
  */
 package org.sonar.scanner.scm;
 
-import java.util.LinkedList;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.InstantiationStrategy;
@@ -29,6 +36,7 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Status;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.scm.BlameCommand;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -45,6 +53,10 @@ import org.sonar.scanner.scan.filesystem.ModuleInputComponentStore;
 public final class ScmPublisher {
 
   private static final Logger LOG = Loggers.get(ScmPublisher.class);
+  /**
+   * Files are split in more chunks than threads, so that threads that blame fast chunks are not idle
+   */
+  private static final int CHUNKS_PER_THREAD = 4;
 
   private final DefaultInputModule inputModule;
   private final ScmConfiguration configuration;
@@ -79,7 +91,7 @@ public final class ScmPublisher {
       LOG.info("SCM provider for this project is: " + key);
       DefaultBlameOutput output = new DefaultBlameOutput(writer, filesToBlame);
       try {
-        configuration.provider().blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
+        blame(configuration.provider().blameCommand(), filesToBlame, output);
       } catch (Exception e) {
         output.finish(false);
         throw e;
@@ -88,11 +100,40 @@ public final class ScmPublisher {
     }
   }
 
+  private void blame(BlameCommand blameCommand, List<InputFile> filesToBlame, DefaultBlameOutput output) {
+    int threads = blameCommand.isThreadSafe() ? Math.min(configuration.threads(), filesToBlame.size()) : 1;
+    if (threads <= 1) {
+      blameCommand.blame(new DefaultBlameInput(fs, filesToBlame), output);
+      return;
+    }
+
+    int chunkSize = (filesToBlame.size() + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD);
+    List<List<InputFile>> chunks = Lists.partition(filesToBlame, chunkSize);
+    LOG.debug("Blame {} files in {} chunks with {} threads", filesToBlame.size(), chunks.size(), threads);
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("scm-blame-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(chunks.size());
+      for (List<InputFile> chunk : chunks) {
+        futures.add(executorService.submit(() -> blameCommand.blame(new DefaultBlameInput(fs, chunk), output)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while blaming files", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   private List<InputFile> collectFilesToBlame(ScannerReportWriter writer) {
     if (configuration.forceReloadAll()) {
       LOG.warn("Forced reloading of SCM data for all files.");
     }
-    List<InputFile> filesToBlame = new LinkedList<>();
+    List<InputFile> filesToBlame = new ArrayList<>();
     for (InputFile f : componentStore.inputFiles()) {
       DefaultInputFile inputFile = (DefaultInputFile) f;
       if (!inputFile.publish()) {
@@ -23,26 +23,60 @@ import com.google.common.collect.Sets;
 import com.persistit.Exchange;
 import com.persistit.Key;
 import com.persistit.KeyFilter;
+import com.persistit.Persistit;
+import com.persistit.Value;
+import com.persistit.Volume;
 import com.persistit.exception.PersistitException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.builder.ToStringBuilder;
 
 /**
  * <p>
- * This storage is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * Each thread accesses the underlying tree through its own {@link com.persistit.Exchange}, which is not thread-safe,
+ * so that concurrent readers and writers do not contend on a lock. Persistit itself is thread-safe.
+ * Lazy iterables use their own copy of the exchange, so a given iterator must not be shared between threads.
  * </p>
  */
 public class Storage<V> {
 
   private final String name;
-  private final Exchange exchange;
+  private final Persistit persistit;
+  private final Volume volume;
+  private final Queue<Exchange> exchanges = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<Exchange> threadExchange = ThreadLocal.withInitial(this::newExchange);
 
-  Storage(String name, Exchange exchange) {
+  Storage(String name, Persistit persistit, Volume volume) {
     this.name = name;
-    this.exchange = exchange;
+    this.persistit = persistit;
+    this.volume = volume;
+    // creates the tree
+    threadExchange.get();
+  }
+
+  private Exchange newExchange() {
+    try {
+      Exchange exchange = persistit.getExchange(volume, name, true);
+      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
+      exchanges.add(exchange);
+      return exchange;
+    } catch (PersistitException e) {
+      throw new IllegalStateException("Fail to create exchange on storage '" + name + "'", e);
+    }
+  }
+
+  /**
+   * Gives back to Persistit the exchanges of all the threads. The storage must not be used anymore.
+   */
+  void release() {
+    Exchange exchange;
+    while ((exchange = exchanges.poll()) != null) {
+      persistit.releaseExchange(exchange);
+    }
   }
 
   public Storage<V> put(Object key, V value) {
@@ -66,6 +100,7 @@ public class Storage<V> {
   }
 
   private Storage<V> doPut(V value) {
+    Exchange exchange = threadExchange.get();
     try {
       exchange.getValue().put(value);
       exchange.store();
@@ -113,6 +148,7 @@ public class Storage<V> {
   @SuppressWarnings("unchecked")
   @CheckForNull
   private V doGet() {
+    Exchange exchange = threadExchange.get();
     try {
       exchange.fetch();
       if (!exchange.getValue().isDefined()) {
@@ -146,6 +182,7 @@ public class Storage<V> {
   }
 
   private boolean doContainsKey() {
+    Exchange exchange = threadExchange.get();
     try {
       exchange.fetch();
       return exchange.isValueDefined();
@@ -176,6 +213,7 @@ public class Storage<V> {
   }
 
   private boolean doRemove() {
+    Exchange exchange = threadExchange.get();
     try {
       return exchange.remove();
     } catch (Exception e) {
@@ -210,6 +248,7 @@ public class Storage<V> {
   }
 
   private Storage<V> doClear() {
+    Exchange exchange = threadExchange.get();
     try {
       Key to = new Key(exchange.getKey());
       to.append(Key.AFTER);
@@ -224,6 +263,7 @@ public class Storage<V> {
    * Clears the default as well as all group caches.
    */
   public void clear() {
+    Exchange exchange = threadExchange.get();
     try {
       exchange.clear();
       exchange.removeAll();
@@ -241,6 +281,7 @@ public class Storage<V> {
    */
   @SuppressWarnings("rawtypes")
   public Set keySet(Object key) {
+    Exchange exchange = threadExchange.get();
     try {
       Set<Object> keys = Sets.newLinkedHashSet();
       exchange.clear();
@@ -258,6 +299,7 @@ public class Storage<V> {
 
   @SuppressWarnings("rawtypes")
   public Set keySet(Object firstKey, Object secondKey) {
+    Exchange exchange = threadExchange.get();
     try {
       Set<Object> keys = Sets.newLinkedHashSet();
       exchange.clear();
@@ -280,6 +322,7 @@ public class Storage<V> {
    * @return The set containing the keys for this cache.
    */
   public Set<Object> keySet() {
+    Exchange exchange = threadExchange.get();
     try {
       Set<Object> keys = Sets.newLinkedHashSet();
       exchange.clear();
@@ -298,47 +341,51 @@ public class Storage<V> {
    * Lazy-loading values for given keys
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
-    return new ValueIterable<>(exchange, firstKey, secondKey);
+    return new ValueIterable<>(threadExchange, firstKey, secondKey);
   }
 
   /**
    * Lazy-loading values for a given key
    */
   public Iterable<V> values(Object firstKey) {
-    return new ValueIterable<>(exchange, firstKey);
+    return new ValueIterable<>(threadExchange, firstKey);
   }
 
   /**
    * Lazy-loading values
    */
   public Iterable<V> values() {
-    return new ValueIterable<>(exchange);
+    return new ValueIterable<>(threadExchange);
   }
 
   public Iterable<Entry<V>> entries() {
-    return new EntryIterable<>(exchange);
+    return new EntryIterable<>(threadExchange);
   }
 
   public Iterable<Entry<V>> entries(Object firstKey) {
-    return new EntryIterable<>(exchange, firstKey);
+    return new EntryIterable<>(threadExchange, firstKey);
   }
 
   private void resetKey(Object key) {
+    Exchange exchange = threadExchange.get();
     exchange.clear();
     exchange.append(key);
   }
 
   private void resetKey(Object first, Object second) {
+    Exchange exchange = threadExchange.get();
     exchange.clear();
     exchange.append(first).append(second);
   }
 
   private void resetKey(Object first, Object second, Object third) {
+    Exchange exchange = threadExchange.get();
     exchange.clear();
     exchange.append(first).append(second).append(third);
   }
 
   private void resetKey(Object[] keys) {
+    Exchange exchange = threadExchange.get();
     exchange.clear();
     for (Object o : keys) {
       exchange.append(o);
@@ -350,24 +397,25 @@ public class Storage<V> {
   //
 
   private static class ValueIterable<T> implements Iterable<T> {
-    private final Exchange originExchange;
+    private final ThreadLocal<Exchange> threadExchange;
     private final Object[] keys;
 
-    private ValueIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
+    private ValueIterable(ThreadLocal<Exchange> threadExchange, Object... keys) {
+      this.threadExchange = threadExchange;
       this.keys = keys;
     }
 
     @Override
     public Iterator<T> iterator() {
-      originExchange.clear();
       KeyFilter filter = new KeyFilter();
+      Exchange exchange = threadExchange.get();
+      exchange.clear();
       for (Object key : keys) {
-        originExchange.append(key);
+        exchange.append(key);
         filter = filter.append(KeyFilter.simpleTerm(key));
       }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
+      exchange.append(Key.BEFORE);
+      Exchange iteratorExchange = new Exchange(exchange);
       return new ValueIterator<>(iteratorExchange, filter);
     }
   }
@@ -411,24 +459,25 @@ public class Storage<V> {
   }
 
   private static class EntryIterable<T> implements Iterable<Entry<T>> {
-    private final Exchange originExchange;
+    private final ThreadLocal<Exchange> threadExchange;
     private final Object[] keys;
 
-    private EntryIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
+    private EntryIterable(ThreadLocal<Exchange> threadExchange, Object... keys) {
+      this.threadExchange = threadExchange;
       this.keys = keys;
     }
 
     @Override
     public Iterator<Entry<T>> iterator() {
-      originExchange.clear();
       KeyFilter filter = new KeyFilter();
+      Exchange exchange = threadExchange.get();
+      exchange.clear();
       for (Object key : keys) {
-        originExchange.append(key);
+        exchange.append(key);
         filter = filter.append(KeyFilter.simpleTerm(key));
       }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
+      exchange.append(Key.BEFORE);
+      Exchange iteratorExchange = new Exchange(exchange);
       return new EntryIterator<>(iteratorExchange, filter);
     }
   }
@@ -20,9 +20,7 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
 import com.persistit.Persistit;
-import com.persistit.Value;
 import com.persistit.Volume;
 import com.persistit.encoding.CoderManager;
 import com.persistit.encoding.ValueCoder;
@@ -30,13 +28,12 @@ import com.persistit.exception.PersistitException;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
 
 @ScannerSide
 public class Storages implements Startable {
-  private final Map<String, Exchange> cacheMap = new HashMap<>();
+  private final Map<String, Storage<?>> cacheMap = new HashMap<>();
   private Persistit persistit;
   private Volume volume;
 
@@ -68,10 +65,8 @@ public class Storages implements Startable {
     Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
     Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
     try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
+      Storage<V> cache = new Storage<>(cacheName, persistit, volume);
+      cacheMap.put(cacheName, cache);
       return cache;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create cache: " + cacheName, e);
@@ -80,8 +75,8 @@ public class Storages implements Startable {
 
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
+    for (Storage<?> storage : cacheMap.values()) {
+      storage.release();
     }
 
     cacheMap.clear();
@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.storage;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.persistit.Persistit;
 import com.persistit.exception.PersistitException;
 import com.persistit.logging.Slf4jAdapter;
@@ -28,22 +29,32 @@ import org.picocontainer.Startable;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.scanner.bootstrap.GlobalProperties;
 
 import static org.sonar.core.util.FileUtils.deleteQuietly;
 
 /**
- * Factory of storages
+ * Factory of storages.
+ * <p>
+ * Values are kept in the Persistit buffer pool, whose size is defined by {@link #BUFFER_SIZE_PROPERTY}, and are
+ * spilled to the temporary volume on disk when the pool is full.
  *
  * @since 3.6
  */
 @ScannerSide
 public class StoragesManager implements Startable {
+  static final String BUFFER_SIZE_PROPERTY = "sonar.scanner.storage.bufferSizeMb";
+  static final int DEFAULT_BUFFER_SIZE_MB = 8;
+  private static final int PAGE_SIZE = 8192;
+
   private File tempDir;
   private Persistit persistit;
   private final TempFolder tempFolder;
+  private final GlobalProperties globalProperties;
 
-  public StoragesManager(TempFolder tempFolder) {
+  public StoragesManager(TempFolder tempFolder, GlobalProperties globalProperties) {
     this.tempFolder = tempFolder;
+    this.globalProperties = globalProperties;
     initPersistit();
   }
 
@@ -56,10 +67,10 @@ public class StoragesManager implements Startable {
       props.setProperty("datapath", tempDir.getAbsolutePath());
       props.setProperty("logpath", "${datapath}/log");
       props.setProperty("logfile", "${logpath}/persistit_${timestamp}.log");
-      props.setProperty("buffer.count.8192", "10");
+      props.setProperty("buffer.count." + PAGE_SIZE, String.valueOf(getBufferCount()));
       props.setProperty("journalpath", "${datapath}/journal");
       props.setProperty("tmpvoldir", "${datapath}");
-      props.setProperty("volume.1", "${datapath}/persistit,create,pageSize:8192,initialPages:10,extensionPages:100,maximumPages:25000");
+      props.setProperty("volume.1", "${datapath}/persistit,create,pageSize:" + PAGE_SIZE + ",initialPages:10,extensionPages:100,maximumPages:25000");
       props.setProperty("jmx", "false");
       persistit.setProperties(props);
       persistit.initialize();
@@ -69,6 +80,26 @@ public class StoragesManager implements Startable {
     }
   }
 
+  /**
+   * Number of pages of the buffer pool. Values greater than this pool are written to disk.
+   */
+  @VisibleForTesting
+  int getBufferCount() {
+    int sizeMb = DEFAULT_BUFFER_SIZE_MB;
+    String value = globalProperties.property(BUFFER_SIZE_PROPERTY);
+    if (value != null) {
+      try {
+        sizeMb = Integer.parseInt(value.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalStateException("Property " + BUFFER_SIZE_PROPERTY + " must be an integer. Got: " + value, e);
+      }
+    }
+    if (sizeMb < 1) {
+      sizeMb = DEFAULT_BUFFER_SIZE_MB;
+    }
+    return (int) ((sizeMb * 1024L * 1024L) / PAGE_SIZE);
+  }
+
   @Override
   public void start() {
     // already started in constructor
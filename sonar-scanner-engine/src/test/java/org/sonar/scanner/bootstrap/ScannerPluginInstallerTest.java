@@ -19,22 +19,33 @@
  */
 package org.sonar.scanner.bootstrap;
 
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.RemotePlugin;
 import org.sonar.home.cache.FileCache;
+import org.sonar.home.cache.FileCacheBuilder;
+import org.sonar.home.cache.FileHashes;
 import org.sonar.scanner.WsTestUtil;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ScannerPluginInstallerTest {
@@ -48,6 +59,8 @@ public class ScannerPluginInstallerTest {
   private FileCache fileCache = mock(FileCache.class);
   private ScannerWsClient wsClient;
   private ScannerPluginPredicate pluginPredicate = mock(ScannerPluginPredicate.class);
+  private ScannerPluginJarExploder jarExploder = mock(ScannerPluginJarExploder.class);
+  private GlobalProperties globalProperties = new GlobalProperties(Collections.emptyMap());
 
   @Before
   public void setUp() {
@@ -57,7 +70,7 @@ public class ScannerPluginInstallerTest {
   @Test
   public void listRemotePlugins() {
     WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt", new StringReader("checkstyle\nsqale"));
-    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate);
+    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, jarExploder, globalProperties);
 
     List<RemotePlugin> remotePlugins = underTest.listRemotePlugins();
     assertThat(remotePlugins).extracting("key").containsOnly("checkstyle", "sqale");
@@ -66,9 +79,9 @@ public class ScannerPluginInstallerTest {
   @Test
   public void should_download_plugin() throws Exception {
     File pluginJar = temp.newFile();
-    when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class))).thenReturn(pluginJar);
+    when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.StreamDownloader.class))).thenReturn(pluginJar);
 
-    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate);
+    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, jarExploder, globalProperties);
 
     RemotePlugin remote = new RemotePlugin("checkstyle").setFile("checkstyle-plugin.jar", "fakemd5_1");
     File file = underTest.download(remote);
@@ -81,6 +94,59 @@ public class ScannerPluginInstallerTest {
     WsTestUtil.mockException(wsClient, "/deploy/plugins/index.txt", new IllegalStateException());
     thrown.expect(IllegalStateException.class);
 
-    new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
+    new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, jarExploder, globalProperties).installRemotes();
+  }
+
+  @Test
+  public void should_download_plugin_to_cache() throws Exception {
+    FileCache realCache = new FileCacheBuilder(new Slf4jLogger()).setUserHome(temp.newFolder()).build();
+    String hash = new FileHashes().of(new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)));
+    WsTestUtil.mockStream(wsClient, "/deploy/plugins/checkstyle/checkstyle-plugin.jar", new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)));
+    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, realCache, pluginPredicate, jarExploder, globalProperties);
+
+    File file = underTest.download(new RemotePlugin("checkstyle").setFile("checkstyle-plugin.jar", hash));
+
+    assertThat(file).isEqualTo(realCache.get("checkstyle-plugin.jar", hash));
+    assertThat(FileUtils.readFileToString(file, StandardCharsets.UTF_8)).isEqualTo("content");
+  }
+
+  @Test
+  public void install_and_extract_accepted_plugins() throws Exception {
+    File checkstyleJar = FileUtils.toFile(getClass().getResource("ScannerPluginJarExploderTest/sonar-checkstyle-plugin-2.8.jar"));
+    WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt",
+      new StringReader("checkstyle,true,checkstyle-plugin.jar|fakemd5_1\nsqale,true,sqale-plugin.jar|fakemd5_2"));
+    when(pluginPredicate.apply("checkstyle")).thenReturn(true);
+    when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.StreamDownloader.class))).thenReturn(checkstyleJar);
+
+    Map<String, PluginInfo> infos = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, jarExploder, globalProperties).installRemotes();
+
+    assertThat(infos).containsOnlyKeys("checkstyle");
+    verify(jarExploder).explode(infos.get("checkstyle"));
+    verify(fileCache, never()).get(eq("sqale-plugin.jar"), eq("fakemd5_2"), any(FileCache.StreamDownloader.class));
+  }
+
+  @Test
+  public void fail_if_a_plugin_can_not_be_downloaded() {
+    WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt", new StringReader("checkstyle,true,checkstyle-plugin.jar|fakemd5_1"));
+    when(pluginPredicate.apply("checkstyle")).thenReturn(true);
+    when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.StreamDownloader.class))).thenThrow(new IllegalStateException("INVALID HASH"));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Fail to download plugin: checkstyle");
+
+    new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, jarExploder, globalProperties).installRemotes();
+  }
+
+  @Test
+  public void threads_are_configurable() {
+    assertThat(new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, jarExploder, globalProperties).getThreads())
+      .isEqualTo(ScannerPluginInstaller.DEFAULT_THREADS);
+    assertThat(newInstallerWithThreads("2").getThreads()).isEqualTo(2);
+    assertThat(newInstallerWithThreads("0").getThreads()).isEqualTo(ScannerPluginInstaller.DEFAULT_THREADS);
+  }
+
+  private ScannerPluginInstaller newInstallerWithThreads(String threads) {
+    GlobalProperties properties = new GlobalProperties(ImmutableMap.of(ScannerPluginInstaller.THREADS_PROPERTY, threads));
+    return new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate, jarExploder, properties);
   }
 }
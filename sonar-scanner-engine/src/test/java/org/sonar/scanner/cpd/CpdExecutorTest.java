@@ -122,6 +122,58 @@ public class CpdExecutorTest {
     assertThat(executor.getMinimumTokens("php")).isEqualTo(33);
   }
 
+  @Test
+  public void threads_default_to_1() {
+    assertThat(executor.getThreads()).isEqualTo(1);
+
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "0");
+    assertThat(executor.getThreads()).isEqualTo(1);
+  }
+
+  @Test
+  public void threads_are_read_from_settings() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "4");
+    assertThat(executor.getThreads()).isEqualTo(4);
+  }
+
+  @Test
+  public void detect_duplications_of_all_files_when_using_several_threads() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "4");
+    DefaultInputFile[] files = new DefaultInputFile[10];
+    for (int i = 0; i < files.length; i++) {
+      files[i] = new TestInputFileBuilder("foo", "src/Bar" + i + ".java")
+        .setModuleBaseDir(baseDir.toPath())
+        .setLanguage("java")
+        .setLines(5)
+        .build();
+      componentStore.put(files[i]);
+    }
+    for (DefaultInputFile file : files) {
+      List<Block> blocks = new ArrayList<>();
+      for (int j = 1; j <= 3; j++) {
+        blocks.add(Block.builder()
+          .setResourceId(file.key())
+          .setIndexInFile(j)
+          .setLines(j, j + 1)
+          .setUnit(j, j + 1)
+          .setBlockHash(new ByteArray(("hash000" + j).getBytes()))
+          .build());
+      }
+      index.insert((InputFile) file, blocks);
+    }
+
+    executor.execute(60_000);
+
+    for (DefaultInputFile file : files) {
+      List<Duplication> duplications = new ArrayList<>();
+      try (CloseableIterator<Duplication> it = reader.readComponentDuplications(file.batchId())) {
+        it.forEachRemaining(duplications::add);
+      }
+      assertThat(duplications).hasSize(1);
+      assertDuplication(duplications.get(0), 1, 4, files.length - 1);
+    }
+  }
+
   @Test
   public void testNothingToSave() {
     executor.saveDuplications(batchComponent1, Collections.<CloneGroup>emptyList());
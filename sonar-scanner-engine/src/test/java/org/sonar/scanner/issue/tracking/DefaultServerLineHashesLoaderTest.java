@@ -19,35 +19,58 @@
  */
 package org.sonar.scanner.issue.tracking;
 
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.utils.HttpDownloader;
+import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.protocol.input.ScannerInput.FileLineHashes;
+import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.WsRequest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class DefaultServerLineHashesLoaderTest {
   private ScannerWsClient wsClient;
+  private LineHashesCache cache;
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
   @Before
-  public void before() {
+  public void before() throws IOException {
     wsClient = mock(ScannerWsClient.class);
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    cache = new LineHashesCache(fileCache);
   }
 
   @Test
   public void should_download_source_from_ws_if_preview_mode() {
     WsTestUtil.mockReader(wsClient, new StringReader("ae12\n\n43fb"));
-    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient);
+    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient, cache);
 
     String[] hashes = lastSnapshots.getLineHashes("myproject:org/foo/Bar.c");
     assertThat(hashes).containsOnly("ae12", "", "43fb");
@@ -57,7 +80,7 @@ public class DefaultServerLineHashesLoaderTest {
   @Test
   public void should_download_source_with_space_from_ws_if_preview_mode() {
     WsTestUtil.mockReader(wsClient, new StringReader("ae12\n\n43fb"));
-    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient);
+    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient, cache);
 
     String[] hashes = lastSnapshots.getLineHashes("myproject:org/foo/Foo Bar.c");
     assertThat(hashes).containsOnly("ae12", "", "43fb");
@@ -67,10 +90,79 @@ public class DefaultServerLineHashesLoaderTest {
   @Test
   public void should_fail_to_download_source_from_ws() throws URISyntaxException {
     WsTestUtil.mockException(wsClient, new HttpDownloader.HttpException(new URI(""), 500));
-    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient);
+    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient, cache);
 
     thrown.expect(HttpDownloader.HttpException.class);
     lastSnapshots.getLineHashes("foo");
   }
 
+  @Test
+  public void preload_line_hashes_in_a_single_request() throws IOException {
+    WsTestUtil.mockStream(wsClient, "/batch/line_hashes.protobuf", stream(
+      FileLineHashes.newBuilder().setKey("myproject:A.c").setSrcHash("hashA").setLineHashes("ae12\n\n43fb").build(),
+      FileLineHashes.newBuilder().setKey("myproject:B.c").setSrcHash("hashB").setLineHashes("bc34").build()));
+    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient, cache);
+
+    lastSnapshots.preload(ImmutableMap.of("myproject:A.c", "hashA", "myproject:B.c", "hashB"));
+
+    assertThat(lastSnapshots.getLineHashes("myproject:A.c")).containsExactly("ae12", "", "43fb");
+    assertThat(lastSnapshots.getLineHashes("myproject:B.c")).containsExactly("bc34");
+    ArgumentCaptor<WsRequest> request = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient).call(request.capture());
+    assertThat(request.getValue().getMethod()).isEqualTo(WsRequest.Method.POST);
+    assertThat(request.getValue().getParameters().getValues("keys")).containsExactly("myproject:A.c", "myproject:B.c");
+    assertThat(cache.get("hashA")).isEqualTo("ae12\n\n43fb");
+  }
+
+  @Test
+  public void do_not_request_line_hashes_already_in_cache() {
+    cache.put("hashA", "ae12\n43fb");
+    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient, cache);
+
+    lastSnapshots.preload(ImmutableMap.of("myproject:A.c", "hashA"));
+
+    assertThat(lastSnapshots.getLineHashes("myproject:A.c")).containsExactly("ae12", "43fb");
+    verify(wsClient, never()).call(any(WsRequest.class));
+  }
+
+  @Test
+  public void split_preloading_in_several_requests() throws IOException {
+    WsTestUtil.mockStream(wsClient, stream());
+    Map<String, String> srcHashesByFileKey = new HashMap<>();
+    for (int i = 0; i <= DefaultServerLineHashesLoader.BULK_SIZE; i++) {
+      srcHashesByFileKey.put("myproject:File" + i + ".c", "hash" + i);
+    }
+
+    new DefaultServerLineHashesLoader(wsClient, cache).preload(srcHashesByFileKey);
+
+    verify(wsClient, times(2)).call(any(WsRequest.class));
+  }
+
+  @Test
+  public void fall_back_to_one_request_per_file_if_server_does_not_support_bulk_loading() {
+    WsTestUtil.mockException(wsClient, "/batch/line_hashes.protobuf", new HttpException("url", 404, ""));
+    WsTestUtil.mockReader(wsClient, "/api/sources/hash?key=myproject%3AA.c", new StringReader("ae12\n43fb"));
+    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient, cache);
+
+    lastSnapshots.preload(ImmutableMap.of("myproject:A.c", "hashA"));
+
+    assertThat(lastSnapshots.getLineHashes("myproject:A.c")).containsExactly("ae12", "43fb");
+  }
+
+  @Test
+  public void fail_to_preload_line_hashes() {
+    WsTestUtil.mockException(wsClient, new HttpException("url", 500, ""));
+    ServerLineHashesLoader lastSnapshots = new DefaultServerLineHashesLoader(wsClient, cache);
+
+    thrown.expect(HttpException.class);
+    lastSnapshots.preload(ImmutableMap.of("myproject:A.c", "hashA"));
+  }
+
+  private static ByteArrayInputStream stream(FileLineHashes... messages) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    for (FileLineHashes message : messages) {
+      message.writeDelimitedTo(output);
+    }
+    return new ByteArrayInputStream(output.toByteArray());
+  }
 }
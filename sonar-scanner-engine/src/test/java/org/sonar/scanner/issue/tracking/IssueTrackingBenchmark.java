@@ -0,0 +1,199 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.tracking.BlockHashSequence;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.LineHashSequence;
+import org.sonar.core.issue.tracking.Trackable;
+import org.sonar.core.issue.tracking.Tracker;
+import org.sonar.core.issue.tracking.Tracking;
+
+/**
+ * Measures the tracking of one million base issues, spread over {@link #files} files, with an increasing number
+ * of threads. Files are submitted and their results are collected in order, like in {@link IssueTransition}.
+ * One line is inserted at the top of each file and one message out of ten is changed, so that all the matching
+ * rounds of {@link Tracker} are exercised.
+ * It is not executed by the build. Run it with {@link #main(String[])} from the module directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IssueTrackingBenchmark {
+
+  private static final int BASE_ISSUES = 1_000_000;
+  private static final RuleKey[] RULES = {RuleKey.of("java", "S1"), RuleKey.of("java", "S2"), RuleKey.of("java", "S3")};
+
+  @Param({"1", "2", "4", "8"})
+  private int threads;
+
+  @Param({"1000"})
+  private int files;
+
+  private final Tracker<FakeIssue, FakeIssue> tracker = new Tracker<>();
+  private final List<FakeInput> rawInputs = new ArrayList<>();
+  private final List<FakeInput> baseInputs = new ArrayList<>();
+  private ExecutorService executorService;
+
+  @Setup
+  public void setUp() {
+    int issuesPerFile = BASE_ISSUES / files;
+    for (int f = 0; f < files; f++) {
+      List<String> baseHashes = new ArrayList<>();
+      List<String> rawHashes = new ArrayList<>();
+      rawHashes.add("inserted" + f);
+      for (int line = 1; line <= issuesPerFile; line++) {
+        String hash = "hash" + f + "_" + line;
+        baseHashes.add(hash);
+        rawHashes.add(hash);
+      }
+      FakeInput base = new FakeInput(baseHashes);
+      FakeInput raw = new FakeInput(rawHashes);
+      for (int line = 1; line <= issuesPerFile; line++) {
+        RuleKey rule = RULES[line % RULES.length];
+        String message = "Message " + line;
+        base.issues.add(new FakeIssue(rule, line, baseHashes.get(line - 1), message));
+        raw.issues.add(new FakeIssue(rule, line + 1, baseHashes.get(line - 1), line % 10 == 0 ? (message + " changed") : message));
+      }
+      baseInputs.add(base);
+      rawInputs.add(raw);
+    }
+    executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("issue-tracking-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  @TearDown
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Benchmark
+  public int track() throws Exception {
+    List<Future<Tracking<FakeIssue, FakeIssue>>> futures = new ArrayList<>(files);
+    for (int i = 0; i < files; i++) {
+      FakeInput raw = rawInputs.get(i);
+      FakeInput base = baseInputs.get(i);
+      futures.add(executorService.submit(() -> tracker.track(raw, base)));
+    }
+    int matched = 0;
+    for (Future<Tracking<FakeIssue, FakeIssue>> future : futures) {
+      matched += future.get().getMatchedRaws().size();
+    }
+    return matched;
+  }
+
+  private static class FakeInput implements Input<FakeIssue> {
+    private final List<FakeIssue> issues = new ArrayList<>();
+    private final List<String> lineHashes;
+
+    FakeInput(List<String> lineHashes) {
+      this.lineHashes = lineHashes;
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return new LineHashSequence(lineHashes);
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return BlockHashSequence.create(getLineHashSequence());
+    }
+
+    @Override
+    public Collection<FakeIssue> getIssues() {
+      return issues;
+    }
+  }
+
+  private static class FakeIssue implements Trackable {
+    private final RuleKey ruleKey;
+    private final Integer line;
+    private final String lineHash;
+    private final String message;
+
+    FakeIssue(RuleKey ruleKey, Integer line, String lineHash, String message) {
+      this.ruleKey = ruleKey;
+      this.line = line;
+      this.lineHash = lineHash;
+      this.message = message;
+    }
+
+    @CheckForNull
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @CheckForNull
+    @Override
+    public String getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return ruleKey;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(IssueTrackingBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
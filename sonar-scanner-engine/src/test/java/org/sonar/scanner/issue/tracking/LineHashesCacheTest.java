@@ -0,0 +1,81 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.home.cache.FileCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LineHashesCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File cacheDir;
+  private LineHashesCache underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDir = temp.newFolder();
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(cacheDir);
+    underTest = new LineHashesCache(fileCache);
+  }
+
+  @Test
+  public void put_and_get_line_hashes() {
+    underTest.put("abc123", "ae12\n\n43fb");
+
+    assertThat(underTest.contains("abc123")).isTrue();
+    assertThat(underTest.get("abc123")).isEqualTo("ae12\n\n43fb");
+    assertThat(new File(cacheDir, "_line_hashes/abc123")).isFile();
+  }
+
+  @Test
+  public void replace_line_hashes() {
+    underTest.put("abc123", "ae12");
+    underTest.put("abc123", "43fb");
+
+    assertThat(underTest.get("abc123")).isEqualTo("43fb");
+  }
+
+  @Test
+  public void return_null_if_not_cached() {
+    assertThat(underTest.contains("abc123")).isFalse();
+    assertThat(underTest.get("abc123")).isNull();
+  }
+
+  @Test
+  public void ignore_hashes_which_are_not_valid_file_names() {
+    underTest.put("../abc", "ae12");
+
+    assertThat(underTest.contains("../abc")).isFalse();
+    assertThat(underTest.get("../abc")).isNull();
+    assertThat(new File(cacheDir, "abc")).doesNotExist();
+  }
+}
@@ -48,6 +48,7 @@ import org.sonar.xoo.rule.XooRulesDefinition;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -104,6 +105,24 @@ public class FileSystemMediumTest {
       .put("sonar.projectDescription", "Description of Foo Project");
   }
 
+  @Test
+  public void reuse_metadata_of_unchanged_files_from_previous_analysis() throws IOException {
+    File srcDir = new File(baseDir, "src");
+    srcDir.mkdir();
+    File xooFile = new File(srcDir, "sample.xoo");
+    FileUtils.write(xooFile, "Sample xoo\ncontent");
+    // files modified too recently are not cached
+    xooFile.setLastModified(System.currentTimeMillis() - 60_000L);
+
+    Map<String, String> properties = builder.put("sonar.sources", "src").build();
+    tester.newTask().properties(properties).start();
+    assertThat(logs.getAllAsString()).contains("File metadata cache: 0/1 hits (0%)");
+
+    TaskResult result = tester.newTask().properties(properties).start();
+    assertThat(logs.getAllAsString()).contains("File metadata cache: 1/1 hits (100%)");
+    assertThat(result.inputFile("src/sample.xoo").lines()).isEqualTo(2);
+  }
+
   @Test
   public void scanProjectWithoutProjectName() throws IOException {
     builder = createBuilder();
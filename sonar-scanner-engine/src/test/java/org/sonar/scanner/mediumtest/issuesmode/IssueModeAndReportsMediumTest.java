@@ -176,6 +176,22 @@ public class IssueModeAndReportsMediumTest {
     });
   }
 
+  @Test
+  public void testIssueTrackingWithSeveralThreads() throws Exception {
+    File projectDir = copyProject("/mediumtest/xoo/sample");
+
+    TaskResult result = tester
+      .newScanTask(new File(projectDir, "sonar-project.properties"))
+      .property("sonar.issueTracking.threads", "4")
+      .start();
+
+    assertThat(result.trackedIssues()).hasSize(19);
+    assertThat(result.trackedIssues()).filteredOn(TrackedIssue::isNew).hasSize(16);
+    assertThat(result.trackedIssues()).filteredOn(issue -> !issue.isNew() && issue.resolution() != null).hasSize(1);
+    assertThat(result.trackedIssues()).extracting(TrackedIssue::key).contains("xyz", "resolved", "resolved-on-project");
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("6/6 components tracked");
+  }
+
   @Test
   public void testConsoleReport() throws Exception {
     File projectDir = copyProject("/mediumtest/xoo/sample");
@@ -125,6 +125,36 @@ public class ScmMediumTest {
     assertThat(changesetLine5.getAuthor()).isEqualTo("simon");
   }
 
+  @Test
+  public void blame_files_concurrently() throws IOException {
+    File baseDir = temp.getRoot();
+    File srcDir = new File(baseDir, "src");
+    for (int i = 0; i < 20; i++) {
+      FileUtils.write(new File(srcDir, "file" + i + ".xoo"), "line1\nline2", StandardCharsets.UTF_8);
+      FileUtils.write(new File(srcDir, "file" + i + ".xoo.scm"), "1,julien,2013-01-04\n" + i + ",simon,2013-01-04\n", StandardCharsets.UTF_8);
+    }
+
+    tester.newTask()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.task", "scan")
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.projectName", "Foo Project")
+        .put("sonar.projectVersion", "1.0-SNAPSHOT")
+        .put("sonar.sources", "src")
+        .put("sonar.scm.provider", "xoo")
+        .put("sonar.scm.threads", "3")
+        .build())
+      .start();
+
+    for (int i = 0; i < 20; i++) {
+      ScannerReport.Changesets fileScm = getChangesets(baseDir, "src/file" + i + ".xoo");
+      assertThat(fileScm.getChangesetIndexByLineList()).hasSize(2);
+      assertThat(fileScm.getChangeset(fileScm.getChangesetIndexByLine(1)).getRevision()).isEqualTo(String.valueOf(i));
+    }
+    assertThat(logTester.logs()).doesNotContain(MISSING_BLAME_INFORMATION_FOR_THE_FOLLOWING_FILES);
+  }
+
   private ScannerReport.Changesets getChangesets(File baseDir, String path) {
     File reportDir = new File(baseDir, ".sonar/batch-report");
     ScannerReportReader reader = new ScannerReportReader(reportDir);
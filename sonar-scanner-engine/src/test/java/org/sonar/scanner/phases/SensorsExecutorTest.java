@@ -20,19 +20,30 @@
 package org.sonar.scanner.phases;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.*;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
 import org.sonar.scanner.sensor.SensorStrategy;
+import org.sonar.scanner.sensor.SensorWrapper;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 public class SensorsExecutorTest {
@@ -44,6 +55,9 @@ public class SensorsExecutorTest {
   private SensorContext context;
 
   private SensorStrategy strategy = new SensorStrategy();
+  private MapSettings settings = new MapSettings();
+  private ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
+  private DefaultInputModule rootModule;
 
   private TestSensor perModuleSensor = new TestSensor(strategy);
   private TestSensor globalSensor = new TestSensor(strategy);
@@ -74,16 +88,15 @@ public class SensorsExecutorTest {
   public void setUp() throws IOException {
     context = mock(SensorContext.class);
 
-    ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
     when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Collections.singleton(perModuleSensor));
     when(selector.selectSensors(any(DefaultInputModule.class), eq(true))).thenReturn(Collections.singleton(globalSensor));
 
-    DefaultInputModule rootModule = TestInputFileBuilder.newDefaultInputModule("root", temp.newFolder());
-    rootModuleExecutor = new SensorsExecutor(selector, rootModule, mock(EventBus.class), strategy);
+    rootModule = TestInputFileBuilder.newDefaultInputModule("root", temp.newFolder());
+    rootModuleExecutor = new SensorsExecutor(selector, rootModule, mock(EventBus.class), strategy, settings);
 
     DefaultInputModule subModule = TestInputFileBuilder.newDefaultInputModule("sub", temp.newFolder());
     rootModule.definition().addSubProject(subModule.definition());
-    subModuleExecutor = new SensorsExecutor(selector, subModule, mock(EventBus.class), strategy);
+    subModuleExecutor = new SensorsExecutor(selector, subModule, mock(EventBus.class), strategy, settings);
   }
 
   @Test
@@ -104,4 +117,97 @@ public class SensorsExecutorTest {
     assertThat(globalSensor.called).isTrue();
     assertThat(globalSensor.global).isTrue();
   }
+
+  @Test
+  public void execute_sensors_sequentially_by_default() {
+    assertThat(rootModuleExecutor.getThreads()).isEqualTo(1);
+
+    settings.setProperty("sonar.sensors.threads", 0);
+    assertThat(rootModuleExecutor.getThreads()).isEqualTo(1);
+
+    settings.setProperty("sonar.sensors.threads", 4);
+    assertThat(rootModuleExecutor.getThreads()).isEqualTo(4);
+  }
+
+  @Test
+  public void execute_thread_safe_sensors_concurrently() {
+    settings.setProperty("sonar.sensors.threads", 2);
+    CountDownLatch latch = new CountDownLatch(2);
+    List<String> executions = new CopyOnWriteArrayList<>();
+    SensorWrapper sensor1 = newSensor("sensor1", true, executions, latch);
+    SensorWrapper sensor2 = newSensor("sensor2", true, executions, latch);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(asList(sensor1, sensor2));
+
+    rootModuleExecutor.execute(context);
+
+    // each sensor waited for the other one
+    assertThat(executions).containsOnly("sensor1 concurrent", "sensor2 concurrent").hasSize(2);
+  }
+
+  @Test
+  public void execute_alone_sensors_which_are_not_thread_safe() {
+    settings.setProperty("sonar.sensors.threads", 2);
+    List<String> executions = new CopyOnWriteArrayList<>();
+    SensorWrapper sensor1 = newSensor("sensor1", true, executions, new CountDownLatch(2));
+    SensorWrapper sensor2 = newSensor("sensor2", false, executions, new CountDownLatch(2));
+    SensorWrapper sensor3 = newSensor("sensor3", true, executions, new CountDownLatch(2));
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(asList(sensor1, sensor2, sensor3));
+
+    rootModuleExecutor.execute(context);
+
+    // order of sensors is kept
+    assertThat(executions).containsExactly("sensor1 alone", "sensor2 alone", "sensor3 alone");
+  }
+
+  @Test
+  public void fail_if_thread_safe_sensor_fails() {
+    settings.setProperty("sonar.sensors.threads", 2);
+    SensorWrapper sensor1 = newSensor("sensor1", true, new ArrayList<>(), new CountDownLatch(0));
+    SensorWrapper sensor2 = new SensorWrapper(new org.sonar.api.batch.sensor.Sensor() {
+      @Override
+      public void describe(SensorDescriptor descriptor) {
+        descriptor.threadSafe();
+      }
+
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        throw new IllegalStateException("Failure of sensor");
+      }
+    }, mock(org.sonar.api.batch.sensor.SensorContext.class), mock(SensorOptimizer.class));
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(asList(sensor1, sensor2));
+
+    try {
+      rootModuleExecutor.execute(context);
+      fail("An IllegalStateException should have been raised");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Failure of sensor");
+    }
+  }
+
+  /**
+   * The sensor records whether it has been executed concurrently with the sensors sharing the latch
+   */
+  private static SensorWrapper newSensor(String name, boolean threadSafe, List<String> executions, CountDownLatch latch) {
+    org.sonar.api.batch.sensor.Sensor sensor = new org.sonar.api.batch.sensor.Sensor() {
+      @Override
+      public void describe(SensorDescriptor descriptor) {
+        descriptor.name(name);
+        if (threadSafe) {
+          descriptor.threadSafe();
+        }
+      }
+
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        latch.countDown();
+        try {
+          boolean concurrent = latch.await(200, TimeUnit.MILLISECONDS);
+          executions.add(name + (concurrent ? " concurrent" : " alone"));
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+    return new SensorWrapper(sensor, mock(org.sonar.api.batch.sensor.SensorContext.class), mock(SensorOptimizer.class));
+  }
 }
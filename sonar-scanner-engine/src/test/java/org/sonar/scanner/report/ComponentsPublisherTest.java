@@ -301,4 +301,33 @@ public class ComponentsPublisherTest {
     assertThat(module1Protobuf.getLink(0).getType()).isEqualTo(ComponentLinkType.CI);
     assertThat(module1Protobuf.getLink(0).getHref()).isEqualTo("http://ci");
   }
+
+  @Test
+  public void add_hashes_of_files() throws Exception {
+    Component fileProtobuf = publishFileWithCoverage(outputDir, true);
+
+    assertThat(fileProtobuf.getHash()).isEqualTo("source hash");
+    assertThat(fileProtobuf.getInputHash()).hasSize(32);
+    // same data in report
+    assertThat(publishFileWithCoverage(temp.newFolder(), true).getInputHash()).isEqualTo(fileProtobuf.getInputHash());
+    // coverage changed
+    assertThat(publishFileWithCoverage(temp.newFolder(), false).getInputHash()).isNotEqualTo(fileProtobuf.getInputHash());
+  }
+
+  private Component publishFileWithCoverage(File outputDir, boolean hits) {
+    DefaultComponentTree tree = new DefaultComponentTree();
+    DefaultInputModule root = new DefaultInputModule(ProjectDefinition.create().setKey("foo"), 1);
+    InputModuleHierarchy moduleHierarchy = mock(InputModuleHierarchy.class);
+    when(moduleHierarchy.root()).thenReturn(root);
+    DefaultInputDir dir = new DefaultInputDir("foo", "src", 2);
+    tree.index(dir, root);
+    DefaultInputFile file = new TestInputFileBuilder("foo", "src/Foo.java", 3).setLines(2).setHash("source hash").build();
+    tree.index(file, dir);
+
+    ScannerReportWriter writer = new ScannerReportWriter(outputDir);
+    writer.writeComponentCoverage(file.batchId(), Collections.singletonList(ScannerReport.LineCoverage.newBuilder().setLine(1).setHits(hits).build()));
+    new ComponentsPublisher(moduleHierarchy, tree).publish(writer);
+
+    return new ScannerReportReader(outputDir).readComponent(file.batchId());
+  }
 }
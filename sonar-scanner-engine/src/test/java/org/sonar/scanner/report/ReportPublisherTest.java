@@ -19,12 +19,18 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -48,6 +54,7 @@ import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
 import org.sonarqube.ws.WsCe;
 import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
@@ -219,4 +226,42 @@ public class ReportPublisherTest {
       entry("projectKey", "struts"));
   }
 
+  @Test
+  public void compress_report_into_request_body_in_streaming_mode() throws Exception {
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    settings.setProperty(ReportPublisher.COMPRESSION_LEVEL_KEY, "1");
+    underTest.start();
+    FileUtils.write(new File(underTest.getReportDir(), "metadata.pb"), "the metadata");
+
+    WsResponse response = mock(WsResponse.class);
+    when(response.failIfNotSuccessful()).thenReturn(response);
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(WsCe.SubmitResponse.newBuilder().setTaskId("TASK_1").build().toByteArray()));
+    ArgumentCaptor<WsRequest> capture = ArgumentCaptor.forClass(WsRequest.class);
+    when(wsClient.call(capture.capture())).thenAnswer(invocation -> {
+      // the report is compressed while the request is sent
+      PostRequest.Part part = ((PostRequest) capture.getValue()).getParts().get("report");
+      assertThat(part.getFile()).isNull();
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      part.getContentWriter().writeTo(body);
+      try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+        assertThat(zip.getNextEntry().getName()).isEqualTo("metadata.pb");
+        assertThat(IOUtils.toString(zip, StandardCharsets.UTF_8)).isEqualTo("the metadata");
+      }
+      return response;
+    });
+
+    assertThat(underTest.streamingUpload()).isEqualTo("TASK_1");
+    assertThat(logTester.logs(LoggerLevel.INFO).stream().anyMatch(log -> log.startsWith("Analysis report compressed and uploaded in "))).isTrue();
+  }
+
+  @Test
+  public void fail_if_compression_level_is_invalid() {
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    settings.setProperty(ReportPublisher.COMPRESSION_LEVEL_KEY, "10");
+
+    exception.expect(MessageException.class);
+    exception.expectMessage("Property 'sonar.scanner.report.compressionLevel' must be an integer between 0 and 9. Got: '10'");
+    underTest.start();
+  }
+
 }
@@ -73,6 +73,15 @@ public class CharsetDetectorTest {
     assertThat(readFile(basedir.resolve("UTF-32LE.txt"), US_ASCII)).isEqualTo("UTF-32LE");
   }
 
+  @Test
+  public void should_give_length_of_BOM() {
+    Path basedir = Paths.get("src/test/resources/org/sonar/scanner/scan/filesystem/");
+    assertThat(bomLength(basedir.resolve("without_BOM.txt"))).isEqualTo(0);
+    assertThat(bomLength(basedir.resolve("UTF-8.txt"))).isEqualTo(3);
+    assertThat(bomLength(basedir.resolve("UTF-16LE.txt"))).isEqualTo(2);
+    assertThat(bomLength(basedir.resolve("UTF-32BE.txt"))).isEqualTo(4);
+  }
+
   @Test
   public void always_try_utf8() throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -111,6 +120,12 @@ public class CharsetDetectorTest {
     return StringUtils.join(readLines, "\n");
   }
 
+  private int bomLength(Path file) {
+    CharsetDetector detector = new CharsetDetector(file, US_ASCII);
+    assertThat(detector.run()).isTrue();
+    return detector.bomLength();
+  }
+
   private Charset detectCharset(Path file, Charset defaultEncoding) {
     CharsetDetector detector = new CharsetDetector(file, defaultEncoding);
     assertThat(detector.run()).isTrue();
@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.Metadata;
+
+/**
+ * Compares the computation of {@link Metadata} by decoding chars with the computation on the bytes of the file,
+ * on the huge file of the performance test project (about 850 KB, so memory-mapped).
+ * It is not executed by the build. Run it with {@link #main(String[])} from the module directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FileMetadataBenchmark {
+
+  @Param({"../tests/projects/performance/huge-file/src/main/java/huge/HugeFile.java"})
+  private String file;
+
+  private final FileMetadata fileMetadata = new FileMetadata();
+  private Path path;
+
+  @Setup
+  public void setUp() {
+    path = Paths.get(file);
+    if (!Files.isRegularFile(path)) {
+      throw new IllegalStateException("File not found: " + path.toAbsolutePath());
+    }
+  }
+
+  @Benchmark
+  public Metadata decode_chars() throws Exception {
+    try (InputStream stream = Files.newInputStream(path)) {
+      return fileMetadata.readMetadata(stream, StandardCharsets.UTF_8, file);
+    }
+  }
+
+  @Benchmark
+  public Metadata scan_bytes() {
+    return fileMetadata.readMetadata(path, 0, StandardCharsets.UTF_8, file, null);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(FileMetadataBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
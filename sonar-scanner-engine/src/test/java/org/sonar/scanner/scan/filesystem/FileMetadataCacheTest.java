@@ -0,0 +1,155 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.home.cache.FileCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileMetadataCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private InputModuleHierarchy moduleHierarchy = mock(InputModuleHierarchy.class);
+  private FileCache fileCache = mock(FileCache.class);
+  private System2 system2 = mock(System2.class);
+  private Settings settings = new MapSettings();
+  private Path file;
+
+  @Before
+  public void setUp() throws IOException {
+    File baseDir = temp.newFolder();
+    when(moduleHierarchy.root()).thenReturn(new DefaultInputModule(ProjectDefinition.create().setKey("foo").setBaseDir(baseDir).setWorkDir(temp.newFolder()), 1));
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    when(fileCache.createTempDir()).thenAnswer(invocation -> temp.newFolder());
+    file = baseDir.toPath().resolve("Foo.java");
+    FileUtils.write(file.toFile(), "foo\nbar");
+    file.toFile().setLastModified(10_000L);
+    when(system2.now()).thenReturn(20_000L);
+  }
+
+  @Test
+  public void metadata_is_kept_between_analyses() {
+    FileMetadataCache underTest = newStartedCache();
+    FileMetadataCache.Key key = underTest.keyOf(file, StandardCharsets.UTF_8);
+    assertThat(underTest.get(key, "module")).isNull();
+    underTest.put(key, StandardCharsets.ISO_8859_1, new Metadata(2, 2, "hash", new int[] {0, 4}, 7));
+    assertThat(underTest.misses("module")).isEqualTo(1);
+    underTest.stop();
+
+    underTest = newStartedCache();
+    FileMetadataCache.Entry entry = underTest.get(underTest.keyOf(file, StandardCharsets.UTF_8), "module");
+    assertThat(entry.charset()).isEqualTo(StandardCharsets.ISO_8859_1);
+    assertThat(entry.metadata().lines()).isEqualTo(2);
+    assertThat(entry.metadata().nonBlankLines()).isEqualTo(2);
+    assertThat(entry.metadata().hash()).isEqualTo("hash");
+    assertThat(underTest.hits("module")).isEqualTo(1);
+    assertThat(underTest.misses("module")).isEqualTo(0);
+    assertThat(underTest.hits("other")).isEqualTo(0);
+    assertThat(entry.metadata().originalLineOffsets()).containsExactly(0, 4);
+    assertThat(entry.metadata().lastValidOffset()).isEqualTo(7);
+  }
+
+  @Test
+  public void entry_is_invalid_if_file_or_encoding_changed() throws IOException {
+    FileMetadataCache underTest = newStartedCache();
+    underTest.put(underTest.keyOf(file, StandardCharsets.UTF_8), StandardCharsets.UTF_8, new Metadata(2, 2, "hash", new int[] {0, 4}, 7));
+
+    assertThat(underTest.get(underTest.keyOf(file, StandardCharsets.ISO_8859_1), "module")).isNull();
+
+    file.toFile().setLastModified(12_000L);
+    assertThat(underTest.get(underTest.keyOf(file, StandardCharsets.UTF_8), "module")).isNull();
+
+    FileUtils.write(file.toFile(), "foo\nbar\nbaz");
+    file.toFile().setLastModified(10_000L);
+    assertThat(underTest.get(underTest.keyOf(file, StandardCharsets.UTF_8), "module")).isNull();
+  }
+
+  @Test
+  public void do_not_cache_recently_modified_files() {
+    when(system2.now()).thenReturn(11_000L);
+    FileMetadataCache underTest = newStartedCache();
+    FileMetadataCache.Key key = underTest.keyOf(file, StandardCharsets.UTF_8);
+    underTest.put(key, StandardCharsets.UTF_8, new Metadata(2, 2, "hash", new int[] {0, 4}, 7));
+
+    assertThat(underTest.get(key, "module")).isNull();
+  }
+
+  @Test
+  public void entries_of_deleted_files_are_dropped() {
+    FileMetadataCache underTest = newStartedCache();
+    FileMetadataCache.Key key = underTest.keyOf(file, StandardCharsets.UTF_8);
+    underTest.put(key, StandardCharsets.UTF_8, new Metadata(2, 2, "hash", new int[] {0, 4}, 7));
+    FileUtils.deleteQuietly(file.toFile());
+    underTest.stop();
+
+    underTest = newStartedCache();
+    assertThat(underTest.get(key, "module")).isNull();
+  }
+
+  @Test
+  public void ignore_corrupted_cache() throws IOException {
+    FileMetadataCache underTest = newStartedCache();
+    underTest.put(underTest.keyOf(file, StandardCharsets.UTF_8), StandardCharsets.UTF_8, new Metadata(2, 2, "hash", new int[] {0, 4}, 7));
+    underTest.stop();
+    File[] cacheFiles = new File(fileCache.getDir(), "_metadata").listFiles();
+    assertThat(cacheFiles).hasSize(1);
+    FileUtils.write(cacheFiles[0], "corrupted");
+
+    underTest = newStartedCache();
+    assertThat(underTest.get(underTest.keyOf(file, StandardCharsets.UTF_8), "module")).isNull();
+  }
+
+  @Test
+  public void cache_can_be_disabled() {
+    settings.setProperty(FileMetadataCache.ENABLED_KEY, false);
+    FileMetadataCache underTest = newStartedCache();
+
+    assertThat(underTest.isEnabled()).isFalse();
+    assertThat(underTest.keyOf(file, StandardCharsets.UTF_8)).isNull();
+    underTest.stop();
+    assertThat(new File(fileCache.getDir(), "_metadata")).doesNotExist();
+  }
+
+  private FileMetadataCache newStartedCache() {
+    FileMetadataCache cache = new FileMetadataCache(moduleHierarchy, fileCache, settings, system2);
+    cache.start();
+    return cache;
+  }
+}
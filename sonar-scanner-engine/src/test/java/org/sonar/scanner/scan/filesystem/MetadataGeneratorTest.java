@@ -21,7 +21,10 @@ package org.sonar.scanner.scan.filesystem;
 
 import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -41,6 +44,7 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.Metadata;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.utils.PathUtils;
 import org.sonar.scanner.issue.ignore.pattern.IssueExclusionPatternInitializer;
@@ -56,6 +60,9 @@ public class MetadataGeneratorTest {
   @Mock
   private DefaultModuleFileSystem fs;
 
+  @Mock
+  private FileMetadataCache metadataCache;
+
   private FileMetadata metadata;
   private MetadataGenerator generator;
 
@@ -64,7 +71,7 @@ public class MetadataGeneratorTest {
     MockitoAnnotations.initMocks(this);
     metadata = new FileMetadata();
     IssueExclusionsLoader issueExclusionsLoader = new IssueExclusionsLoader(mock(IssueExclusionPatternInitializer.class), mock(PatternMatcher.class));
-    generator = new MetadataGenerator(new DefaultInputModule("module"), statusDetection, metadata, issueExclusionsLoader);
+    generator = new MetadataGenerator(new DefaultInputModule("module"), statusDetection, metadata, issueExclusionsLoader, metadataCache);
   }
 
   @Test
@@ -151,4 +158,32 @@ public class MetadataGeneratorTest {
     assertThat(inputFile.relativePath()).isEqualTo("src/main/java/foo/Bar.java");
     assertThat(inputFile.lines()).isEqualTo(1);
   }
+
+  @Test
+  public void use_cached_metadata_without_reading_file() {
+    Path baseDir = temp.getRoot().toPath();
+    FileMetadataCache.Key key = new FileMetadataCache.Key("Foo.java", 3L, 1_000L, "US-ASCII");
+    Metadata cachedMetadata = new Metadata(2, 1, "hash", new int[] {0, 2}, 3);
+    when(metadataCache.keyOf(baseDir.resolve("Foo.java"), StandardCharsets.US_ASCII)).thenReturn(key);
+    when(metadataCache.get(key, "module")).thenReturn(new FileMetadataCache.Entry(key, StandardCharsets.UTF_8, cachedMetadata));
+
+    // file does not exist, so it can't be read
+    DefaultInputFile inputFile = createInputFileWithMetadata(baseDir, "Foo.java");
+
+    assertThat(inputFile.charset()).isEqualTo(StandardCharsets.UTF_8);
+    assertThat(inputFile.lines()).isEqualTo(2);
+    assertThat(inputFile.hash()).isEqualTo("hash");
+  }
+
+  @Test
+  public void put_metadata_in_cache_when_not_found() throws IOException {
+    Path baseDir = temp.newFolder().toPath();
+    FileUtils.write(baseDir.resolve("Foo.java").toFile(), "single line");
+    FileMetadataCache.Key key = new FileMetadataCache.Key("Foo.java", 11L, 1_000L, "US-ASCII");
+    when(metadataCache.keyOf(baseDir.resolve("Foo.java"), StandardCharsets.US_ASCII)).thenReturn(key);
+
+    createInputFileWithMetadata(baseDir, "Foo.java");
+
+    verify(metadataCache).put(eq(key), eq(StandardCharsets.US_ASCII), any(Metadata.class));
+  }
 }
@@ -19,21 +19,39 @@
  */
 package org.sonar.scanner.scm;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scm.DefaultBlameOutput;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
 public class DefaultBlameOutputTest {
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public LogTester logTester = new LogTester();
+
   @Test
   public void shouldNotFailIfNotSameNumberOfLines() {
     InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").setLines(10).build();
@@ -74,4 +92,31 @@ public class DefaultBlameOutputTest {
       .blameResult(file, Arrays.asList(new BlameLine().date(new Date()).author("guy")));
   }
 
+  @Test
+  public void write_changesets_of_files_blamed_concurrently() throws Exception {
+    ScannerReportWriter writer = mock(ScannerReportWriter.class);
+    List<InputFile> files = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      files.add(new TestInputFileBuilder("foo", "src/main/java/Foo" + i + ".java").setLines(1).build());
+    }
+    DefaultBlameOutput underTest = new DefaultBlameOutput(writer, files);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (InputFile file : files) {
+        futures.add(executorService.submit(() -> underTest.blameResult(file, Arrays.asList(new BlameLine().revision("1").date(new Date()).author("guy")))));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+    underTest.finish(true);
+
+    verify(writer, times(100)).writeComponentChangesets(any(ScannerReport.Changesets.class));
+    assertThat(logTester.logs(LoggerLevel.WARN)).isEmpty();
+  }
+
 }
@@ -0,0 +1,160 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.CoreProperties;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.GlobalTempFolderProvider;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Throughput of put, get and iteration on a {@link Storage}, with one and four threads, and with a buffer pool
+ * small enough ({@code bufferSizeMb=1}) for values to be spilled to disk.
+ * It is not executed by the build. Run it with {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StorageBenchmark {
+
+  private static final String VALUE = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt";
+
+  @Param({"1", "8"})
+  private String bufferSizeMb;
+
+  @Param({"100000"})
+  private int keys;
+
+  private File workDir;
+  private StoragesManager storagesManager;
+  private Storages storages;
+  private Storage<String> storage;
+  private final AtomicInteger counter = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    workDir = Files.createTempDirectory("storage-benchmark").toFile();
+    GlobalProperties globalProperties = new GlobalProperties(ImmutableMap.of(
+      CoreProperties.WORKING_DIRECTORY, workDir.getAbsolutePath(),
+      CoreProperties.GLOBAL_WORKING_DIRECTORY, workDir.getAbsolutePath(),
+      StoragesManager.BUFFER_SIZE_PROPERTY, bufferSizeMb));
+    storagesManager = new StoragesManager(new GlobalTempFolderProvider().provide(globalProperties), globalProperties);
+    storages = new Storages(storagesManager);
+    storage = storages.createCache("benchmark");
+    for (int i = 0; i < keys; i++) {
+      storage.put("component" + (i % 100), i, VALUE);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    storages.stop();
+    storagesManager.stop();
+    deleteQuietly(workDir);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void put_single_thread() {
+    put();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void put_four_threads() {
+    put();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String get_single_thread() {
+    return get();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String get_four_threads() {
+    return get();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void iterate_single_thread(Blackhole blackhole) {
+    iterate(blackhole);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void iterate_four_threads(Blackhole blackhole) {
+    iterate(blackhole);
+  }
+
+  private void put() {
+    int i = counter.incrementAndGet() % keys;
+    storage.put("component" + (i % 100), i, VALUE);
+  }
+
+  private String get() {
+    int i = counter.incrementAndGet() % keys;
+    return storage.get("component" + (i % 100), i);
+  }
+
+  private void iterate(Blackhole blackhole) {
+    int i = counter.incrementAndGet() % 100;
+    for (String value : storage.values("component" + i)) {
+      blackhole.consume(value);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(StorageBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
@@ -20,6 +20,11 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage;
@@ -29,6 +34,35 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 public class StorageTest extends AbstractCachesTest {
 
+  @Test
+  public void concurrent_writers() throws Exception {
+    Storage<String> cache = caches.createCache("concurrent");
+    int threads = 4;
+    int valuesPerThread = 1_000;
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executorService.submit(() -> {
+          for (int i = 0; i < valuesPerThread; i++) {
+            cache.put(thread, i, "value" + i);
+            assertThat(cache.get(thread, i)).isEqualTo("value" + i);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    for (int t = 0; t < threads; t++) {
+      assertThat(cache.values(t)).hasSize(valuesPerThread);
+    }
+  }
+
   @Test
   public void one_part_key() {
     Storage<String> cache = caches.createCache("capitals");
@@ -19,15 +19,25 @@
  */
 package org.sonar.scanner.storage;
 
-import org.junit.Test;
-import org.sonar.scanner.index.AbstractCachesTest;
+import com.google.common.collect.ImmutableMap;
 import java.io.File;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.CoreProperties;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.GlobalTempFolderProvider;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class StoragesManagerTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
-public class StoragesManagerTest extends AbstractCachesTest {
   @Test
   public void should_stop_and_clean_temp_dir() {
+    StoragesManager cachesManager = create(ImmutableMap.of());
     File tempDir = cachesManager.tempDir();
     assertThat(tempDir).isDirectory().exists();
     assertThat(cachesManager.persistit()).isNotNull();
@@ -39,4 +49,54 @@ public class StoragesManagerTest extends AbstractCachesTest {
     assertThat(cachesManager.tempDir()).isNull();
     assertThat(cachesManager.persistit()).isNull();
   }
+
+  @Test
+  public void buffer_size_is_8mb_by_default() {
+    StoragesManager cachesManager = create(ImmutableMap.of());
+    try {
+      assertThat(cachesManager.getBufferCount()).isEqualTo(1024);
+    } finally {
+      cachesManager.stop();
+    }
+  }
+
+  @Test
+  public void buffer_size_is_configurable() {
+    StoragesManager cachesManager = create(ImmutableMap.of(StoragesManager.BUFFER_SIZE_PROPERTY, "32"));
+    try {
+      assertThat(cachesManager.getBufferCount()).isEqualTo(4096);
+    } finally {
+      cachesManager.stop();
+    }
+  }
+
+  @Test
+  public void default_buffer_size_is_used_if_not_positive() {
+    StoragesManager cachesManager = create(ImmutableMap.of(StoragesManager.BUFFER_SIZE_PROPERTY, "0"));
+    try {
+      assertThat(cachesManager.getBufferCount()).isEqualTo(1024);
+    } finally {
+      cachesManager.stop();
+    }
+  }
+
+  @Test
+  public void fail_if_buffer_size_is_not_an_integer() {
+    try {
+      create(ImmutableMap.of(StoragesManager.BUFFER_SIZE_PROPERTY, "foo"));
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to start caches");
+      assertThat(e.getCause()).hasMessage("Property sonar.scanner.storage.bufferSizeMb must be an integer. Got: foo");
+    }
+  }
+
+  private StoragesManager create(ImmutableMap<String, String> properties) {
+    GlobalProperties globalProperties = new GlobalProperties(ImmutableMap.<String, String>builder()
+      .put(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath())
+      .put(CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath())
+      .putAll(properties)
+      .build());
+    return new StoragesManager(new GlobalTempFolderProvider().provide(globalProperties), globalProperties);
+  }
 }
@@ -19,162 +19,256 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import javax.annotation.CheckForNull;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
 
 import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
+import static org.sonar.scanner.protocol.output.FileStructure.fileNameFor;
 
-public class ScannerReportReader {
+/**
+ * Reads the analysis report, either from the directory it is extracted to, or directly from its zip file.
+ * In the latter case, entries are decompressed on demand and the central directory of the zip file is used as index,
+ * so that the many small files of the report are never written to disk.
+ */
+public class ScannerReportReader implements Closeable {
 
   private final FileStructure fileStructure;
+  private final ZipFile zipFile;
 
   public ScannerReportReader(File dir) {
     this.fileStructure = new FileStructure(dir);
+    this.zipFile = null;
+  }
+
+  private ScannerReportReader(ZipFile zipFile) {
+    this.fileStructure = null;
+    this.zipFile = zipFile;
+  }
+
+  /**
+   * Reads the report from its zip file, without extracting it. The reader must be closed.
+   */
+  public static ScannerReportReader fromZip(File zip) {
+    try {
+      return new ScannerReportReader(new ZipFile(zip));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open analysis report " + zip, e);
+    }
   }
 
   public ScannerReport.Metadata readMetadata() {
-    File file = fileStructure.metadataFile();
-    if (!fileExists(file)) {
-      throw new IllegalStateException("Metadata file is missing in analysis report: " + file);
+    if (!exists(FileStructure.METADATA)) {
+      throw new IllegalStateException("Metadata file is missing in analysis report: " + describe(FileStructure.METADATA));
     }
-    return Protobuf.read(file, ScannerReport.Metadata.parser());
+    return read(FileStructure.METADATA, ScannerReport.Metadata.parser());
   }
 
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
-    File file = fileStructure.activeRules();
-    if (!fileExists(file)) {
-      return emptyCloseableIterator();
-    }
-    return Protobuf.readStream(file, ScannerReport.ActiveRule.parser());
+    return readStream(FileStructure.ACTIVE_RULES, ScannerReport.ActiveRule.parser());
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.MEASURES, componentRef), ScannerReport.Measure.parser());
   }
 
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
+    String name = fileNameFor(FileStructure.Domain.CHANGESETS, componentRef);
+    if (exists(name)) {
+      return read(name, ScannerReport.Changesets.parser());
     }
     return null;
   }
 
   public ScannerReport.Component readComponent(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
-    if (!fileExists(file)) {
-      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
+    String name = fileNameFor(FileStructure.Domain.COMPONENT, componentRef);
+    if (!exists(name)) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + describe(name));
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return read(name, ScannerReport.Component.parser());
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.ISSUES, componentRef), ScannerReport.Issue.parser());
   }
 
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.DUPLICATIONS, componentRef), ScannerReport.Duplication.parser());
   }
 
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef), ScannerReport.CpdTextBlock.parser());
   }
 
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.SYMBOLS, componentRef), ScannerReport.Symbol.parser());
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return exists(fileNameFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef));
   }
 
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef), ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   public boolean hasCoverage(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return exists(fileNameFor(FileStructure.Domain.COVERAGES, componentRef));
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.COVERAGES, fileRef), ScannerReport.LineCoverage.parser());
   }
 
+  /**
+   * Only supported when the report is extracted. See {@link #openFileSource(int)}.
+   */
   @CheckForNull
   public File readFileSource(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, fileRef);
-    if (fileExists(file)) {
-      return file;
-    }
-    return null;
+    return extractedFile(fileNameFor(FileStructure.Domain.SOURCE, fileRef));
   }
 
+  /**
+   * Only supported when the report is extracted. See {@link #openTests(int)}.
+   */
   @CheckForNull
   public File readTests(int testFileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.TESTS, testFileRef);
-    if (fileExists(file)) {
-      return file;
-    }
-
-    return null;
+    return extractedFile(fileNameFor(FileStructure.Domain.TESTS, testFileRef));
   }
 
+  /**
+   * Only supported when the report is extracted. See {@link #openCoverageDetails(int)}.
+   */
   @CheckForNull
   public File readCoverageDetails(int testFileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
-    if (fileExists(file)) {
-      return file;
-    }
+    return extractedFile(fileNameFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef));
+  }
 
-    return null;
+  /**
+   * The stream must be closed by the caller.
+   */
+  @CheckForNull
+  public InputStream openFileSource(int fileRef) {
+    return openIfExists(fileNameFor(FileStructure.Domain.SOURCE, fileRef));
+  }
+
+  /**
+   * The stream must be closed by the caller.
+   */
+  @CheckForNull
+  public InputStream openTests(int testFileRef) {
+    return openIfExists(fileNameFor(FileStructure.Domain.TESTS, testFileRef));
+  }
+
+  /**
+   * The stream must be closed by the caller.
+   */
+  @CheckForNull
+  public InputStream openCoverageDetails(int testFileRef) {
+    return openIfExists(fileNameFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef));
+  }
+
+  /**
+   * The stream must be closed by the caller.
+   */
+  @CheckForNull
+  public InputStream openAnalysisLog() {
+    return openIfExists(FileStructure.ANALYSIS_LOG);
   }
 
   public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
-    File file = fileStructure.contextProperties();
-    if (!fileExists(file)) {
+    return readStream(FileStructure.CONTEXT_PROPERTIES, ScannerReport.ContextProperty.parser());
+  }
+
+  /**
+   * Only supported when the report is extracted.
+   */
+  public FileStructure getFileStructure() {
+    checkExtracted();
+    return fileStructure;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (zipFile != null) {
+      zipFile.close();
+    }
+  }
+
+  private <MSG extends Message> MSG read(String name, Parser<MSG> parser) {
+    if (zipFile == null) {
+      return Protobuf.read(new File(fileStructure.root(), name), parser);
+    }
+    return Protobuf.read(open(name), parser);
+  }
+
+  private <MSG extends Message> CloseableIterator<MSG> readStream(String name, Parser<MSG> parser) {
+    if (!exists(name)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
+    if (zipFile == null) {
+      return Protobuf.readStream(new File(fileStructure.root(), name), parser);
+    }
+    // the stream is closed by the iterator
+    return Protobuf.readStream(open(name), parser);
   }
 
-  private static boolean fileExists(File file) {
-    return file.exists() && file.isFile();
+  @CheckForNull
+  private File extractedFile(String name) {
+    checkExtracted();
+    File file = new File(fileStructure.root(), name);
+    return fileExists(file) ? file : null;
   }
 
-  public FileStructure getFileStructure() {
-    return fileStructure;
+  @CheckForNull
+  private InputStream openIfExists(String name) {
+    return exists(name) ? open(name) : null;
+  }
+
+  private boolean exists(String name) {
+    if (zipFile == null) {
+      return fileExists(new File(fileStructure.root(), name));
+    }
+    ZipEntry entry = zipFile.getEntry(name);
+    return entry != null && !entry.isDirectory();
+  }
+
+  private InputStream open(String name) {
+    try {
+      if (zipFile == null) {
+        return new BufferedInputStream(new FileInputStream(new File(fileStructure.root(), name)));
+      }
+      return new BufferedInputStream(zipFile.getInputStream(zipFile.getEntry(name)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open " + describe(name), e);
+    }
+  }
+
+  private String describe(String name) {
+    if (zipFile == null) {
+      return new File(fileStructure.root(), name).toString();
+    }
+    return zipFile.getName() + "!/" + name;
+  }
+
+  private void checkExtracted() {
+    if (zipFile != null) {
+      throw new IllegalStateException("Analysis report is read from zip file " + zipFile.getName() + " and is not extracted");
+    }
+  }
+
+  private static boolean fileExists(File file) {
+    return file.exists() && file.isFile();
   }
 }
@@ -22,7 +22,10 @@ package org.sonar.scanner.protocol.output;
 import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
@@ -37,6 +40,7 @@ import org.sonar.scanner.protocol.output.ScannerReport.Test.TestStatus;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 public class ScannerReportReaderTest {
 
@@ -377,4 +381,56 @@ public class ScannerReportReaderTest {
   public void return_null_when_no_file_source() throws Exception {
     assertThat(underTest.readFileSource(UNKNOWN_COMPONENT_REF)).isNull();
   }
+  @Test
+  public void read_zipped_report_without_extracting_it() throws Exception {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("PROJECT_A").build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    writer.writeComponentMeasures(1, singletonList(ScannerReport.Measure.newBuilder().setMetricKey("ncloc").build()));
+    FileUtils.write(writer.getSourceFile(1), "source");
+    File zip = zip(dir);
+
+    try (ScannerReportReader zipReader = ScannerReportReader.fromZip(zip)) {
+      assertThat(zipReader.readMetadata().getProjectKey()).isEqualTo("PROJECT_A");
+      assertThat(zipReader.readComponent(1).getRef()).isEqualTo(1);
+      assertThat(zipReader.readComponentMeasures(1)).hasSize(1);
+      assertThat(zipReader.readComponentMeasures(UNKNOWN_COMPONENT_REF)).isEmpty();
+      assertThat(zipReader.hasCoverage(1)).isFalse();
+      try (InputStream source = zipReader.openFileSource(1)) {
+        assertThat(IOUtils.toString(source)).isEqualTo("source");
+      }
+      assertThat(zipReader.openFileSource(UNKNOWN_COMPONENT_REF)).isNull();
+    }
+  }
+
+  @Test
+  public void fail_to_read_component_missing_in_zipped_report() throws Exception {
+    File zip = zip(dir);
+
+    try (ScannerReportReader zipReader = ScannerReportReader.fromZip(zip)) {
+      zipReader.readComponent(1);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Unable to find report for component #1. File does not exist: " + zip.getAbsolutePath() + "!/component-1.pb");
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void files_are_not_available_in_zipped_report() throws Exception {
+    try (ScannerReportReader zipReader = ScannerReportReader.fromZip(zip(dir))) {
+      zipReader.readFileSource(1);
+    }
+  }
+
+  private File zip(File reportDir) throws IOException {
+    File zip = temp.newFile();
+    try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(zip))) {
+      for (File file : reportDir.listFiles()) {
+        output.putNextEntry(new ZipEntry(file.getName()));
+        FileUtils.copyFile(file, output);
+        output.closeEntry();
+      }
+    }
+    return zip;
+  }
 }
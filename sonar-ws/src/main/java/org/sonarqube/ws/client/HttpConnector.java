@@ -35,6 +35,7 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -134,8 +135,8 @@ public class HttpConnector implements WsConnector {
         PostRequest.Part part = param.getValue();
         bodyBuilder.addFormDataPart(
           param.getKey(),
-          part.getFile().getName(),
-          RequestBody.create(MediaType.parse(part.getMediaType()), part.getFile()));
+          part.getFilename(),
+          toRequestBody(part));
       });
       body = bodyBuilder.build();
     }
@@ -143,6 +144,26 @@ public class HttpConnector implements WsConnector {
     return doCall(reqBuilder.post(body).build());
   }
 
+  private static RequestBody toRequestBody(PostRequest.Part part) {
+    MediaType mediaType = MediaType.parse(part.getMediaType());
+    PostRequest.ContentWriter contentWriter = part.getContentWriter();
+    if (contentWriter == null) {
+      return RequestBody.create(mediaType, part.getFile());
+    }
+    return new RequestBody() {
+      @Override
+      public MediaType contentType() {
+        return mediaType;
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        // unknown length, so body is sent with chunked transfer encoding
+        contentWriter.writeTo(sink.outputStream());
+      }
+    };
+  }
+
   private HttpUrl.Builder prepareUrlBuilder(WsRequest wsRequest) {
     String path = wsRequest.getPath();
     return baseUrl
@@ -20,8 +20,11 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -51,19 +54,69 @@ public class PostRequest extends BaseRequest<PostRequest> {
   public static class Part {
     private final String mediaType;
     private final File file;
+    private final String filename;
+    private final ContentWriter contentWriter;
 
     public Part(String mediaType, File file) {
       this.mediaType = mediaType;
       this.file = file;
+      this.filename = file.getName();
+      this.contentWriter = null;
+    }
+
+    /**
+     * Part whose content is written directly into the request body, without knowing its length
+     * beforehand (chunked transfer encoding).
+     *
+     * @since 6.5
+     */
+    public Part(String mediaType, String filename, ContentWriter contentWriter) {
+      this.mediaType = mediaType;
+      this.file = null;
+      this.filename = filename;
+      this.contentWriter = contentWriter;
     }
 
     public String getMediaType() {
       return mediaType;
     }
 
+    /**
+     * @return {@code null} if the content of the part is streamed
+     */
+    @CheckForNull
     public File getFile() {
       return file;
     }
+
+    /**
+     * @since 6.5
+     */
+    public String getFilename() {
+      return filename;
+    }
+
+    /**
+     * @return {@code null} if the content of the part is a file
+     * @since 6.5
+     */
+    @CheckForNull
+    public ContentWriter getContentWriter() {
+      return contentWriter;
+    }
+  }
+
+  /**
+   * Writes the content of a streamed {@link Part}. It can be called more than once if the request is retried.
+   *
+   * @since 6.5
+   */
+  @FunctionalInterface
+  public interface ContentWriter {
+    /**
+     * The output stream must not be closed.
+     */
+    void writeTo(OutputStream output) throws IOException;
   }
 
 }
@@ -56,5 +56,20 @@ public class PostRequestTest {
     PostRequest.Part part = request.getParts().get("report");
     assertThat(part.getMediaType()).isEqualTo(MediaTypes.JSON);
     assertThat(part.getFile()).isSameAs(reportFile);
+    assertThat(part.getFilename()).isEqualTo(reportFile.getName());
+    assertThat(part.getContentWriter()).isNull();
+  }
+
+  @Test
+  public void add_streamed_part() {
+    PostRequest request = new PostRequest("api/issues/search");
+    PostRequest.ContentWriter contentWriter = output -> output.write(1);
+    request.setPart("report", new PostRequest.Part(MediaTypes.ZIP, "report.zip", contentWriter));
+
+    PostRequest.Part part = request.getParts().get("report");
+    assertThat(part.getMediaType()).isEqualTo(MediaTypes.ZIP);
+    assertThat(part.getFilename()).isEqualTo("report.zip");
+    assertThat(part.getFile()).isNull();
+    assertThat(part.getContentWriter()).isSameAs(contentWriter);
   }
 }
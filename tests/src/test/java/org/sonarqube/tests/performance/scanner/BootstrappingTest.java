@@ -87,6 +87,26 @@ public class BootstrappingTest extends AbstractPerfTest {
     perfRule.assertDurationAround(MavenLogs.extractTotalTime(result.getLogs()), 27200L);
   }
 
+  @Test
+  public void analyzeProjectWithColdPluginCache() throws IOException {
+    // empty user home, so that all the plugins are downloaded and extracted
+    File userHome = temp.newFolder();
+    SonarScanner scanner = SonarScanner.create()
+      .setProperties(
+        "sonar.projectKey", "cold-plugin-cache",
+        "sonar.projectName", "Cold Plugin Cache",
+        "sonar.projectVersion", "1.0",
+        "sonar.sources", "",
+        "sonar.userHome", userHome.getAbsolutePath(),
+        "sonar.showProfiling", "true");
+    scanner
+      .setEnvironmentVariable("SONAR_RUNNER_OPTS", "-Xmx512m -server")
+      .setProjectDir(temp.newFolder());
+
+    BuildResult result = orchestrator.executeBuild(scanner);
+    perfRule.assertDurationAround(MavenLogs.extractTotalTime(result.getLogs()), 6000L);
+  }
+
   private static File prepareProjectWithManyFlatModules(int SIZE) throws IOException {
     File baseDir = temp.newFolder();
     File projectProps = new File(baseDir, "sonar-project.properties");
@@ -21,10 +21,14 @@ package org.sonarqube.tests.performance.scanner;
 
 import com.sonar.orchestrator.Orchestrator;
 import com.sonar.orchestrator.build.MavenBuild;
+import com.sonar.orchestrator.build.SonarScanner;
+import com.sonar.orchestrator.locator.FileLocation;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
+import java.util.Properties;
 import java.util.stream.Collectors;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
@@ -79,6 +83,62 @@ public class DuplicationTest extends AbstractPerfTest {
     assertThat(measure.get("duplicated_lines")).isGreaterThan(50000.0);
   }
 
+  @Test
+  public void detectDuplicationsSequentially() throws IOException {
+    File baseDir = prepareProjectWithDuplications(2000);
+
+    long duration = computeDuplications(baseDir, 1);
+
+    assertDurationAround(collector, duration, 30000L);
+    Map<String, Double> measure = getMeasures("duplications:src/sample1.xoo");
+    assertThat(measure.get("duplicated_lines")).isGreaterThan(0.0);
+  }
+
+  @Test
+  public void detectDuplicationsUsingSeveralThreads() throws IOException {
+    File baseDir = prepareProjectWithDuplications(2000);
+
+    long duration = computeDuplications(baseDir, 4);
+
+    assertDurationAround(collector, duration, 10000L);
+    Map<String, Double> measure = getMeasures("duplications:src/sample1.xoo");
+    assertThat(measure.get("duplicated_lines")).isGreaterThan(0.0);
+  }
+
+  /**
+   * Returns the duration of the "Computing duplications" step, as reported by the scanner profiling
+   */
+  private long computeDuplications(File baseDir, int threads) throws IOException {
+    SonarScanner scanner = SonarScanner.create()
+      .setProperties(
+        "sonar.cpd.threads", String.valueOf(threads),
+        "sonar.showProfiling", "true")
+      .setEnvironmentVariable("SONAR_RUNNER_OPTS", "-Xmx1024m -server")
+      .setEnvironmentVariable("SONAR_SCANNER_OPTS", "-Xmx1024m -server")
+      .setProjectDir(baseDir);
+    orchestrator.executeBuild(scanner);
+
+    Properties prof = readProfiling(baseDir, "duplications");
+    return Long.valueOf(prof.getProperty("Computing duplications"));
+  }
+
+  /**
+   * Copies the project projects/performance/duplications and replicates its source file, so that
+   * each file is duplicated in all the others
+   */
+  private File prepareProjectWithDuplications(int nbFiles) throws IOException {
+    File baseDir = temp.newFolder();
+    FileUtils.copyDirectory(FileLocation.of("projects/performance/duplications").getFile(), baseDir);
+    File template = new File(baseDir, "src/Sample.xoo");
+    String duplicatedContent = FileUtils.readFileToString(template);
+    for (int nb = 1; nb <= nbFiles; nb++) {
+      File xooFile = new File(baseDir, "src/sample" + nb + ".xoo");
+      FileUtils.write(xooFile, "unique" + nb + "\n" + duplicatedContent);
+    }
+    FileUtils.forceDelete(template);
+    return baseDir;
+  }
+
   private Map<String, Double> getMeasures(String key) {
     return newWsClient().measures().component(new ComponentWsRequest()
       .setComponentKey(key)